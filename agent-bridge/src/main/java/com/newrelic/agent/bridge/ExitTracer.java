@@ -25,4 +25,14 @@ public interface ExitTracer extends InvocationHandler, TracedMethod {
      * @param throwable
      */
     void finish(Throwable throwable);
+
+    /**
+     * Returns the traced method handed to instrumentation code that asks for the current traced method. The code may
+     * keep it after the invocation completes, so a tracer that is reused once it finishes returns another one.
+     *
+     * @return the traced method of this invocation
+     */
+    default TracedMethod getTracedMethod() {
+        return this;
+    }
 }
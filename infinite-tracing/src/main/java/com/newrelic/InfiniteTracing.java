@@ -6,6 +6,8 @@ import com.newrelic.api.agent.Logger;
 import com.newrelic.api.agent.MetricAggregator;
 
 import javax.annotation.concurrent.GuardedBy;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
@@ -26,9 +28,8 @@ public class InfiniteTracing implements Consumer<SpanEvent> {
     private final BlockingQueue<SpanEvent> queue;
 
     private final Object lock = new Object();
-    @GuardedBy("lock") private Future<?> spanEventSenderFuture;
-    @GuardedBy("lock") private SpanEventSender spanEventSender;
-    @GuardedBy("lock") private ChannelManager channelManager;
+    @GuardedBy("lock") private final List<Future<?>> spanEventSenderFutures = new ArrayList<>();
+    @GuardedBy("lock") private final List<ChannelManager> channelManagers = new ArrayList<>();
 
     @VisibleForTesting
     InfiniteTracing(InfiniteTracingConfig config, MetricAggregator aggregator, ExecutorService executorService, BlockingQueue<SpanEvent> queue) {
@@ -52,26 +53,37 @@ public class InfiniteTracing implements Consumer<SpanEvent> {
             aggregator.incrementCounter("Supportability/InfiniteTracing/gRPC/Compression/" + (config.getUseCompression() ? "enabled" : "disabled"));
             aggregator.incrementCounter("Supportability/InfiniteTracing/gRPC/Batching/" + (config.getUseBatching() ? "enabled" : "disabled"));
 
-            if (spanEventSenderFuture != null) {
-                channelManager.updateMetadata(agentRunToken, requestMetadata);
-                channelManager.shutdownChannelAndBackoff(0);
+            if (!spanEventSenderFutures.isEmpty()) {
+                for (ChannelManager channelManager : channelManagers) {
+                    channelManager.updateMetadata(agentRunToken, requestMetadata);
+                    channelManager.shutdownChannelAndBackoff(0);
+                }
                 return;
             }
-            logger.log(Level.INFO, "Starting Infinite Tracing.");
-            channelManager = buildChannelManager(agentRunToken, requestMetadata);
-            spanEventSender = buildSpanEventSender();
-            spanEventSenderFuture = executorService.submit(spanEventSender);
+            int streams = getSenderStreams(config);
+            aggregator.incrementCounter("Supportability/InfiniteTracing/gRPC/Streams/" + streams);
+            logger.log(Level.INFO, "Starting Infinite Tracing with {0} stream(s).", streams);
+            // Every stream has its own channel, so a stream that is backing off does not hold up the others
+            for (int stream = 1; stream <= streams; stream++) {
+                ChannelManager channelManager = buildChannelManager(agentRunToken, requestMetadata);
+                channelManagers.add(channelManager);
+                spanEventSenderFutures.add(executorService.submit(buildSpanEventSender(channelManager, stream)));
+            }
         }
     }
 
+    private static int getSenderStreams(InfiniteTracingConfig config) {
+        return Math.max(1, config.getSenderStreams());
+    }
+
     @VisibleForTesting
     ChannelManager buildChannelManager(String agentRunToken, Map<String, String> requestMetadata) {
         return new ChannelManager(config, aggregator, agentRunToken, requestMetadata);
     }
 
     @VisibleForTesting
-    SpanEventSender buildSpanEventSender() {
-        return new SpanEventSender(config, queue, aggregator, channelManager);
+    SpanEventSender buildSpanEventSender(ChannelManager channelManager, int stream) {
+        return new SpanEventSender(config, queue, aggregator, channelManager, stream, SpanEventSender.LINGER_MS);
     }
 
     /**
@@ -80,15 +92,18 @@ public class InfiniteTracing implements Consumer<SpanEvent> {
      */
     public void stop() {
         synchronized (lock) {
-            if (spanEventSenderFuture == null) {
+            if (spanEventSenderFutures.isEmpty()) {
                 return;
             }
             logger.log(Level.INFO, "Stopping Infinite Tracing.");
-            spanEventSenderFuture.cancel(true);
-            channelManager.shutdownChannelForever();
-            spanEventSenderFuture = null;
-            spanEventSender = null;
-            channelManager = null;
+            for (Future<?> spanEventSenderFuture : spanEventSenderFutures) {
+                spanEventSenderFuture.cancel(true);
+            }
+            for (ChannelManager channelManager : channelManagers) {
+                channelManager.shutdownChannelForever();
+            }
+            spanEventSenderFutures.clear();
+            channelManagers.clear();
         }
     }
 
@@ -115,7 +130,7 @@ public class InfiniteTracing implements Consumer<SpanEvent> {
      * @return the instance
      */
     public static InfiniteTracing initialize(InfiniteTracingConfig config, MetricAggregator aggregator) {
-        ExecutorService executorService = Executors.newSingleThreadExecutor(new DaemonThreadFactory("Infinite Tracing"));
+        ExecutorService executorService = Executors.newFixedThreadPool(getSenderStreams(config), new DaemonThreadFactory("Infinite Tracing"));
         return new InfiniteTracing(config, aggregator, executorService, new LinkedBlockingDeque<SpanEvent>(config.getMaxQueueSize()));
     }
 
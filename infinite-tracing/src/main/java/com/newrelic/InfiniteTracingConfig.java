@@ -15,6 +15,7 @@ public class InfiniteTracingConfig {
     private final boolean usePlaintext;
     private final boolean useCompression;
     private final boolean useBatching;
+    private final int senderStreams;
 
     public InfiniteTracingConfig(Builder builder) {
         this.licenseKey = builder.licenseKey;
@@ -27,6 +28,7 @@ public class InfiniteTracingConfig {
         this.usePlaintext = builder.usePlaintext;
         this.useCompression = builder.useCompression;
         this.useBatching = builder.useBatching;
+        this.senderStreams = builder.senderStreams;
     }
 
     public static Builder builder() {
@@ -73,6 +75,10 @@ public class InfiniteTracingConfig {
         return useBatching;
     }
 
+    public int getSenderStreams() {
+        return senderStreams;
+    }
+
     public static class Builder {
         public int maxQueueSize;
         public Logger logger;
@@ -84,6 +90,7 @@ public class InfiniteTracingConfig {
         private boolean usePlaintext;
         private boolean useCompression;
         private boolean useBatching;
+        private int senderStreams = 1;
 
         /**
          * The New Relic APM license key configured for the application.
@@ -178,6 +185,17 @@ public class InfiniteTracingConfig {
             return this;
         }
 
+        /**
+         * The optional number of gRPC streams, each with its own sender thread, used to send spans to the Trace
+         * Observer.
+         *
+         * @param senderStreams the number of streams, at least 1
+         */
+        public Builder senderStreams(int senderStreams) {
+            this.senderStreams = senderStreams;
+            return this;
+        }
+
         public InfiniteTracingConfig build() {
             return new InfiniteTracingConfig(this);
         }
@@ -3,14 +3,40 @@ package com.newrelic;
 import com.newrelic.agent.model.SpanEvent;
 import com.newrelic.trace.v1.V1;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
+/**
+ * Converts span events to gRPC spans.
+ *
+ * An instance reuses its span and batch builders, and the {@link V1.AttributeValue}s for the values of a fixed set of
+ * low-cardinality string attributes (span names, categories, app names and so on), which are immutable and repeat across
+ * spans. Values of other attributes, such as ids and statements, are unique to a span and are not cached. Instances are
+ * not thread-safe, so every sender thread owns one.
+ */
 class SpanConverter {
 
-    private SpanConverter() {
+    // string values cached per converter before the cache is cleared and starts over
+    private static final int MAX_CACHED_STRING_VALUES = 2048;
+
+    // intrinsics and agent attributes whose values repeat across spans
+    private static final Set<String> CACHED_STRING_ATTRIBUTES = new HashSet<>(Arrays.asList(
+            "type", "category", "name", "component", "span.kind", "parent.type", "parent.transportType",
+            "http.method", "db.system", "db.instance", "db.collection", "db.operation", "peer.hostname",
+            "server.address", "messaging.system", "cloud.platform", "cloud.region"));
+
+    private static final V1.AttributeValue TRUE = V1.AttributeValue.newBuilder().setBoolValue(true).build();
+    private static final V1.AttributeValue FALSE = V1.AttributeValue.newBuilder().setBoolValue(false).build();
+
+    private final V1.Span.Builder spanBuilder = V1.Span.newBuilder();
+    private final V1.SpanBatch.Builder batchBuilder = V1.SpanBatch.newBuilder();
+    private final Map<String, V1.AttributeValue> stringValues = new HashMap<>();
+
+    SpanConverter() {
     }
 
     /**
@@ -20,18 +46,7 @@ class SpanConverter {
      * @return the gRPC span
      */
     static V1.Span convert(SpanEvent spanEvent) {
-        Map<String, V1.AttributeValue> intrinsicAttributes = copyAttributes(spanEvent.getIntrinsics());
-        Map<String, V1.AttributeValue> userAttributes = copyAttributes(spanEvent.getUserAttributesCopy());
-        Map<String, V1.AttributeValue> agentAttributes = copyAttributes(spanEvent.getAgentAttributes());
-
-        intrinsicAttributes.put("appName", V1.AttributeValue.newBuilder().setStringValue(spanEvent.getAppName()).build());
-
-        return V1.Span.newBuilder()
-                .setTraceId(spanEvent.getTraceId())
-                .putAllIntrinsics(intrinsicAttributes)
-                .putAllAgentAttributes(agentAttributes)
-                .putAllUserAttributes(userAttributes)
-                .build();
+        return new SpanConverter().toSpan(spanEvent);
     }
 
     /**
@@ -41,30 +56,100 @@ class SpanConverter {
      * @return the gRPC span batch
      */
     static V1.SpanBatch convert(Collection<SpanEvent> spanEvents) {
-        return V1.SpanBatch.newBuilder()
-                .addAllSpans(spanEvents.stream().map(SpanConverter::convert).collect(Collectors.toList()))
-                .build();
+        return new SpanConverter().toSpanBatch(spanEvents);
+    }
+
+    /**
+     * Convert the span event the equivalent gRPC span, reusing this converter's builder and attribute values.
+     */
+    V1.Span toSpan(SpanEvent spanEvent) {
+        spanBuilder.clear();
+        spanBuilder.setTraceId(spanEvent.getTraceId());
+        copyIntrinsics(spanEvent.getIntrinsics());
+        copyAgentAttributes(spanEvent.getAgentAttributes());
+        copyUserAttributes(spanEvent.getUserAttributesCopy());
+        spanBuilder.putIntrinsics("appName", cachedStringValue(spanEvent.getAppName()));
+        return spanBuilder.build();
+    }
+
+    /**
+     * Convert the batch of span events to the equivalent gRPC spans, reusing this converter's builders and attribute
+     * values.
+     */
+    V1.SpanBatch toSpanBatch(Collection<SpanEvent> spanEvents) {
+        batchBuilder.clear();
+        for (SpanEvent spanEvent : spanEvents) {
+            batchBuilder.addSpans(toSpan(spanEvent));
+        }
+        return batchBuilder.build();
+    }
+
+    private void copyIntrinsics(Map<String, Object> attributes) {
+        if (attributes == null) {
+            return;
+        }
+        for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+            V1.AttributeValue value = attributeValue(entry.getKey(), entry.getValue());
+            if (value != null) {
+                spanBuilder.putIntrinsics(entry.getKey(), value);
+            }
+        }
+    }
+
+    private void copyAgentAttributes(Map<String, Object> attributes) {
+        if (attributes == null) {
+            return;
+        }
+        for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+            V1.AttributeValue value = attributeValue(entry.getKey(), entry.getValue());
+            if (value != null) {
+                spanBuilder.putAgentAttributes(entry.getKey(), value);
+            }
+        }
+    }
+
+    private void copyUserAttributes(Map<String, Object> attributes) {
+        if (attributes == null) {
+            return;
+        }
+        for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+            // user attribute names are not known in advance, so their values are never cached
+            V1.AttributeValue value = attributeValue(null, entry.getValue());
+            if (value != null) {
+                spanBuilder.putUserAttributes(entry.getKey(), value);
+            }
+        }
     }
 
-    private static Map<String, V1.AttributeValue> copyAttributes(Map<String, Object> original) {
-        Map<String, V1.AttributeValue> copy = new HashMap<>();
-        if (original == null) {
-            return copy;
+    /**
+     * @return the gRPC attribute value, or null if the type is not supported
+     */
+    private V1.AttributeValue attributeValue(String key, Object value) {
+        if (value instanceof String) {
+            if (key != null && CACHED_STRING_ATTRIBUTES.contains(key)) {
+                return cachedStringValue((String) value);
+            }
+            return V1.AttributeValue.newBuilder().setStringValue((String) value).build();
+        } else if (value instanceof Long || value instanceof Integer) {
+            return V1.AttributeValue.newBuilder().setIntValue(((Number) value).longValue()).build();
+        } else if (value instanceof Float || value instanceof Double) {
+            return V1.AttributeValue.newBuilder().setDoubleValue(((Number) value).doubleValue()).build();
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? TRUE : FALSE;
         }
+        return null;
+    }
 
-        for (Map.Entry<String, Object> entry : original.entrySet()) {
-            Object value = entry.getValue();
-            if (value instanceof String) {
-                copy.put(entry.getKey(), V1.AttributeValue.newBuilder().setStringValue((String) value).build());
-            } else if (value instanceof Long || value instanceof Integer) {
-                copy.put(entry.getKey(), V1.AttributeValue.newBuilder().setIntValue(((Number) value).longValue()).build());
-            } else if (value instanceof Float || value instanceof Double) {
-                copy.put(entry.getKey(), V1.AttributeValue.newBuilder().setDoubleValue(((Number) value).doubleValue()).build());
-            } else if (value instanceof Boolean) {
-                copy.put(entry.getKey(), V1.AttributeValue.newBuilder().setBoolValue((Boolean) value).build());
+    private V1.AttributeValue cachedStringValue(String value) {
+        V1.AttributeValue attributeValue = stringValues.get(value);
+        if (attributeValue == null) {
+            if (stringValues.size() >= MAX_CACHED_STRING_VALUES) {
+                stringValues.clear();
             }
+            attributeValue = V1.AttributeValue.newBuilder().setStringValue(value).build();
+            stringValues.put(value, attributeValue);
         }
-        return copy;
+        return attributeValue;
     }
 
 }
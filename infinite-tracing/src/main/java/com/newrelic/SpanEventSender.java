@@ -6,8 +6,8 @@ import com.newrelic.api.agent.Logger;
 import com.newrelic.api.agent.MetricAggregator;
 import com.newrelic.trace.v1.V1;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
@@ -19,19 +19,37 @@ class SpanEventSender implements Runnable {
     private final BlockingQueue<SpanEvent> queue;
     private final MetricAggregator aggregator;
     private final ChannelManager channelManager;
+    private final SpanConverter converter = new SpanConverter();
+    private final long lingerMs;
+    private final String streamSentMetric;
+    private final String streamBatchSizeMetric;
+    // Adjusted after every batch, between MIN_BATCH_SIZE and MAX_BATCH_SIZE
+    private int batchSize = MIN_BATCH_SIZE;
+
     // Destination for agent data
     private static final String INFINITE_TRACING = "InfiniteTracing";
     // Wait for up to 5 seconds for data when batching
-    private static final long LINGER_MS = 5000;
-    // Allow a maximum batch size of up to 100 items
-    private static final int MAX_BATCH_SIZE = 100;
+    static final long LINGER_MS = 5000;
+    // How often to check whether a batch has filled up while lingering
+    private static final long LINGER_CHECK_MS = 50;
+    // Batches start at 100 items and grow while the stream pushes back or the queue backs up
+    static final int MIN_BATCH_SIZE = 100;
+    static final int MAX_BATCH_SIZE = 1000;
 
     SpanEventSender(InfiniteTracingConfig config, BlockingQueue<SpanEvent> queue, MetricAggregator aggregator, ChannelManager channelManager) {
+        this(config, queue, aggregator, channelManager, 1, LINGER_MS);
+    }
+
+    SpanEventSender(InfiniteTracingConfig config, BlockingQueue<SpanEvent> queue, MetricAggregator aggregator, ChannelManager channelManager,
+            int stream, long lingerMs) {
         this.logger = config.getLogger();
         this.config = config;
         this.queue = queue;
         this.aggregator = aggregator;
         this.channelManager = channelManager;
+        this.lingerMs = lingerMs;
+        this.streamSentMetric = "Supportability/InfiniteTracing/Stream/" + stream + "/Span/Sent";
+        this.streamBatchSizeMetric = "Supportability/InfiniteTracing/Stream/" + stream + "/BatchSize";
     }
 
     /**
@@ -86,15 +104,15 @@ class SpanEventSender implements Runnable {
 
     @VisibleForTesting
     void drainAndSendBatchWhenReady(Observer observer) {
-        // If our queue is larger than our max batch size we will send the batch right away,
-        // otherwise we will pause for the linger time to wait for the batch to fill first.
-        if (queue.size() < MAX_BATCH_SIZE) {
+        // If our queue holds a full batch we will send it right away, otherwise we will wait
+        // up to the linger time for the batch to fill first.
+        if (queue.size() < batchSize) {
             try {
                 if (queue.isEmpty()) {
                     // Prevent a busy-wait loop when we have no data flowing through
                     Thread.sleep(250);
                 } else {
-                    Thread.sleep(LINGER_MS);
+                    lingerUntilBatchIsFull();
                 }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -108,15 +126,44 @@ class SpanEventSender implements Runnable {
         }
 
         // Convert and send the batch to the trace observer
-        V1.SpanBatch convertedSpanBatch = SpanConverter.convert(spanEvents);
+        V1.SpanBatch convertedSpanBatch = converter.toSpanBatch(spanEvents);
         writeToObserver(observer, convertedSpanBatch);
+        adjustBatchSize(observer, spanEvents.size());
+    }
+
+    private void lingerUntilBatchIsFull() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        long remainingMs = lingerMs;
+        while (remainingMs > 0 && queue.size() < batchSize) {
+            Thread.sleep(Math.min(remainingMs, LINGER_CHECK_MS));
+            remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        }
+    }
+
+    /**
+     * Grow the batch size when gRPC flow control pushes back or a full batch of spans is still waiting, so that the
+     * backlog goes out in fewer, larger messages. Shrink it again once batches stop filling up, so that spans do not
+     * wait for a batch that will not fill.
+     */
+    @VisibleForTesting
+    void adjustBatchSize(Observer observer, int sentCount) {
+        if (sentCount >= batchSize && (!observer.isReady() || queue.size() >= batchSize)) {
+            batchSize = Math.min(batchSize * 2, MAX_BATCH_SIZE);
+        } else if (sentCount < batchSize / 2) {
+            batchSize = Math.max(batchSize / 2, MIN_BATCH_SIZE);
+        }
+    }
+
+    @VisibleForTesting
+    int getBatchSize() {
+        return batchSize;
     }
 
     @VisibleForTesting
     Collection<SpanEvent> drainSpanBatch() {
-        // Drain up to the max batch size
-        Collection<SpanEvent> spanEvents = new LinkedList<>();
-        queue.drainTo(spanEvents, MAX_BATCH_SIZE);
+        // Drain up to the current batch size
+        Collection<SpanEvent> spanEvents = new ArrayList<>(batchSize);
+        queue.drainTo(spanEvents, batchSize);
         return spanEvents;
     }
 
@@ -129,7 +176,7 @@ class SpanEventSender implements Runnable {
         }
 
         // Convert single span and write to observer
-        V1.Span convertedSpan = SpanConverter.convert(span);
+        V1.Span convertedSpan = converter.toSpan(span);
         writeToObserver(observer, convertedSpan);
     }
 
@@ -152,6 +199,7 @@ class SpanEventSender implements Runnable {
             throw t;
         }
         aggregator.incrementCounter("Supportability/InfiniteTracing/Span/Sent");
+        aggregator.incrementCounter(streamSentMetric);
     }
 
     @VisibleForTesting
@@ -163,5 +211,7 @@ class SpanEventSender implements Runnable {
             throw t;
         }
         aggregator.incrementCounter("Supportability/InfiniteTracing/Span/Sent", spanBatch.getSpansCount());
+        aggregator.incrementCounter(streamSentMetric, spanBatch.getSpansCount());
+        aggregator.recordMetric(streamBatchSizeMetric, spanBatch.getSpansCount());
     }
 }
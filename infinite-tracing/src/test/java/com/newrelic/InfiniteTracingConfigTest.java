@@ -48,6 +48,20 @@ class InfiniteTracingConfigTest {
         assertFalse(config.getUseCompression());
     }
 
+    @Test
+    void testSingleSenderStreamByDefault() {
+        InfiniteTracingConfig config = InfiniteTracingConfig.builder().build();
+        assertEquals(1, config.getSenderStreams());
+    }
+
+    @Test
+    void testSenderStreams() {
+        InfiniteTracingConfig config = InfiniteTracingConfig.builder()
+                .senderStreams(4)
+                .build();
+        assertEquals(4, config.getSenderStreams());
+    }
+
     @Test
     void testEnableBatching() {
         InfiniteTracingConfig config = InfiniteTracingConfig.builder()
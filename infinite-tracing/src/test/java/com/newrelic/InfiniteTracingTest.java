@@ -20,10 +20,12 @@ import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -53,7 +55,7 @@ class InfiniteTracingTest {
         queue = new LinkedBlockingDeque<>(1);
         target = spy(new InfiniteTracing(config, aggregator, executorService, queue));
         doReturn(channelManager).when(target).buildChannelManager(anyString(), ArgumentMatchers.<String, String>anyMap());
-        doReturn(spanEventSender).when(target).buildSpanEventSender();
+        doReturn(spanEventSender).when(target).buildSpanEventSender(ArgumentMatchers.<ChannelManager>any(), anyInt());
 
     }
 
@@ -66,7 +68,7 @@ class InfiniteTracingTest {
         target.start("token2", ImmutableMap.of("key2", "value2"));
 
         verify(target).buildChannelManager("token1", ImmutableMap.of("key1", "value1"));
-        verify(target).buildSpanEventSender();
+        verify(target).buildSpanEventSender(channelManager, 1);
         verify(executorService).submit(spanEventSender);
         verify(channelManager).updateMetadata("token2", ImmutableMap.of("key2", "value2"));
         verify(channelManager).shutdownChannelAndBackoff(0);
@@ -78,6 +80,36 @@ class InfiniteTracingTest {
         verify(channelManager).shutdownChannelForever();
     }
 
+    @Test
+    void startWithMultipleStreams() {
+        Future future = mock(Future.class);
+        ChannelManager otherChannelManager = mock(ChannelManager.class);
+        SpanEventSender otherSpanEventSender = mock(SpanEventSender.class);
+        when(config.getSenderStreams()).thenReturn(2);
+        when(executorService.submit(ArgumentMatchers.<Runnable>any())).thenReturn(future);
+        doReturn(channelManager).doReturn(otherChannelManager).when(target).buildChannelManager(anyString(), ArgumentMatchers.<String, String>anyMap());
+        doReturn(otherSpanEventSender).when(target).buildSpanEventSender(otherChannelManager, 2);
+
+        target.start("token1", ImmutableMap.of("key1", "value1"));
+
+        verify(target).buildSpanEventSender(channelManager, 1);
+        verify(target).buildSpanEventSender(otherChannelManager, 2);
+        verify(executorService).submit(spanEventSender);
+        verify(executorService).submit(otherSpanEventSender);
+        verify(aggregator).incrementCounter("Supportability/InfiniteTracing/gRPC/Streams/2");
+
+        target.start("token2", ImmutableMap.of("key2", "value2"));
+
+        verify(channelManager).updateMetadata("token2", ImmutableMap.of("key2", "value2"));
+        verify(otherChannelManager).updateMetadata("token2", ImmutableMap.of("key2", "value2"));
+
+        target.stop();
+
+        verify(future, times(2)).cancel(true);
+        verify(channelManager).shutdownChannelForever();
+        verify(otherChannelManager).shutdownChannelForever();
+    }
+
     @Test
     @Timeout(1)
     void accept_IncrementsCounterAndOffersToQueue() {
@@ -98,7 +130,7 @@ class InfiniteTracingTest {
     @Test
     public void buildSpanEventSender_returnsSpanEventSender() {
         target = new InfiniteTracing(config, aggregator, executorService, queue);
-        assertNotNull(target.buildSpanEventSender());
+        assertNotNull(target.buildSpanEventSender(channelManager, 1));
     }
 
     @Test
@@ -7,11 +7,14 @@ import org.junit.jupiter.api.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class SpanConverterTest {
@@ -58,6 +61,48 @@ class SpanConverterTest {
         }
     }
 
+    @Test
+    void toSpan_CachesOnlyLowCardinalityStringValues() {
+        SpanConverter converter = new SpanConverter();
+        SpanEvent spanEvent = SpanEvent.builder()
+                .appName("my app")
+                .putIntrinsic("name", "Java/com.example.Foo/bar")
+                .putIntrinsic("guid", "5f2a1b3c")
+                .putAgentAttribute("db.statement", "select * from users")
+                .build();
+
+        V1.Span first = converter.toSpan(spanEvent);
+        V1.Span second = converter.toSpan(spanEvent);
+
+        assertSame(first.getIntrinsicsOrThrow("appName"), second.getIntrinsicsOrThrow("appName"));
+        assertSame(first.getIntrinsicsOrThrow("name"), second.getIntrinsicsOrThrow("name"));
+        assertNotSame(first.getIntrinsicsOrThrow("guid"), second.getIntrinsicsOrThrow("guid"));
+        assertNotSame(first.getAgentAttributesOrThrow("db.statement"), second.getAgentAttributesOrThrow("db.statement"));
+        assertEquals(first, second);
+    }
+
+    @Test
+    void toSpan_ReusedConverterProducesIndependentSpans() {
+        SpanConverter converter = new SpanConverter();
+        SpanEvent first = buildSpanEvent();
+        SpanEvent second = SpanEvent.builder()
+                .appName("other app")
+                .putIntrinsic("traceId", "def456")
+                .putAgentAttribute("agentBool", false)
+                .build();
+
+        V1.Span firstSpan = converter.toSpan(first);
+        V1.Span secondSpan = converter.toSpan(second);
+
+        assertEquals(SpanConverter.convert(first), firstSpan);
+        assertEquals(SpanConverter.convert(second), secondSpan);
+        assertEquals("abc123", firstSpan.getTraceId());
+        assertEquals("def456", secondSpan.getTraceId());
+        assertFalse(secondSpan.containsIntrinsics("intrStr"));
+        assertFalse(secondSpan.getAgentAttributesOrThrow("agentBool").getBoolValue());
+        assertEquals(firstSpan, converter.toSpanBatch(Collections.singletonList(first)).getSpans(0));
+    }
+
     static SpanEvent buildSpanEvent() {
         return SpanEvent.builder()
                 .appName("my app")
@@ -178,6 +178,56 @@ class SpanEventSenderTest {
         verify(queue).drainTo(any(), eq(maxBatchSize));
     }
 
+    @Test
+    void adjustBatchSize_GrowsWhenObserverPushesBack() {
+        when(observer.isReady()).thenReturn(false);
+
+        target.adjustBatchSize(observer, SpanEventSender.MIN_BATCH_SIZE);
+        assertEquals(SpanEventSender.MIN_BATCH_SIZE * 2, target.getBatchSize());
+
+        for (int i = 0; i < 10; i++) {
+            target.adjustBatchSize(observer, target.getBatchSize());
+        }
+        assertEquals(SpanEventSender.MAX_BATCH_SIZE, target.getBatchSize());
+
+        target.drainSpanBatch();
+        verify(queue).drainTo(any(), eq(SpanEventSender.MAX_BATCH_SIZE));
+    }
+
+    @Test
+    void adjustBatchSize_GrowsWhenQueueBacksUp() {
+        when(observer.isReady()).thenReturn(true);
+        when(queue.size()).thenReturn(SpanEventSender.MIN_BATCH_SIZE);
+
+        target.adjustBatchSize(observer, SpanEventSender.MIN_BATCH_SIZE);
+
+        assertEquals(SpanEventSender.MIN_BATCH_SIZE * 2, target.getBatchSize());
+    }
+
+    @Test
+    void adjustBatchSize_KeepsSizeWhenStreamKeepsUp() {
+        when(observer.isReady()).thenReturn(true);
+        when(queue.size()).thenReturn(0);
+
+        target.adjustBatchSize(observer, SpanEventSender.MIN_BATCH_SIZE);
+
+        assertEquals(SpanEventSender.MIN_BATCH_SIZE, target.getBatchSize());
+    }
+
+    @Test
+    void adjustBatchSize_ShrinksWhenBatchesStopFilling() {
+        when(observer.isReady()).thenReturn(false);
+        target.adjustBatchSize(observer, SpanEventSender.MIN_BATCH_SIZE);
+        target.adjustBatchSize(observer, SpanEventSender.MIN_BATCH_SIZE * 2);
+        assertEquals(SpanEventSender.MIN_BATCH_SIZE * 4, target.getBatchSize());
+
+        target.adjustBatchSize(observer, 10);
+        assertEquals(SpanEventSender.MIN_BATCH_SIZE * 2, target.getBatchSize());
+        target.adjustBatchSize(observer, 10);
+        target.adjustBatchSize(observer, 10);
+        assertEquals(SpanEventSender.MIN_BATCH_SIZE, target.getBatchSize());
+    }
+
     @Test
     void writeToObserver_RethrowsException() {
         doThrow(new RuntimeException("Error!")).when(observer).onNext(ArgumentMatchers.<V1.Span>any());
@@ -220,5 +270,7 @@ class SpanEventSenderTest {
                 .build());
 
         verify(aggregator).incrementCounter("Supportability/InfiniteTracing/Span/Sent", 3);
+        verify(aggregator).incrementCounter("Supportability/InfiniteTracing/Stream/1/Span/Sent", 3);
+        verify(aggregator).recordMetric("Supportability/InfiniteTracing/Stream/1/BatchSize", 3);
     }
 }
@@ -0,0 +1,169 @@
+package com.newrelic;
+
+import com.newrelic.agent.model.SpanEvent;
+import com.newrelic.api.agent.Logger;
+import com.newrelic.api.agent.MetricAggregator;
+import com.newrelic.trace.v1.IngestServiceGrpc;
+import com.newrelic.trace.v1.V1;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.newrelic.SpanConverterTest.buildSpanEvent;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Streams spans over several senders to an in-process Trace Observer.
+ */
+class SpanStreamingInProcessTest {
+
+    private static final int SPAN_COUNT = 5000;
+    private static final int STREAMS = 2;
+
+    private final String serverName = InProcessServerBuilder.generateName();
+    private final AtomicInteger spansReceived = new AtomicInteger();
+    private final CountingMetricAggregator aggregator = new CountingMetricAggregator();
+    private Server server;
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void setup() throws Exception {
+        server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(new IngestServiceGrpc.IngestServiceImplBase() {
+                    @Override
+                    public StreamObserver<V1.SpanBatch> recordSpanBatch(final StreamObserver<V1.RecordStatus> responseObserver) {
+                        return new StreamObserver<V1.SpanBatch>() {
+                            @Override
+                            public void onNext(V1.SpanBatch spanBatch) {
+                                spansReceived.addAndGet(spanBatch.getSpansCount());
+                            }
+
+                            @Override
+                            public void onError(Throwable t) {
+                            }
+
+                            @Override
+                            public void onCompleted() {
+                                responseObserver.onCompleted();
+                            }
+                        };
+                    }
+                })
+                .build()
+                .start();
+        executorService = Executors.newFixedThreadPool(STREAMS);
+    }
+
+    @AfterEach
+    void teardown() {
+        executorService.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    @Timeout(30)
+    void batchesFromAllStreamsReachTheObserver() throws Exception {
+        InfiniteTracingConfig config = InfiniteTracingConfig.builder()
+                .logger(mock(Logger.class))
+                .licenseKey("license")
+                .useBatching(true)
+                .senderStreams(STREAMS)
+                .build();
+        BlockingQueue<SpanEvent> queue = new LinkedBlockingDeque<>(SPAN_COUNT);
+        for (int i = 0; i < SPAN_COUNT; i++) {
+            queue.add(buildSpanEvent());
+        }
+
+        List<ChannelManager> channelManagers = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int stream = 1; stream <= STREAMS; stream++) {
+            ChannelManager channelManager = new ChannelManager(config, aggregator, "token", Collections.<String, String>emptyMap()) {
+                @Override
+                ManagedChannel buildChannel() {
+                    return InProcessChannelBuilder.forName(serverName).directExecutor().build();
+                }
+            };
+            channelManagers.add(channelManager);
+            futures.add(executorService.submit(new SpanEventSender(config, queue, aggregator, channelManager, stream, 100)));
+        }
+
+        while (spansReceived.get() < SPAN_COUNT || sentByStreams() < SPAN_COUNT) {
+            Thread.sleep(10);
+        }
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+        for (ChannelManager channelManager : channelManagers) {
+            channelManager.shutdownChannelForever();
+        }
+
+        assertEquals(SPAN_COUNT, spansReceived.get());
+        assertEquals(SPAN_COUNT, aggregator.getCount("Supportability/InfiniteTracing/Span/Sent"));
+        assertEquals(SPAN_COUNT, sentByStreams());
+        assertTrue(queue.isEmpty());
+    }
+
+    private long sentByStreams() {
+        long sent = 0;
+        for (int stream = 1; stream <= STREAMS; stream++) {
+            sent += aggregator.getCount("Supportability/InfiniteTracing/Stream/" + stream + "/Span/Sent");
+        }
+        return sent;
+    }
+
+    private static class CountingMetricAggregator implements MetricAggregator {
+
+        private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+
+        long getCount(String name) {
+            AtomicLong count = counts.get(name);
+            return count == null ? 0 : count.get();
+        }
+
+        @Override
+        public void recordResponseTimeMetric(String name, long totalTime, long exclusiveTime, TimeUnit timeUnit) {
+        }
+
+        @Override
+        public void recordMetric(String name, float value) {
+        }
+
+        @Override
+        public void recordResponseTimeMetric(String name, long millis) {
+        }
+
+        @Override
+        public void incrementCounter(String name) {
+            incrementCounter(name, 1);
+        }
+
+        @Override
+        public void incrementCounter(String name, int count) {
+            counts.computeIfAbsent(name, key -> new AtomicLong()).addAndGet(count);
+        }
+    }
+
+}
@@ -3,6 +3,7 @@ package com.nr.instrumentation.builder;
 import com.newrelic.weave.weavepackage.CachedWeavePackage;
 import com.newrelic.weave.weavepackage.WeavePackage;
 
+import java.io.IOException;
 import java.util.Set;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
@@ -11,7 +12,7 @@ import java.util.stream.Collectors;
 public class ManifestAppender {
     private final Manifest manifest = new Manifest();
 
-    void copyAttributesToManifest(WeavePackage pkg) {
+    void copyAttributesToManifest(WeavePackage pkg) throws IOException {
         // The Manifest writer won't write anything without this.
         manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
 
@@ -39,7 +40,9 @@ public class ManifestAppender {
                 CachedWeavePackage.METHOD_REQUIRED_ANNOTATIONS_MANIFEST_ATTRIBUTE_NAME,
                 pkg.getAllRequiredMethodAnnotationClasses(),
                 false);
-
+        manifest.getMainAttributes().putValue(
+                CachedWeavePackage.WEAVE_REFERENCES_MANIFEST_ATTRIBUTE_NAME,
+                CachedWeavePackage.encodeReferences(pkg.getReferencedClasses()));
     }
 
     private void putOneAttribute(String key, Set<String> values, boolean doubleQuote) {
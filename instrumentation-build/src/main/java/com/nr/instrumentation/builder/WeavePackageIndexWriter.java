@@ -0,0 +1,76 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.nr.instrumentation.builder;
+
+import com.newrelic.weave.weavepackage.CachedWeavePackage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Write the index of all instrumentation jars that are packaged into the agent jar.
+ *
+ * The index is a manifest with one section per instrumentation jar. Each section is named after the jar and holds the
+ * main attributes of the jar's manifest, including the cached weave attributes written by
+ * {@link CacheWeaveAttributesInManifest}. The agent reads this one file at startup instead of opening every
+ * instrumentation jar, and only reads a jar once a class matches its weave classes.
+ *
+ * This class is invoked by a JVM that is forked from gradle. It therefore does not have access to the gradle project
+ * or configuration.
+ */
+public class WeavePackageIndexWriter {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            help();
+            System.exit(1);
+        }
+
+        Manifest index = createIndex(Arrays.copyOfRange(args, 1, args.length));
+
+        File outputDirectory = new File(args[0]).getParentFile();
+        if (!outputDirectory.exists() && !outputDirectory.mkdirs()) {
+            throw new Exception("Unable to create " + outputDirectory);
+        }
+
+        try (OutputStream stream = new FileOutputStream(args[0])) {
+            index.write(stream);
+        }
+    }
+
+    static Manifest createIndex(String[] jarPaths) throws IOException {
+        Manifest index = new Manifest();
+        // The Manifest writer won't write anything without this.
+        index.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+
+        for (String jarPath : jarPaths) {
+            File jar = new File(jarPath);
+            try (JarFile jarFile = new JarFile(jar)) {
+                Manifest manifest = jarFile.getManifest();
+                if (manifest == null) {
+                    throw new IOException("The instrumentation jar " + jarPath + " did not contain a manifest");
+                }
+                index.getEntries().put(jar.getName(), new Attributes(manifest.getMainAttributes()));
+            }
+        }
+        return index;
+    }
+
+    private static void help() {
+        System.err.println("Write the " + CachedWeavePackage.WEAVE_PACKAGE_INDEX_NAME + " index for a set of instrumentation jars.");
+        System.err.println("Arguments: <output file> <instrumentation jar>...");
+        System.err.println("Only execute this through the `buildWeavePackageIndex` task in newrelic-agent/build.gradle.");
+    }
+
+}
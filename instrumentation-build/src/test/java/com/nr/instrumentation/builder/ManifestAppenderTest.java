@@ -44,6 +44,10 @@ class ManifestAppenderTest {
         when(mockPackage.getReferencedClassNames()).thenReturn(Collections.emptySet());
         expectedValues.put(new Attributes.Name(CachedWeavePackage.REFERENCE_CLASSES_MANIFEST_ATTRIBUTE_NAME), "");
 
+        when(mockPackage.getReferencedClasses()).thenReturn(Collections.emptyList());
+        expectedValues.put(new Attributes.Name(CachedWeavePackage.WEAVE_REFERENCES_MANIFEST_ATTRIBUTE_NAME),
+                CachedWeavePackage.encodeReferences(Collections.emptyList()));
+
         expectedValues.put(Attributes.Name.MANIFEST_VERSION, "1.0");
 
         ManifestAppender target = new ManifestAppender();
@@ -0,0 +1,62 @@
+package com.nr.instrumentation.builder;
+
+import com.newrelic.weave.weavepackage.CachedWeavePackage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WeavePackageIndexWriterTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void indexesEachJarByFileName() throws IOException {
+        String first = writeJar("first.jar", "com.newrelic.instrumentation.first", "com/example/First");
+        String second = writeJar("second.jar", "com.newrelic.instrumentation.second", "com/example/Second");
+
+        Manifest index = WeavePackageIndexWriter.createIndex(new String[] { first, second });
+
+        // round trip through the manifest format, which wraps long lines
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        index.write(baos);
+        Manifest read = new Manifest(new ByteArrayInputStream(baos.toByteArray()));
+
+        assertEquals(2, read.getEntries().size());
+        Attributes firstAttributes = read.getAttributes("first.jar");
+        assertNotNull(firstAttributes);
+        assertEquals("com.newrelic.instrumentation.first", firstAttributes.getValue("Implementation-Title"));
+        assertEquals("com/example/First", firstAttributes.getValue(CachedWeavePackage.WEAVE_CLASSES_MANIFEST_ATTRIBUTE_NAME));
+        assertEquals("com.newrelic.instrumentation.second", read.getAttributes("second.jar").getValue("Implementation-Title"));
+    }
+
+    @Test
+    public void failsWithoutManifest() throws IOException {
+        String jar = tempDir.resolve("nomanifest.jar").toString();
+        try (JarOutputStream ignored = new JarOutputStream(new FileOutputStream(jar))) {
+        }
+        assertThrows(IOException.class, () -> WeavePackageIndexWriter.createIndex(new String[] { jar }));
+    }
+
+    private String writeJar(String fileName, String title, String weaveClasses) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Implementation-Title", title);
+        manifest.getMainAttributes().putValue(CachedWeavePackage.WEAVE_CLASSES_MANIFEST_ATTRIBUTE_NAME, weaveClasses);
+        String path = tempDir.resolve(fileName).toString();
+        try (JarOutputStream ignored = new JarOutputStream(new FileOutputStream(path), manifest)) {
+        }
+        return path;
+    }
+}
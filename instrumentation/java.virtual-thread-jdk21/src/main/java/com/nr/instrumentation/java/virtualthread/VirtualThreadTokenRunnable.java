@@ -0,0 +1,117 @@
+/*
+ *
+ *  * Copyright 2024 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.nr.instrumentation.java.virtualthread;
+
+import com.newrelic.agent.bridge.AgentBridge;
+import com.newrelic.agent.bridge.Transaction;
+
+import java.text.MessageFormat;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Links the task of a virtual thread to the transaction of the thread that started it.
+ *
+ * The token is taken when the virtual thread is started rather than when it is created, so a thread that is created
+ * but never started holds no token. The token is linked on the virtual thread itself, so the transaction follows the
+ * virtual thread when it moves between carrier threads and is never left behind on a carrier. The token is shared with
+ * other tasks started from the same thread and expires when the last of them finishes.
+ */
+public final class VirtualThreadTokenRunnable implements Runnable {
+
+    private final Runnable delegate;
+    private final AtomicBoolean started = new AtomicBoolean();
+    // written by the starting thread before the virtual thread is scheduled, null if it was started outside a transaction
+    private AgentBridge.TokenAndRefCount tokenAndRefCount;
+
+    private VirtualThreadTokenRunnable(Runnable delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return the task, wrapped so that it can be linked to a transaction when its thread is started
+     */
+    public static Runnable wrap(Runnable task) {
+        if (task == null || task instanceof VirtualThreadTokenRunnable) {
+            return task;
+        }
+        return new VirtualThreadTokenRunnable(task);
+    }
+
+    /**
+     * Take a token for the transaction of the current thread. Called by the thread that starts the virtual thread, before
+     * the virtual thread is scheduled.
+     *
+     * @return true if this was the first call, false if the thread has already been started
+     */
+    public boolean start() {
+        if (!started.compareAndSet(false, true)) {
+            return false;
+        }
+        AgentBridge.TokenAndRefCount current = AgentBridge.activeToken.get();
+        if (current != null && current.token != null) {
+            current.refCount.incrementAndGet();
+        } else {
+            Transaction tx = AgentBridge.getAgent().getTransaction(false);
+            if (tx == null) {
+                return true;
+            }
+            current = new AgentBridge.TokenAndRefCount(tx.getToken(), AgentBridge.getAgent().getTracedMethod(),
+                    new AtomicInteger(1));
+        }
+        tokenAndRefCount = current;
+        logTokenInfo(current, "VirtualThreadTokenRunnable token info set");
+        return true;
+    }
+
+    /**
+     * Give the token back when the first {@link #start()} did not schedule the virtual thread, so it will never run.
+     */
+    public void startFailed() {
+        AgentBridge.TokenAndRefCount current = tokenAndRefCount;
+        if (current != null) {
+            tokenAndRefCount = null;
+            logTokenInfo(current, "Clearing token info from virtual thread that failed to start");
+            release(current);
+        }
+    }
+
+    @Override
+    public void run() {
+        AgentBridge.TokenAndRefCount tokenAndRefCount = this.tokenAndRefCount;
+        if (tokenAndRefCount == null) {
+            delegate.run();
+            return;
+        }
+        try {
+            logTokenInfo(tokenAndRefCount, "Token info set in virtual thread");
+            AgentBridge.activeToken.set(tokenAndRefCount);
+            tokenAndRefCount.token.link();
+            delegate.run();
+        } finally {
+            logTokenInfo(tokenAndRefCount, "Clearing token info from virtual thread");
+            AgentBridge.activeToken.remove();
+            release(tokenAndRefCount);
+        }
+    }
+
+    private static void release(AgentBridge.TokenAndRefCount tokenAndRefCount) {
+        if (tokenAndRefCount.refCount.decrementAndGet() == 0) {
+            tokenAndRefCount.token.expire();
+        }
+    }
+
+    private static void logTokenInfo(AgentBridge.TokenAndRefCount tokenAndRefCount, String msg) {
+        if (AgentBridge.getAgent().getLogger().isLoggable(Level.FINEST)) {
+            String tokenMsg = String.format("[%s:%s:%d]", tokenAndRefCount.token, tokenAndRefCount.token.getTransaction(),
+                    tokenAndRefCount.refCount.get());
+            AgentBridge.getAgent().getLogger().log(Level.FINEST, MessageFormat.format("{0}: token info {1}", tokenMsg, msg));
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ *
+ *  * Copyright 2024 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package nr.java.lang;
+
+import com.newrelic.api.agent.weaver.MatchType;
+import com.newrelic.api.agent.weaver.Weave;
+import com.newrelic.api.agent.weaver.Weaver;
+import com.nr.instrumentation.java.virtualthread.VirtualThreadTokenRunnable;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Every virtual thread is created here, whether it's started with Thread.ofVirtual(), Thread.startVirtualThread() or
+ * a virtual thread per task executor. The task is wrapped here and takes its token when the thread is started.
+ */
+@Weave(type = MatchType.ExactClass, originalName = "java.lang.ThreadBuilders")
+final class ThreadBuilders_Instrumentation {
+
+    static Thread newVirtualThread(Executor scheduler, String name, int characteristics, Runnable task) {
+        task = VirtualThreadTokenRunnable.wrap(task);
+        return Weaver.callOriginal();
+    }
+}
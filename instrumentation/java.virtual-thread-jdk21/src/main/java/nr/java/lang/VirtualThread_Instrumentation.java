@@ -0,0 +1,48 @@
+/*
+ *
+ *  * Copyright 2024 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package nr.java.lang;
+
+import com.newrelic.api.agent.weaver.MatchType;
+import com.newrelic.api.agent.weaver.NewField;
+import com.newrelic.api.agent.weaver.Weave;
+import com.newrelic.api.agent.weaver.Weaver;
+import com.nr.instrumentation.java.virtualthread.VirtualThreadTokenRunnable;
+import jdk.internal.vm.ThreadContainer;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Every virtual thread is started here, whether it's started with Thread.start(), Thread.startVirtualThread() or by a
+ * virtual thread per task executor, so this is where the task takes its token.
+ */
+@Weave(type = MatchType.ExactClass, originalName = "java.lang.VirtualThread")
+final class VirtualThread_Instrumentation {
+
+    @NewField
+    private VirtualThreadTokenRunnable tokenRunnable;
+
+    VirtualThread_Instrumentation(Executor scheduler, String name, int characteristics, Runnable task) {
+        if (task instanceof VirtualThreadTokenRunnable) {
+            tokenRunnable = (VirtualThreadTokenRunnable) task;
+        }
+    }
+
+    void start(ThreadContainer container) {
+        VirtualThreadTokenRunnable tokenRunnable = this.tokenRunnable;
+        boolean firstStart = tokenRunnable != null && tokenRunnable.start();
+        boolean started = false;
+        try {
+            Weaver.callOriginal();
+            started = true;
+        } finally {
+            if (firstStart && !started) {
+                tokenRunnable.startFailed();
+            }
+        }
+    }
+}
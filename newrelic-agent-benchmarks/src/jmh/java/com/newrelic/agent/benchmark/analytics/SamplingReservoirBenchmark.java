@@ -0,0 +1,111 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark.analytics;
+
+import com.google.common.collect.MinMaxPriorityQueue;
+import com.google.common.collect.Queues;
+import com.newrelic.agent.model.PriorityAware;
+import com.newrelic.agent.service.analytics.DistributedSamplingPriorityQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Comparator;
+import java.util.Queue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares {@link DistributedSamplingPriorityQueue} with the synchronized {@link MinMaxPriorityQueue} it used to wrap
+ * when many request threads record events into the same reservoir. The reservoir is replaced every iteration, like it
+ * is at every harvest, so both the filling and the full phases are measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class SamplingReservoirBenchmark {
+
+    private static final Comparator<Event> COMPARATOR = (left, right) -> Float.compare(right.getPriority(), left.getPriority());
+
+    @Param({ "synchronized", "striped" })
+    public String reservoir;
+
+    @Param({ "2000" })
+    public int reservoirSize;
+
+    private Queue<Event> synchronizedQueue;
+    // the counters the old implementation updated around the synchronized offer
+    private final AtomicInteger numberOfTries = new AtomicInteger();
+    private final AtomicInteger decided = new AtomicInteger();
+    private DistributedSamplingPriorityQueue<Event> stripedQueue;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        synchronizedQueue = Queues.synchronizedQueue(MinMaxPriorityQueue.orderedBy(COMPARATOR).maximumSize(reservoirSize).create());
+        stripedQueue = new DistributedSamplingPriorityQueue<>("Benchmark", "Benchmark Service", reservoirSize, 0, 0, COMPARATOR);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean add8Threads() {
+        return add();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public boolean add32Threads() {
+        return add();
+    }
+
+    @Benchmark
+    @Threads(128)
+    public boolean add128Threads() {
+        return add();
+    }
+
+    private boolean add() {
+        Event event = new Event(ThreadLocalRandom.current().nextFloat() * 2);
+        if ("striped".equals(reservoir)) {
+            return stripedQueue.add(event);
+        }
+        numberOfTries.incrementAndGet();
+        boolean added = synchronizedQueue.offer(event);
+        if (added && event.decider()) {
+            decided.incrementAndGet();
+        }
+        return added;
+    }
+
+    static final class Event implements PriorityAware {
+
+        private final float priority;
+
+        Event(float priority) {
+            this.priority = priority;
+        }
+
+        @Override
+        public boolean decider() {
+            return true;
+        }
+
+        @Override
+        public float getPriority() {
+            return priority;
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark.analytics;
+
+import com.newrelic.agent.AgentHelper;
+import com.newrelic.agent.MockCoreService;
+import com.newrelic.agent.json.AttributeFilters;
+import com.newrelic.agent.model.SpanCategory;
+import com.newrelic.agent.model.SpanEvent;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.service.ServiceManager;
+import com.newrelic.agent.service.analytics.SpanEventFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building an external call span event through {@link SpanEventFactory} with the attribute filter used in
+ * production, which consults the attributes service for every agent and user attribute.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class SpanEventFactoryBenchmark {
+
+    private static final URI EXTERNAL_URI = URI.create("https://inventory.example.com:8443/api/v1/items/42?token=abc");
+
+    private String appName;
+    private Map<String, Object> agentAttributes;
+    private Map<String, Object> userAttributes;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        System.setProperty("newrelic.config.file",
+                AgentHelper.getFullPath("/com/newrelic/agent/config/span_events.yml"));
+        MockCoreService.getMockAgentAndBootstrapTheServiceManager();
+        appName = ServiceFactory.getConfigService().getDefaultAgentConfig().getApplicationName();
+
+        agentAttributes = new HashMap<>();
+        agentAttributes.put("thread.id", 37L);
+        agentAttributes.put("code.namespace", "com.example.InventoryClient");
+        agentAttributes.put("code.function", "getItem");
+        userAttributes = new HashMap<>();
+        userAttributes.put("customer.tier", "gold");
+        userAttributes.put("order.total", 99.5);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        ServiceManager serviceManager = ServiceFactory.getServiceManager();
+        if (serviceManager != null) {
+            serviceManager.stop();
+        }
+    }
+
+    @Benchmark
+    public SpanEvent externalSpan() {
+        return new SpanEventFactory(appName, AttributeFilters.SPAN_EVENTS_ATTRIBUTE_FILTER,
+                SpanEventFactory.DEFAULT_SYSTEM_TIMESTAMP_SUPPLIER)
+                .setGuid("ee8e5ef1a374c0ec")
+                .setTraceId("0af7651916cd43dd8448eb211c80319c")
+                .setTransactionId("b7ad6b7169203331")
+                .setParentId("00f067aa0ba902b7")
+                .setSampled(true)
+                .setPriority(1.23f)
+                .setDecider(true)
+                .setName("External/inventory.example.com/HttpURLConnection/getInputStream")
+                .setDurationInSeconds(0.042f)
+                .setTimestamp(System.currentTimeMillis())
+                .setCategory(SpanCategory.http)
+                .setKind("client")
+                .setUri(EXTERNAL_URI)
+                .setHttpMethod("GET")
+                .setHttpComponent("HttpURLConnection")
+                .setHttpStatusCode(200)
+                .putAllAgentAttributes(agentAttributes)
+                .setUserAttributes(userAttributes)
+                .build();
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark.attributes;
+
+import com.newrelic.agent.attributes.AttributesFilter;
+import com.newrelic.agent.config.AgentConfigImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures filtering a transaction's attributes for the destinations that filter the most often, with include and
+ * exclude rules that mix exact names and wildcards.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class AttributesFilterBenchmark {
+
+    private AttributesFilter filter;
+    private Map<String, Object> attributes;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> attributesConfig = new HashMap<>();
+        attributesConfig.put("include", Arrays.asList("request.parameters.id", "request.headers.*"));
+        attributesConfig.put("exclude", Arrays.asList("request.headers.cookie", "secret*", "user.email"));
+        Map<String, Object> configMap = new HashMap<>();
+        configMap.put(AgentConfigImpl.APP_NAME, "Benchmark");
+        configMap.put(AgentConfigImpl.ATTRIBUTES, attributesConfig);
+        configMap.put(AgentConfigImpl.SPAN_EVENTS, Collections.singletonMap("attributes",
+                Collections.singletonMap("exclude", Collections.singletonList("http.url"))));
+        filter = new AttributesFilter(AgentConfigImpl.createAgentConfig(configMap));
+
+        attributes = new HashMap<>();
+        attributes.put("request.method", "GET");
+        attributes.put("request.uri", "/api/v1/orders/42");
+        attributes.put("request.parameters.id", "42");
+        attributes.put("request.parameters.token", "abc");
+        attributes.put("request.headers.host", "example.com");
+        attributes.put("request.headers.cookie", "session=1");
+        attributes.put("request.headers.userAgent", "curl/8.0");
+        attributes.put("response.status", "200");
+        attributes.put("http.url", "https://example.com/api/v1/orders/42");
+        attributes.put("http.statusCode", 200);
+        attributes.put("thread.id", 37L);
+        attributes.put("secretKey", "hunter2");
+        attributes.put("user.email", "someone@example.com");
+        attributes.put("customer.tier", "gold");
+        attributes.put("order.total", 99.5);
+    }
+
+    @Benchmark
+    public Map<String, ?> filterSpanEventAttributes() {
+        return filter.filterSpanEventAttributes(attributes);
+    }
+
+    @Benchmark
+    public Map<String, ?> filterTransactionEventAttributes() {
+        return filter.filterTransactionEventAttributes(attributes);
+    }
+
+    @Benchmark
+    public boolean shouldIncludeSpanAttribute() {
+        return filter.shouldIncludeSpanAttribute("request.headers.userAgent");
+    }
+
+}
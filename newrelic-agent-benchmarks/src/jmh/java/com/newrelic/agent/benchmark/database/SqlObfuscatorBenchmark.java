@@ -0,0 +1,76 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark.database;
+
+import com.newrelic.agent.database.RegexSqlObfuscator;
+import com.newrelic.agent.database.SqlObfuscator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-pass lexer behind {@link SqlObfuscator#getDefaultSqlObfuscator()} with the regular expressions it
+ * replaced, for statements from a short lookup up to a large batched insert. The caching obfuscator is bypassed so
+ * every invocation does the full work, as it does for the first sighting of each statement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SqlObfuscatorBenchmark {
+
+    private static final String[] CLAUSES = {
+            " and name = 'O''Brien'",
+            " and id in (1, 2, 3.5e3, -42)",
+            " and created > $$2020-01-01$$",
+            " and flag = true and ref is not null",
+            " and token = 0x1f2e3d4c",
+            " and uuid = '{01234567-89ab-cdef-0123-456789abcdef}'",
+            " /* hint: use index */ and note = \"quoted value\"",
+            " -- trailing comment\n and amount >= 1000.25"
+    };
+
+    @Param({ "100", "2000", "20000" })
+    public int statementLength;
+
+    @Param({ "regex", "lexer" })
+    public String obfuscator;
+
+    @Param({ "all", "mysql", "postgres" })
+    public String dialect;
+
+    private String sql;
+    private SqlObfuscator lexer;
+    private RegexSqlObfuscator regex;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder("select * from accounts where tenant = 17");
+        for (int i = 0; builder.length() < statementLength; i++) {
+            builder.append(CLAUSES[i % CLAUSES.length]);
+        }
+        sql = builder.toString();
+        lexer = SqlObfuscator.getDefaultSqlObfuscator();
+        regex = new RegexSqlObfuscator();
+    }
+
+    @Benchmark
+    public String obfuscate() {
+        if (obfuscator.equals("regex")) {
+            return regex.obfuscateSql(sql, dialect);
+        }
+        return lexer.obfuscateSql(sql, dialect);
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark.normalization;
+
+import com.newrelic.agent.normalization.NormalizationRule;
+import com.newrelic.agent.normalization.Normalizer;
+import com.newrelic.agent.normalization.NormalizerImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link NormalizerImpl#normalize(String)} with a rule set shaped like the URL rules the collector sends. A
+ * small number of distinct names is answered from the normalizer's cache; a large number mostly runs the rules.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class NormalizerBenchmark {
+
+    private static final String[] SEGMENTS = { "api", "v1", "v2", "orders", "customers", "items", "static", "images",
+            "search", "checkout" };
+
+    @Param({ "100", "100000" })
+    public int distinctNames;
+
+    private Normalizer normalizer;
+    private String[] names;
+    private int next;
+
+    @Setup
+    public void setup() {
+        List<NormalizationRule> rules = new ArrayList<>();
+        rules.add(new NormalizationRule("^/static/.*", "/static/*", false, 1, true, false, false));
+        rules.add(new NormalizationRule(".*\\.(css|gif|ico|jpe?g|js|png|swf)$", "/*.\\1", false, 2, true, false, false));
+        rules.add(new NormalizationRule("^[0-9][0-9a-f_,.-]*$", "*", false, 3, false, true, false));
+        rules.add(new NormalizationRule("^(.*)/[0-9][0-9a-f_,-]*\\.([0-9a-z][0-9a-z]*)$", "\\1/.*\\2", false, 4, false,
+                false, false));
+        rules.add(new NormalizationRule("^/api/(v1|v2)/", "/api/*/", false, 5, false, false, true));
+        rules.add(new NormalizationRule("^/health", null, true, 6, true, false, false));
+        normalizer = new NormalizerImpl("Benchmark", rules);
+
+        Random random = new Random(17);
+        names = new String[distinctNames];
+        for (int i = 0; i < distinctNames; i++) {
+            StringBuilder name = new StringBuilder();
+            int segmentCount = 2 + random.nextInt(3);
+            for (int j = 0; j < segmentCount; j++) {
+                name.append('/').append(SEGMENTS[random.nextInt(SEGMENTS.length)]);
+            }
+            name.append('/').append(i);
+            if (i % 7 == 0) {
+                name.append(".png");
+            }
+            names[i] = name.toString();
+        }
+    }
+
+    @Benchmark
+    public String normalize() {
+        String name = names[next];
+        next = next + 1 == names.length ? 0 : next + 1;
+        return normalizer.normalize(name);
+    }
+
+}
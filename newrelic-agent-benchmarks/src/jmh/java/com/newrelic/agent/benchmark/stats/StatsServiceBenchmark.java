@@ -0,0 +1,105 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark.stats;
+
+import com.newrelic.agent.MockServiceManager;
+import com.newrelic.agent.config.AgentConfigImpl;
+import com.newrelic.agent.config.ConfigService;
+import com.newrelic.agent.config.ConfigServiceFactory;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.stats.StatsService;
+import com.newrelic.agent.stats.StatsServiceImpl;
+import com.newrelic.agent.stats.TransactionStats;
+import com.newrelic.agent.transaction.MergeStatsEngineResolvingScope;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the locking stats engine queue with striped aggregation when many request threads finish transactions at
+ * once. Each operation merges a representative {@link TransactionStats} the way {@code TransactionService} does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class StatsServiceBenchmark {
+
+    private static final String APP_NAME = "Benchmark";
+
+    @Param({ "false", "true" })
+    public boolean striped;
+
+    private MockServiceManager serviceManager;
+    private StatsService statsService;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Map<String, Object> configMap = new HashMap<>();
+        configMap.put(AgentConfigImpl.APP_NAME, APP_NAME);
+        configMap.put("stats_service", Collections.singletonMap("striped_aggregation",
+                Collections.singletonMap("enabled", striped)));
+
+        serviceManager = new MockServiceManager();
+        ServiceFactory.setServiceManager(serviceManager);
+        ConfigService configService = ConfigServiceFactory.createConfigService(
+                AgentConfigImpl.createAgentConfig(configMap), configMap);
+        serviceManager.setConfigService(configService);
+
+        statsService = new StatsServiceImpl();
+        statsService.start();
+        serviceManager.setStatsService(statsService);
+    }
+
+    @TearDown(Level.Iteration)
+    public void harvest() {
+        statsService.getStatsEngineForHarvest(APP_NAME);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        statsService.stop();
+    }
+
+    @State(Scope.Thread)
+    public static class TransactionState {
+
+        TransactionStats transactionStats;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            transactionStats = new TransactionStats();
+            transactionStats.getUnscopedStats().getOrCreateResponseTimeStats("WebTransaction").recordResponseTimeInNanos(5000000);
+            transactionStats.getUnscopedStats().getOrCreateResponseTimeStats("HttpDispatcher").recordResponseTimeInNanos(5000000);
+            transactionStats.getUnscopedStats().getOrCreateResponseTimeStats("Datastore/all").recordResponseTimeInNanos(1000000);
+            transactionStats.getUnscopedStats().getOrCreateResponseTimeStats("Datastore/MySQL/all").recordResponseTimeInNanos(1000000);
+            transactionStats.getScopedStats().getOrCreateResponseTimeStats("Datastore/statement/MySQL/users/select").recordResponseTimeInNanos(1000000);
+            transactionStats.getScopedStats().getOrCreateResponseTimeStats("Java/com.example.UserController/getUser").recordResponseTimeInNanos(4000000);
+        }
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void doStatsWork(TransactionState state) {
+        statsService.doStatsWork(new MergeStatsEngineResolvingScope("WebTransaction/Uri/users", APP_NAME,
+                state.transactionStats), "benchmark");
+    }
+
+}
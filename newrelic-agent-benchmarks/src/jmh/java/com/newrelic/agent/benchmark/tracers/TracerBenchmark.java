@@ -0,0 +1,122 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark.tracers;
+
+import com.newrelic.agent.AgentHelper;
+import com.newrelic.agent.MockCoreService;
+import com.newrelic.agent.Transaction;
+import com.newrelic.agent.TransactionActivity;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.service.ServiceManager;
+import com.newrelic.agent.tracers.ClassMethodSignature;
+import com.newrelic.agent.tracers.DefaultTracer;
+import com.newrelic.agent.tracers.OtherRootTracer;
+import com.newrelic.agent.tracers.Tracer;
+import com.newrelic.agent.tracers.metricname.SimpleMetricNameFormat;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of one traced method: creating a {@link DefaultTracer}, pushing it on the activity's tracer stack,
+ * finishing it and recording its metrics. Each invocation runs a transaction with {@value #TRACED_METHODS} traced
+ * methods under one root tracer, so the score also carries a small share of the transaction's own start and finish.
+ *
+ * Transaction traces and span events are disabled, so with {@code pooledTracers} the traced methods take a
+ * {@link com.newrelic.agent.tracers.PooledTracer} from the activity instead.
+ *
+ * Run with the GC profiler to get bytes allocated per traced method ({@code gc.alloc.rate.norm}):
+ * <pre>
+ * ./gradlew :newrelic-agent-benchmarks:jmh -Pjmh.includes=TracerBenchmark -Pjmh.profilers=gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class TracerBenchmark {
+
+    static final int TRACED_METHODS = 100;
+
+    private static final ClassMethodSignature ROOT_SIGNATURE = new ClassMethodSignature(
+            "com.example.OrderController", "placeOrder", "()V");
+    private static final ClassMethodSignature METHOD_SIGNATURE = new ClassMethodSignature(
+            "com.example.OrderRepository", "findOrder", "(J)Lcom/example/Order;");
+    private static final SimpleMetricNameFormat ROOT_METRIC_NAME = new SimpleMetricNameFormat(
+            "OtherTransaction/Custom/com.example.OrderController/placeOrder");
+    private static final SimpleMetricNameFormat METHOD_METRIC_NAME = new SimpleMetricNameFormat(
+            "Java/com.example.OrderRepository/findOrder");
+
+    private static final int METHOD_FLAGS = DefaultTracer.DEFAULT_TRACER_FLAGS;
+
+    @Param({ "false", "true" })
+    public boolean pooledTracers;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        System.setProperty("newrelic.config.file",
+                AgentHelper.getFullPath("/com/newrelic/agent/config/span_events.yml"));
+        System.setProperty("newrelic.config.span_events.enabled", "false");
+        System.setProperty("newrelic.config.transaction_tracer.enabled", "false");
+        System.setProperty("newrelic.config.pooled_tracers", String.valueOf(pooledTracers));
+        MockCoreService.getMockAgentAndBootstrapTheServiceManager();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        ServiceManager serviceManager = ServiceFactory.getServiceManager();
+        if (serviceManager != null) {
+            serviceManager.stop();
+        }
+        System.clearProperty("newrelic.config.span_events.enabled");
+        System.clearProperty("newrelic.config.transaction_tracer.enabled");
+        System.clearProperty("newrelic.config.pooled_tracers");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRACED_METHODS)
+    public Tracer tracedMethods() {
+        Transaction.clearTransaction();
+        Transaction tx = Transaction.getTransaction();
+        TransactionActivity txa = tx.getTransactionActivity();
+        Tracer root = new OtherRootTracer(txa, ROOT_SIGNATURE, this, ROOT_METRIC_NAME);
+        txa.tracerStarted(root);
+
+        for (int i = 0; i < TRACED_METHODS; i++) {
+            // the same steps as InstrumentationImpl.createTracer()
+            if (txa.checkTracerStart()) {
+                Tracer tracer;
+                try {
+                    if (txa.canPoolTracer(METHOD_FLAGS)) {
+                        tracer = txa.createPooledTracer(METHOD_SIGNATURE, this, METHOD_METRIC_NAME, METHOD_FLAGS);
+                    } else {
+                        tracer = new DefaultTracer(txa, METHOD_SIGNATURE, this, METHOD_METRIC_NAME, METHOD_FLAGS);
+                    }
+                } finally {
+                    txa.unlockTracerStart();
+                }
+                txa.tracerStarted(tracer);
+                tracer.finish(Opcodes.ARETURN, null);
+            }
+        }
+
+        root.finish(Opcodes.RETURN, null);
+        return root;
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark.transaction;
+
+import com.newrelic.agent.AgentHelper;
+import com.newrelic.agent.MockCoreService;
+import com.newrelic.agent.Transaction;
+import com.newrelic.agent.TransactionActivity;
+import com.newrelic.agent.bridge.Token;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.service.ServiceManager;
+import com.newrelic.agent.tracers.ClassMethodSignature;
+import com.newrelic.agent.tracers.OtherRootTracer;
+import com.newrelic.agent.tracers.Tracer;
+import com.newrelic.agent.tracers.metricname.SimpleMetricNameFormat;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures tokens per second when many threads create, link and expire tokens of the same transaction, the way
+ * reactive and async instrumentation hops a transaction across threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Threads(8)
+public class TokenBenchmark {
+
+    private static final ClassMethodSignature ROOT_SIGNATURE = new ClassMethodSignature(
+            "com.example.OrderConsumer", "onMessage", "(Ljava/lang/Object;)V");
+    private static final SimpleMetricNameFormat ROOT_METRIC_NAME = new SimpleMetricNameFormat(
+            "OtherTransaction/Custom/com.example.OrderConsumer/onMessage");
+    private static final ClassMethodSignature WORKER_SIGNATURE = new ClassMethodSignature(
+            "com.example.OrderConsumer", "lambda$onMessage$0", "()V");
+    private static final SimpleMetricNameFormat WORKER_METRIC_NAME = new SimpleMetricNameFormat(
+            "Java/com.example.OrderConsumer/lambda$onMessage$0");
+
+    private volatile Transaction parent;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        System.setProperty("newrelic.config.file",
+                AgentHelper.getFullPath("/com/newrelic/agent/config/span_events.yml"));
+        // every token counts against the limit, and tokens past it are no-ops
+        System.setProperty("newrelic.config.transaction_tracer.token_limit", String.valueOf(Integer.MAX_VALUE));
+        MockCoreService.getMockAgentAndBootstrapTheServiceManager();
+    }
+
+    /**
+     * The parent transaction is started on its own thread and left running, so it is never in the thread locals of the
+     * benchmark threads.
+     */
+    @Setup(Level.Iteration)
+    public void startParent() throws Exception {
+        AtomicReference<Transaction> started = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            Transaction tx = Transaction.getTransaction();
+            TransactionActivity txa = tx.getTransactionActivity();
+            Tracer root = new OtherRootTracer(txa, ROOT_SIGNATURE, txa, ROOT_METRIC_NAME);
+            txa.tracerStarted(root);
+            started.set(tx);
+        });
+        thread.start();
+        thread.join();
+        parent = started.get();
+    }
+
+    @TearDown(Level.Iteration)
+    public void expireParentTokens() {
+        parent.expireAllTokensForCurrentTransaction();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        ServiceManager serviceManager = ServiceFactory.getServiceManager();
+        if (serviceManager != null) {
+            serviceManager.stop();
+        }
+    }
+
+    @Benchmark
+    public boolean createAndExpire() {
+        return parent.getToken().expire();
+    }
+
+    @Benchmark
+    public boolean linkAndExpire() {
+        Token token = parent.getToken();
+
+        Transaction.clearTransaction();
+        TransactionActivity txa = Transaction.getTransaction().getTransactionActivity();
+        Tracer root = new OtherRootTracer(txa, WORKER_SIGNATURE, txa, WORKER_METRIC_NAME);
+        txa.tracerStarted(root);
+        boolean linked = token.link();
+        token.expire();
+        root.finish(Opcodes.RETURN, null);
+        return linked;
+    }
+
+}
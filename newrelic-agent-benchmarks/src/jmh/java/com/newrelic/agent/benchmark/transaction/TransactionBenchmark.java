@@ -0,0 +1,85 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark.transaction;
+
+import com.newrelic.agent.AgentHelper;
+import com.newrelic.agent.MockCoreService;
+import com.newrelic.agent.Transaction;
+import com.newrelic.agent.TransactionActivity;
+import com.newrelic.agent.bridge.TransactionNamePriority;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.service.ServiceManager;
+import com.newrelic.agent.tracers.ClassMethodSignature;
+import com.newrelic.agent.tracers.OtherRootTracer;
+import com.newrelic.agent.tracers.Tracer;
+import com.newrelic.agent.tracers.metricname.SimpleMetricNameFormat;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures starting and finishing a transaction that has only its root tracer: creating the transaction and its
+ * activity, naming it, and the finish work that turns it into metrics, a transaction event and span events.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class TransactionBenchmark {
+
+    private static final ClassMethodSignature ROOT_SIGNATURE = new ClassMethodSignature(
+            "com.example.OrderConsumer", "onMessage", "(Ljava/lang/Object;)V");
+    private static final SimpleMetricNameFormat ROOT_METRIC_NAME = new SimpleMetricNameFormat(
+            "OtherTransaction/Custom/com.example.OrderConsumer/onMessage");
+
+    private String appName;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        System.setProperty("newrelic.config.file",
+                AgentHelper.getFullPath("/com/newrelic/agent/config/span_events.yml"));
+        MockCoreService.getMockAgentAndBootstrapTheServiceManager();
+        appName = ServiceFactory.getConfigService().getDefaultAgentConfig().getApplicationName();
+    }
+
+    @TearDown(Level.Iteration)
+    public void harvest() {
+        ServiceFactory.getStatsService().getStatsEngineForHarvest(appName);
+        ServiceFactory.getTransactionEventsService().clearReservoir();
+        ServiceFactory.getSpanEventService().getOrCreateDistributedSamplingReservoir(appName).clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        ServiceManager serviceManager = ServiceFactory.getServiceManager();
+        if (serviceManager != null) {
+            serviceManager.stop();
+        }
+    }
+
+    @Benchmark
+    public Transaction startAndFinish() {
+        Transaction.clearTransaction();
+        Transaction tx = Transaction.getTransaction();
+        TransactionActivity txa = tx.getTransactionActivity();
+        Tracer root = new OtherRootTracer(txa, ROOT_SIGNATURE, this, ROOT_METRIC_NAME);
+        txa.tracerStarted(root);
+        tx.setTransactionName(TransactionNamePriority.CUSTOM_HIGH, true, "Custom", "OrderConsumer/onMessage");
+        root.finish(Opcodes.RETURN, null);
+        return tx;
+    }
+
+}
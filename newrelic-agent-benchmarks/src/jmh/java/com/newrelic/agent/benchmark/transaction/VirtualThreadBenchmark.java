@@ -0,0 +1,149 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark.transaction;
+
+import com.newrelic.agent.AgentHelper;
+import com.newrelic.agent.MockCoreService;
+import com.newrelic.agent.Transaction;
+import com.newrelic.agent.TransactionActivity;
+import com.newrelic.agent.bridge.Token;
+import com.newrelic.agent.bridge.TransactionNamePriority;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.service.ServiceManager;
+import com.newrelic.agent.tracers.ClassMethodSignature;
+import com.newrelic.agent.tracers.OtherRootTracer;
+import com.newrelic.agent.tracers.Tracer;
+import com.newrelic.agent.tracers.metricname.SimpleMetricNameFormat;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs transaction work on a million virtual threads: each virtual thread either runs its own transaction, or links a
+ * token of a transaction started on the benchmark thread the way the virtual thread instrumentation does. Requires a
+ * Java 21 JVM, e.g. -Pjmh.includes=VirtualThreadBenchmark with the jmh task running on Java 21; on older JVMs the jmh
+ * task excludes it.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+
+    private static final ClassMethodSignature ROOT_SIGNATURE = new ClassMethodSignature(
+            "com.example.OrderConsumer", "onMessage", "(Ljava/lang/Object;)V");
+    private static final SimpleMetricNameFormat ROOT_METRIC_NAME = new SimpleMetricNameFormat(
+            "OtherTransaction/Custom/com.example.OrderConsumer/onMessage");
+
+    @Param({ "1000000" })
+    public int threads;
+
+    private String appName;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        // fail fast on JVMs without virtual threads
+        newVirtualThreadPerTaskExecutor().shutdown();
+        System.setProperty("newrelic.config.file",
+                AgentHelper.getFullPath("/com/newrelic/agent/config/span_events.yml"));
+        MockCoreService.getMockAgentAndBootstrapTheServiceManager();
+        appName = ServiceFactory.getConfigService().getDefaultAgentConfig().getApplicationName();
+    }
+
+    @TearDown(Level.Iteration)
+    public void harvest() {
+        ServiceFactory.getStatsService().getStatsEngineForHarvest(appName);
+        ServiceFactory.getTransactionEventsService().clearReservoir();
+        ServiceFactory.getSpanEventService().getOrCreateDistributedSamplingReservoir(appName).clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        ServiceManager serviceManager = ServiceFactory.getServiceManager();
+        if (serviceManager != null) {
+            serviceManager.stop();
+        }
+    }
+
+    @Benchmark
+    public long transactionPerVirtualThread() throws Exception {
+        LongAdder finished = new LongAdder();
+        runOnVirtualThreads(() -> {
+            startAndFinish();
+            finished.increment();
+        });
+        return finished.sum();
+    }
+
+    @Benchmark
+    public long linkTokenOnVirtualThreads() throws Exception {
+        Transaction.clearTransaction();
+        Transaction tx = Transaction.getTransaction();
+        Tracer root = new OtherRootTracer(tx.getTransactionActivity(), ROOT_SIGNATURE, this, ROOT_METRIC_NAME);
+        tx.getTransactionActivity().tracerStarted(root);
+        Token token = tx.getToken();
+
+        LongAdder linked = new LongAdder();
+        runOnVirtualThreads(() -> {
+            if (token.link()) {
+                linked.increment();
+            }
+            Transaction.clearTransaction();
+        });
+
+        token.expire();
+        root.finish(Opcodes.RETURN, null);
+        Transaction.clearTransaction();
+        return linked.sum();
+    }
+
+    private static Transaction startAndFinish() {
+        Transaction tx = Transaction.getTransaction();
+        TransactionActivity txa = tx.getTransactionActivity();
+        Tracer root = new OtherRootTracer(txa, ROOT_SIGNATURE, txa, ROOT_METRIC_NAME);
+        txa.tracerStarted(root);
+        tx.setTransactionName(TransactionNamePriority.CUSTOM_HIGH, true, "Custom", "OrderConsumer/onMessage");
+        root.finish(Opcodes.RETURN, null);
+        return tx;
+    }
+
+    private void runOnVirtualThreads(Runnable task) throws Exception {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        for (int i = 0; i < threads; i++) {
+            executor.execute(task);
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Virtual threads did not finish");
+        }
+    }
+
+    /**
+     * The benchmarks are compiled for Java 8, so the executor is looked up at runtime.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() throws Exception {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new UnsupportedOperationException("VirtualThreadBenchmark requires Java 21 or later", e);
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark.transport;
+
+import com.newrelic.agent.Agent;
+import com.newrelic.agent.MetricData;
+import com.newrelic.agent.MockServiceManager;
+import com.newrelic.agent.config.AgentConfig;
+import com.newrelic.agent.config.AgentConfigImpl;
+import com.newrelic.agent.config.ConfigServiceFactory;
+import com.newrelic.agent.metric.MetricName;
+import com.newrelic.agent.model.SpanEvent;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.stats.StatsImpl;
+import com.newrelic.agent.stats.StatsService;
+import com.newrelic.agent.transport.DataSenderImpl;
+import com.newrelic.agent.transport.HttpClientWrapper;
+import com.newrelic.agent.transport.HttpResponseCode;
+import com.newrelic.agent.transport.ReadResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serializing and compressing harvest payloads in {@link DataSenderImpl}. The HTTP client answers every request
+ * without touching the network, so the score is the cost of turning a harvest into a request body.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class DataSenderBenchmark {
+
+    private static final int METRIC_COUNT = 2000;
+    private static final int SPAN_COUNT = 2000;
+
+    @Param({ "gzip", "deflate" })
+    public String encoding;
+
+    @Param({ "false", "true" })
+    public boolean streaming;
+
+    private DataSenderImpl dataSender;
+    private List<MetricData> metricData;
+    private List<SpanEvent> spanEvents;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Map<String, Object> configMap = new HashMap<>();
+        configMap.put(AgentConfigImpl.APP_NAME, "Benchmark");
+        configMap.put(AgentConfigImpl.HOST, "localhost");
+        configMap.put(AgentConfigImpl.COMPRESSED_CONTENT_ENCODING_PROPERTY, encoding);
+        configMap.put(AgentConfigImpl.STREAMING_PAYLOADS_PROPERTY, streaming);
+        AgentConfig config = AgentConfigImpl.createAgentConfig(configMap);
+        MockServiceManager serviceManager = new MockServiceManager(ConfigServiceFactory.createConfigService(config, configMap));
+        ServiceFactory.setServiceManager(serviceManager);
+
+        dataSender = new DataSenderImpl(config, new NoNetworkHttpClientWrapper(), null, Agent.LOG,
+                ServiceFactory.getConfigService());
+        // the run id is normally assigned by connect
+        Method setAgentRunId = DataSenderImpl.class.getDeclaredMethod("setAgentRunId", Object.class);
+        setAgentRunId.setAccessible(true);
+        setAgentRunId.invoke(dataSender, "benchmark-run-id");
+
+        metricData = new ArrayList<>(METRIC_COUNT);
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            float seconds = (i + 1) / 1000f;
+            StatsImpl stats = new StatsImpl(1, seconds, seconds, seconds, seconds * seconds);
+            String scope = i % 2 == 0 ? "" : "WebTransaction/Uri/api/v1/orders";
+            metricData.add(MetricData.create(MetricName.create("Java/com.example.Service" + (i % 50) + "/method" + i, scope), stats));
+        }
+
+        spanEvents = new ArrayList<>(SPAN_COUNT);
+        for (int i = 0; i < SPAN_COUNT; i++) {
+            spanEvents.add(SpanEvent.builder()
+                    .appName("Benchmark")
+                    .priority(1.5f)
+                    .putIntrinsic("type", "Span")
+                    .putIntrinsic("category", "generic")
+                    .putIntrinsic("guid", Long.toHexString(0x1000000000000000L + i))
+                    .putIntrinsic("traceId", "0af7651916cd43dd8448eb211c80319c")
+                    .putIntrinsic("name", "Java/com.example.Service/method" + (i % 100))
+                    .putIntrinsic("duration", 0.002f)
+                    .putAgentAttribute("thread.id", 37L)
+                    .putAgentAttribute("code.function", "method" + (i % 100))
+                    .timestamp(System.currentTimeMillis())
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ServiceFactory.setServiceManager(null);
+    }
+
+    @Benchmark
+    public void sendMetricData() throws Exception {
+        long now = System.currentTimeMillis();
+        dataSender.sendMetricData(now - 60000, now, metricData);
+    }
+
+    @Benchmark
+    public void sendSpanEvents() throws Exception {
+        dataSender.sendSpanEvents(SPAN_COUNT, SPAN_COUNT, spanEvents);
+    }
+
+    private static class NoNetworkHttpClientWrapper implements HttpClientWrapper {
+
+        private static final ReadResult OK = ReadResult.create(HttpResponseCode.OK, "{}", null);
+
+        @Override
+        public ReadResult execute(Request request, ExecuteEventHandler eventHandler) {
+            return OK;
+        }
+
+        @Override
+        public void captureSupportabilityMetrics(StatsService statsService, String requestHost) {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+
+}
@@ -11,6 +11,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.newrelic.agent.config.AgentConfig;
 import com.newrelic.agent.config.AgentConfigFactory;
 import com.newrelic.agent.metric.MetricIdRegistry;
+import com.newrelic.agent.metric.MetricNameTable;
 import com.newrelic.agent.service.AbstractService;
 import com.newrelic.agent.service.ServiceFactory;
 import com.newrelic.agent.stats.StatsEngine;
@@ -27,10 +28,15 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
@@ -47,6 +53,10 @@ public class HarvestServiceImpl extends AbstractService implements HarvestServic
 
     public static final String HARVEST_THREAD_NAME = "New Relic Harvest Service";
     public static final String FASTER_HARVEST_THREAD_NAME = "New Relic Faster Harvest Service";
+    public static final String HARVEST_LANE_THREAD_NAME = "New Relic Harvest Lane";
+    static final String PARALLEL_LANES_ENABLED = "harvest_service.parallel_lanes.enabled";
+    static final String PARALLEL_LANES_MAX_THREADS = "harvest_service.parallel_lanes.max_threads";
+    private static final int DEFAULT_PARALLEL_LANES_MAX_THREADS = 4;
     private static final long INITIAL_DELAY_IN_MILLISECONDS = TimeUnit.MILLISECONDS.convert(30, TimeUnit.SECONDS);
     private static final long REPORTING_PERIOD_IN_MILLISECONDS = TimeUnit.MILLISECONDS.convert(60, TimeUnit.SECONDS);
     private static final long MIN_HARVEST_INTERVAL_IN_NANOSECONDS = TimeUnit.NANOSECONDS.convert(55, TimeUnit.SECONDS);
@@ -58,6 +68,11 @@ public class HarvestServiceImpl extends AbstractService implements HarvestServic
      */
     private final ScheduledExecutorService scheduledHarvestExecutor;
     private final ScheduledExecutorService scheduledFasterHarvestExecutor;
+    /**
+     * When parallel lanes are enabled, the faster harvest thread only schedules: each harvestable runs in its own lane
+     * on this bounded pool, so a slow endpoint does not hold up the others. Created on first use.
+     */
+    private ExecutorService laneExecutor;
     private final List<HarvestListener> harvestListeners = new CopyOnWriteArrayList<>();
     private final Map<IRPMService, HarvestTask> harvestTasks = new HashMap<>();
     private final ConcurrentMap<Harvestable, HarvestableTracker> harvestables = new ConcurrentHashMap<>();
@@ -92,6 +107,7 @@ public class HarvestServiceImpl extends AbstractService implements HarvestServic
     public void startHarvestables(IRPMService rpmService, AgentConfig config) {
         Map<String, Object> eventHarvestConfig = config.getProperty(AgentConfigFactory.EVENT_HARVEST_CONFIG);
         Map<String, Object> spanHarvestConfig = config.getProperty(SERVER_SPAN_HARVEST_CONFIG);
+        boolean parallelLanes = config.getValue(PARALLEL_LANES_ENABLED, Boolean.FALSE);
 
         if (eventHarvestConfig == null) {
             ServiceFactory.getStatsService().doStatsWork(StatsWorks.getIncrementCounterWork(
@@ -148,11 +164,23 @@ public class HarvestServiceImpl extends AbstractService implements HarvestServic
                             tracker.harvestable.getEndpointMethodName(), maxSamplesStored);
                 }
 
-                tracker.start(reportPeriodInMillis, maxSamplesStored);
+                tracker.start(reportPeriodInMillis, maxSamplesStored, parallelLanes ? getLaneExecutor(config) : null);
             }
         }
     }
 
+    private synchronized ExecutorService getLaneExecutor(AgentConfig config) {
+        if (laneExecutor == null) {
+            int maxThreads = Math.max(1, config.getValue(PARALLEL_LANES_MAX_THREADS, DEFAULT_PARALLEL_LANES_MAX_THREADS));
+            // Each lane queues at most one run, so the queue is bounded by the number of harvestables
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new DefaultThreadFactory(HARVEST_LANE_THREAD_NAME, true));
+            executor.allowCoreThreadTimeOut(true);
+            laneExecutor = executor;
+        }
+        return laneExecutor;
+    }
+
     /**
      * Stop a harvest task for the RPM service
      */
@@ -238,6 +266,11 @@ public class HarvestServiceImpl extends AbstractService implements HarvestServic
         }
         scheduledHarvestExecutor.shutdown();
         scheduledFasterHarvestExecutor.shutdown();
+        synchronized (this) {
+            if (laneExecutor != null) {
+                laneExecutor.shutdown();
+            }
+        }
     }
 
     /**
@@ -421,6 +454,10 @@ public class HarvestServiceImpl extends AbstractService implements HarvestServic
 
             StatsEngine harvestStatsEngine = ServiceFactory.getStatsService().getStatsEngineForHarvest(appName);
             harvestStatsEngine.mergeStats(lastStatsEngine);
+            if (MetricNameTable.retireIfFull()) {
+                // the table filled up, so names seen since then were kept by name; start over with an empty table
+                harvestStatsEngine.getStats(MetricNames.SUPPORTABILITY_METRIC_NAME_TABLE_FULL).incrementCallCount();
+            }
             try {
                 for (HarvestListener listener : harvestListeners) {
                     notifyListenerBeforeHarvest(appName, harvestStatsEngine, listener);
@@ -489,23 +526,36 @@ public class HarvestServiceImpl extends AbstractService implements HarvestServic
 
     private class HarvestableTracker {
         private final Harvestable harvestable;
+        private final Runnable harvestTask;
+        // one lane per harvestable, kept across restarts so a run still in progress from before a reconnect holds off
+        // the runs scheduled after it
+        private final HarvestLane lane;
         private final List<ScheduledFuture<?>> tasks = new ArrayList<>();
 
         public HarvestableTracker(Harvestable harvestable) {
             this.harvestable = harvestable;
-        }
-
-        public synchronized void start(long reportPeriodInMillis, int maxSamplesStored) {
-            stop();
-            harvestable.configure(reportPeriodInMillis, maxSamplesStored);
-
-            Runnable harvestTask = new Runnable() {
+            this.harvestTask = new Runnable() {
                 @Override
                 public void run() {
                     getLogger().log(Level.FINER, "Harvestable: {0}/{1} running", harvestable.getAppName(), harvestable.getEndpointMethodName());
                     harvestable.harvest();
                 }
             };
+            this.lane = new HarvestLane(harvestable.getAppName(), harvestable.getEndpointMethodName(), harvestTask);
+        }
+
+        /**
+         * @param laneExecutor the pool to run this harvestable's lane on, or null to harvest on the faster harvest thread
+         */
+        public synchronized void start(long reportPeriodInMillis, int maxSamplesStored, ExecutorService laneExecutor) {
+            stop();
+            harvestable.configure(reportPeriodInMillis, maxSamplesStored);
+
+            Runnable harvestTask = this.harvestTask;
+            if (laneExecutor != null) {
+                lane.setExecutor(laneExecutor);
+                harvestTask = lane;
+            }
 
             tasks.add(
                     scheduledFasterHarvestExecutor.scheduleAtFixedRate(SafeWrappers.safeRunnable(harvestTask), 0, reportPeriodInMillis, TimeUnit.MILLISECONDS));
@@ -520,6 +570,87 @@ public class HarvestServiceImpl extends AbstractService implements HarvestServic
         }
     }
 
+    /**
+     * Runs one harvestable on the lane pool. Each tick from the faster harvest thread just hands the harvest to the pool
+     * and returns, so harvestables serialize and send their payloads concurrently.
+     *
+     * A lane never runs its harvestable concurrently with itself and holds at most one pending run: a tick that arrives
+     * while a run is in progress queues exactly one follow-up run, and further ticks are skipped until it starts.
+     */
+    private class HarvestLane implements Runnable {
+        private static final int IDLE = 0;
+        private static final int RUNNING = 1;
+        private static final int RUNNING_WITH_PENDING = 2;
+
+        private final String appName;
+        private final String endpointMethodName;
+        private final Runnable harvestTask;
+        private final AtomicInteger state = new AtomicInteger(IDLE);
+        private volatile ExecutorService laneExecutor;
+        private volatile long lastTickNanos;
+
+        HarvestLane(String appName, String endpointMethodName, Runnable harvestTask) {
+            this.appName = appName;
+            this.endpointMethodName = endpointMethodName;
+            this.harvestTask = harvestTask;
+        }
+
+        void setExecutor(ExecutorService laneExecutor) {
+            this.laneExecutor = laneExecutor;
+        }
+
+        /**
+         * Called by the faster harvest thread on every tick.
+         */
+        @Override
+        public void run() {
+            lastTickNanos = System.nanoTime();
+            int current;
+            do {
+                current = state.get();
+                if (current == RUNNING_WITH_PENDING) {
+                    String metricName = MessageFormat.format(MetricNames.SUPPORTABILITY_HARVEST_LANE_SKIPPED, appName, endpointMethodName);
+                    ServiceFactory.getStatsService().doStatsWork(StatsWorks.getIncrementCounterWork(metricName, 1), metricName);
+                    return;
+                }
+            } while (!state.compareAndSet(current, current + 1));
+
+            if (current == IDLE) {
+                try {
+                    laneExecutor.execute(SafeWrappers.safeRunnable(new Runnable() {
+                        @Override
+                        public void run() {
+                            drain();
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    // the service is stopping
+                    state.set(IDLE);
+                }
+            }
+        }
+
+        private void drain() {
+            do {
+                long startNanos = System.nanoTime();
+                recordLaneTime(MetricNames.SUPPORTABILITY_HARVEST_LANE_QUEUE_TIME, Math.max(0, startNanos - lastTickNanos));
+                try {
+                    harvestTask.run();
+                } catch (Throwable t) {
+                    getLogger().log(Level.FINE, t, "Error running harvest lane for {0}", endpointMethodName);
+                } finally {
+                    recordLaneTime(MetricNames.SUPPORTABILITY_HARVEST_LANE_DURATION, System.nanoTime() - startNanos);
+                }
+            } while (state.decrementAndGet() != IDLE);
+        }
+
+        private void recordLaneTime(String metricNameFormat, long nanos) {
+            String metricName = MessageFormat.format(metricNameFormat, appName, endpointMethodName);
+            ServiceFactory.getStatsService().doStatsWork(StatsWorks.getRecordResponseTimeWork(metricName,
+                    TimeUnit.MILLISECONDS.convert(nanos, TimeUnit.NANOSECONDS)), metricName);
+        }
+    }
+
     private class ConnectionListenerImpl implements ConnectionListener {
         @Override
         public void connected(IRPMService rpmService, AgentConfig agentConfig) {
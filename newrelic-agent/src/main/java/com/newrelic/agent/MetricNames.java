@@ -210,6 +210,10 @@ public class MetricNames {
     public static final String SUPPORTABILITY_JAVA_AGENTVERSION = "Supportability/Java/AgentVersion/{0}";
 
     public static final String SUPPORTABILITY_HARVEST_SERVICE_RESPONSE_TIME = "Supportability/Harvest";
+    public static final String SUPPORTABILITY_HARVEST_LANE_DURATION = "Supportability/Harvest/Lane/{0}/{1}/Duration";
+    public static final String SUPPORTABILITY_HARVEST_LANE_QUEUE_TIME = "Supportability/Harvest/Lane/{0}/{1}/QueueTime";
+    public static final String SUPPORTABILITY_HARVEST_LANE_SKIPPED = "Supportability/Harvest/Lane/{0}/{1}/Skipped";
+    public static final String SUPPORTABILITY_METRIC_NAME_TABLE_FULL = "Supportability/MetricNameTable/Full";
 
     public static final String SUPPORTABILITY_ERROR_SERVICE_TRANSACTION_ERROR_SENT = "Supportability/Events/TransactionError/Sent";
     public static final String SUPPORTABILITY_ERROR_SERVICE_TRANSACTION_ERROR_SEEN = "Supportability/Events/TransactionError/Seen";
@@ -305,6 +309,9 @@ public class MetricNames {
     public static final String SUPPORTABILITY_WEAVE_SKIPPED = "Supportability/WeaveInstrumentation/Skipped/{0}/{1}";
     public static final String SUPPORTABILITY_WEAVE_CUSTOM_SKIPPED = "Supportability/WeaveInstrumentation/Skipped/Custom/{0}/{1}";
     public static final String SUPPORTABILITY_WEAVE_CLASS = "Supportability/WeaveInstrumentation/WeaveClass/{0}/{1}";
+    public static final String SUPPORTABILITY_WEAVE_CACHE_HIT = "Supportability/WeaveInstrumentation/Cache/Hit";
+    public static final String SUPPORTABILITY_WEAVE_CACHE_MISS = "Supportability/WeaveInstrumentation/Cache/Miss";
+    public static final String SUPPORTABILITY_WEAVE_STAGE = "Supportability/WeaveInstrumentation/Stage/{0}";
 
     public static final String SUPPORTABILITY_LOADED_CLASSES_SOURCE_VERSION = "Supportability/LoadedClasses/{0}/{1}/count";
     public static final String SUPPORTABILITY_SOURCE_LANGUAGE_VERSION = "Supportability/SourceLanguage/{0}/{1}";
@@ -394,6 +401,9 @@ public class MetricNames {
 
     //This times the transform method in InstrumentationContextmanager to indicate classloading overhead
     public static final String SUPPORTABILITY_CLASSLOADER_TRANSFORM_TIME = "Supportability/Classloader/TransformTime";
+    public static final String SUPPORTABILITY_CLASS_TRANSFORM_TRANSFORMER = "Supportability/ClassTransform/Transformer/{0}";
+    public static final String SUPPORTABILITY_CLASS_TRANSFORM_WEAVE_PACKAGE = "Supportability/ClassTransform/WeavePackage/{0}";
+    public static final String SUPPORTABILITY_CLASS_TRANSFORM_WEAVE_PACKAGE_VALIDATE = "Supportability/ClassTransform/WeavePackage/{0}/Validate";
 
     //HTTP supportability metrics broken down by response
     public static final String SUPPORTABILITY_HTTP_CODE = "Supportability/Collector/HttpCode/{0}";
@@ -408,6 +418,11 @@ public class MetricNames {
     //Supportability metric indicating that the payload was too large
     public static final String SUPPORTABILITY_PAYLOAD_SIZE_EXCEEDS_MAX = "Supportability/Agent/Collector/MaxPayloadSizeLimit/{0}";
 
+    // Supportability metrics for event payloads spilled to disk. {0} = endpoint method
+    public static final String SUPPORTABILITY_SPILL_SPILLED = "Supportability/Agent/Collector/Spill/{0}/Spilled";
+    public static final String SUPPORTABILITY_SPILL_DRAINED = "Supportability/Agent/Collector/Spill/{0}/Drained";
+    public static final String SUPPORTABILITY_SPILL_DROPPED = "Supportability/Agent/Collector/Spill/{0}/Dropped";
+
     // Supportability metrics for uncompressed data payloads used to measure usage
     // {0} = destination (Collector, OTLP, or InfiniteTracing).
     public static final String SUPPORTABILITY_DATA_USAGE_DESTINATION_OUTPUT_BYTES = "Supportability/Java/{0}/Output/Bytes";
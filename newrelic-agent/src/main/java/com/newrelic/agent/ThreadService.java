@@ -32,7 +32,16 @@ public class ThreadService extends AbstractService implements ThreadNames {
 
     public static final String NAME_PATTERN_CFG_KEY = "thread_sampler.name_pattern";
     private final Map<Long, Boolean> agentThreadIds;
-    private final Cache<Long, String> threadIdToName = Caffeine.newBuilder().expireAfterAccess(5, TimeUnit.MINUTES).executor(Runnable::run).build();
+    /**
+     * Bounded because the ids of virtual threads are never reused, so an application that starts millions of them
+     * would otherwise fill the cache faster than it expires.
+     */
+    private static final int MAX_THREAD_NAMES = 10_000;
+    private final Cache<Long, String> threadIdToName = Caffeine.newBuilder()
+            .maximumSize(MAX_THREAD_NAMES)
+            .expireAfterAccess(5, TimeUnit.MINUTES)
+            .executor(Runnable::run)
+            .build();
     private volatile ThreadNameNormalizer threadNameNormalizer;
 
     public ThreadService() {
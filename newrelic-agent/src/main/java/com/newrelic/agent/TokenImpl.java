@@ -18,6 +18,8 @@ import java.util.logging.Level;
 
 public class TokenImpl implements Token {
 
+    private static final WeakRefTransaction NO_TRANSACTION = new WeakRefTransaction(null);
+
     private volatile Tracer initiatingTracer;
     private final AtomicBoolean active;
 
@@ -25,13 +27,9 @@ public class TokenImpl implements Token {
         initiatingTracer = tracer;
         active = new AtomicBoolean(Boolean.TRUE);
 
-        WeakRefTransaction weakRefTransaction = getTransaction();
-        Transaction tx = weakRefTransaction == null ? null : weakRefTransaction.getTransactionIfExists();
-        if (tx != null) {
-            tx.getMetricAggregator().incrementCounter(MetricNames.SUPPORTABILITY_ASYNC_TOKEN_CREATE);
-        }
-
+        // the transaction counts the token in its registry
         if (DebugFlag.tokenEnabled.get()) {
+            Transaction tx = getTransaction().getTransactionIfExists();
             StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
             StackTraceElement location = stackTrace[4];
             if (location.getMethodName().equals("registerAsyncActivity")) {
@@ -47,9 +45,11 @@ public class TokenImpl implements Token {
         Tracer initiatingTracerCopy = initiatingTracer;
 
         if (initiatingTracerCopy != null && initiatingTracerCopy.getTransactionActivity() != null) {
-            return new WeakRefTransaction(initiatingTracerCopy.getTransactionActivity().getTransaction());
+            // the activity's transaction changes when the activity is linked, so it can't be cached in the token
+            Transaction tx = initiatingTracerCopy.getTransactionActivity().getTransaction();
+            return tx == null ? NO_TRANSACTION : tx.getWeakRefTransaction();
         }
-        return new WeakRefTransaction(null);
+        return NO_TRANSACTION;
     }
 
     public Tracer getInitiatingTracer() {
@@ -61,7 +61,10 @@ public class TokenImpl implements Token {
         if (active.compareAndSet(Boolean.TRUE, Boolean.FALSE)) {
             Transaction tx = getTransaction().getTransactionIfExists();
             if (tx != null) {
-                tx.getMetricAggregator().incrementCounter(MetricNames.SUPPORTABILITY_ASYNC_TOKEN_EXPIRE);
+                TokenRegistry registry = tx.getTokenRegistry();
+                if (registry != null) {
+                    registry.tokenExpired();
+                }
                 MetricNames.recordApiSupportabilityMetric(MetricNames.SUPPORTABILITY_API_TOKEN_EXPIRE);
             }
             boolean expired = Transaction.expireToken(this);
@@ -115,10 +118,9 @@ public class TokenImpl implements Token {
                 }
             }
 
-            if (linked) {
-                tx.getMetricAggregator().incrementCounter(MetricNames.SUPPORTABILITY_ASYNC_TOKEN_LINK_SUCCESS);
-            } else {
-                tx.getMetricAggregator().incrementCounter(MetricNames.SUPPORTABILITY_ASYNC_TOKEN_LINK_IGNORE);
+            TokenRegistry registry = tx.getTokenRegistry();
+            if (registry != null) {
+                registry.tokenLinked(linked);
             }
         }
 
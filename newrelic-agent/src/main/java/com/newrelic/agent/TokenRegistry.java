@@ -0,0 +1,94 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent;
+
+import com.newrelic.agent.stats.Stats;
+import com.newrelic.agent.stats.StatsEngine;
+import com.newrelic.agent.stats.TransactionStats;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * The async tokens of one transaction, created with the transaction's first token.
+ *
+ * Reactive pipelines create, link and expire thousands of tokens per transaction from many threads at once. The
+ * registry keeps the active tokens in a concurrent set and counts token activity in striped counters, so none of it
+ * needs the transaction lock or the stats of the current activity. The counts are recorded as supportability metrics
+ * at each harvest while the transaction runs, and the rest when the transaction finishes.
+ */
+class TokenRegistry {
+
+    private final TimedSet<TokenImpl> activeTokens;
+    private final LongAdder created = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder linked = new LongAdder();
+    private final LongAdder linkIgnored = new LongAdder();
+    // the part of each count that has been recorded, guarded by this
+    private long createdRecorded;
+    private long expiredRecorded;
+    private long linkedRecorded;
+    private long linkIgnoredRecorded;
+
+    TokenRegistry(TimedSet<TokenImpl> activeTokens) {
+        this.activeTokens = activeTokens;
+    }
+
+    TimedSet<TokenImpl> getActiveTokens() {
+        return activeTokens;
+    }
+
+    void tokenCreated() {
+        created.increment();
+    }
+
+    void tokenExpired() {
+        expired.increment();
+    }
+
+    void tokenLinked(boolean success) {
+        if (success) {
+            linked.increment();
+        } else {
+            linkIgnored.increment();
+        }
+    }
+
+    /**
+     * Record the token activity of a running transaction that has not been recorded yet into the harvest.
+     */
+    synchronized void recordMetrics(StatsEngine statsEngine) {
+        recordActivity(statsEngine::getStats);
+    }
+
+    /**
+     * Record the token activity of the finished transaction that has not been recorded yet, and the tokens that timed
+     * out.
+     */
+    synchronized void recordMetrics(TransactionStats stats) {
+        Function<String, Stats> unscopedStats = stats.getUnscopedStats()::getStats;
+        recordActivity(unscopedStats);
+        recordCount(unscopedStats, MetricNames.SUPPORTABILITY_ASYNC_TOKEN_TIMEOUT, activeTokens.timedOutCount(), 0);
+    }
+
+    // the counters keep counting while this runs, so each is read once and only what was read is marked as recorded
+    private void recordActivity(Function<String, Stats> stats) {
+        createdRecorded = recordCount(stats, MetricNames.SUPPORTABILITY_ASYNC_TOKEN_CREATE, created.sum(), createdRecorded);
+        expiredRecorded = recordCount(stats, MetricNames.SUPPORTABILITY_ASYNC_TOKEN_EXPIRE, expired.sum(), expiredRecorded);
+        linkedRecorded = recordCount(stats, MetricNames.SUPPORTABILITY_ASYNC_TOKEN_LINK_SUCCESS, linked.sum(), linkedRecorded);
+        linkIgnoredRecorded = recordCount(stats, MetricNames.SUPPORTABILITY_ASYNC_TOKEN_LINK_IGNORE, linkIgnored.sum(),
+                linkIgnoredRecorded);
+    }
+
+    private static long recordCount(Function<String, Stats> stats, String metricName, long count, long recorded) {
+        if (count > recorded) {
+            stats.apply(metricName).incrementCallCount((int) (count - recorded));
+        }
+        return Math.max(count, recorded);
+    }
+}
@@ -44,6 +44,7 @@ import com.newrelic.agent.service.analytics.DistributedSamplingPriorityQueue;
 import com.newrelic.agent.service.analytics.TransactionEvent;
 import com.newrelic.agent.sql.SlowQueryListener;
 import com.newrelic.agent.stats.AbstractMetricAggregator;
+import com.newrelic.agent.stats.StatsEngine;
 import com.newrelic.agent.stats.StatsWorks;
 import com.newrelic.agent.stats.TransactionStats;
 import com.newrelic.agent.trace.TransactionGuidFactory;
@@ -152,6 +153,7 @@ public class Transaction {
 
     private final String guid;
     private final boolean ttEnabled;
+    private final boolean tracerPoolingEnabled;
     private final TransactionCounts counts;
     private final boolean autoAppNamingEnabled;
     private final boolean transactionNamingEnabled;
@@ -232,8 +234,12 @@ public class Transaction {
     private InboundHeaders providedHeaders;
     private volatile InboundHeaderState inboundHeaderState;
 
-    // cache for this transactions tokens, which allows for timing out tokens with custom on-removal logic
-    private final AtomicReference<TimedSet<TokenImpl>> activeTokensCache;
+    // this transaction's tokens, which allows for timing out tokens with custom on-removal logic. Created with the
+    // first token.
+    private final AtomicReference<TokenRegistry> tokenRegistry;
+
+    // the API view of this transaction handed out by its tokens
+    private volatile WeakRefTransaction weakRefTransaction;
 
     // count of active tokens and tracers
     private final AtomicInteger activeCount;
@@ -438,6 +444,7 @@ public class Transaction {
         ignoreErrorPriority = defaultConfig.getErrorCollectorConfig().isIgnoreErrorPriority();
         TransactionTraceService ttService = ServiceFactory.getTransactionTraceService();
         ttEnabled = ttService.isEnabled();
+        tracerPoolingEnabled = initializeTracerPoolingEnabled(defaultConfig);
         counts = new TransactionCounts(defaultConfig);
         initiatingThreadId = Thread.currentThread().getId();
 
@@ -452,7 +459,7 @@ public class Transaction {
         insights = new AtomicReference<>();
         logEvents = new AtomicReference<>();
         runningChildren = new LazyMapImpl<>(factory);
-        activeTokensCache = new AtomicReference<>();
+        tokenRegistry = new AtomicReference<>();
         activeCount = new AtomicInteger(0);
         securityMetaData = new SecurityMetaData();
     }
@@ -494,6 +501,17 @@ public class Transaction {
         return true;
     }
 
+    /**
+     * Tracers can only be pooled when nothing reads the tracer tree after the methods finish: transaction traces, span
+     * events and transaction profiles are all built from it.
+     */
+    private boolean initializeTracerPoolingEnabled(AgentConfig config) {
+        return config.isPooledTracersEnabled()
+                && !config.getTransactionTracerConfig().isEnabled()
+                && !config.getSpanEventsConfig().isEnabled()
+                && !ServiceFactory.getProfilerService().getTransactionProfileService().getTransactionProfileSession().isActive();
+    }
+
     public MetricAggregator getMetricAggregator() {
         return metricAggregator;
     }
@@ -1012,7 +1030,7 @@ public class Transaction {
                 TransactionStats transactionStats = transactionFinishedActivityMerging();
                 transactionTime.markTransactionAsDone();
                 recordFinalGCTime(transactionStats);
-                handleTokenTimeout(transactionStats);
+                recordTokenMetrics(transactionStats);
 
                 String txName = priorityTransactionName.getName();
                 // parse headers in dispatcher request before we get rid of request/response objects
@@ -1129,8 +1147,8 @@ public class Transaction {
 
                 // Only add jvm.thread_name if transaction  was not timed out and
                 // if it's *NOT* a multi-threaded transaction
-                TimedSet<TokenImpl> tokenCache = activeTokensCache.get();
-                if ((tokenCache == null || tokenCache.timedOutCount() == 0) && finishedChildren.size() == 1) {
+                TokenRegistry registry = tokenRegistry.get();
+                if ((registry == null || registry.getActiveTokens().timedOutCount() == 0) && finishedChildren.size() == 1) {
                     if (!ServiceFactory.getThreadService().isAgentThreadId(Thread.currentThread().getId())) {
                         getAgentAttributes().put(AttributeNames.THREAD_NAME, Thread.currentThread().getName());
                     }
@@ -1240,11 +1258,21 @@ public class Transaction {
     /**
      * Must be called under the transaction lock
      */
-    private void handleTokenTimeout(TransactionStats stats) {
-        TimedSet<TokenImpl> tokenCache = activeTokensCache.get();
-        int timedOutTokens = tokenCache != null ? tokenCache.timedOutCount() : 0;
-        if (timedOutTokens > 0) {
-            stats.getUnscopedStats().getStats(MetricNames.SUPPORTABILITY_ASYNC_TOKEN_TIMEOUT).incrementCallCount(timedOutTokens);
+    private void recordTokenMetrics(TransactionStats stats) {
+        TokenRegistry registry = tokenRegistry.get();
+        if (registry != null) {
+            registry.recordMetrics(stats);
+        }
+    }
+
+    /**
+     * Record the token activity of this transaction so far into the harvest, so that long running transactions report
+     * it before they finish.
+     */
+    void recordTokenMetrics(StatsEngine statsEngine) {
+        TokenRegistry registry = tokenRegistry.get();
+        if (registry != null) {
+            registry.recordMetrics(statsEngine);
         }
     }
 
@@ -1254,9 +1282,9 @@ public class Transaction {
      */
     void cleanUp() {
         checkExpireTracedActivities();
-        TimedSet<TokenImpl> tokenCache = activeTokensCache.get();
-        if (tokenCache != null) {
-            tokenCache.cleanUp();
+        TokenRegistry registry = tokenRegistry.get();
+        if (registry != null) {
+            registry.getActiveTokens().cleanUp();
         }
     }
 
@@ -1264,6 +1292,13 @@ public class Transaction {
         return ttEnabled;
     }
 
+    /**
+     * Returns true if the activities of this transaction may time methods with pooled tracers.
+     */
+    public boolean isTracerPoolingEnabled() {
+        return tracerPoolingEnabled;
+    }
+
     public boolean isAutoAppNamingEnabled() {
         return autoAppNamingEnabled;
     }
@@ -1412,10 +1447,40 @@ public class Transaction {
      * only matters in the link case.
      */
     public void refreshToken(TokenImpl token) {
-        TimedSet<TokenImpl> tokenCache = activeTokensCache.get();
-        if (tokenCache != null) {
-            tokenCache.refresh(token);
+        TokenRegistry registry = tokenRegistry.get();
+        if (registry != null) {
+            registry.getActiveTokens().refresh(token);
+        }
+    }
+
+    /**
+     * @return the registry of this transaction's tokens, or null if it has never created a token
+     */
+    TokenRegistry getTokenRegistry() {
+        return tokenRegistry.get();
+    }
+
+    private TokenRegistry getOrCreateTokenRegistry() {
+        TokenRegistry registry = tokenRegistry.get();
+        if (registry == null) {
+            tokenRegistry.compareAndSet(null, new TokenRegistry(new TimedTokenSet(ASYNC_TIMEOUT_SECONDS(), TimeUnit.SECONDS,
+                    ServiceFactory.getExpirationService())));
+            registry = tokenRegistry.get();
         }
+        return registry;
+    }
+
+    /**
+     * The API view of this transaction that its tokens hand out. One instance is shared since it only holds a weak
+     * reference to this transaction.
+     */
+    WeakRefTransaction getWeakRefTransaction() {
+        WeakRefTransaction result = weakRefTransaction;
+        if (result == null) {
+            result = new WeakRefTransaction(this);
+            weakRefTransaction = result;
+        }
+        return result;
     }
 
     public static boolean linkTxOnThread(TokenImpl token) {
@@ -1439,6 +1504,12 @@ public class Transaction {
             return false;
         }
 
+        if (!token.isActive()) {
+            // checked again under the lock, but an expired token never needs it
+            Agent.LOG.log(Level.FINER, "Transaction {0}: ignoring link call because token is no longer active {1}.", newTx, token);
+            return false;
+        }
+
         synchronized (newTx.lock) {
             if (!newTx.isInProgress()) {
                 Agent.LOG.log(Level.FINER, "Transaction {0}: ignoring link call because transaction not in progress.", newTx);
@@ -2201,31 +2272,19 @@ public class Transaction {
             return NoOpToken.INSTANCE;
         }
 
-        TokenImpl token = null;
-        boolean wasAdded = false;
-        synchronized (lock) {
-            if (!isFinished()) {
-                token = new TokenImpl(parent);
-                activeCount.incrementAndGet();
-                counts.getToken();
-                TimedSet<TokenImpl> tokenCache = activeTokensCache.get();
-                if (tokenCache == null) {
-                    activeTokensCache.compareAndSet(null, new TimedTokenSet(ASYNC_TIMEOUT_SECONDS(), TimeUnit.SECONDS, ServiceFactory.getExpirationService()));
-                    tokenCache = activeTokensCache.get();
-                }
-                tokenCache.put(token);
-                wasAdded = true;
-            }
-        }
-
-        if (wasAdded) {
-            Agent.LOG.log(Level.FINEST, "Transaction {0}: created active token {1}", this, token);
-        } else {
+        // The token holds a place in the active count until it is removed from the registry. The place is claimed
+        // with a compare and set instead of the transaction lock so that threads creating tokens for the same
+        // transaction don't contend, and a transaction whose count already dropped to zero is finished for good.
+        TokenRegistry registry = getOrCreateTokenRegistry();
+        if (!incrementActiveCountIfInProgress()) {
             Agent.LOG.log(Level.FINER, "Transaction {0}: already finished. cannot create token", this);
-            // return NoOpToken here to prevent case where execution gets to the synchronized block above but the
-            // transaction finishes before that block executes isFinished() resulting in a null token returned below
             return NoOpToken.INSTANCE;
         }
+        TokenImpl token = new TokenImpl(parent);
+        counts.getToken();
+        registry.getActiveTokens().put(token);
+        registry.tokenCreated();
+        Agent.LOG.log(Level.FINEST, "Transaction {0}: created active token {1}", this, token);
 
         // Record Token API usage supportability metric
         getMetricAggregator().incrementCounter(AgentBridge.currentApiSource.get().getSupportabilityMetric(
@@ -2234,6 +2293,17 @@ public class Transaction {
         return token;
     }
 
+    private boolean incrementActiveCountIfInProgress() {
+        int count = activeCount.get();
+        while (count > 0) {
+            if (activeCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+            count = activeCount.get();
+        }
+        return false;
+    }
+
     /**
      * This should only ever be called by the token. Otherwise the flag on the token will not get set correctly
      *
@@ -2244,14 +2314,14 @@ public class Transaction {
         boolean tokenWasActive = false;
         Transaction tx = token.getTransaction().getTransactionIfExists();
         if (tx != null) {
-            synchronized (tx.lock) {
-                TimedSet<TokenImpl> tokenCache = tx.activeTokensCache.get();
-                if (!tx.isFinished() && tokenCache != null) {
-                    tokenWasActive = tokenCache.remove(token);
-                    Agent.LOG.log(Level.FINEST, "Transaction {0}: expired token {1}", tx, token);
-                } else {
-                    Agent.LOG.log(Level.FINER, "Transaction {0}: token {1} is not active and so cannot be expired", tx, token);
-                }
+            // No lock is needed: the token set is concurrent, and an active token holds a place in the active count
+            // so the transaction can't finish before the token is removed.
+            TokenRegistry registry = tx.tokenRegistry.get();
+            if (!tx.isFinished() && registry != null) {
+                tokenWasActive = registry.getActiveTokens().remove(token);
+                Agent.LOG.log(Level.FINEST, "Transaction {0}: expired token {1}", tx, token);
+            } else {
+                Agent.LOG.log(Level.FINER, "Transaction {0}: token {1} is not active and so cannot be expired", tx, token);
             }
         }
         return tokenWasActive;
@@ -2259,10 +2329,10 @@ public class Transaction {
 
     public void expireAllTokensForCurrentTransaction() {
         int count = activeCount.get();
-        TimedSet<TokenImpl> tokenCache = activeTokensCache.get();
-        if (!isFinished() && count > 0 && tokenCache != null) {
+        TokenRegistry registry = tokenRegistry.get();
+        if (!isFinished() && count > 0 && registry != null) {
             Agent.LOG.log(Level.FINER, "Transaction {0}: forcibly expiring all {1} active tokens", this, count);
-            tokenCache.removeAll();
+            registry.getActiveTokens().removeAll();
         }
     }
 
@@ -12,12 +12,18 @@ import com.newrelic.agent.service.ServiceFactory;
 import com.newrelic.agent.stats.SimpleStatsEngine;
 import com.newrelic.agent.stats.TransactionStats;
 import com.newrelic.agent.trace.TransactionTraceService;
+import com.newrelic.agent.tracers.ClassMethodSignature;
 import com.newrelic.agent.tracers.DefaultTracer;
 import com.newrelic.agent.tracers.NoOpTracer;
+import com.newrelic.agent.tracers.PooledTracer;
 import com.newrelic.agent.tracers.SkipTracer;
 import com.newrelic.agent.tracers.Tracer;
+import com.newrelic.agent.tracers.TracerFlags;
+import com.newrelic.agent.tracers.TracerPool;
 import com.newrelic.agent.tracers.TransactionActivityInitiator;
+import com.newrelic.agent.tracers.metricname.MetricNameFormat;
 import com.newrelic.agent.transaction.TransactionCache;
+import com.newrelic.agent.util.VirtualThreads;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadMXBean;
@@ -55,6 +61,9 @@ public class TransactionActivity {
     private Tracer rootTracer;
     private Tracer lastTracer;
 
+    // created by the first pooled tracer of the activity
+    private TracerPool tracerPool;
+
     private final TransactionStats transactionStats;
 
     private Transaction transaction;
@@ -194,7 +203,8 @@ public class TransactionActivity {
         this.notInThreadLocal = notInThreadLocal;
 
         if (ttService.isEnabled()) {
-            if (ttService.isThreadCpuTimeEnabled()) {
+            // the JVM doesn't measure the cpu time of virtual threads
+            if (ttService.isThreadCpuTimeEnabled() && !VirtualThreads.isCurrentThreadVirtual()) {
                 ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
                 cpuStartTimeInNanos = threadMXBean.getCurrentThreadCpuTime();
                 totalCpuTimeInNanos = 0;
@@ -600,10 +610,49 @@ public class TransactionActivity {
     }
 
     /**
-     * Get the last tracer on the call stack, or null if the call stack is empty.
+     * Get the last tracer on the call stack, or null if the call stack is empty. A pooled tracer is materialized first
+     * because the caller may keep the tracer after it finishes.
      */
     public Tracer getLastTracer() {
-        return flyweightInProgress ? FLYWEIGHT_PLACEHOLDER : this.lastTracer;
+        if (flyweightInProgress) {
+            return FLYWEIGHT_PLACEHOLDER;
+        }
+        if (lastTracer instanceof PooledTracer) {
+            return ((PooledTracer) lastTracer).materialize();
+        }
+        return this.lastTracer;
+    }
+
+    /**
+     * Return true if a tracer with the given flags can be taken from the tracer pool of this activity instead of being
+     * allocated.
+     *
+     * @see Transaction#isTracerPoolingEnabled()
+     */
+    public boolean canPoolTracer(int tracerFlags) {
+        return !TracerFlags.isRoot(tracerFlags) && transaction != null && transaction.isTracerPoolingEnabled();
+    }
+
+    /**
+     * Take a tracer from the tracer pool of this activity. The caller must hold the tracer start lock and start the
+     * tracer with {@link #tracerStarted(Tracer)} once it has released it.
+     */
+    public Tracer createPooledTracer(ClassMethodSignature sig, Object invocationTarget, MetricNameFormat metricNameFormat,
+            int tracerFlags) {
+        if (tracerPool == null) {
+            tracerPool = new TracerPool(this);
+        }
+        // the pooled tracer doesn't escape, so its parent doesn't need to be materialized
+        return tracerPool.acquire(lastTracer, sig, invocationTarget, metricNameFormat, tracerFlags);
+    }
+
+    /**
+     * Called when a pooled tracer is replaced by the tracer it materialized into.
+     */
+    public void tracerMaterialized(PooledTracer pooledTracer, Tracer tracer) {
+        if (lastTracer == pooledTracer) {
+            lastTracer = tracer;
+        }
     }
 
     public TracedMethod startFlyweightTracer() {
@@ -622,9 +671,7 @@ public class TransactionActivity {
     public void finishFlyweightTracer(TracedMethod parent, long startInNanos, long finishInNanos, String className,
             String methodName, String methodDesc, String metricName, String[] rollupMetricNames) {
         try {
-            if (parent instanceof DefaultTracer) {
-                DefaultTracer parentTracer = (DefaultTracer) parent;
-
+            if (parent instanceof DefaultTracer || parent instanceof PooledTracer) {
                 long duration = finishInNanos - startInNanos;
 
                 if (!flyweightInProgress) {
@@ -649,7 +696,11 @@ public class TransactionActivity {
                     }
                 }
 
-                parentTracer.childTracerFinished(duration);
+                if (parent instanceof PooledTracer) {
+                    ((PooledTracer) parent).childTracerFinished(duration);
+                } else {
+                    ((DefaultTracer) parent).childTracerFinished(duration);
+                }
             }
         } catch (Throwable t) {
             Agent.LOG.log(Level.FINEST, t, "Error finishing tracer");
@@ -174,6 +174,11 @@ public class TransactionService extends AbstractService {
 
             @Override
             public void beforeHarvest(String appName, StatsEngine statsEngine) {
+                for (Transaction transaction : updateQueue.keySet()) {
+                    if (appName.equals(transaction.getApplicationName())) {
+                        transaction.recordTokenMetrics(statsEngine);
+                    }
+                }
             }
 
             @Override
@@ -30,6 +30,7 @@ public final class AttributeNames {
     public static final String SYNTHETICS_VERSION = "synthetics_version";
     public static final String TIMEOUT_CAUSE = "nr.timeoutCause";
     public static final String ERROR_EXPECTED = "error.expected";
+    public static final String ERROR_OCCURRENCES = "error.occurrences";
 
     public static final String CODE_STACKTRACE = "code.stacktrace";
     public static final String COMPONENT = "component";
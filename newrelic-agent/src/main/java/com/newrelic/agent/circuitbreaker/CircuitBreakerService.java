@@ -17,6 +17,7 @@ import com.newrelic.agent.config.CircuitBreakerConfig;
 import com.newrelic.agent.service.AbstractService;
 import com.newrelic.agent.service.ServiceFactory;
 import com.newrelic.agent.stats.StatsEngine;
+import com.newrelic.agent.util.VirtualThreads;
 import com.newrelic.agent.agentcontrol.AgentHealth;
 import com.newrelic.agent.agentcontrol.HealthDataChangeListener;
 import com.newrelic.agent.agentcontrol.HealthDataProducer;
@@ -28,6 +29,7 @@ import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
@@ -74,18 +76,20 @@ public class CircuitBreakerService extends AbstractService implements HarvestLis
             return true;
         }
     };
-    private final ThreadLocal<Long> lastTotalGCTimeNS = new ThreadLocal<Long>() {
-        @Override
-        protected Long initialValue() {
-            return getGCCpuTimeNS();
-        }
-    };
-    private final ThreadLocal<Long> lastTimestampInNanoseconds = new ThreadLocal<Long>() {
+    /**
+     * GC time and timestamp of the last check made by the thread.
+     */
+    private final ThreadLocal<GCBaseline> gcBaseline = new ThreadLocal<GCBaseline>() {
         @Override
-        protected Long initialValue() {
-            return System.nanoTime();
+        protected GCBaseline initialValue() {
+            return new GCBaseline(getGCCpuTimeNS(), System.nanoTime());
         }
     };
+    /**
+     * Virtual threads share one baseline. A short-lived virtual thread would otherwise start from a fresh baseline and
+     * never see the GC time since the last check.
+     */
+    private volatile GCBaseline virtualThreadGCBaseline;
     private final ThreadLocal<SamplingCounter> tracerSamplerCounter = new ThreadLocal<SamplingCounter>() {
         @Override
         protected SamplingCounter initialValue() {
@@ -127,8 +131,10 @@ public class CircuitBreakerService extends AbstractService implements HarvestLis
 
     @Override
     public void beforeHarvest(String appName, StatsEngine statsEngine) {
-        lastTimestampInNanoseconds.set(System.nanoTime());
-        lastTotalGCTimeNS.set(getGCCpuTimeNS());
+        GCBaseline baseline = gcBaseline.get();
+        baseline.timestampInNanoseconds = System.nanoTime();
+        baseline.totalGCTimeNS = getGCCpuTimeNS();
+        virtualThreadGCBaseline = null;
 
         if (missingData.containsKey(appName) && missingData.get(appName)) {
             recordBreakerOnMetrics(statsEngine, MetricNames.BREAKER_TRIPPED_MEMORY);
@@ -165,17 +171,18 @@ public class CircuitBreakerService extends AbstractService implements HarvestLis
         if (!isEnabled()) {
             return false;
         }
+        GCBaseline baseline = getGCBaseline();
         long currentTimeInNanoseconds = System.nanoTime();
-        long gcCpuTime = getGCCpuTimeNS() - lastTotalGCTimeNS.get();
-        long elapsedTime = currentTimeInNanoseconds - lastTimestampInNanoseconds.get();
+        long gcCpuTime = getGCCpuTimeNS() - baseline.totalGCTimeNS;
+        long elapsedTime = currentTimeInNanoseconds - baseline.timestampInNanoseconds;
         double gcCpuTimePercentage = (gcCpuTime / (double) elapsedTime) * 100;
         if (elapsedTime <= 0) {
             return false;
         }
         double percentageFreeMemory = 100 * ((Runtime.getRuntime().freeMemory() + (Runtime.getRuntime().maxMemory() - Runtime.getRuntime().totalMemory())) / (double) Runtime.getRuntime().maxMemory());
 
-        lastTimestampInNanoseconds.set(currentTimeInNanoseconds);
-        lastTotalGCTimeNS.set(lastTotalGCTimeNS.get() + gcCpuTime);
+        baseline.timestampInNanoseconds = currentTimeInNanoseconds;
+        baseline.totalGCTimeNS += gcCpuTime;
 
         int freeMemoryThreshold = circuitBreakerConfig.getMemoryThreshold();
         int gcCPUThreshold = circuitBreakerConfig.getGcCpuThreshold();
@@ -199,13 +206,37 @@ public class CircuitBreakerService extends AbstractService implements HarvestLis
         return !shouldTrip();
     }
 
+    private GCBaseline getGCBaseline() {
+        if (!VirtualThreads.isCurrentThreadVirtual()) {
+            return gcBaseline.get();
+        }
+        GCBaseline baseline = virtualThreadGCBaseline;
+        if (baseline == null) {
+            baseline = new GCBaseline(getGCCpuTimeNS(), System.nanoTime());
+            virtualThreadGCBaseline = baseline;
+        }
+        return baseline;
+    }
+
+    /**
+     * Virtual threads rarely live for {@link #TRACER_SAMPLING_RATE} tracers and there may be millions of them, so they
+     * sample at random at the same rate instead of keeping a counter each. ThreadLocalRandom keeps its state in the
+     * thread itself, not in a thread local map.
+     */
+    private boolean shouldSample() {
+        if (VirtualThreads.isCurrentThreadVirtual()) {
+            return ThreadLocalRandom.current().nextInt(TRACER_SAMPLING_RATE) == 0;
+        }
+        return tracerSamplerCounter.get().shouldSample();
+    }
+
     /**
      * Update the status if the time has come and return the status.
      * 
      * @return status of the circuit breaker.
      */
     public boolean isTripped() {
-        if (isEnabled() && tracerSamplerCounter.get().shouldSample() && tripped == 0) {
+        if (isEnabled() && shouldSample() && tripped == 0) {
             checkAndTrip();
         }
         return tripped == 1;
@@ -245,7 +276,7 @@ public class CircuitBreakerService extends AbstractService implements HarvestLis
      */
     public boolean checkAndTrip() {
         // In production code, this method is called from isTripped() which is called from the various tracer creation
-        // code paths. IsTripped() uses a thread-local counter to avoid calling here too often. At low to moderate
+        // code paths. IsTripped() uses a thread-local counter (or random sampling on virtual threads) to avoid calling here too often. At low to moderate
         // tracer creation rates, the thread-local counter alone is enough to ensure adequate performance and
         // scalability. But at high rates, a pathological effect emerges: multiple threads begin to pass through the
         // thread-local counter "gate" and execute this method simultaneously. This is pointless, because having this
@@ -369,8 +400,9 @@ public class CircuitBreakerService extends AbstractService implements HarvestLis
      * Only use for testing.
      */
     public void setPreviousChecksForTesting(long newGCTimeNS, long newCpuTimeNS) {
-        lastTotalGCTimeNS.set(newGCTimeNS);
-        lastTimestampInNanoseconds.set(newCpuTimeNS);
+        GCBaseline baseline = getGCBaseline();
+        baseline.totalGCTimeNS = newGCTimeNS;
+        baseline.timestampInNanoseconds = newCpuTimeNS;
     }
 
     public static SamplingCounter createTracerSamplerCounter() {
@@ -381,4 +413,14 @@ public class CircuitBreakerService extends AbstractService implements HarvestLis
     public void registerHealthDataChangeListener(HealthDataChangeListener listener) {
         healthDataChangeListeners.add(listener);
     }
+
+    private static final class GCBaseline {
+        private volatile long totalGCTimeNS;
+        private volatile long timestampInNanoseconds;
+
+        GCBaseline(long totalGCTimeNS, long timestampInNanoseconds) {
+            this.totalGCTimeNS = totalGCTimeNS;
+            this.timestampInNanoseconds = timestampInNanoseconds;
+        }
+    }
 }
@@ -30,11 +30,6 @@ public interface AgentConfig extends com.newrelic.api.agent.Config, DataSenderCo
 
     boolean isAgentEnabled();
 
-    /**
-     * Get the main application.
-     */
-    String getApplicationName();
-
     /**
      * The applications the Agent reports data to.
      */
@@ -274,6 +269,14 @@ public interface AgentConfig extends com.newrelic.api.agent.Config, DataSenderCo
 
     boolean isTrimStats();
 
+    /**
+     * If true, transactions that report neither transaction traces nor span events time their methods with tracers
+     * pooled by the transaction activity instead of allocating a tracer per method call.
+     *
+     * @return true if pooled tracers are enabled
+     */
+    boolean isPooledTracersEnabled();
+
     boolean isPlatformInformationEnabled();
 
     Set<String> getJDBCSupport();
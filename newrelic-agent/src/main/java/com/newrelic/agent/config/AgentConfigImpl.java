@@ -76,6 +76,7 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
     public static final String METRIC_DEBUG = "metric_debug";
     public static final String OBFUSCATE_JVM_PROPS = "obfuscate_jvm_props";
     public static final String PLATFORM_INFORMATION_ENABLED = "platform_information_enabled";
+    public static final String POOLED_TRACERS = "pooled_tracers";
     public static final String PORT = "port";
     public static final String PROXY_HOST = "proxy_host";
     public static final String PROXY_PASS = "proxy_password";
@@ -88,6 +89,10 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
     public static final String SEND_DATA_ON_EXIT = "send_data_on_exit";
     public static final String SEND_DATA_ON_EXIT_THRESHOLD = "send_data_on_exit_threshold";
     public static final String SEND_ENVIRONMENT_INFO = "send_environment_info";
+    public static final String STREAMING_PAYLOADS_PROPERTY = "streaming_payloads";
+    public static final String SPILL_DIRECTORY = "spill_directory";
+    public static final String SPILL_MAX_SIZE_IN_MB = "spill_max_size_in_mb";
+    public static final String SPILL_DRAIN_LIMIT = "spill_drain_limit";
     public static final String SEND_JVM_PROPS = "send_jvm_props";
     public static final String SIMPLE_COMPRESSION_PROPERTY = "simple_compression";
     private static final String REQUEST_TIMEOUT_IN_SECONDS_PROPERTY = "timeout";
@@ -165,6 +170,7 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
     public static final String EU_METRIC_INGEST_URI = "https://metric-api.eu.newrelic.com/metric/v1";
     public static final String EU_EVENT_INGEST_URI = "https://insights-collector.eu01.nr-data.net/v1/accounts/events";
     public static final boolean DEFAULT_PLATFORM_INFORMATION_ENABLED = true;
+    public static final boolean DEFAULT_POOLED_TRACERS = false;
     public static final int DEFAULT_PORT = 80;
     public static final String DEFAULT_PROXY_HOST = null;
     public static final int DEFAULT_PROXY_PORT = 8080;
@@ -174,6 +180,9 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
     public static final boolean DEFAULT_SEND_DATA_ON_EXIT = false;
     public static final int DEFAULT_SEND_DATA_ON_EXIT_THRESHOLD = 60;
     public static final boolean DEFAULT_SEND_ENVIRONMENT_INFO = true;
+    public static final boolean DEFAULT_STREAMING_PAYLOADS_ENABLED = false;
+    public static final int DEFAULT_SPILL_MAX_SIZE_IN_MB = 64;
+    public static final int DEFAULT_SPILL_DRAIN_LIMIT = 5;
     public static final boolean DEFAULT_SIMPLE_COMPRESSION_ENABLED = false;
     public static final int DEFAULT_SSL_PORT = 443;
     public static final boolean DEFAULT_STARTUP_TIMING = true;
@@ -221,6 +230,7 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
     private final String metricIngestUri;
     private final String eventIngestUri;
     private final boolean platformInformationEnabled;
+    private final boolean pooledTracers;
     private final int port;
     private final String proxyHost;
     private final String proxyPass;
@@ -232,6 +242,10 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
     private final String securityPoliciesToken;
     private final boolean sendJvmProps;
     private final boolean simpleCompression;
+    private final boolean streamingPayloads;
+    private final String spillDirectory;
+    private final int spillMaxSizeInMb;
+    private final int spillDrainLimit;
     private final boolean startupTimingEnabled;
     private final int tokenTimeoutInSec;
     private final TransactionNamingScheme transactionNamingMode;
@@ -297,6 +311,10 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
         simpleCompression = getProperty(SIMPLE_COMPRESSION_PROPERTY, DEFAULT_SIMPLE_COMPRESSION_ENABLED);
         compressedContentEncoding = initCompressedContentEncoding();
         putForDataSend = getProperty(PUT_FOR_DATA_SEND_PROPERTY, DEFAULT_PUT_FOR_DATA_SEND_ENABLED);
+        streamingPayloads = getProperty(STREAMING_PAYLOADS_PROPERTY, DEFAULT_STREAMING_PAYLOADS_ENABLED);
+        spillDirectory = getProperty(SPILL_DIRECTORY);
+        spillMaxSizeInMb = getIntProperty(SPILL_MAX_SIZE_IN_MB, DEFAULT_SPILL_MAX_SIZE_IN_MB);
+        spillDrainLimit = getIntProperty(SPILL_DRAIN_LIMIT, DEFAULT_SPILL_DRAIN_LIMIT);
         isApdexTSet = getProperty(APDEX_T) != null;
         apdexTInMillis = (long) (getDoubleProperty(APDEX_T, DEFAULT_APDEX_T) * 1000L);
         debug = DebugFlag.DEBUG;
@@ -331,6 +349,7 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
         legacyAsyncApiSkipSuspend = getProperty(LEGACY_ASYNC_API_SKIP_SUSPEND, false);
         caBundlePath = initSSLConfig();
         trimStats = getProperty(TRIM_STATS, DEFAULT_TRIM_STATS);
+        pooledTracers = getProperty(POOLED_TRACERS, DEFAULT_POOLED_TRACERS);
         platformInformationEnabled = getProperty(PLATFORM_INFORMATION_ENABLED, DEFAULT_PLATFORM_INFORMATION_ENABLED);
         transactionNamingMode = parseTransactionNamingMode();
         maxStackTraceLines = getProperty(MAX_STACK_TRACE_LINES, DEFAULT_MAX_STACK_TRACE_LINES);
@@ -1303,6 +1322,11 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
         return trimStats;
     }
 
+    @Override
+    public boolean isPooledTracersEnabled() {
+        return pooledTracers;
+    }
+
     @Override
     public boolean isPlatformInformationEnabled() {
         return platformInformationEnabled;
@@ -1358,6 +1382,26 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
         return putForDataSend;
     }
 
+    @Override
+    public boolean isStreamingPayloads() {
+        return streamingPayloads;
+    }
+
+    @Override
+    public String getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    @Override
+    public int getSpillMaxSizeInMb() {
+        return spillMaxSizeInMb;
+    }
+
+    @Override
+    public int getSpillDrainLimit() {
+        return spillDrainLimit;
+    }
+
     @Override
     public LabelsConfig getLabelsConfig() {
         return labelsConfig;
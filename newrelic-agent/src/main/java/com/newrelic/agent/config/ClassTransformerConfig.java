@@ -84,6 +84,53 @@ public interface ClassTransformerConfig extends Config {
      */
     boolean preMatchWeaveMethods();
 
+    /**
+     * Returns the directory where composite class bytes produced by the weaver are persisted so that a restart of the
+     * same agent version can reuse them instead of weaving again. The cache is disabled when this is not set.
+     *
+     * @return the weave cache directory, or null if the weave cache is disabled
+     */
+    String getWeaveCacheDirectory();
+
+    /**
+     * Returns the maximum size of the weave cache of the running agent version. The least recently used entries are
+     * deleted to make room for new ones.
+     */
+    int getWeaveCacheMaxSizeInMb();
+
+    /**
+     * Returns the number of background threads that validate weave packages against a classloader as soon as it is
+     * seen, so that the thread loading a matching class only has to weave it. Setting this also reports how long each
+     * weaving stage takes as supportability metrics. Disabled when 0.
+     *
+     * @return the number of weave precompute threads, or 0 if weave packages are validated on the class loading thread
+     */
+    int getWeavePrecomputeThreads();
+
+    /**
+     * Returns the maximum number of parsed classes that the weaver shares between classloaders. Classes loaded from the
+     * same bytes by different classloaders are only parsed and held once. Disabled when 0.
+     *
+     * @return the maximum size of the shared class information store, or 0 if it is disabled
+     */
+    int getClassInformationCacheSize();
+
+    /**
+     * Returns true if the time, bytes and match counts of each class transformer and weave package are recorded and
+     * reported as supportability metrics and a startup report.
+     *
+     * @return true if the class transform profiler is enabled
+     */
+    boolean isTransformProfilerEnabled();
+
+    /**
+     * Returns the file that the class transform profiler writes its JSON startup report to. The report is logged
+     * when this is not set.
+     *
+     * @return the class transform profiler report file, or null if the report is logged
+     */
+    String getTransformProfilerReportFile();
+
     /**
      * True means the agent should instrument {@link ClassLoader#checkPackageAccess} to bypass the call to
      * {@link SecurityManager#checkPackageAccess} for weaved classes.
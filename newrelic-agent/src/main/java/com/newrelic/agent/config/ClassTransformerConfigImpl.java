@@ -40,6 +40,12 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
     public static final String MAX_PREVALIDATED_CLASSLOADERS = "max_prevalidated_classloaders";
     public static final String PREVALIDATE_WEAVE_PACKAGES = "prevalidate_weave_packages";
     public static final String PREMATCH_WEAVE_METHODS = "prematch_weave_methods";
+    public static final String WEAVE_CACHE_DIRECTORY = "weave_cache_directory";
+    public static final String WEAVE_CACHE_MAX_SIZE_IN_MB = "weave_cache_max_size_in_mb";
+    public static final String WEAVE_PRECOMPUTE_THREADS = "weave_precompute_threads";
+    public static final String CLASS_INFORMATION_CACHE_SIZE = "class_information_cache_size";
+    public static final String TRANSFORM_PROFILER = "transform_profiler";
+    public static final String TRANSFORM_PROFILER_REPORT_FILE = "transform_profiler_report_file";
     public static final String DEFAULT_INSTRUMENTATION = "instrumentation_default";
     public static final String BUILTIN_EXTENSIONS = "builtin_extensions";
     public static final String COMPUTE_FRAMES = "compute_frames";
@@ -54,6 +60,10 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
     public static final int DEFAULT_MAX_PREVALIDATED_CLASSLOADERS = 10;
     public static final boolean DEFAULT_PREVALIDATE_WEAVE_PACKAGES = true;
     public static final boolean DEFAULT_PREMATCH_WEAVE_METHODS = true;
+    public static final int DEFAULT_WEAVE_CACHE_MAX_SIZE_IN_MB = 128;
+    public static final int DEFAULT_WEAVE_PRECOMPUTE_THREADS = 0;
+    public static final int DEFAULT_CLASS_INFORMATION_CACHE_SIZE = 4096;
+    public static final boolean DEFAULT_TRANSFORM_PROFILER = false;
     public static final boolean DEFAULT_ENHANCED_SPRING_TRANSACTION_NAMING = false;
 
     private static final String SYSTEM_PROPERTY_ROOT = "newrelic.config.class_transformer.";
@@ -97,6 +107,12 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
     private final int maxPreValidatedClassLoaders;
     private final boolean preValidateWeavePackages;
     private final boolean preMatchWeaveMethods;
+    private final String weaveCacheDirectory;
+    private final int weaveCacheMaxSizeInMb;
+    private final int weavePrecomputeThreads;
+    private final int classInformationCacheSize;
+    private final boolean transformProfilerEnabled;
+    private final String transformProfilerReportFile;
     private final boolean isEnhancedSpringTransactionNaming;
 
     private final AnnotationMatcher ignoreTransactionAnnotationMatcher;
@@ -125,6 +141,12 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
         maxPreValidatedClassLoaders = getProperty(MAX_PREVALIDATED_CLASSLOADERS, DEFAULT_MAX_PREVALIDATED_CLASSLOADERS);
         preValidateWeavePackages = getProperty(PREVALIDATE_WEAVE_PACKAGES, DEFAULT_PREVALIDATE_WEAVE_PACKAGES);
         preMatchWeaveMethods = getProperty(PREMATCH_WEAVE_METHODS, DEFAULT_PREMATCH_WEAVE_METHODS);
+        weaveCacheDirectory = getProperty(WEAVE_CACHE_DIRECTORY);
+        weaveCacheMaxSizeInMb = Math.max(1, getIntProperty(WEAVE_CACHE_MAX_SIZE_IN_MB, DEFAULT_WEAVE_CACHE_MAX_SIZE_IN_MB));
+        weavePrecomputeThreads = Math.max(0, getIntProperty(WEAVE_PRECOMPUTE_THREADS, DEFAULT_WEAVE_PRECOMPUTE_THREADS));
+        classInformationCacheSize = Math.max(0, getIntProperty(CLASS_INFORMATION_CACHE_SIZE, DEFAULT_CLASS_INFORMATION_CACHE_SIZE));
+        transformProfilerEnabled = getProperty(TRANSFORM_PROFILER, DEFAULT_TRANSFORM_PROFILER);
+        transformProfilerReportFile = getProperty(TRANSFORM_PROFILER_REPORT_FILE);
         defaultMethodTracingEnabled = getProperty("default_method_tracing_enabled", true);
         autoAsyncLinkRateLimit = getProperty("auto_async_link_rate_limit", TimeUnit.SECONDS.toMillis(1));
         isEnhancedSpringTransactionNaming = getProperty(ENHANCED_SPRING_TRANSACTION_NAMING, DEFAULT_ENHANCED_SPRING_TRANSACTION_NAMING);
@@ -318,6 +340,36 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
         return preMatchWeaveMethods;
     }
 
+    @Override
+    public String getWeaveCacheDirectory() {
+        return weaveCacheDirectory;
+    }
+
+    @Override
+    public int getWeaveCacheMaxSizeInMb() {
+        return weaveCacheMaxSizeInMb;
+    }
+
+    @Override
+    public int getWeavePrecomputeThreads() {
+        return weavePrecomputeThreads;
+    }
+
+    @Override
+    public int getClassInformationCacheSize() {
+        return classInformationCacheSize;
+    }
+
+    @Override
+    public boolean isTransformProfilerEnabled() {
+        return transformProfilerEnabled;
+    }
+
+    @Override
+    public String getTransformProfilerReportFile() {
+        return transformProfilerReportFile;
+    }
+
     @Override
     public long getAutoAsyncLinkRateLimit() {
         return autoAsyncLinkRateLimit;
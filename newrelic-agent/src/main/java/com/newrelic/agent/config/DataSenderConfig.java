@@ -8,6 +8,11 @@
 package com.newrelic.agent.config;
 
 public interface DataSenderConfig {
+    /**
+     * Get the main application.
+     */
+    String getApplicationName();
+
     /**
      * Returns the collector host.
      */
@@ -57,6 +62,33 @@ public interface DataSenderConfig {
      */
     boolean isPutForDataSend();
 
+    /**
+     * If this is enabled, payloads are compressed with pooled compressors into pooled chunks that are written straight
+     * to the request, instead of being serialized into a single byte array first.
+     *
+     * @return true if payloads should be streamed, false (default) otherwise
+     */
+    boolean isStreamingPayloads();
+
+    /**
+     * Returns the directory where event payloads are spilled when the collector can't be reached or asks the agent to
+     * retry, so they can be sent once it accepts data again. Spilling is disabled when this is not set.
+     *
+     * @return the spill directory, or null if spilling is disabled
+     */
+    String getSpillDirectory();
+
+    /**
+     * Returns the maximum size of the spilled payloads of each collector method. The oldest payloads are dropped to make
+     * room for new ones.
+     */
+    int getSpillMaxSizeInMb();
+
+    /**
+     * Returns the number of spilled payloads sent after each successful send to the same collector method.
+     */
+    int getSpillDrainLimit();
+
     AuditModeConfig getAuditModeConfig();
 
     /**
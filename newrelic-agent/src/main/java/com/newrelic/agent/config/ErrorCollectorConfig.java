@@ -65,4 +65,15 @@ public interface ErrorCollectorConfig {
      * Gets the defined exception handlers in configuration.
      */
     Object getExceptionHandlers();
+
+    /**
+     * Gets a value indicating if repeated errors should be reported as a single traced error with an occurrence count;
+     * default is false. Errors are repeated when they have the same transaction, exception classes and top stack frames.
+     */
+    boolean isDeduplicateErrors();
+
+    /**
+     * Gets the number of top stack frames of each exception in the cause chain that identify a repeated error.
+     */
+    int getFingerprintStackFrames();
 }
@@ -32,6 +32,8 @@ public final class ErrorCollectorConfigImpl extends BaseConfig implements ErrorC
     public static final String IGNORE_STATUS_CODES = "ignore_status_codes";
     public static final String IGNORE_ERROR_PRIORITY = "ignoreErrorPriority";
     public static final String EXCEPTION_HANDLERS = "exception_handlers";
+    public static final String DEDUPLICATE_ERRORS = "deduplicate_errors";
+    public static final String FINGERPRINT_STACK_FRAMES = "fingerprint_stack_frames";
 
     public static final boolean DEFAULT_ENABLED = true;
     public static final boolean DEFAULT_COLLECT_ERRORS = true;
@@ -45,6 +47,8 @@ public final class ErrorCollectorConfigImpl extends BaseConfig implements ErrorC
     public static final int DEFAULT_MAX_EVENT_SAMPLES_STORED = 100;
     private static final boolean DEFAULT_IGNORE_ERROR_PRIORITY = true;
     private static final Object DEFAULT_EXCEPTION_HANDLERS = Collections.emptyList();
+    public static final boolean DEFAULT_DEDUPLICATE_ERRORS = false;
+    public static final int DEFAULT_FINGERPRINT_STACK_FRAMES = 10;
 
     // Expected errors
     public static final String EXPECTED_CLASSES = "expected_classes";
@@ -70,6 +74,8 @@ public final class ErrorCollectorConfigImpl extends BaseConfig implements ErrorC
     private final int maxEventsStored;
     private final boolean ignoreErrorPriority;
     private final Object exceptionHandlers;
+    private final boolean deduplicateErrors;
+    private final int fingerprintStackFrames;
 
     private ErrorCollectorConfigImpl(Map<String, Object> props) {
         super(props, SYSTEM_PROPERTY_ROOT);
@@ -82,6 +88,8 @@ public final class ErrorCollectorConfigImpl extends BaseConfig implements ErrorC
         maxEventsStored = getIntProperty(MAX_EVENT_SAMPLES_STORED, DEFAULT_MAX_EVENT_SAMPLES_STORED);
         ignoreErrorPriority = getProperty(IGNORE_ERROR_PRIORITY, DEFAULT_IGNORE_ERROR_PRIORITY);
         exceptionHandlers = initExceptionHandlers();
+        deduplicateErrors = getProperty(DEDUPLICATE_ERRORS, DEFAULT_DEDUPLICATE_ERRORS);
+        fingerprintStackFrames = getIntProperty(FINGERPRINT_STACK_FRAMES, DEFAULT_FINGERPRINT_STACK_FRAMES);
     }
 
     private Object initExceptionHandlers() {
@@ -345,4 +353,14 @@ public final class ErrorCollectorConfigImpl extends BaseConfig implements ErrorC
     public Object getExceptionHandlers() {
         return exceptionHandlers;
     }
+
+    @Override
+    public boolean isDeduplicateErrors() {
+        return deduplicateErrors;
+    }
+
+    @Override
+    public int getFingerprintStackFrames() {
+        return fingerprintStackFrames;
+    }
 }
@@ -24,6 +24,12 @@ public interface InfiniteTracingConfig {
 
     boolean getUseBatching();
 
+    /**
+     * The number of gRPC streams used to send spans to the trace observer. Each stream has its own channel and sender
+     * thread.
+     */
+    int getSenderStreams();
+
     boolean isEnabled();
 
 }
@@ -26,6 +26,8 @@ public class InfiniteTracingConfigImpl extends BaseConfig implements InfiniteTra
     public static final boolean DEFAULT_USE_COMPRESSION = true;
     public static final String USE_BATCHING = "batching";
     public static final boolean DEFAULT_USE_BATCHING = true;
+    public static final String SENDER_STREAMS = "sender_streams";
+    public static final int DEFAULT_SENDER_STREAMS = 1;
 
     static final String SYSTEM_PROPERTY_ROOT = AgentConfigImpl.SYSTEM_PROPERTY_ROOT + ROOT + ".";
 
@@ -97,6 +99,11 @@ public class InfiniteTracingConfigImpl extends BaseConfig implements InfiniteTra
         return getProperty(USE_BATCHING, DEFAULT_USE_BATCHING);
     }
 
+    @Override
+    public int getSenderStreams() {
+        return getIntProperty(SENDER_STREAMS, DEFAULT_SENDER_STREAMS);
+    }
+
     @Override
     public boolean isEnabled() {
         if (!getTraceObserverHost().isEmpty() && autoAppNamingEnabled) {
@@ -32,4 +32,20 @@ public interface JarCollectorConfig {
      */
     int getJarsPerSecond();
 
+    /**
+     * The number of threads that analyze jars. Jars within jars are analyzed in parallel up to this number. Defaults to
+     * one thread.
+     *
+     * @return The number of jar analysis threads.
+     */
+    int getAnalysisThreads();
+
+    /**
+     * The file where checksums and versions of analyzed jars are kept between runs of the agent, so that unchanged jars
+     * don't have to be read again. The cache is disabled when this is not set.
+     *
+     * @return The jar fingerprint cache file, or null if the cache is disabled.
+     */
+    String getFingerprintCacheFile();
+
 }
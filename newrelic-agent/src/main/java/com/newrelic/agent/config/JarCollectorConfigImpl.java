@@ -16,10 +16,13 @@ public class JarCollectorConfigImpl extends BaseConfig implements JarCollectorCo
     public static final String ENABLED = "enabled";
     public static final String SKIP_TEMP_JARS = "skip_temp_jars";
     public static final String JARS_PER_SECOND = "jars_per_second";
+    public static final String ANALYSIS_THREADS = "analysis_threads";
+    public static final String FINGERPRINT_CACHE_FILE = "fingerprint_cache_file";
 
     public static final boolean DEFAULT_ENABLED = Boolean.TRUE;
     public static final boolean DEFAULT_SKIP_TEMP_JARS = Boolean.TRUE;
     public static final int DEFAULT_JARS_PER_SECOND = 10;
+    public static final int DEFAULT_ANALYSIS_THREADS = 1;
 
     // The newrelic.config.module root shouldn't be used but is kept for backwards compatibility
     public static final String SYSTEM_PROPERTY_ROOT_DEPRECATED = "newrelic.config.module."; // NEW_RELIC_MODULE_
@@ -29,12 +32,16 @@ public class JarCollectorConfigImpl extends BaseConfig implements JarCollectorCo
     private final boolean isEnabled;
     private final boolean skipTempJars;
     private final Integer jarsPerSecond;
+    private final int analysisThreads;
+    private final String fingerprintCacheFile;
 
     public JarCollectorConfigImpl(Map<String, Object> pProps) {
         super(pProps, SYSTEM_PROPERTY_ROOT);
         isEnabled = getProperty(ENABLED, DEFAULT_ENABLED);
         skipTempJars = getProperty(SKIP_TEMP_JARS, DEFAULT_SKIP_TEMP_JARS);
         jarsPerSecond = getProperty(JARS_PER_SECOND, DEFAULT_JARS_PER_SECOND);
+        analysisThreads = Math.max(1, getIntProperty(ANALYSIS_THREADS, DEFAULT_ANALYSIS_THREADS));
+        fingerprintCacheFile = getProperty(FINGERPRINT_CACHE_FILE);
     }
 
     // This method gets hit multiple times due to merging local and server side configs
@@ -60,6 +67,16 @@ public class JarCollectorConfigImpl extends BaseConfig implements JarCollectorCo
         return jarsPerSecond;
     }
 
+    @Override
+    public int getAnalysisThreads() {
+        return analysisThreads;
+    }
+
+    @Override
+    public String getFingerprintCacheFile() {
+        return fingerprintCacheFile;
+    }
+
     @Override
     protected Object getPropertyFromSystemEnvironment(String name, Object defaultVal) {
         return getMergedValue(name, true);
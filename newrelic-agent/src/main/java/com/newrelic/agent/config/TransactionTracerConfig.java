@@ -114,6 +114,14 @@ public interface TransactionTracerConfig {
      */
     int getMaxTokens();
 
+    /**
+     * Whether stack traces of slow segments are captured with StackWalker on Java 9 and later. StackWalker scrubs and
+     * truncates the stack while walking it and only resolves the frames that are kept, when the trace is sent.
+     *
+     * @return true if stack traces are captured with StackWalker
+     */
+    boolean isStackWalkerEnabled();
+
     /**
      * The number of unique traces to report before starting over.
      */
@@ -43,6 +43,7 @@ public final class TransactionTracerConfigImpl extends BaseConfig implements Tra
     public static final String COLLECT_SLOW_QUERIES_FROM = "collect_slow_queries_from";
     public static final String SEGMENT_LIMIT = "segment_limit";
     public static final String STACK_TRACE_THRESHOLD = "stack_trace_threshold";
+    public static final String STACK_WALKER = "stack_walker";
     public static final String TOKEN_LIMIT = "token_limit";
     public static final String TOP_N = "top_n";
     public static final String TRANSACTION_THRESHOLD = "transaction_threshold";
@@ -58,6 +59,7 @@ public final class TransactionTracerConfigImpl extends BaseConfig implements Tra
     public static final String DEFAULT_RECORD_SQL = SqlObfuscator.OBFUSCATED_SETTING;
     public static final int DEFAULT_SEGMENT_LIMIT = 3000;
     public static final double DEFAULT_STACK_TRACE_THRESHOLD = 0.5d; // seconds
+    public static final boolean DEFAULT_STACK_WALKER = true;
     public static final String DEFAULT_TRANSACTION_THRESHOLD = APDEX_F;
     public static final int DEFAULT_TOKEN_LIMIT = 3000;
     public static final int DEFAULT_TOP_N = 20;
@@ -83,6 +85,7 @@ public final class TransactionTracerConfigImpl extends BaseConfig implements Tra
     private final int maxSegments;
     private final int maxExplainPlans;
     private final int maxTokens;
+    private final boolean stackWalkerEnabled;
     private final int topN;
     protected final String inheritedFromSystemPropertyRoot;
 
@@ -108,6 +111,7 @@ public final class TransactionTracerConfigImpl extends BaseConfig implements Tra
         maxSegments = getIntProperty(SEGMENT_LIMIT, DEFAULT_SEGMENT_LIMIT);
         maxExplainPlans = getIntProperty(MAX_EXPLAIN_PLANS, DEFAULT_MAX_EXPLAIN_PLANS);
         maxTokens = getIntProperty(TOKEN_LIMIT, DEFAULT_TOKEN_LIMIT);
+        stackWalkerEnabled = getProperty(STACK_WALKER, DEFAULT_STACK_WALKER);
         topN = getIntProperty(TOP_N, DEFAULT_TOP_N);
     }
 
@@ -331,6 +335,11 @@ public final class TransactionTracerConfigImpl extends BaseConfig implements Tra
         return maxTokens;
     }
 
+    @Override
+    public boolean isStackWalkerEnabled() {
+        return stackWalkerEnabled;
+    }
+
     TransactionTracerConfigImpl createRequestTransactionTracerConfig(long apdexTInMillis, boolean highSecurity) {
         Map<String, Object> settings = initCategorySettings(REQUEST_CATEGORY_NAME);
         return new TransactionTracerConfigImpl(CATEGORY_REQUEST_SYSTEM_PROPERTY_ROOT, SYSTEM_PROPERTY_ROOT, settings, apdexTInMillis, highSecurity);
@@ -0,0 +1,447 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.database;
+
+/**
+ * Replaces literals and comments in a SQL statement with {@code ?} in a single left-to-right pass.
+ *
+ * The lexer reproduces the regular expressions the obfuscator used to be built from, token for token. At every
+ * position it tries the dialect's token kinds in the same order as the old alternation. It replaces the first one
+ * that matches, or copies the character and moves on if none does. Each token kind below documents the expression it
+ * stands for. Word boundaries use ASCII word characters and letters match case-insensitively, as the expressions did.
+ *
+ * If anything that opens or closes a quote or comment is left in the output, the statement could not be obfuscated
+ * safely and {@code ?} is returned instead. The lexer notices this as soon as such a character is copied, so an
+ * unterminated quote does not cost a second scan.
+ *
+ * This class is thread-safe.
+ */
+final class SqlObfuscationLexer {
+
+    static final String OBFUSCATED = "?";
+
+    enum Dialect {
+        ALL(true, true, true, true, true, true),
+        MYSQL(true, false, false, false, true, true),
+        POSTGRES(false, true, false, true, false, true),
+        ORACLE(false, false, true, false, false, false);
+
+        final boolean doubleQuotes;
+        final boolean dollarQuotes;
+        final boolean oracleQuotes;
+        final boolean uuids;
+        final boolean hex;
+        final boolean booleans;
+
+        Dialect(boolean doubleQuotes, boolean dollarQuotes, boolean oracleQuotes, boolean uuids, boolean hex, boolean booleans) {
+            this.doubleQuotes = doubleQuotes;
+            this.dollarQuotes = dollarQuotes;
+            this.oracleQuotes = oracleQuotes;
+            this.uuids = uuids;
+            this.hex = hex;
+            this.booleans = booleans;
+        }
+
+        static Dialect forName(String dialect) {
+            if (dialect.equals("mysql")) {
+                return MYSQL;
+            } else if (dialect.equals("postgresql") || dialect.equals("postgres")) {
+                return POSTGRES;
+            } else if (dialect.equals("oracle")) {
+                return ORACLE;
+            }
+            return ALL;
+        }
+    }
+
+    private static final int NO_MATCH = -1;
+
+    private SqlObfuscationLexer() {
+    }
+
+    static String obfuscate(String sql, Dialect dialect) {
+        final int length = sql.length();
+        StringBuilder result = null;
+        // start of the input that has been checked but not yet copied to the result
+        int copyFrom = 0;
+        boolean lastCopiedStar = false;
+        boolean pendingDollar = false;
+
+        int i = 0;
+        while (i < length) {
+            int end = matchToken(sql, i, dialect);
+            if (end == NO_MATCH) {
+                char c = sql.charAt(i);
+                switch (c) {
+                    case '\'':
+                        return OBFUSCATED;
+                    case '"':
+                        if (dialect.doubleQuotes) {
+                            return OBFUSCATED;
+                        }
+                        break;
+                    case '/':
+                        if (lastCopiedStar || (i + 1 < length && sql.charAt(i + 1) == '*')) {
+                            return OBFUSCATED;
+                        }
+                        break;
+                    case '$':
+                        if (dialect == Dialect.ALL) {
+                            return OBFUSCATED;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                if (pendingDollar && c != '?') {
+                    return OBFUSCATED;
+                }
+                pendingDollar = c == '$' && dialect == Dialect.POSTGRES;
+                lastCopiedStar = c == '*';
+                i++;
+            } else {
+                if (result == null) {
+                    result = new StringBuilder(length);
+                }
+                result.append(sql, copyFrom, i).append(OBFUSCATED);
+                copyFrom = end;
+                pendingDollar = false;
+                lastCopiedStar = false;
+                i = end;
+            }
+        }
+        if (pendingDollar) {
+            return OBFUSCATED;
+        }
+        if (result == null) {
+            return sql;
+        }
+        return result.append(sql, copyFrom, length).toString();
+    }
+
+    /**
+     * @return the end of the token starting at index, or {@link #NO_MATCH}
+     */
+    private static int matchToken(String sql, int index, Dialect dialect) {
+        char c = sql.charAt(index);
+        switch (c) {
+            case '\'':
+                return matchQuoted(sql, index, '\'');
+            case '"':
+                return dialect.doubleQuotes ? matchQuoted(sql, index, '"') : NO_MATCH;
+            case '$':
+                return dialect.dollarQuotes ? matchDollarQuoted(sql, index) : NO_MATCH;
+            case '#':
+                return matchComment(sql, index + 1);
+            case '/':
+                return matchMultilineComment(sql, index);
+            default:
+                break;
+        }
+
+        int end;
+        if ((c == 'q' || c == 'Q') && dialect.oracleQuotes && (end = matchOracleQuoted(sql, index)) != NO_MATCH) {
+            return end;
+        }
+        if (c == '-' && index + 1 < sql.length() && sql.charAt(index + 1) == '-') {
+            return matchComment(sql, index + 2);
+        }
+        if (dialect.uuids && (end = matchUuid(sql, index)) != NO_MATCH) {
+            return end;
+        }
+        if (dialect.hex && (end = matchHex(sql, index)) != NO_MATCH) {
+            return end;
+        }
+        if (dialect.booleans && (end = matchBoolean(sql, index)) != NO_MATCH) {
+            return end;
+        }
+        return matchNumber(sql, index);
+    }
+
+    /**
+     * {@code '(?:[^']|'')*?(?:\\'.*|'(?!'))}, and the same with double quotes. A backslash-escaped quote ends the
+     * token at the end of the statement.
+     */
+    private static int matchQuoted(String sql, int index, char quote) {
+        final int length = sql.length();
+        int i = index + 1;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\\' && i + 1 < length && sql.charAt(i + 1) == quote) {
+                return length;
+            }
+            if (c != quote) {
+                i++;
+            } else if (i + 1 < length && sql.charAt(i + 1) == quote) {
+                i += 2;
+            } else {
+                return i + 1;
+            }
+        }
+        return NO_MATCH;
+    }
+
+    /**
+     * {@code (\$(?!\d)[^$]*?\$).*?(?:\1|$)}: the tag runs up to the next dollar sign and the token ends after the same
+     * tag (compared case-insensitively) or at the end of the statement.
+     */
+    private static int matchDollarQuoted(String sql, int index) {
+        final int length = sql.length();
+        if (index + 1 < length && isDigit(sql.charAt(index + 1))) {
+            return NO_MATCH;
+        }
+        int tagEnd = sql.indexOf('$', index + 1);
+        if (tagEnd == NO_MATCH) {
+            return NO_MATCH;
+        }
+        int tagLength = tagEnd + 1 - index;
+        for (int i = tagEnd + 1; i < length; i++) {
+            if (endOfInput(sql, i)) {
+                return i;
+            }
+            if (sql.regionMatches(true, i, sql, index, tagLength)) {
+                return i + tagLength;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * {@code q'\[.*?(?:\]'|$)} and likewise for {@code {}}, {@code <>} and {@code ()}.
+     */
+    private static int matchOracleQuoted(String sql, int index) {
+        final int length = sql.length();
+        if (index + 2 >= length || sql.charAt(index + 1) != '\'') {
+            return NO_MATCH;
+        }
+        char close;
+        switch (sql.charAt(index + 2)) {
+            case '[':
+                close = ']';
+                break;
+            case '{':
+                close = '}';
+                break;
+            case '<':
+                close = '>';
+                break;
+            case '(':
+                close = ')';
+                break;
+            default:
+                return NO_MATCH;
+        }
+        for (int i = index + 3; i < length; i++) {
+            if (endOfInput(sql, i)) {
+                return i;
+            }
+            if (sql.charAt(i) == close && i + 1 < length && sql.charAt(i + 1) == '\'') {
+                return i + 2;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * {@code (?:#|--).*?(?=\r|\n|$)}, starting after the comment marker.
+     */
+    private static int matchComment(String sql, int from) {
+        final int length = sql.length();
+        for (int i = from; i < length; i++) {
+            char c = sql.charAt(i);
+            if (c == '\r' || c == '\n' || endOfInput(sql, i)) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * <code>/\*(?:[^/]|/[^*])*?(?:\*&#47;|/\*.*)</code>. A nested comment opener ends the token at the end of the statement.
+     */
+    private static int matchMultilineComment(String sql, int index) {
+        final int length = sql.length();
+        if (index + 1 >= length || sql.charAt(index + 1) != '*') {
+            return NO_MATCH;
+        }
+        int i = index + 2;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '*' && i + 1 < length && sql.charAt(i + 1) == '/') {
+                return i + 2;
+            }
+            if (c != '/') {
+                i++;
+            } else if (i + 1 < length) {
+                if (sql.charAt(i + 1) == '*') {
+                    return length;
+                }
+                i += 2;
+            } else {
+                return NO_MATCH;
+            }
+        }
+        return NO_MATCH;
+    }
+
+    /**
+     * {@code \{?(?:[0-9a-f]\-*){32}\}?}. Note there is no word boundary, so this can match inside a longer word.
+     */
+    private static int matchUuid(String sql, int index) {
+        final int length = sql.length();
+        int i = index;
+        if (sql.charAt(i) == '{') {
+            i++;
+        }
+        for (int digits = 0; digits < 32; digits++) {
+            if (i >= length || !isHexDigit(sql.charAt(i))) {
+                return NO_MATCH;
+            }
+            i++;
+            while (i < length && sql.charAt(i) == '-') {
+                i++;
+            }
+        }
+        if (i < length && sql.charAt(i) == '}') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * {@code 0x[0-9a-f]+}
+     */
+    private static int matchHex(String sql, int index) {
+        final int length = sql.length();
+        if (sql.charAt(index) != '0' || index + 2 >= length) {
+            return NO_MATCH;
+        }
+        char x = sql.charAt(index + 1);
+        if ((x != 'x' && x != 'X') || !isHexDigit(sql.charAt(index + 2))) {
+            return NO_MATCH;
+        }
+        int i = index + 3;
+        while (i < length && isHexDigit(sql.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * {@code \b(?:true|false|null)\b}
+     */
+    private static int matchBoolean(String sql, int index) {
+        int wordLength;
+        switch (sql.charAt(index)) {
+            case 't':
+            case 'T':
+                wordLength = sql.regionMatches(true, index, "true", 0, 4) ? 4 : 0;
+                break;
+            case 'f':
+            case 'F':
+                wordLength = sql.regionMatches(true, index, "false", 0, 5) ? 5 : 0;
+                break;
+            case 'n':
+            case 'N':
+                wordLength = sql.regionMatches(true, index, "null", 0, 4) ? 4 : 0;
+                break;
+            default:
+                return NO_MATCH;
+        }
+        if (wordLength == 0 || !isWordBoundary(sql, index) || !isWordBoundary(sql, index + wordLength)) {
+            return NO_MATCH;
+        }
+        return index + wordLength;
+    }
+
+    /**
+     * {@code -?\b(?:[0-9_]+\.)?[0-9_]+([eE][+-]?[0-9_]+)?}
+     */
+    private static int matchNumber(String sql, int index) {
+        final int length = sql.length();
+        int start = index;
+        if (sql.charAt(start) == '-') {
+            start++;
+        }
+        if (!isWordBoundary(sql, start)) {
+            return NO_MATCH;
+        }
+        int integerEnd = skipDigits(sql, start);
+        if (integerEnd == start) {
+            return NO_MATCH;
+        }
+
+        int end = integerEnd;
+        if (integerEnd < length && sql.charAt(integerEnd) == '.') {
+            int fractionEnd = skipDigits(sql, integerEnd + 1);
+            if (fractionEnd > integerEnd + 1) {
+                end = fractionEnd;
+            }
+        }
+
+        if (end < length && (sql.charAt(end) == 'e' || sql.charAt(end) == 'E')) {
+            int exponentStart = end + 1;
+            if (exponentStart < length && (sql.charAt(exponentStart) == '+' || sql.charAt(exponentStart) == '-')) {
+                exponentStart++;
+            }
+            int exponentEnd = skipDigits(sql, exponentStart);
+            if (exponentEnd > exponentStart) {
+                end = exponentEnd;
+            }
+        }
+        return end;
+    }
+
+    private static int skipDigits(String sql, int index) {
+        final int length = sql.length();
+        int i = index;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (!isDigit(c) && c != '_') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Where {@code $} matches without multiline mode: at the end of the statement, or before a line terminator that
+     * ends it.
+     */
+    private static boolean endOfInput(String sql, int index) {
+        final int remaining = sql.length() - index;
+        if (remaining == 0) {
+            return true;
+        }
+        char c = sql.charAt(index);
+        if (remaining == 1) {
+            return c == '\n' || c == '\r';
+        }
+        return remaining == 2 && c == '\r' && sql.charAt(index + 1) == '\n';
+    }
+
+    private static boolean isWordBoundary(String sql, int index) {
+        boolean before = index > 0 && isWordChar(sql.charAt(index - 1));
+        boolean after = index < sql.length() && isWordChar(sql.charAt(index));
+        return before != after;
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHexDigit(char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+}
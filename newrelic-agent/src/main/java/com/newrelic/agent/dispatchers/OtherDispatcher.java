@@ -12,6 +12,7 @@ import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.Transaction;
 import com.newrelic.agent.attributes.AttributeNames;
 import com.newrelic.agent.config.TransactionTracerConfig;
+import com.newrelic.agent.metric.MetricNameTable;
 import com.newrelic.agent.stats.ApdexStats;
 import com.newrelic.agent.stats.TransactionStats;
 import com.newrelic.agent.tracers.metricname.MetricNameFormat;
@@ -25,6 +26,11 @@ import java.util.logging.Level;
 
 public class OtherDispatcher extends DefaultDispatcher {
 
+    // recorded on every background transaction, so their ids are looked up once
+    private static final MetricNameTable.Key OTHER_TRANSACTION_ALL_KEY = MetricNameTable.key(MetricNames.OTHER_TRANSACTION_ALL);
+    private static final MetricNameTable.Key OTHER_TRANSACTION_TOTAL_TIME_KEY = MetricNameTable.key(MetricNames.OTHER_TRANSACTION_TOTAL_TIME);
+    private static final MetricNameTable.Key APDEX_OTHER_KEY = MetricNameTable.key(MetricNames.APDEX_OTHER);
+
     private final MetricNameFormat uri;
 
     public OtherDispatcher(Transaction transaction, MetricNameFormat uri) {
@@ -63,11 +69,11 @@ public class OtherDispatcher extends DefaultDispatcher {
                     getTransaction().getTransactionTimer().getTotalSumTimeInNanos(), 0, TimeUnit.NANOSECONDS);
         }
 
-        stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.OTHER_TRANSACTION_ALL).recordResponseTime(
+        stats.getUnscopedStats().getOrCreateResponseTimeStatsByKey(OTHER_TRANSACTION_ALL_KEY).recordResponseTime(
                 getTransaction().getTransactionTimer().getResponseTimeInNanos(),
                 getTransaction().getTransactionTimer().getResponseTimeInNanos(), TimeUnit.NANOSECONDS);
 
-        stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.OTHER_TRANSACTION_TOTAL_TIME).recordResponseTime(
+        stats.getUnscopedStats().getOrCreateResponseTimeStatsByKey(OTHER_TRANSACTION_TOTAL_TIME_KEY).recordResponseTime(
                 getTransaction().getTransactionTimer().getTotalSumTimeInNanos(),
                 getTransaction().getTransactionTimer().getTotalSumTimeInNanos(), TimeUnit.NANOSECONDS);
 
@@ -101,7 +107,7 @@ public class OtherDispatcher extends DefaultDispatcher {
         long apdexT = getTransaction().getAgentConfig().getApdexTInMillis(transactionName);
 
         ApdexStats apdexStats = stats.getUnscopedStats().getApdexStats(apdexMetricName);
-        ApdexStats overallApdexStats = stats.getUnscopedStats().getApdexStats(MetricNames.APDEX_OTHER);
+        ApdexStats overallApdexStats = stats.getUnscopedStats().getApdexStatsByKey(APDEX_OTHER_KEY);
 
         if (isApdexFrustrating()) {
             apdexStats.recordApdexFrustrated();
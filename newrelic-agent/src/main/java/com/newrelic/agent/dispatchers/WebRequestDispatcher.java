@@ -21,6 +21,7 @@ import com.newrelic.agent.config.CustomRequestHeaderConfig;
 import com.newrelic.agent.config.HiddenProperties;
 import com.newrelic.agent.config.TransactionEventsConfig;
 import com.newrelic.agent.config.TransactionTracerConfig;
+import com.newrelic.agent.metric.MetricNameTable;
 import com.newrelic.agent.service.ServiceFactory;
 import com.newrelic.agent.servlet.ServletUtils;
 import com.newrelic.agent.stats.ApdexStats;
@@ -43,6 +44,12 @@ public class WebRequestDispatcher extends DefaultDispatcher implements WebRespon
 
     private static final String UNKNOWN_URI = "/Unknown";
 
+    // recorded on every web transaction, so their ids are looked up once
+    private static final MetricNameTable.Key WEB_TRANSACTION_KEY = MetricNameTable.key(MetricNames.WEB_TRANSACTION);
+    private static final MetricNameTable.Key DISPATCHER_KEY = MetricNameTable.key(MetricNames.DISPATCHER);
+    private static final MetricNameTable.Key WEB_TRANSACTION_TOTAL_TIME_KEY = MetricNameTable.key(MetricNames.WEB_TRANSACTION_TOTAL_TIME);
+    private static final MetricNameTable.Key APDEX_KEY = MetricNameTable.key(MetricNames.APDEX);
+
     private static final StatusCodePolicy LAST_STATUS_CODE_POLICY = (currentStatus, lastStatus) -> lastStatus;
     private static final StatusCodePolicy ERROR_STATUS_CODE_POLICY = (currentStatus, lastStatus) -> currentStatus < HttpURLConnection.HTTP_BAD_REQUEST ? lastStatus : currentStatus;
     private static final StatusCodePolicy FREEZE_STATUS_CODE_POLICY = (currentStatus, lastStatus) -> currentStatus;
@@ -368,9 +375,9 @@ public class WebRequestDispatcher extends DefaultDispatcher implements WebRespon
         // frontend represents the logical front of the request, but it is not an actual component, so it has no
         // exclusive time
         stats.getUnscopedStats().getOrCreateResponseTimeStats(frontendMetricName).recordResponseTimeInNanos(frontendTimeInNanos);
-        stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.WEB_TRANSACTION).recordResponseTimeInNanos(
+        stats.getUnscopedStats().getOrCreateResponseTimeStatsByKey(WEB_TRANSACTION_KEY).recordResponseTimeInNanos(
                 frontendTimeInNanos);
-        stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.DISPATCHER).recordResponseTimeInNanos(
+        stats.getUnscopedStats().getOrCreateResponseTimeStatsByKey(DISPATCHER_KEY).recordResponseTimeInNanos(
                 frontendTimeInNanos);
         if (getStatus() > 0) {
             String metricName = MetricNames.NETWORK_INBOUND_STATUS_CODE + getStatus();
@@ -415,7 +422,7 @@ public class WebRequestDispatcher extends DefaultDispatcher implements WebRespon
             }
         }
 
-        stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.WEB_TRANSACTION_TOTAL_TIME).recordResponseTimeInNanos(
+        stats.getUnscopedStats().getOrCreateResponseTimeStatsByKey(WEB_TRANSACTION_TOTAL_TIME_KEY).recordResponseTimeInNanos(
                 getTransaction().getTransactionTimer().getTotalSumTimeInNanos());
     }
 
@@ -438,7 +445,7 @@ public class WebRequestDispatcher extends DefaultDispatcher implements WebRespon
         long apdexT = getTransaction().getAgentConfig().getApdexTInMillis(frontendMetricName);
 
         ApdexStats apdexStats = stats.getUnscopedStats().getApdexStats(frontendApdexMetricName);
-        ApdexStats overallApdexStats = stats.getUnscopedStats().getApdexStats(MetricNames.APDEX);
+        ApdexStats overallApdexStats = stats.getUnscopedStats().getApdexStatsByKey(APDEX_KEY);
         if (isApdexFrustrating()) {
             apdexStats.recordApdexFrustrated();
             overallApdexStats.recordApdexFrustrated();
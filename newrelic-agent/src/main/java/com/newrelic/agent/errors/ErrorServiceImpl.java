@@ -45,8 +45,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -65,6 +67,8 @@ public class ErrorServiceImpl extends AbstractService implements ErrorService, H
     private final AtomicInteger errorCount = new AtomicInteger();
     private final AtomicLong totalErrorCount = new AtomicLong();
     private final AtomicReferenceArray<TracedError> tracedErrors;
+    // fingerprints of the traced errors of this reporting period, so at most ERROR_LIMIT_PER_REPORTING_PERIOD
+    private final ConcurrentHashMap<ThrowableFingerprint, ThrowableError> tracedErrorFingerprints = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, DistributedSamplingPriorityQueue<ErrorEvent>> reservoirForApp = new ConcurrentHashMap<>();
     private volatile ErrorCollectorConfig errorCollectorConfig;
     private volatile ErrorMessageReplacer errorMessageReplacer;
@@ -333,6 +337,16 @@ public class ErrorServiceImpl extends AbstractService implements ErrorService, H
 
         eventList.add(errorEvent);
 
+        ThrowableFingerprint fingerprint = null;
+        if (error instanceof ThrowableError && errorCollectorConfig.isDeduplicateErrors()) {
+            fingerprint = ThrowableFingerprint.of((ThrowableError) error, errorCollectorConfig.getFingerprintStackFrames());
+            ThrowableError tracedError = fingerprint == null ? null : tracedErrorFingerprints.get(fingerprint);
+            if (tracedError != null) {
+                tracedError.incrementOccurrences();
+                return;
+            }
+        }
+
         if (errorCount.get() >= ERROR_LIMIT_PER_REPORTING_PERIOD) {
             Agent.LOG.finer(MessageFormat.format("Error limit exceeded for {0}: {1}", appName, error));
             return;
@@ -340,6 +354,13 @@ public class ErrorServiceImpl extends AbstractService implements ErrorService, H
         int index = (int) totalErrorCount.getAndIncrement() % ERROR_LIMIT_PER_REPORTING_PERIOD;
         if (tracedErrors.compareAndSet(index, null, error)) {
             errorCount.getAndIncrement();
+            if (fingerprint != null) {
+                tracedErrorFingerprints.putIfAbsent(fingerprint, (ThrowableError) error);
+                if (tracedErrors.get(index) != error) {
+                    // a harvest drained the error before its fingerprint was added, so it must not collect occurrences
+                    tracedErrorFingerprints.remove(fingerprint, error);
+                }
+            }
             if (Agent.LOG.isLoggable(Level.FINER)) {
                 Agent.LOG.finer(MessageFormat.format("Recording error for {0} : {1}", appName, error));
             }
@@ -391,6 +412,12 @@ public class ErrorServiceImpl extends AbstractService implements ErrorService, H
                 errors.add(error);
             }
         }
+        // only forget the fingerprints of drained errors; errors reported during the drain keep theirs
+        if (!tracedErrorFingerprints.isEmpty()) {
+            Set<TracedError> drained = Collections.newSetFromMap(new IdentityHashMap<TracedError, Boolean>());
+            drained.addAll(errors);
+            tracedErrorFingerprints.values().removeIf(drained::contains);
+        }
         return errors;
     }
 
@@ -18,12 +18,15 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class ThrowableError extends TracedError {
 
     private final ErrorMessageReplacer errorMessageReplacer;
     private final Throwable throwable;
+    private final AtomicInteger occurrences = new AtomicInteger(1);
+    private volatile Collection<String> renderedStackTrace;
 
     protected ThrowableError(ErrorCollectorConfig errorCollectorConfig,
             ErrorMessageReplacer errorMessageReplacer,
@@ -78,6 +81,17 @@ public class ThrowableError extends TracedError {
         return throwable;
     }
 
+    /**
+     * @return the number of times this error was reported, including repeated errors that were deduplicated into it
+     */
+    public int getOccurrences() {
+        return occurrences.get();
+    }
+
+    void incrementOccurrences() {
+        occurrences.incrementAndGet();
+    }
+
     @Override
     public String getMessage() {
         String message = errorMessageReplacer.getMessage(throwable);
@@ -93,8 +107,20 @@ public class ThrowableError extends TracedError {
         return throwable == null ? null : throwable.getClass().getName();
     }
 
+    /**
+     * The stack trace is rendered when the error is sent, and kept in case the send is retried.
+     */
     @Override
     public Collection<String> stackTrace() {
+        Collection<String> stackTrace = renderedStackTrace;
+        if (stackTrace == null) {
+            stackTrace = renderStackTrace();
+            renderedStackTrace = stackTrace;
+        }
+        return stackTrace;
+    }
+
+    private Collection<String> renderStackTrace() {
         Collection<String> stackTrace = new ArrayList<>();
 
         if (throwable instanceof MultiException) {
@@ -0,0 +1,81 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.errors;
+
+import com.newrelic.agent.instrumentation.pointcuts.container.jetty.MultiException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Identifies repeated errors: the same exception classes thrown from the same frames in the same transaction, no matter
+ * the messages. The fingerprint holds the class name and the top stack frames of every exception in the cause chain.
+ */
+final class ThrowableFingerprint {
+
+    /**
+     * Cause chains are not checked for cycles longer than one exception, so stop following causes at some point.
+     */
+    private static final int MAX_CAUSES = 10;
+
+    private final String path;
+    private final boolean incrementsErrorMetric;
+    private final Object[] chain;
+    private final int hashCode;
+
+    private ThrowableFingerprint(String path, boolean incrementsErrorMetric, Object[] chain) {
+        this.path = path;
+        this.incrementsErrorMetric = incrementsErrorMetric;
+        this.chain = chain;
+        this.hashCode = 31 * (31 * Objects.hashCode(path) + Boolean.hashCode(incrementsErrorMetric)) + Arrays.hashCode(chain);
+    }
+
+    /**
+     * @param error the error to fingerprint
+     * @param stackFrames the number of top stack frames of each exception in the cause chain to include
+     * @return the fingerprint of the error, or null if the error can't be fingerprinted
+     */
+    static ThrowableFingerprint of(ThrowableError error, int stackFrames) {
+        Throwable throwable = error.getThrowable();
+        if (throwable == null || throwable instanceof MultiException) {
+            return null;
+        }
+
+        List<Object> chain = new ArrayList<>();
+        Throwable t = throwable;
+        for (int i = 0; t != null && i < MAX_CAUSES; i++) {
+            chain.add(t.getClass().getName());
+            StackTraceElement[] stackTrace = t.getStackTrace();
+            chain.addAll(Arrays.asList(stackTrace).subList(0, Math.min(stackFrames, stackTrace.length)));
+            t = t.equals(t.getCause()) ? null : t.getCause();
+        }
+        return new ThrowableFingerprint(error.getPath(), error.incrementsErrorMetric(), chain.toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ThrowableFingerprint)) {
+            return false;
+        }
+        ThrowableFingerprint other = (ThrowableFingerprint) obj;
+        return hashCode == other.hashCode
+                && incrementsErrorMetric == other.incrementsErrorMetric
+                && Objects.equals(path, other.path)
+                && Arrays.equals(chain, other.chain);
+    }
+}
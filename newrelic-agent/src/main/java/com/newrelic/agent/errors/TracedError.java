@@ -217,6 +217,9 @@ public abstract class TracedError implements Comparable<TracedError>, JSONStream
         } else {
             tracedErrorIntrinsics.put(AttributeNames.ERROR_EXPECTED, false);
         }
+        if (this instanceof ThrowableError && ((ThrowableError) this).getOccurrences() > 1) {
+            tracedErrorIntrinsics.put(AttributeNames.ERROR_OCCURRENCES, ((ThrowableError) this).getOccurrences());
+        }
 
         // intrinsics go up even if attributes are off
         params.put("intrinsics", tracedErrorIntrinsics);
@@ -224,6 +224,8 @@ public class InstrumentationImpl implements Instrumentation {
                     if (TracerFlags.isDispatcher(flags)
                             || (TracerFlags.isAsync(flags) && txa.getTransaction() != null && !txa.isStarted())) {
                         result = new OtherRootTracer(txa, sig, invocationTarget, mnf);
+                    } else if (txa.canPoolTracer(flags)) {
+                        result = txa.createPooledTracer(sig, invocationTarget, mnf, flags);
                     } else {
                         result = new DefaultTracer(txa, sig, invocationTarget, mnf, flags);
                     }
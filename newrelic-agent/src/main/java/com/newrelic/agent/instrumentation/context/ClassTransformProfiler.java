@@ -0,0 +1,265 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.instrumentation.context;
+
+import com.newrelic.agent.Agent;
+import com.newrelic.agent.HarvestListener;
+import com.newrelic.agent.MetricNames;
+import com.newrelic.agent.stats.StatsEngine;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Records the time, bytes and match counts of each class transformer and weave package in the transformer chain.
+ *
+ * Each harvest reports what was recorded since the previous harvest as <code>Supportability/ClassTransform/*</code>
+ * metrics. After the first harvest, which is the end of startup for most applications, the totals are written as a
+ * JSON report to the configured file, or to the log. Weave packages are sorted by time spent in the report so that
+ * the expensive packages are at the top.
+ *
+ * A transformer is matched when it changed the class and rejected when it returned it unchanged. The
+ * {@link #CLASS_MATCH} transformer stands for the class matchers that run before any transformer.
+ */
+public class ClassTransformProfiler implements HarvestListener {
+
+    static final String CLASS_MATCH = "ClassMatch";
+
+    private final ConcurrentMap<String, Counters> transformers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counters> weavePackages = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counters> weavePackageValidations = new ConcurrentHashMap<>();
+    private final String reportFile;
+    private final AtomicBoolean reported = new AtomicBoolean(false);
+
+    /**
+     * @param reportFile file to write the JSON report to, or null to log the report
+     */
+    public ClassTransformProfiler(String reportFile) {
+        this.reportFile = reportFile;
+    }
+
+    /**
+     * Record a call to a class transformer.
+     *
+     * @param transformer the transformer that was called
+     * @param durationNanos time spent in the transformer, in nanoseconds
+     * @param bytes size of the class bytes passed to the transformer
+     * @param matched true if the transformer changed the class
+     */
+    public void recordTransform(Object transformer, long durationNanos, int bytes, boolean matched) {
+        getCounters(transformers, getTransformerName(transformer)).record(durationNanos, bytes, matched);
+    }
+
+    /**
+     * Record the class matchers that run before any transformer.
+     *
+     * @param durationNanos time spent matching the class, in nanoseconds
+     * @param bytes size of the class bytes
+     * @param matched true if any class matcher matched the class
+     */
+    public void recordClassMatch(long durationNanos, int bytes, boolean matched) {
+        getCounters(transformers, CLASS_MATCH).record(durationNanos, bytes, matched);
+    }
+
+    /**
+     * Record a weave package being weaved into a class.
+     *
+     * @param weavePackageName name of the weave package
+     * @param durationNanos time spent weaving the package, in nanoseconds
+     * @param matched true if the package changed the class
+     */
+    public void recordWeavePackage(String weavePackageName, long durationNanos, boolean matched) {
+        getCounters(weavePackages, weavePackageName).record(durationNanos, 0, matched);
+    }
+
+    /**
+     * Record a weave package being validated against a classloader.
+     *
+     * @param weavePackageName name of the weave package
+     * @param durationNanos time spent validating the package, in nanoseconds
+     * @param succeeded true if the package can be weaved into classes of the classloader
+     */
+    public void recordWeavePackageValidation(String weavePackageName, long durationNanos, boolean succeeded) {
+        getCounters(weavePackageValidations, weavePackageName).record(durationNanos, 0, succeeded);
+    }
+
+    private static Counters getCounters(ConcurrentMap<String, Counters> counters, String name) {
+        Counters result = counters.get(name);
+        if (result == null) {
+            result = counters.computeIfAbsent(name, key -> new Counters());
+        }
+        return result;
+    }
+
+    /**
+     * Transformers are named after their class. Anonymous and lambda transformers fall back to the full class name.
+     */
+    static String getTransformerName(Object transformer) {
+        String simpleName = transformer.getClass().getSimpleName();
+        if (simpleName.isEmpty() || simpleName.contains("$$Lambda")) {
+            return transformer.getClass().getName();
+        }
+        return simpleName;
+    }
+
+    @Override
+    public synchronized void beforeHarvest(String appName, StatsEngine statsEngine) {
+        try {
+            harvest(transformers, MetricNames.SUPPORTABILITY_CLASS_TRANSFORM_TRANSFORMER, statsEngine);
+            harvest(weavePackages, MetricNames.SUPPORTABILITY_CLASS_TRANSFORM_WEAVE_PACKAGE, statsEngine);
+            harvest(weavePackageValidations, MetricNames.SUPPORTABILITY_CLASS_TRANSFORM_WEAVE_PACKAGE_VALIDATE, statsEngine);
+        } catch (Exception e) {
+            Agent.LOG.log(Level.FINER, e, "Error harvesting class transform metrics for {0}", appName);
+        }
+    }
+
+    private static void harvest(Map<String, Counters> counters, String metricFormat, StatsEngine statsEngine) {
+        for (Map.Entry<String, Counters> entry : counters.entrySet()) {
+            entry.getValue().harvest(MessageFormat.format(metricFormat, entry.getKey()), statsEngine);
+        }
+    }
+
+    @Override
+    public void afterHarvest(String appName) {
+        if (reported.compareAndSet(false, true)) {
+            writeReport();
+        }
+    }
+
+    private void writeReport() {
+        String report = createReport().toJSONString();
+        if (reportFile == null) {
+            Agent.LOG.log(Level.INFO, "Class transform profile: {0}", report);
+            return;
+        }
+        try {
+            Files.write(Paths.get(reportFile), report.getBytes(StandardCharsets.UTF_8));
+            Agent.LOG.log(Level.INFO, "Wrote the class transform profile to {0}", reportFile);
+        } catch (IOException e) {
+            Agent.LOG.log(Level.WARNING, e, "Unable to write the class transform profile to {0}", reportFile);
+        }
+    }
+
+    /**
+     * The totals of every transformer and weave package as of the last harvest.
+     */
+    @SuppressWarnings("unchecked")
+    JSONObject createReport() {
+        JSONObject report = new JSONObject();
+        report.put("transformers", createReport(transformers));
+        report.put("weavePackages", createReport(weavePackages));
+        report.put("weavePackageValidations", createReport(weavePackageValidations));
+        return report;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONArray createReport(Map<String, Counters> counters) {
+        List<Map.Entry<String, Counters>> entries = new ArrayList<>(counters.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, Counters> entry) -> entry.getValue().totalNanos).reversed());
+
+        JSONArray report = new JSONArray();
+        for (Map.Entry<String, Counters> entry : entries) {
+            Counters value = entry.getValue();
+            JSONObject item = new JSONObject();
+            item.put("name", entry.getKey());
+            item.put("count", value.totalCount);
+            item.put("totalNanos", value.totalNanos);
+            item.put("minNanos", value.totalCount == 0 ? 0 : value.minNanos);
+            item.put("maxNanos", value.maxNanos);
+            item.put("bytes", value.totalBytes);
+            item.put("matched", value.totalMatched);
+            item.put("rejected", value.totalCount - value.totalMatched);
+            report.add(item);
+        }
+        return report;
+    }
+
+    /**
+     * Counters for one transformer or weave package. Class loading threads update the adders, which the harvest thread
+     * resets and adds to the totals.
+     */
+    private static final class Counters {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder matched = new LongAdder();
+        private final AtomicLong intervalMin = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong intervalMax = new AtomicLong(0);
+
+        // only updated while holding the profiler's lock in beforeHarvest
+        private volatile long totalCount;
+        private volatile long totalNanos;
+        private volatile long totalBytes;
+        private volatile long totalMatched;
+        private volatile long minNanos = Long.MAX_VALUE;
+        private volatile long maxNanos;
+
+        void record(long durationNanos, int classBytes, boolean isMatch) {
+            count.increment();
+            nanos.add(durationNanos);
+            bytes.add(classBytes);
+            if (isMatch) {
+                matched.increment();
+            }
+            intervalMin.accumulateAndGet(durationNanos, Math::min);
+            intervalMax.accumulateAndGet(durationNanos, Math::max);
+        }
+
+        void harvest(String metricName, StatsEngine statsEngine) {
+            long harvestCount = count.sumThenReset();
+            if (harvestCount == 0) {
+                return;
+            }
+            long harvestNanos = nanos.sumThenReset();
+            long harvestBytes = bytes.sumThenReset();
+            long harvestMatched = matched.sumThenReset();
+            long harvestMin = intervalMin.getAndSet(Long.MAX_VALUE);
+            long harvestMax = intervalMax.getAndSet(0);
+            if (harvestMin > harvestMax) {
+                // a class was recorded between resetting the count and the min
+                harvestMin = harvestMax;
+            }
+
+            statsEngine.getResponseTimeStats(metricName).recordResponseTime((int) harvestCount, harvestNanos,
+                    harvestMin, harvestMax, TimeUnit.NANOSECONDS);
+            if (harvestBytes > 0) {
+                statsEngine.getStats(metricName + "/Bytes").recordDataPoint(harvestBytes);
+            }
+            if (harvestMatched > 0) {
+                statsEngine.getStats(metricName + "/Matched").incrementCallCount((int) harvestMatched);
+            }
+            if (harvestCount > harvestMatched) {
+                statsEngine.getStats(metricName + "/Rejected").incrementCallCount((int) (harvestCount - harvestMatched));
+            }
+
+            totalCount += harvestCount;
+            totalNanos += harvestNanos;
+            totalBytes += harvestBytes;
+            totalMatched += harvestMatched;
+            minNanos = Math.min(minNanos, harvestMin);
+            maxNanos = Math.max(maxNanos, harvestMax);
+        }
+    }
+}
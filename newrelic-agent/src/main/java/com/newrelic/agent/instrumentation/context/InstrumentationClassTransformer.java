@@ -43,6 +43,7 @@ public class InstrumentationClassTransformer implements ClassFileTransformer {
     private final boolean defaultMethodTracingEnabled;
     private final AtomicBoolean initialized = new AtomicBoolean(false);
     private final FinalClassTransformer finalClassTransformer = new FinalClassTransformer();
+    private final ClassTransformProfiler profiler;
 
     public InstrumentationClassTransformer(InstrumentationContextManager manager,
             TraceClassTransformer traceTransformer, boolean bootstrapClassloaderEnabled, boolean defaultMethodTracingEnabled) {
@@ -50,6 +51,7 @@ public class InstrumentationClassTransformer implements ClassFileTransformer {
         this.traceTransformer = traceTransformer;
         this.bootstrapClassloaderEnabled = bootstrapClassloaderEnabled;
         this.defaultMethodTracingEnabled = defaultMethodTracingEnabled;
+        this.profiler = manager.getTransformProfiler();
     }
 
     public void setInitialized(boolean isInitialized) {
@@ -100,7 +102,12 @@ public class InstrumentationClassTransformer implements ClassFileTransformer {
             }
 
             InstrumentationContext context = new InstrumentationContext(classfileBuffer, classBeingRedefined, protectionDomain);
+            long matchStartTimeInNs = System.nanoTime();
             context.match(loader, classBeingRedefined, reader, manager.getMatchVisitors().keySet());
+            if (profiler != null) {
+                profiler.recordClassMatch(System.nanoTime() - matchStartTimeInNs, classfileBuffer.length,
+                        !context.getMatches().isEmpty() || context.isTracerMatch());
+            }
 
             // Additional proxy detection tests
             if (context.isGenerated()) {
@@ -120,8 +127,10 @@ public class InstrumentationClassTransformer implements ClassFileTransformer {
             for (Map.Entry<ClassMatchVisitorFactory, OptimizedClassMatcher.Match> entry : context.getMatches().entrySet()) {
                 ContextClassTransformer transformer = manager.getMatchVisitors().get(entry.getKey());
                 if (transformer != null && transformer != InstrumentationContextManager.NO_OP_TRANSFORMER) {
+                    long startTimeInNs = System.nanoTime();
                     byte[] bytes = transformer.transform(loader, className, classBeingRedefined,
                             protectionDomain, classfileBuffer, context, entry.getValue());
+                    recordTransform(transformer, startTimeInNs, classfileBuffer, bytes);
                     if (bytes != null) {
                         context.markAsModified();
                         classfileBuffer = bytes;
@@ -133,8 +142,10 @@ public class InstrumentationClassTransformer implements ClassFileTransformer {
             }
 
             if (context.isTracerMatch()) {
+                long startTimeInNs = System.nanoTime();
                 byte[] bytes = traceTransformer.transform(loader, className, classBeingRedefined,
                         protectionDomain, classfileBuffer, context, null);
+                recordTransform(traceTransformer, startTimeInNs, classfileBuffer, bytes);
                 if (bytes != null) {
                     context.markAsModified();
                     classfileBuffer = bytes;
@@ -142,8 +153,10 @@ public class InstrumentationClassTransformer implements ClassFileTransformer {
             }
 
             if (context.isModified()) {
+                long startTimeInNs = System.nanoTime();
                 byte[] transformation = finalClassTransformer.transform(loader, className,
                         classBeingRedefined, protectionDomain, classfileBuffer, context, null);
+                recordTransform(finalClassTransformer, startTimeInNs, classfileBuffer, transformation);
                 ServiceFactory.getStatsService().doStatsWork(
                         StatsWorks.getRecordMetricWork(MetricNames.SUPPORTABILITY_CLASSLOADER_TRANSFORM_TIME,
                                 System.nanoTime() - transformStartTimeInNs), MetricNames.SUPPORTABILITY_CLASSLOADER_TRANSFORM_TIME);
@@ -156,6 +169,12 @@ public class InstrumentationClassTransformer implements ClassFileTransformer {
         return null; // for transformers this is the same as throwing an exception
     }
 
+    private void recordTransform(ContextClassTransformer transformer, long startTimeInNs, byte[] classfileBuffer, byte[] result) {
+        if (profiler != null) {
+            profiler.recordTransform(transformer, System.nanoTime() - startTimeInNs, classfileBuffer.length, result != null);
+        }
+    }
+
     /**
      * Don't instrument classes that implement any of the interfaces specified in {@link #MARKER_INTERFACES_TO_SKIP}.
      */
@@ -52,6 +52,10 @@ public class InstrumentationContextManager {
     private final Set<String> classloaderExclusions;
     private final Instrumentation instrumentation;
     private final ClassWeaverService classWeaverService;
+    /**
+     * Records the cost of each transformer and weave package. Null unless the transform profiler is enabled.
+     */
+    private final ClassTransformProfiler transformProfiler;
 
     /**
      * The {@link ClassFileTransformer} which is registered with the jvm.
@@ -66,7 +70,10 @@ public class InstrumentationContextManager {
 
     public InstrumentationContextManager(Instrumentation instrumentation) {
         this.instrumentation = instrumentation;
-        this.classWeaverService = new ClassWeaverService(instrumentation);
+        ClassTransformerConfig transformerConfig = ServiceFactory.getConfigService().getDefaultAgentConfig().getClassTransformerConfig();
+        this.transformProfiler = transformerConfig.isTransformProfilerEnabled()
+                ? new ClassTransformProfiler(transformerConfig.getTransformProfilerReportFile()) : null;
+        this.classWeaverService = new ClassWeaverService(instrumentation, transformProfiler);
 
         // these matchers only modify the InstrumentationContext, they don't actually transform classes
         matchVisitors.put(new ScalaTraitMatcher(), NO_OP_TRANSFORMER);
@@ -163,6 +170,13 @@ public class InstrumentationContextManager {
         return classWeaverService;
     }
 
+    /**
+     * @return the transform profiler, or null if it is disabled
+     */
+    public ClassTransformProfiler getTransformProfiler() {
+        return transformProfiler;
+    }
+
     public static InstrumentationContextManager create(final ClassLoaderClassTransformer classLoaderClassTransformer,
             final InstrumentationProxy instrumentation, final boolean bootstrapClassloaderEnabled) throws Exception {
         final InstrumentationContextManager manager = new InstrumentationContextManager(instrumentation);
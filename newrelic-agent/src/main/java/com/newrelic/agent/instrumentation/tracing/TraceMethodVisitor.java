@@ -49,6 +49,12 @@ public class TraceMethodVisitor extends AdviceAdapter {
      */
     public static final Method IGNORE_APDEX_METHOD = new Method("ignoreApdex", Type.VOID_TYPE, new Type[0]);
 
+    /**
+     * @see ExitTracer#getTracedMethod()
+     */
+    private static final Method GET_TRACED_METHOD_METHOD = new Method(BridgeUtils.GET_TRACED_METHOD_METHOD_NAME,
+            BridgeUtils.TRACED_METHOD_TYPE, new Type[0]);
+
     public TraceMethodVisitor(String className, MethodVisitor mv, int access, String name, String desc,
             TraceDetails trace, boolean customTracer, boolean noticeSql, Class<?> classBeingRedefined) {
         super(WeaveUtils.ASM_API_LEVEL, mv, access, name, desc);
@@ -231,16 +237,16 @@ public class TraceMethodVisitor extends AdviceAdapter {
     @Override
     public void visitFieldInsn(int opcode, String owner, String name, String desc) {
         if (owner.equals(BridgeUtils.TRACED_METHOD_TYPE.getInternalName())) {
-            // instead of loading the field, load the tracer.
-            loadTracer();
+            // instead of loading the field, load the traced method.
+            loadTracedMethod();
         } else {
             super.visitFieldInsn(opcode, owner, name, desc);
         }
     }
 
     /**
-     * Replaces calls to {@link com.newrelic.api.agent.Agent#getTracedMethod()} with a pop and a load local instruction
-     * that loads the tracer. Also Replaces calls to:
+     * Replaces calls to {@link com.newrelic.api.agent.Agent#getTracedMethod()} with a pop and instructions that load the
+     * traced method of the tracer. Also Replaces calls to:
      * {@link com.newrelic.agent.bridge.datastore.DatastoreMetrics#noticeSql(Connection, String, Object[])}
      * with instructions that store the values of the method call into the SqlTracer for use on tracer exit.
      *
@@ -251,8 +257,8 @@ public class TraceMethodVisitor extends AdviceAdapter {
         if (BridgeUtils.isAgentType(owner) && BridgeUtils.GET_TRACED_METHOD_METHOD_NAME.equals(name)) {
             // pop the agent instance off the stack
             pop();
-            // instead of invoking the method, load the tracer.
-            loadTracer();
+            // instead of invoking the method, load the traced method.
+            loadTracedMethod();
         } else if (NoticeSqlVisitor.isNoticeSqlMethod(owner, name, desc)) {
             // Replace calls to DatastoreMetrics.noticeSql() with  instructions to set parameter values on the SqlTracer
             rewriteNoticeSqlCall();
@@ -326,4 +332,31 @@ public class TraceMethodVisitor extends AdviceAdapter {
 
         visitLabel(end);
     }
+
+    /**
+     * Generate instructions to load the traced method of the tracer, which the instrumentation code may keep after
+     * the tracer finishes. If the tracer is null, load the {@link NoOpTracedMethod#INSTANCE}.
+     *
+     * @see ExitTracer#getTracedMethod()
+     */
+    private void loadTracedMethod() {
+        Label isTracerNullLabel = new Label();
+        Label end = new Label();
+
+        // load the tracer for a null check
+        loadLocal(tracerLocal);
+        ifNull(isTracerNullLabel);
+
+        // not null, so load the traced method of the tracer
+        loadLocal(tracerLocal);
+        invokeInterface(TraceMethodVisitor.TRACER_TYPE, GET_TRACED_METHOD_METHOD);
+        goTo(end);
+
+        visitLabel(isTracerNullLabel);
+
+        // load the no-op instance
+        getStatic(Type.getType(NoOpTracedMethod.class), "INSTANCE", Type.getType(TracedMethod.class));
+
+        visitLabel(end);
+    }
 }
\ No newline at end of file
@@ -7,6 +7,7 @@
 
 package com.newrelic.agent.instrumentation.weaver;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.collect.Sets;
 import com.newrelic.agent.Agent;
 import com.newrelic.agent.MetricNames;
@@ -17,6 +18,7 @@ import com.newrelic.agent.config.ClassTransformerConfig;
 import com.newrelic.agent.instrumentation.PointCutClassTransformer;
 import com.newrelic.agent.instrumentation.classmatchers.OptimizedClassMatcher.Match;
 import com.newrelic.agent.instrumentation.context.ClassMatchVisitorFactory;
+import com.newrelic.agent.instrumentation.context.ClassTransformProfiler;
 import com.newrelic.agent.instrumentation.context.ContextClassTransformer;
 import com.newrelic.agent.instrumentation.context.InstrumentationContext;
 import com.newrelic.agent.instrumentation.weaver.errorhandler.LogAndReturnOriginal;
@@ -26,6 +28,7 @@ import com.newrelic.agent.instrumentation.weaver.preprocessors.AgentPostprocesso
 import com.newrelic.agent.instrumentation.weaver.preprocessors.AgentPreprocessors;
 import com.newrelic.agent.instrumentation.weaver.preprocessors.TracedWeaveInstrumentationTracker;
 import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.service.module.ShaChecksums;
 import com.newrelic.agent.stats.StatsWorks;
 import com.newrelic.api.agent.weaver.WeaveIntoAllMethods;
 import com.newrelic.api.agent.weaver.internal.WeavePackageType;
@@ -35,6 +38,7 @@ import com.newrelic.weave.ClassWeave;
 import com.newrelic.weave.utils.BootstrapLoader;
 import com.newrelic.weave.utils.ClassCache;
 import com.newrelic.weave.utils.ClassInformation;
+import com.newrelic.weave.utils.ClassInformationStore;
 import com.newrelic.weave.utils.ClassLoaderFinder;
 import com.newrelic.weave.utils.WeaveUtils;
 import com.newrelic.weave.violation.WeaveViolation;
@@ -42,10 +46,12 @@ import com.newrelic.weave.weavepackage.CachedWeavePackage;
 import com.newrelic.weave.weavepackage.ClassWeavedListener;
 import com.newrelic.weave.weavepackage.ExtensionClassTemplate;
 import com.newrelic.weave.weavepackage.NewClassAppender;
+import com.newrelic.weave.weavepackage.PackageValidationResult;
 import com.newrelic.weave.weavepackage.PackageWeaveResult;
 import com.newrelic.weave.weavepackage.WeavePackage;
 import com.newrelic.weave.weavepackage.WeavePackageConfig;
 import com.newrelic.weave.weavepackage.WeavePackageManager;
+import com.newrelic.weave.weavepackage.WeaveStageListener;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Opcodes;
@@ -67,6 +73,8 @@ import java.security.ProtectionDomain;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -74,7 +82,10 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
 import java.util.jar.JarInputStream;
+import java.util.jar.Manifest;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 
@@ -116,9 +127,28 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
      * Weave Packages loaded dynamically from the extensions folder.
      */
     private final Map<String, String> externalWeavePackages = new ConcurrentHashMap<>();
+    /**
+     * Fingerprint of every registered weave package, used to tell whether a weave cache entry is still valid.
+     */
+    private final Map<String, String> weavePackageFingerprints = new ConcurrentHashMap<>();
     private final Instrumentation instrumentation;
+    /**
+     * Composite class bytes from earlier runs of this agent version. Null unless a weave cache directory is configured.
+     */
+    private final PersistentWeaveCache weaveCache;
+    /**
+     * Parsed classes shared by the class caches of all classloaders. Null if disabled.
+     */
+    private final ClassInformationStore classInformationStore;
 
     public ClassWeaverService(Instrumentation instrumentation) {
+        this(instrumentation, null);
+    }
+
+    /**
+     * @param transformProfiler records the cost of each weave package, or null if the transform profiler is disabled
+     */
+    public ClassWeaverService(Instrumentation instrumentation, ClassTransformProfiler transformProfiler) {
         this.instrumentation = instrumentation;
         this.weaveViolationLogger = new WeaveViolationLogger(Agent.LOG);
         this.listener = new AgentWeaverListener(weaveViolationLogger);
@@ -127,6 +157,32 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
         ClassTransformerConfig config = agentConfig.getClassTransformerConfig();
         this.weavePackageManager = new WeavePackageManager(listener, instrumentation,
                 config.getMaxPreValidatedClassLoaders(), config.preValidateWeavePackages(), config.preMatchWeaveMethods());
+        int weavePrecomputeThreads = config.getWeavePrecomputeThreads();
+        if (weavePrecomputeThreads > 0) {
+            weavePackageManager.setPrecomputeExecutor(new WeavePrecomputeExecutor(weavePrecomputeThreads));
+        }
+        if (weavePrecomputeThreads > 0 || transformProfiler != null) {
+            // the stage metrics come with background validation; the profiler only wants the per package timings
+            weavePackageManager.setStageListener(new StageMetricsListener(weavePrecomputeThreads > 0, transformProfiler));
+        }
+
+        int classInformationCacheSize = config.getClassInformationCacheSize();
+        this.classInformationStore = classInformationCacheSize > 0 ? new ClassInformationStore(classInformationCacheSize) : null;
+
+        String weaveCacheDirectory = config.getWeaveCacheDirectory();
+        this.weaveCache = weaveCacheDirectory == null ? null
+                : PersistentWeaveCache.create(weaveCacheDirectory, Agent.getVersion(), getWeaveConfigurationKey(agentConfig),
+                        config.getWeaveCacheMaxSizeInMb() * 1024L * 1024L);
+    }
+
+    /**
+     * The settings that {@link AgentPreprocessors} reads when rewriting weave code. A change to any of them changes the
+     * weaved output of a class even though the weave packages are the same.
+     */
+    private static String getWeaveConfigurationKey(AgentConfig agentConfig) {
+        boolean captureSqlQueries = !agentConfig.isHighSecurity() && !agentConfig.laspEnabled();
+        return "captureSqlQueries=" + captureSqlQueries + ",collectSlowQueriesFromModules="
+                + agentConfig.getTransactionTracerConfig().getCollectSlowQueriesFromModules();
     }
 
     /**
@@ -162,6 +218,38 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
         AgentConfig agentConfig = ServiceFactory.getConfigService().getDefaultAgentConfig();
         WeavePackageConfig weavePackageConfig = createWeavePackageConfig(jarStream, source,
                 instrumentation, WeavePackageType.INTERNAL, agentConfig);
+        if (!isInternalWeavePackageEnabled(weavePackageConfig, agentConfig)) {
+            return null;
+        }
+
+        WeavePackage weavePackage = CachedWeavePackage.createWeavePackage(new URL(source), jarStream, weavePackageConfig);
+        return weavePackage;
+    }
+
+    /**
+     * Create a weave package from the attributes recorded for it in the weave package index, without opening its jar.
+     *
+     * @return the weave package, or null if it is disabled or its attributes don't contain the cached weave attributes
+     */
+    private WeavePackage createWeavePackage(Attributes attributes, URL source) throws Exception {
+        AgentConfig agentConfig = ServiceFactory.getConfigService().getDefaultAgentConfig();
+        WeavePackageConfig weavePackageConfig = createWeavePackageConfig(
+                WeavePackageConfig.builder().manifest(attributes), source.toExternalForm(), WeavePackageType.INTERNAL,
+                agentConfig);
+        if (!isInternalWeavePackageEnabled(weavePackageConfig, agentConfig)) {
+            return null;
+        }
+        WeavePackage weavePackage = CachedWeavePackage.createWeavePackage(source, attributes, weavePackageConfig);
+        if (weavePackage == null) {
+            // built without cached weave attributes, the jar has to be read now
+            try (InputStream inputStream = source.openStream()) {
+                return createWeavePackage(inputStream, source.toExternalForm());
+            }
+        }
+        return weavePackage;
+    }
+
+    private boolean isInternalWeavePackageEnabled(WeavePackageConfig weavePackageConfig, AgentConfig agentConfig) {
         ClassTransformerConfig classTransformerConfig = agentConfig.getClassTransformerConfig();
 
         String weavePackageName = weavePackageConfig.getName();
@@ -170,7 +258,7 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
                 // Only log this if the module has been explicitly disabled (not if it is disabled by default)
                 LOG.log(Level.INFO, "Instrumentation {0} is disabled. Skipping.", weavePackageName);
             }
-            return null;
+            return false;
         }
 
         // JAVA-1499 Why o' why do we do this (see JAVA-1445)? The reasons have been lost to the sands of time,
@@ -183,22 +271,25 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
             if (jcacheDatastoreEnabled) {
                 LOG.log(Level.INFO, " Instrumentation {0} is disabled since {1} is enabled. Skipping.",
                         weavePackageName, "com.newrelic.instrumentation.jcache-datastore-1.0.0");
-                return null;
+                return false;
             }
         }
-
-        WeavePackage weavePackage = CachedWeavePackage.createWeavePackage(new URL(source), jarStream, weavePackageConfig);
-        return weavePackage;
+        return true;
     }
 
     private WeavePackageConfig createWeavePackageConfig(JarInputStream jarStream, String source,
             Instrumentation instrumentation, WeavePackageType type, AgentConfig agentConfig) throws Exception {
+        return createWeavePackageConfig(WeavePackageConfig.builder().jarInputStream(jarStream), source, type,
+                agentConfig);
+    }
+
+    private WeavePackageConfig createWeavePackageConfig(WeavePackageConfig.Builder builder, String source,
+            WeavePackageType type, AgentConfig agentConfig) {
         AgentPreprocessors preprocessors = new AgentPreprocessors(agentConfig, tracedWeaveInstrumentationDetails);
         AgentPostprocessors postprocessors = new AgentPostprocessors();
 
-        WeavePackageConfig result = WeavePackageConfig.builder()
+        WeavePackageConfig result = builder
                 .source(source)
-                .jarInputStream(jarStream)
                 .weavePreprocessor(preprocessors)
                 .weavePostprocessor(postprocessors)
                 .errorHandleClassNode(LogAndReturnOriginal.ERROR_HANDLER_NODE)
@@ -281,6 +372,10 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
      * Load all the weave packages embedded in the agent jar.
      */
     private void loadInternalWeavePackages() {
+        if (loadIndexedInternalWeavePackages()) {
+            return;
+        }
+
         Collection<String> jarFileNames = AgentJarHelper.findAgentJarFileNames(Pattern.compile("instrumentation\\/(.*).jar"));
         if (jarFileNames.isEmpty()) {
             LOG.log(Level.SEVERE, "No instrumentation packages were found in the agent.");
@@ -325,26 +420,70 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
         }
     }
 
+    /**
+     * Register the weave packages listed in the weave package index that is written next to the instrumentation jars
+     * at build time. The index holds the manifest attributes of every jar, so no jar is opened here. A jar is read
+     * the first time a class matches one of its weave classes or its reference classes all exist.
+     *
+     * @return false if the agent jar doesn't contain a usable index
+     */
+    private boolean loadIndexedInternalWeavePackages() {
+        URL indexUrl = BootstrapAgent.class.getResource("/instrumentation/" + CachedWeavePackage.WEAVE_PACKAGE_INDEX_NAME);
+        if (indexUrl == null) {
+            return false;
+        }
+        Manifest index;
+        try (InputStream inputStream = indexUrl.openStream()) {
+            index = new Manifest(inputStream);
+        } catch (IOException e) {
+            LOG.log(Level.FINE, e, "Unable to read the weave package index {0}", indexUrl);
+            return false;
+        }
+
+        LOG.log(Level.FINE, "Loading {0} instrumentation packages from the weave package index", index.getEntries().size());
+        for (Map.Entry<String, Attributes> entry : index.getEntries().entrySet()) {
+            String name = "instrumentation/" + entry.getKey();
+            URL instrumentationUrl = BootstrapAgent.class.getResource('/' + name);
+            if (instrumentationUrl == null) {
+                Agent.LOG.error("Unable to find instrumentation jar: " + name);
+                continue;
+            }
+            try {
+                registerInternalWeavePackage(createWeavePackage(entry.getValue(), instrumentationUrl), instrumentationUrl);
+            } catch (Throwable t) {
+                LOG.log(Level.FINER, t, "unable to load weave package jar {0}", instrumentationUrl);
+            }
+        }
+        LOG.log(Level.FINE, "Loaded {0} internal instrumentation packages", internalWeavePackages.size());
+        return true;
+    }
+
     private void registerInstrumentation(URL instrumentationUrl) {
         try (InputStream inputStream = instrumentationUrl.openStream()) {
-            WeavePackage internalWeavePackage = createWeavePackage(inputStream, instrumentationUrl.toExternalForm());
-            if (null == internalWeavePackage) {
-                LOG.log(Level.FINEST, "internal weave package: {0} was null", instrumentationUrl.toExternalForm());
-            } else if (internalWeavePackage.getPackageViolations().size() > 0) {
-                LOG.log(Level.FINER, "skip loading weave package: {0}", internalWeavePackage.getName());
-                for (WeaveViolation violation : internalWeavePackage.getPackageViolations()) {
-                    LOG.log(Level.FINER, "\t violation: {0}", violation);
-                }
-            } else {
-                LOG.log(Level.FINER, "adding weave package: {0}", internalWeavePackage.getName());
-                internalWeavePackages.add(internalWeavePackage.getName());
-                weavePackageManager.register(internalWeavePackage);
-            }
+            registerInternalWeavePackage(createWeavePackage(inputStream, instrumentationUrl.toExternalForm()),
+                    instrumentationUrl);
         } catch (Throwable t) {
             LOG.log(Level.FINER, t, "unable to load weave package jar {0}", instrumentationUrl);
         }
     }
 
+    private void registerInternalWeavePackage(WeavePackage internalWeavePackage, URL instrumentationUrl) {
+        if (null == internalWeavePackage) {
+            LOG.log(Level.FINEST, "internal weave package: {0} was null", instrumentationUrl.toExternalForm());
+        } else if (internalWeavePackage.getPackageViolations().size() > 0) {
+            LOG.log(Level.FINER, "skip loading weave package: {0}", internalWeavePackage.getName());
+            for (WeaveViolation violation : internalWeavePackage.getPackageViolations()) {
+                LOG.log(Level.FINER, "\t violation: {0}", violation);
+            }
+        } else {
+            LOG.log(Level.FINER, "adding weave package: {0}", internalWeavePackage.getName());
+            internalWeavePackages.add(internalWeavePackage.getName());
+            // internal packages ship inside the agent jar, so the agent version already identifies their contents
+            weavePackageFingerprints.put(internalWeavePackage.getName(), String.valueOf(internalWeavePackage.getVersion()));
+            weavePackageManager.register(internalWeavePackage);
+        }
+    }
+
     private List<Set<String>> partitionInstrumentationJars(Collection<String> jarFileNames, int partitions) {
         List<Set<String>> instrumentationPartitions = new ArrayList<>(partitions);
 
@@ -379,6 +518,7 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
                 String instrName = weaveConfig.getName();
                 if (weavePackageManager.isRegistered(instrName)) {
                     weavePackageManager.deregister(instrName);
+                    weavePackageFingerprints.remove(instrName);
                     this.externalWeavePackages.remove(weaveExtension.getAbsolutePath());
                 }
 
@@ -397,6 +537,10 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
                         LOG.log(Level.FINER, "\t{0}", violation);
                     }
                 } else {
+                    if (weaveCache != null) {
+                        // extension jars can be replaced without changing their version
+                        weavePackageFingerprints.put(instrName, weaveConfig.getVersion() + ":" + ShaChecksums.computeSha(weaveExtension));
+                    }
                     weavePackageManager.register(externalPackage);
                     externalWeavePackages.put(weaveExtension.getAbsolutePath(), weaveConfig.getName());
                 }
@@ -428,6 +572,7 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
                         "Attempted to unload non-existent weave package {0} -- {1}. Ignoring request.",
                         weavePackageName, removedFilePath);
             } else {
+                weavePackageFingerprints.remove(weavePackageName);
                 externalWeavePackages.remove(removedFilePath);
             }
         }
@@ -455,7 +600,8 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
         return createRetransformRunnable(loadedClasses);
     }
 
-    private final ConcurrentMap<ClassLoader, ClassCache> retransformCaches = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ClassLoader, ClassCache> retransformCaches = Caffeine.newBuilder().weakKeys().executor(
+            Runnable::run).<ClassLoader, ClassCache>build().asMap();
     private volatile boolean isRetransforming = false;
 
     private class RetransformRunnable implements Runnable {
@@ -487,20 +633,20 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
         if (isRetransforming) {
             if (!retransformCaches.containsKey(loader)) {
                 if (loader == BootstrapLoader.PLACEHOLDER) {
-                    retransformCaches.putIfAbsent(loader, new ClassCache(BootstrapLoader.get()));
+                    retransformCaches.putIfAbsent(loader, new ClassCache(BootstrapLoader.get(), classInformationStore));
                 } else {
-                    retransformCaches.putIfAbsent(loader, new ClassCache(new ClassLoaderFinder(loader)));
+                    retransformCaches.putIfAbsent(loader, new ClassCache(new ClassLoaderFinder(loader), classInformationStore));
                 }
             }
             cache = retransformCaches.get(loader);
             if (null == cache) {
-                cache = new ClassCache(new ClassLoaderFinder(loader));
+                cache = new ClassCache(new ClassLoaderFinder(loader), classInformationStore);
             }
         } else {
             if (loader == BootstrapLoader.PLACEHOLDER) {
-                cache = new ClassCache(BootstrapLoader.get());
+                cache = new ClassCache(BootstrapLoader.get(), classInformationStore);
             } else {
-                cache = new ClassCache(new ClassLoaderFinder(loader));
+                cache = new ClassCache(new ClassLoaderFinder(loader), classInformationStore);
             }
         }
         return cache;
@@ -600,6 +746,10 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
             }
         };
         try {
+            if (weaveCache != null) {
+                return weaveWithCache(loader, getClassCache(loader), className, classfileBuffer, context,
+                        classWeavedCallback);
+            }
             return weavePackageManager.weave(loader, getClassCache(loader), className, classfileBuffer,
                     context.getSkipMethods(), classWeavedCallback);
         } catch (IOException ioe) {
@@ -607,6 +757,154 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
         }
     }
 
+    /**
+     * Weave a class, reusing the composite bytes from the weave cache when the same weave packages still match it.
+     * Matching always runs so that weave packages are validated against the classloader and their utility classes
+     * are appended to it. Only the weaving itself is skipped on a cache hit.
+     */
+    private byte[] weaveWithCache(ClassLoader loader, ClassCache cache, String className, byte[] classfileBuffer,
+            InstrumentationContext context, ClassWeavedListener classWeavedCallback) throws IOException {
+        if (!weavePackageManager.isPossibleMatch(className, classfileBuffer, cache)) {
+            return null;
+        }
+        ClassInformation classInformation = cache.getClassInformation(className);
+        if (classInformation == null) {
+            return null;
+        }
+
+        String key = weaveCache.getKey(className, classfileBuffer, classInformation.getAllSuperNames(cache),
+                classInformation.getAllInterfaces(cache), context.getSkipMethods());
+        PersistentWeaveCache.Entry entry = weaveCache.get(key, className);
+        if (entry != null) {
+            Map<String, String> matchedPackageFingerprints = new HashMap<>();
+            for (PackageValidationResult result : weavePackageManager.match(loader, className, cache)) {
+                String packageName = result.getWeavePackage().getName();
+                matchedPackageFingerprints.put(packageName, weavePackageFingerprints.get(packageName));
+            }
+            if (entry.isValidFor(matchedPackageFingerprints)) {
+                ServiceFactory.getStatsService().doStatsWork(
+                        StatsWorks.getIncrementCounterWork(MetricNames.SUPPORTABILITY_WEAVE_CACHE_HIT, 1),
+                        MetricNames.SUPPORTABILITY_WEAVE_CACHE_HIT);
+                for (Map.Entry<String, List<Method>> weavedPackage : entry.getWeavedMethods().entrySet()) {
+                    String packageName = weavedPackage.getKey();
+                    String weaveClassStat = MessageFormat.format(MetricNames.SUPPORTABILITY_WEAVE_CLASS, packageName,
+                            className);
+                    ServiceFactory.getStatsService().doStatsWork(
+                            StatsWorks.getRecordMetricWork(weaveClassStat, 1), weaveClassStat);
+                    for (Method method : weavedPackage.getValue()) {
+                        context.addWeavedMethod(method, packageName);
+                    }
+                }
+                return entry.getCompositeBytes();
+            }
+        }
+
+        WeaveResultRecorder recorder = new WeaveResultRecorder(classWeavedCallback);
+        byte[] compositeBytes = weavePackageManager.weave(loader, cache, className, classfileBuffer,
+                context.getSkipMethods(), recorder);
+        if (compositeBytes != null && recorder.cacheable) {
+            // a miss is only a class that was weaved and could have come from the cache, not every possible match
+            ServiceFactory.getStatsService().doStatsWork(
+                    StatsWorks.getIncrementCounterWork(MetricNames.SUPPORTABILITY_WEAVE_CACHE_MISS, 1),
+                    MetricNames.SUPPORTABILITY_WEAVE_CACHE_MISS);
+            weaveCache.put(key, className, new PersistentWeaveCache.Entry(recorder.packageFingerprints,
+                    recorder.weavedMethods, compositeBytes));
+        }
+        return compositeBytes;
+    }
+
+    /**
+     * Reports the time spent in each weaving stage as a supportability metric, and the time spent validating and weaving
+     * each weave package to the transform profiler.
+     */
+    private static class StageMetricsListener implements WeaveStageListener {
+
+        private final Map<Stage, String> metricNames = new EnumMap<>(Stage.class);
+        private final boolean recordStages;
+        private final ClassTransformProfiler transformProfiler;
+
+        /**
+         * @param recordStages whether to report the stage metrics
+         * @param transformProfiler records the cost of each weave package, or null if the transform profiler is disabled
+         */
+        StageMetricsListener(boolean recordStages, ClassTransformProfiler transformProfiler) {
+            this.recordStages = recordStages;
+            this.transformProfiler = transformProfiler;
+            metricNames.put(Stage.PREFILTER, MessageFormat.format(MetricNames.SUPPORTABILITY_WEAVE_STAGE, "Prefilter"));
+            metricNames.put(Stage.MATCH, MessageFormat.format(MetricNames.SUPPORTABILITY_WEAVE_STAGE, "Match"));
+            metricNames.put(Stage.WEAVE, MessageFormat.format(MetricNames.SUPPORTABILITY_WEAVE_STAGE, "Weave"));
+            metricNames.put(Stage.ASSEMBLE, MessageFormat.format(MetricNames.SUPPORTABILITY_WEAVE_STAGE, "Assemble"));
+        }
+
+        @Override
+        public void stageCompleted(Stage stage, long durationNanos) {
+            if (!recordStages) {
+                return;
+            }
+            String metricName = metricNames.get(stage);
+            ServiceFactory.getStatsService().doStatsWork(
+                    StatsWorks.getRecordResponseTimeWork(metricName, durationNanos, TimeUnit.NANOSECONDS), metricName);
+        }
+
+        @Override
+        public void packageWeaved(PackageWeaveResult result, long durationNanos) {
+            if (transformProfiler != null) {
+                transformProfiler.recordWeavePackage(result.getValidationResult().getWeavePackage().getName(),
+                        durationNanos, result.weavedClass());
+            }
+        }
+
+        @Override
+        public void packageValidated(PackageValidationResult result, long durationNanos) {
+            if (transformProfiler != null) {
+                transformProfiler.recordWeavePackageValidation(result.getWeavePackage().getName(), durationNanos,
+                        result.succeeded());
+            }
+        }
+    }
+
+    /**
+     * Records what the weaver did to a class so that it can be replayed from the weave cache. Classes whose weaving
+     * has side effects beyond the composite bytes and the weaved methods are never cached.
+     */
+    private class WeaveResultRecorder implements ClassWeavedListener {
+
+        private final ClassWeavedListener delegate;
+        private final Map<String, String> packageFingerprints = new HashMap<>();
+        private final Map<String, List<Method>> weavedMethods = new HashMap<>();
+        private boolean cacheable = true;
+
+        WeaveResultRecorder(ClassWeavedListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void classWeaved(PackageWeaveResult weaveResult, ClassLoader classloader, ClassCache cache) {
+            delegate.classWeaved(weaveResult, classloader, cache);
+
+            String packageName = weaveResult.getValidationResult().getWeavePackage().getName();
+            String fingerprint = weavePackageFingerprints.get(packageName);
+            if (fingerprint == null || !weaveResult.getValidationResult().getViolations().isEmpty()
+                    || tracedWeaveInstrumentationDetails.containsKey(packageName)) {
+                cacheable = false;
+                return;
+            }
+            packageFingerprints.put(packageName, fingerprint);
+
+            if (weaveResult.weavedClass()) {
+                if (!weaveResult.getAnnotationProxyClasses().isEmpty()) {
+                    cacheable = false;
+                    return;
+                }
+                List<Method> methods = new ArrayList<>();
+                for (List<Method> weaved : weaveResult.getWeavedMethods().values()) {
+                    methods.addAll(weaved);
+                }
+                weavedMethods.put(packageName, methods);
+            }
+        }
+    }
+
     /**
      * For every tracer that originated from weaved code:
      * <ol>
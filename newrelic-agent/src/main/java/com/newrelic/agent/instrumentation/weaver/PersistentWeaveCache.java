@@ -0,0 +1,365 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.instrumentation.weaver;
+
+import com.newrelic.agent.Agent;
+import org.objectweb.asm.commons.Method;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Stores the composite class bytes produced by the weaver on disk so that a restart of the same agent version can
+ * reuse them instead of weaving the class again.
+ *
+ * Entries live in a sub-directory named after the agent version and are keyed by a hash of the target class bytes,
+ * its class hierarchy and the agent settings that change how weave code is preprocessed. Every entry also records the
+ * fingerprint of each weave package that matched the class, so an entry is only used while exactly the same weave
+ * packages still match.
+ *
+ * The entries of the running agent version are bounded by a maximum total size. When a new entry goes over it, the
+ * entries that were least recently read or written are deleted until the cache is back under nine tenths of the
+ * maximum. Directories left behind by other agent versions are deleted when the cache is created.
+ */
+public class PersistentWeaveCache {
+
+    private static final int MAGIC = 0x4e525743;
+    private static final int FORMAT_VERSION = 1;
+    private static final String ENTRY_SUFFIX = ".weave";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory;
+    private final String configurationKey;
+    private final long maxSize;
+    // key -> size of the entry file in bytes
+    private final ConcurrentMap<String, Long> entries = new ConcurrentHashMap<>();
+    private final AtomicLong size = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    /**
+     * Create a cache that stores entries for the given agent version under the base directory.
+     *
+     * @param baseDirectory    directory configured by the user
+     * @param agentVersion     version of the running agent
+     * @param configurationKey agent settings that affect the weaved output
+     * @param maxSize          maximum total size of the entries in bytes
+     * @return the cache, or null if the cache directory can't be used
+     */
+    public static PersistentWeaveCache create(String baseDirectory, String agentVersion, String configurationKey,
+            long maxSize) {
+        File directory = new File(baseDirectory, agentVersion.replaceAll("[^A-Za-z0-9._-]", "_"));
+        deleteOtherVersions(new File(baseDirectory), directory);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Agent.LOG.log(Level.WARNING, "Unable to create the weave cache directory {0}. The weave cache is disabled.",
+                    directory.getAbsolutePath());
+            return null;
+        }
+        if (!directory.canWrite()) {
+            Agent.LOG.log(Level.WARNING, "The weave cache directory {0} is not writable. The weave cache is disabled.",
+                    directory.getAbsolutePath());
+            return null;
+        }
+        return new PersistentWeaveCache(directory, configurationKey, maxSize);
+    }
+
+    PersistentWeaveCache(File directory, String configurationKey, long maxSize) {
+        this.directory = directory;
+        this.configurationKey = configurationKey;
+        this.maxSize = maxSize;
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(ENTRY_SUFFIX)) {
+                    long length = file.length();
+                    entries.put(name.substring(0, name.length() - ENTRY_SUFFIX.length()), length);
+                    size.addAndGet(length);
+                }
+            }
+        }
+        Agent.LOG.log(Level.FINE, "Using weave cache {0} with {1} entries ({2} bytes)", directory.getAbsolutePath(),
+                entries.size(), size.get());
+        evictIfFull();
+    }
+
+    /**
+     * Delete the cache directories of other agent versions. Only directories that hold nothing but weave cache files
+     * are deleted, so a base directory that is shared with other files is left alone.
+     */
+    private static void deleteOtherVersions(File baseDirectory, File directory) {
+        File[] siblings = baseDirectory.listFiles();
+        if (siblings == null) {
+            return;
+        }
+        for (File sibling : siblings) {
+            if (!sibling.isDirectory() || sibling.getName().equals(directory.getName())) {
+                continue;
+            }
+            File[] files = sibling.listFiles();
+            if (files == null || !isCacheDirectory(files)) {
+                continue;
+            }
+            for (File file : files) {
+                file.delete();
+            }
+            if (sibling.delete()) {
+                Agent.LOG.log(Level.FINE, "Deleted the weave cache of another agent version {0}", sibling.getAbsolutePath());
+            }
+        }
+    }
+
+    private static boolean isCacheDirectory(File[] files) {
+        for (File file : files) {
+            String name = file.getName();
+            if (!file.isFile() || !(name.endsWith(ENTRY_SUFFIX) || name.endsWith(TEMP_SUFFIX))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compute the key of the entry for a class. Everything that can change the composite bytes of a class, other than
+     * the weave packages themselves, is part of the key.
+     */
+    public String getKey(String className, byte[] targetBytes, Collection<String> superNames,
+            Collection<String> interfaceNames, Map<Method, Collection<String>> skipMethods) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, configurationKey);
+        update(digest, className);
+        digest.update(targetBytes);
+        for (String superName : superNames) {
+            update(digest, superName);
+        }
+        for (String interfaceName : new TreeSet<>(interfaceNames)) {
+            update(digest, interfaceName);
+        }
+        if (!skipMethods.isEmpty()) {
+            Map<String, Set<String>> sortedSkipMethods = new TreeMap<>();
+            for (Map.Entry<Method, Collection<String>> skipMethod : skipMethods.entrySet()) {
+                sortedSkipMethods.put(skipMethod.getKey().toString(), new TreeSet<>(skipMethod.getValue()));
+            }
+            update(digest, sortedSkipMethods.toString());
+        }
+
+        byte[] hash = digest.digest();
+        StringBuilder key = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return key.toString();
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        // separator so that adjacent values can't run together
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Read the entry stored under the key.
+     *
+     * @return the entry, or null if there is no usable entry
+     */
+    public Entry get(String key, String className) {
+        if (!entries.containsKey(key)) {
+            return null;
+        }
+        File file = getFile(key);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !className.equals(in.readUTF())) {
+                remove(key, file);
+                return null;
+            }
+
+            Map<String, String> packageFingerprints = new TreeMap<>();
+            int packageCount = in.readInt();
+            for (int i = 0; i < packageCount; i++) {
+                packageFingerprints.put(in.readUTF(), in.readUTF());
+            }
+
+            Map<String, List<Method>> weavedMethods = new TreeMap<>();
+            int weavedPackageCount = in.readInt();
+            for (int i = 0; i < weavedPackageCount; i++) {
+                String packageName = in.readUTF();
+                int methodCount = in.readInt();
+                List<Method> methods = new ArrayList<>(methodCount);
+                for (int j = 0; j < methodCount; j++) {
+                    methods.add(new Method(in.readUTF(), in.readUTF()));
+                }
+                weavedMethods.put(packageName, methods);
+            }
+
+            byte[] compositeBytes = new byte[in.readInt()];
+            in.readFully(compositeBytes);
+            // entries that are still read are the last to be evicted
+            file.setLastModified(System.currentTimeMillis());
+            return new Entry(packageFingerprints, weavedMethods, compositeBytes);
+        } catch (IOException e) {
+            Agent.LOG.log(Level.FINEST, e, "Unable to read weave cache entry {0}", file.getAbsolutePath());
+            remove(key, file);
+            return null;
+        }
+    }
+
+    /**
+     * Store an entry. The entry is written to a temporary file first so that a concurrent or interrupted write never
+     * leaves a partial entry behind.
+     */
+    public void put(String key, String className, Entry entry) {
+        File file = getFile(key);
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile(key, TEMP_SUFFIX, directory);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(className);
+
+                out.writeInt(entry.packageFingerprints.size());
+                for (Map.Entry<String, String> packageFingerprint : entry.packageFingerprints.entrySet()) {
+                    out.writeUTF(packageFingerprint.getKey());
+                    out.writeUTF(packageFingerprint.getValue());
+                }
+
+                out.writeInt(entry.weavedMethods.size());
+                for (Map.Entry<String, List<Method>> weavedPackage : entry.weavedMethods.entrySet()) {
+                    out.writeUTF(weavedPackage.getKey());
+                    out.writeInt(weavedPackage.getValue().size());
+                    for (Method method : weavedPackage.getValue()) {
+                        out.writeUTF(method.getName());
+                        out.writeUTF(method.getDescriptor());
+                    }
+                }
+
+                out.writeInt(entry.compositeBytes.length);
+                out.write(entry.compositeBytes);
+            }
+            long length = tempFile.length();
+            if (tempFile.renameTo(file) || (file.delete() && tempFile.renameTo(file))) {
+                Long previous = entries.put(key, length);
+                size.addAndGet(previous == null ? length : length - previous);
+                evictIfFull();
+            }
+        } catch (IOException e) {
+            Agent.LOG.log(Level.FINER, e, "Unable to write weave cache entry for {0}", className);
+        } finally {
+            if (tempFile != null && tempFile.exists()) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private void remove(String key, File file) {
+        Long removed = entries.remove(key);
+        if (removed != null) {
+            size.addAndGet(-removed);
+        }
+        file.delete();
+    }
+
+    private void evictIfFull() {
+        if (size.get() <= maxSize) {
+            return;
+        }
+        synchronized (evictionLock) {
+            if (size.get() <= maxSize) {
+                return;
+            }
+            List<File> files = new ArrayList<>(entries.size());
+            for (String key : entries.keySet()) {
+                files.add(getFile(key));
+            }
+            // read the modification times once, they change when entries are read
+            Map<File, Long> lastModified = new HashMap<>();
+            for (File file : files) {
+                lastModified.put(file, file.lastModified());
+            }
+            files.sort(Comparator.comparing(lastModified::get));
+
+            long target = maxSize / 10 * 9;
+            int evicted = 0;
+            for (File file : files) {
+                if (size.get() <= target) {
+                    break;
+                }
+                String name = file.getName();
+                remove(name.substring(0, name.length() - ENTRY_SUFFIX.length()), file);
+                evicted++;
+            }
+            Agent.LOG.log(Level.FINER, "Evicted {0} weave cache entries, {1} bytes remain", evicted, size.get());
+        }
+    }
+
+    private File getFile(String key) {
+        return new File(directory, key + ENTRY_SUFFIX);
+    }
+
+    /**
+     * The result of weaving one class: the weave packages that matched it, the methods that each package weaved and
+     * the composite class bytes.
+     */
+    public static final class Entry {
+
+        private final Map<String, String> packageFingerprints;
+        private final Map<String, List<Method>> weavedMethods;
+        private final byte[] compositeBytes;
+
+        public Entry(Map<String, String> packageFingerprints, Map<String, List<Method>> weavedMethods,
+                byte[] compositeBytes) {
+            this.packageFingerprints = new TreeMap<>(packageFingerprints);
+            this.weavedMethods = new TreeMap<>(weavedMethods);
+            this.compositeBytes = compositeBytes;
+        }
+
+        /**
+         * @return true if the weave packages that match the class now are the ones that produced this entry
+         */
+        public boolean isValidFor(Map<String, String> matchedPackageFingerprints) {
+            return packageFingerprints.equals(matchedPackageFingerprints);
+        }
+
+        public Map<String, List<Method>> getWeavedMethods() {
+            return Collections.unmodifiableMap(weavedMethods);
+        }
+
+        public byte[] getCompositeBytes() {
+            return compositeBytes;
+        }
+    }
+
+}
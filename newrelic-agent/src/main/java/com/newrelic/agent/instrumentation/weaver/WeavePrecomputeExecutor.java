@@ -0,0 +1,81 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.instrumentation.weaver;
+
+import com.newrelic.agent.util.DefaultThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+
+import static com.newrelic.agent.Agent.LOG;
+
+/**
+ * A fixed set of daemon threads that validate weave packages ahead of the classes that need them. Work that doesn't
+ * fit in the bounded queue is rejected and done later on the class loading thread instead.
+ *
+ * Note: this doesn't use an ExecutorService for the same reason as the weave package loading threads in
+ * {@link ClassWeaverService}, which is to prevent the ConcurrentCallablePointCut from being loaded too early.
+ */
+class WeavePrecomputeExecutor implements Executor {
+
+    static final String THREAD_NAME = "New Relic Weave Precompute";
+    static final int QUEUE_CAPACITY = 1024;
+
+    private final int threadCount;
+    private final BlockingQueue<Runnable> queue;
+    private final ThreadFactory threadFactory;
+    private volatile boolean started = false;
+
+    WeavePrecomputeExecutor(int threadCount) {
+        this(threadCount, QUEUE_CAPACITY, new DefaultThreadFactory(THREAD_NAME, true));
+    }
+
+    WeavePrecomputeExecutor(int threadCount, int queueCapacity, ThreadFactory threadFactory) {
+        this.threadCount = threadCount;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.threadFactory = threadFactory;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (!queue.offer(command)) {
+            throw new RejectedExecutionException("The weave precompute queue is full");
+        }
+        if (!started) {
+            start();
+        }
+    }
+
+    private synchronized void start() {
+        if (started) {
+            return;
+        }
+        // Threads are only started once there is work, since most applications create few classloaders
+        for (int i = 0; i < threadCount; i++) {
+            threadFactory.newThread(this::runWorker).start();
+        }
+        started = true;
+    }
+
+    private void runWorker() {
+        while (true) {
+            try {
+                queue.take().run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable t) {
+                LOG.log(Level.FINEST, t, "Error while precomputing weave package validation");
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.metric;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A table that interns metric names and scopes to small, dense int ids.
+ *
+ * Stats engines key their stats by these ids so that merging transaction stats into the harvest engine compares ints
+ * rather than long metric name strings. Each engine keeps a reference to the table its ids came from, and ids are never
+ * reused or reassigned within a table, so an id stays valid for as long as the engine holding it.
+ *
+ * A table is bounded at {@link #MAX_SIZE} names (four harvests' worth of {@link MetricIdRegistry#METRIC_LIMIT}).
+ * Once it is full, {@link #getId(String)} returns {@link #NO_ID} and callers fall back to keying by name. The harvest
+ * calls {@link #retireIfFull()} to replace a full table with an empty one, so names that are no longer recorded do not
+ * hold their ids forever. Engines created or cleared after that use the new table; engines keyed by different tables
+ * are merged by name.
+ *
+ * This class is thread-safe.
+ */
+public final class MetricNameTable {
+
+    public static final int NO_ID = -1;
+    public static final int MAX_SIZE = MetricIdRegistry.METRIC_LIMIT * 4;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static volatile MetricNameTable current = new MetricNameTable();
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>(INITIAL_CAPACITY);
+
+    // elements are written before the id is published through the ids map, so readers that got an id always see the name
+    private volatile String[] names = new String[INITIAL_CAPACITY];
+    // guarded by this
+    private int size = 0;
+
+    private MetricNameTable() {
+    }
+
+    /**
+     * Get the table that new stats engines should key their stats by.
+     */
+    public static MetricNameTable current() {
+        return current;
+    }
+
+    /**
+     * Replace the current table with an empty one if it is full. Engines still keyed by the old table keep working.
+     *
+     * @return true if the table was full and has been replaced
+     */
+    public static synchronized boolean retireIfFull() {
+        if (!current.isFull()) {
+            return false;
+        }
+        current = new MetricNameTable();
+        return true;
+    }
+
+    /**
+     * Create a key for a metric name that is recorded over and over, such as a constant from
+     * {@link com.newrelic.agent.MetricNames}, so its id is looked up once per table instead of on every call.
+     */
+    public static Key key(String name) {
+        return new Key(name);
+    }
+
+    /**
+     * Get the id for a metric name or scope, assigning one if necessary.
+     *
+     * @return the id, or {@link #NO_ID} if the name is null or the table is full
+     */
+    public int getId(String name) {
+        if (name == null) {
+            return NO_ID;
+        }
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        return register(name);
+    }
+
+    /**
+     * Get the id for a metric name or scope without assigning one.
+     *
+     * @return the id, or {@link #NO_ID} if the name is null or has not been assigned an id
+     */
+    public int findId(String name) {
+        if (name == null) {
+            return NO_ID;
+        }
+        Integer id = ids.get(name);
+        return id == null ? NO_ID : id;
+    }
+
+    /**
+     * Get the metric name or scope for an id returned by {@link #getId(String)}.
+     */
+    public String getName(int id) {
+        return names[id];
+    }
+
+    public int getSize() {
+        return ids.size();
+    }
+
+    public synchronized boolean isFull() {
+        return size >= MAX_SIZE;
+    }
+
+    private synchronized int register(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (size >= MAX_SIZE) {
+            return NO_ID;
+        }
+        String[] current = names;
+        if (size == current.length) {
+            String[] grown = new String[Math.min(current.length * 2, MAX_SIZE)];
+            System.arraycopy(current, 0, grown, 0, current.length);
+            current = grown;
+        }
+        int newId = size;
+        current[newId] = name;
+        names = current;
+        size++;
+        ids.put(name, newId);
+        return newId;
+    }
+
+    /**
+     * A metric name that remembers its id in the last table it was looked up in.
+     */
+    public static final class Key {
+
+        private final String name;
+        private volatile Binding binding;
+
+        private Key(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get the id of this name in the given table, assigning one if necessary.
+         *
+         * @return the id, or {@link #NO_ID} if the table is full
+         */
+        public int getId(MetricNameTable table) {
+            Binding last = binding;
+            if (last != null && last.table == table) {
+                return last.id;
+            }
+            int id = table.getId(name);
+            if (id != NO_ID) {
+                binding = new Binding(table, id);
+            }
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static final class Binding {
+
+        private final MetricNameTable table;
+        private final int id;
+
+        private Binding(MetricNameTable table, int id) {
+            this.table = table;
+            this.id = id;
+        }
+    }
+
+}
@@ -21,7 +21,6 @@ import com.newrelic.agent.MetricNames;
  */
 public class NormalizationRule {
 
-    private static final Pattern SEGMENT_SEPARATOR_PATTERN = Pattern.compile(MetricNames.SEGMENT_DELIMITER_STRING);
     private static final Pattern BACKREFERENCE_PATTERN = Pattern.compile("\\\\(\\d)"); // search for \1, \2 etc.
     private static final String BACKREFERENCE_REPLACEMENT = "\\$$1"; // replace \1 with $1, \2 with $2 etc.
 
@@ -114,7 +113,7 @@ public class NormalizationRule {
         }
 
         private RuleResult forEachSegment(String url) {
-            String[] segments = SEGMENT_SEPARATOR_PATTERN.split(url);
+            String[] segments = url.split(MetricNames.SEGMENT_DELIMITER_STRING);
             for (int i = 1; i < segments.length; i++) {
                 String segment = segments[i];
                 if (segment == null || segment.length() == 0) {
@@ -147,7 +146,7 @@ public class NormalizationRule {
 
         private RuleResult forEachSegment(String url) {
             boolean isMatch = false;
-            String[] segments = SEGMENT_SEPARATOR_PATTERN.split(url);
+            String[] segments = url.split(MetricNames.SEGMENT_DELIMITER_STRING);
             for (int i = 1; i < segments.length; i++) {
                 String segment = segments[i];
                 if (segment == null || segment.length() == 0) {
@@ -0,0 +1,244 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.normalization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the rules in an ordered rule list that could match a name, without running their patterns.
+ *
+ * Most rules sent by the collector are anchored to a literal prefix, such as {@code ^/artifact/} or
+ * {@code ^WebTransaction/Servlet/}. Those prefixes are kept in a case-insensitive trie. One walk of a name through the
+ * trie finds every anchored rule that could match it. Rules without a literal prefix, and rules applied to each
+ * segment, are always candidates.
+ *
+ * This class is thread-safe.
+ */
+final class NormalizationRuleIndex {
+
+    private static final int[] NO_RULES = new int[0];
+    private static final String METACHARACTERS = ".[]{}()*+?|^$";
+    private static final String OPTIONAL_QUANTIFIERS = "?*{";
+
+    private final int ruleCount;
+    private final TrieNode root = new TrieNode();
+    // rules that are candidates for every name, in rule order
+    private final int[] unindexedRules;
+    private final int indexedRuleCount;
+
+    NormalizationRuleIndex(List<NormalizationRule> rules) {
+        ruleCount = rules.size();
+        List<Integer> unindexed = new ArrayList<>();
+        int indexed = 0;
+        for (int i = 0; i < rules.size(); i++) {
+            NormalizationRule rule = rules.get(i);
+            String prefix = rule.isEachSegment() ? null : literalPrefix(rule.getMatchExpression());
+            if (prefix == null) {
+                unindexed.add(i);
+            } else {
+                root.add(prefix, 0, i);
+                indexed++;
+            }
+        }
+        unindexedRules = new int[unindexed.size()];
+        for (int i = 0; i < unindexedRules.length; i++) {
+            unindexedRules[i] = unindexed.get(i);
+        }
+        indexedRuleCount = indexed;
+    }
+
+    /**
+     * @return true if at least one rule can be skipped for some names
+     */
+    boolean isSelective() {
+        return indexedRuleCount > 0;
+    }
+
+    /**
+     * @return the indexes of the rules after {@code afterRule} that could match the name, in rule order
+     */
+    int[] candidates(String name, int afterRule) {
+        int[] matched = NO_RULES;
+        int matchedCount = 0;
+        TrieNode node = root;
+        for (int i = 0; i < name.length() && node.children != null; i++) {
+            node = node.children.get(toLowerCase(name.charAt(i)));
+            if (node == null) {
+                break;
+            }
+            if (node.rules != null) {
+                if (matchedCount + node.rules.length > matched.length) {
+                    matched = Arrays.copyOf(matched, Math.max(matchedCount + node.rules.length, matched.length * 2));
+                }
+                System.arraycopy(node.rules, 0, matched, matchedCount, node.rules.length);
+                matchedCount += node.rules.length;
+            }
+        }
+        Arrays.sort(matched, 0, matchedCount);
+
+        // merge the two ordered lists, keeping only the rules after afterRule
+        int[] candidates = new int[Math.min(ruleCount, matchedCount + unindexedRules.length)];
+        int count = 0;
+        int m = 0;
+        int u = 0;
+        while (m < matchedCount || u < unindexedRules.length) {
+            int next;
+            if (u == unindexedRules.length || (m < matchedCount && matched[m] < unindexedRules[u])) {
+                next = matched[m++];
+            } else {
+                next = unindexedRules[u++];
+            }
+            if (next > afterRule) {
+                candidates[count++] = next;
+            }
+        }
+        return count == candidates.length ? candidates : Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * Find the literal text every match of a rule's pattern must start with. Patterns are compiled case-insensitive
+     * without {@code MULTILINE}, so a leading {@code ^} anchors them to the start of the name.
+     *
+     * @return the prefix in lower case, or null if the pattern is not anchored to a literal prefix or is too
+     * complicated to tell
+     */
+    static String literalPrefix(String regex) {
+        if (regex == null || regex.length() < 2 || regex.charAt(0) != '^' || regex.contains("\\Q")
+                || regex.contains("(?") || hasTopLevelAlternation(regex)) {
+            return null;
+        }
+        StringBuilder prefix = new StringBuilder();
+        int i = 1;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            char literal;
+            int next;
+            if (c == '\\') {
+                // escaped letters and digits are character classes, anchors or back references
+                if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    break;
+                }
+                literal = regex.charAt(i + 1);
+                next = i + 2;
+            } else if (METACHARACTERS.indexOf(c) >= 0) {
+                break;
+            } else {
+                literal = c;
+                next = i + 1;
+            }
+            if (literal > 0x7f || (next < regex.length() && OPTIONAL_QUANTIFIERS.indexOf(regex.charAt(next)) >= 0)) {
+                break;
+            }
+            prefix.append(toLowerCase(literal));
+            if (next < regex.length() && regex.charAt(next) == '+') {
+                // the character is required but may repeat, so nothing after it is at a fixed position
+                break;
+            }
+            i = next;
+        }
+        return prefix.length() == 0 ? null : prefix.toString();
+    }
+
+    private static boolean hasTopLevelAlternation(String regex) {
+        int groupDepth = 0;
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                i = skipCharacterClass(regex, i);
+                continue;
+            }
+            if (c == '(') {
+                groupDepth++;
+            } else if (c == ')') {
+                groupDepth--;
+            } else if (c == '|' && groupDepth <= 0) {
+                return true;
+            }
+            i++;
+        }
+        return false;
+    }
+
+    /**
+     * @return the index after the character class that starts at index
+     */
+    private static int skipCharacterClass(String regex, int index) {
+        int depth = 0;
+        int i = index;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+                i++;
+                if (i < regex.length() && regex.charAt(i) == '^') {
+                    i++;
+                }
+                // a ] straight after the opening bracket is a literal
+                if (i < regex.length() && regex.charAt(i) == ']') {
+                    i++;
+                }
+                continue;
+            }
+            if (c == ']' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Case-insensitive patterns without {@code UNICODE_CASE} only fold US-ASCII letters.
+     */
+    private static char toLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static final class TrieNode {
+        Map<Character, TrieNode> children;
+        // rules whose prefix ends at this node
+        int[] rules;
+
+        void add(String prefix, int index, int rule) {
+            if (index == prefix.length()) {
+                rules = rules == null ? new int[] { rule } : appendRule(rules, rule);
+                return;
+            }
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            Character key = prefix.charAt(index);
+            TrieNode child = children.get(key);
+            if (child == null) {
+                child = new TrieNode();
+                children.put(key, child);
+            }
+            child.add(prefix, index + 1, rule);
+        }
+
+        private static int[] appendRule(int[] rules, int rule) {
+            int[] result = Arrays.copyOf(rules, rules.length + 1);
+            result[rules.length] = rule;
+            return result;
+        }
+    }
+
+}
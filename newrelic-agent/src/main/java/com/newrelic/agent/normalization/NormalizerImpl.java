@@ -12,21 +12,36 @@ import java.util.Collections;
 import java.util.List;
 import java.util.logging.Level;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.newrelic.agent.Agent;
 
 /**
  * A class for applying renaming rules.
  * 
+ * Rules are applied in order, but a {@link NormalizationRuleIndex} skips the rules whose literal prefix rules them out,
+ * and the most recently normalized names are cached.
+ * 
  * This class is thread-safe.
  */
 public class NormalizerImpl implements Normalizer {
 
+    static final int MAX_CACHED_NAMES = 2000;
+    // mark cached names that are ignored, since the cache cannot hold nulls, and names that no rule changed, so the
+    // caller gets its own instance back
+    private static final String IGNORED = new String("ignored");
+    private static final String UNCHANGED = new String("unchanged");
+
     private final List<NormalizationRule> rules;
     private final String appName;
+    private final NormalizationRuleIndex index;
+    private final Cache<String, String> normalizedNames;
 
     public NormalizerImpl(String appName, List<NormalizationRule> rules) {
         this.appName = appName;
         this.rules = Collections.unmodifiableList(rules);
+        this.index = new NormalizationRuleIndex(this.rules);
+        this.normalizedNames = Caffeine.newBuilder().maximumSize(MAX_CACHED_NAMES).executor(Runnable::run).build();
     }
 
     @Override
@@ -35,9 +50,40 @@ public class NormalizerImpl implements Normalizer {
         if (name == null) {
             return null;
         }
+        if (rules.isEmpty()) {
+            return name;
+        }
+
+        // the log messages are written when a rule is applied, so bypass the cache when they are wanted
+        if (!Agent.LOG.isLoggable(Level.FINER)) {
+            String cached = normalizedNames.getIfPresent(name);
+            if (cached == IGNORED) {
+                return null;
+            } else if (cached == UNCHANGED) {
+                return name;
+            } else if (cached != null) {
+                return cached;
+            }
+        }
+
+        String normalizedName = applyRules(name);
+        if (normalizedName == null) {
+            normalizedNames.put(name, IGNORED);
+        } else {
+            normalizedNames.put(name, normalizedName.equals(name) ? UNCHANGED : normalizedName);
+        }
+        return normalizedName;
+    }
 
+    private String applyRules(String name) {
         String normalizedName = name;
-        for (NormalizationRule rule : rules) {
+        int[] candidates = index.isSelective() ? index.candidates(name, -1) : null;
+        int next = 0;
+        int count = candidates == null ? rules.size() : candidates.length;
+        while (next < count) {
+            int ruleIndex = candidates == null ? next : candidates[next];
+            next++;
+            NormalizationRule rule = rules.get(ruleIndex);
             RuleResult result = rule.normalize(normalizedName);
             if (!result.isMatch()) {
                 continue;
@@ -57,6 +103,12 @@ public class NormalizerImpl implements Normalizer {
                             name, appName, replacement, rule);
                     Agent.LOG.finer(msg);
                 }
+                if (candidates != null && !replacement.equals(normalizedName)) {
+                    // the remaining rules have to be looked up again for the new name
+                    candidates = index.candidates(replacement, ruleIndex);
+                    next = 0;
+                    count = candidates.length;
+                }
                 normalizedName = replacement;
             }
             if (rule.isTerminateChain()) {
@@ -26,6 +26,7 @@ import com.newrelic.agent.threads.ThreadNameNormalizer;
 import com.newrelic.agent.tracers.DefaultTracer;
 import com.newrelic.agent.tracers.IgnoreChildSocketCalls;
 import com.newrelic.agent.tracers.Tracer;
+import com.newrelic.agent.util.Backtrace;
 
 public class TransactionProfileSessionImpl implements TransactionProfileSession {
     
@@ -117,7 +118,9 @@ public class TransactionProfileSessionImpl implements TransactionProfileSession
             } else if (tracer.isLeaf() || tracer instanceof IgnoreChildSocketCalls) {
                 if (stackTraceLimits.get(tracer.getMetricName()).getAndIncrement() <
                         STACK_CAPTURE_LIMIT_PER_METRIC_PER_PERIOD) {
-                    tracer.setAgentAttribute(DefaultTracer.BACKTRACE_PARAMETER_NAME, Thread.currentThread().getStackTrace());
+                    // profiles keep the whole stack
+                    tracer.setAgentAttribute(DefaultTracer.BACKTRACE_PARAMETER_NAME, Backtrace.capture(ServiceFactory.getConfigService()
+                            .getDefaultAgentConfig().getTransactionTracerConfig().isStackWalkerEnabled(), 0));
                 }
             }
         }
@@ -29,6 +29,7 @@ import com.newrelic.agent.circuitbreaker.CircuitBreakerService;
 import com.newrelic.agent.commands.CommandParser;
 import com.newrelic.agent.config.AgentConfig;
 import com.newrelic.agent.config.ConfigService;
+import com.newrelic.agent.config.JarCollectorConfig;
 import com.newrelic.agent.config.JfrConfig;
 import com.newrelic.agent.config.JmxConfig;
 import com.newrelic.agent.core.CoreService;
@@ -39,6 +40,7 @@ import com.newrelic.agent.environment.EnvironmentServiceImpl;
 import com.newrelic.agent.extension.ExtensionService;
 import com.newrelic.agent.instrumentation.ClassTransformerService;
 import com.newrelic.agent.instrumentation.ClassTransformerServiceImpl;
+import com.newrelic.agent.instrumentation.context.InstrumentationContextManager;
 import com.newrelic.agent.jfr.JfrService;
 import com.newrelic.agent.jmx.JmxService;
 import com.newrelic.agent.language.SourceLanguageService;
@@ -71,6 +73,7 @@ import com.newrelic.agent.service.module.JarCollectorService;
 import com.newrelic.agent.service.module.JarCollectorServiceImpl;
 import com.newrelic.agent.service.module.JarCollectorServiceProcessor;
 import com.newrelic.agent.service.module.JarData;
+import com.newrelic.agent.service.module.JarFingerprintCache;
 import com.newrelic.agent.service.module.TrackedAddSet;
 import com.newrelic.agent.service.slowtransactions.SlowTransactionService;
 import com.newrelic.agent.sql.SqlTraceService;
@@ -184,18 +187,25 @@ public class ServiceManagerImpl extends AbstractService implements ServiceManage
         jmxService = new JmxService(jmxConfig);
 
         Logger jarCollectorLogger = Agent.LOG.getChildLogger("com.newrelic.jar_collector");
-        boolean jarCollectorEnabled = configService.getDefaultAgentConfig().getJarCollectorConfig().isEnabled();
+        JarCollectorConfig jarCollectorConfig = configService.getDefaultAgentConfig().getJarCollectorConfig();
+        boolean jarCollectorEnabled = jarCollectorConfig.isEnabled();
         AtomicBoolean shouldSendAllJars = new AtomicBoolean(true);
         TrackedAddSet<JarData> analyzedJars = new TrackedAddSet<>();
 
-        Function<URL, JarData> processor = new JarCollectorServiceProcessor(jarCollectorLogger, configService.getDefaultAgentConfig());
+        JarFingerprintCache jarFingerprintCache = jarCollectorEnabled && jarCollectorConfig.getFingerprintCacheFile() != null
+                ? JarFingerprintCache.create(jarCollectorConfig.getFingerprintCacheFile(), jarCollectorLogger) : null;
+        Function<URL, JarData> processor = new JarCollectorServiceProcessor(jarCollectorLogger, configService.getDefaultAgentConfig(),
+                jarFingerprintCache);
         JarAnalystFactory jarAnalystFactory = new JarAnalystFactory(processor, analyzedJars, jarCollectorLogger);
-        ExecutorService executorService = Executors.newSingleThreadExecutor(new DefaultThreadFactory("New Relic Jar Analysis Thread", true));
+        // jars within a fat jar are analyzed in parallel, bounded by the number of analysis threads
+        int jarAnalysisThreads = Math.min(jarCollectorConfig.getAnalysisThreads(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, jarAnalysisThreads),
+                new DefaultThreadFactory("New Relic Jar Analysis Thread", true));
 
         JarCollectorInputs jarCollectorInputs = JarCollectorInputs.build(jarCollectorEnabled, jarAnalystFactory, executorService, jarCollectorLogger);
 
         jarCollectorService = new JarCollectorServiceImpl(jarCollectorLogger, jarCollectorEnabled, shouldSendAllJars, analyzedJars,
-                jarCollectorInputs.getClassToJarPathSubmitter());
+                jarCollectorInputs.getClassToJarPathSubmitter(), jarFingerprintCache);
 
         extensionService = new ExtensionService(configService, jarCollectorInputs.getExtensionAnalysisProducer());
 
@@ -286,6 +296,10 @@ public class ServiceManagerImpl extends AbstractService implements ServiceManage
         // Register harvest listeners that started before harvest service was created.
         harvestService.addHarvestListener(extensionService);
         harvestService.addHarvestListener(jarCollectorHarvestListener);
+        InstrumentationContextManager contextManager = classTransformerService.getContextManager();
+        if (contextManager != null && contextManager.getTransformProfiler() != null) {
+            harvestService.addHarvestListener(contextManager.getTransformProfiler());
+        }
 
         slowTransactionService = new SlowTransactionService(config);
 
@@ -350,6 +364,7 @@ public class ServiceManagerImpl extends AbstractService implements ServiceManage
                 .usePlaintext(config.getUsePlaintext())
                 .useCompression(config.getUseCompression())
                 .useBatching(config.getUseBatching())
+                .senderStreams(config.getSenderStreams())
                 .build();
 
         return InfiniteTracing.initialize(infiniteTracingConfig, NewRelic.getAgent().getMetricAggregator());
@@ -7,21 +7,26 @@
 
 package com.newrelic.agent.service.analytics;
 
-import com.google.common.collect.MinMaxPriorityQueue;
-import com.google.common.collect.Queues;
 import com.newrelic.agent.interfaces.SamplingPriorityQueue;
 import com.newrelic.agent.model.PriorityAware;
 import com.newrelic.agent.tracing.DistributedTraceUtil;
-import com.newrelic.agent.util.NoOpQueue;
 
-import java.util.*;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * A fixed-size reservoir that keeps the highest priority events offered to it during a harvest cycle.
+ *
+ * Events are held in a {@link StripedPriorityReservoir}, so request threads recording events concurrently do not
+ * contend on a single lock.
+ */
 public class DistributedSamplingPriorityQueue<E extends PriorityAware> implements SamplingPriorityQueue<E> {
 
     private final String appName;
     private final String serviceName;
-    private final Queue<E> data;
+    private final StripedPriorityReservoir<E> data;
     private final AtomicInteger numberOfTries = new AtomicInteger();
     private final AtomicInteger recorded;
     // the number of times the decider was used on an event on this application. That meaning, the number of
@@ -31,6 +36,7 @@ public class DistributedSamplingPriorityQueue<E extends PriorityAware> implement
     private final int decidedLast;
     private final int target;
     private final Comparator<E> comparator;
+    private final boolean priorityOrdered;
     private final int maximumSize;
 
     public DistributedSamplingPriorityQueue(int reservoirSize) {
@@ -57,7 +63,8 @@ public class DistributedSamplingPriorityQueue<E extends PriorityAware> implement
         this.appName = appName;
         this.serviceName = serviceName;
         this.comparator = comparator == null ? (left, right) -> Float.compare(right.getPriority(), left.getPriority()) : comparator;
-        this.data = createQueue(reservoirSize, this.comparator);
+        this.priorityOrdered = comparator == null;
+        this.data = new StripedPriorityReservoir<>(reservoirSize, this.comparator);
         this.recorded = new AtomicInteger(0);
         this.decidedLast = decidedLast;
         this.target = target;
@@ -65,23 +72,8 @@ public class DistributedSamplingPriorityQueue<E extends PriorityAware> implement
         this.maximumSize = reservoirSize;
     }
 
-    private Queue<E> createQueue(int reservoirSize, Comparator<E> comparator) {
-        if (reservoirSize <= 0) {
-            return new NoOpQueue<>();
-        } else {
-            return Queues.synchronizedQueue(MinMaxPriorityQueue
-                    .orderedBy(comparator)
-                    .maximumSize(reservoirSize)
-                    .create());
-        }
-    }
-
     public void retryAll(DistributedSamplingPriorityQueue<E> source) {
-        synchronized (source.data) {
-            for (E element : source.data) {
-                add(element);
-            }
-        }
+        retryAll((SamplingPriorityQueue<E>) source);
     }
 
     @Override
@@ -98,7 +90,8 @@ public class DistributedSamplingPriorityQueue<E extends PriorityAware> implement
 
     @Override
     public float getMinPriority() {
-        return data.isEmpty() ? 0.0f : data.peek().getPriority();
+        E first = data.peek();
+        return first == null ? 0.0f : first.getPriority();
     }
 
     @Override
@@ -115,13 +108,42 @@ public class DistributedSamplingPriorityQueue<E extends PriorityAware> implement
     public boolean add(E element) {
         incrementNumberOfTries();
         boolean added = data.offer(element);
-        if (added && element.decider()) {
+        if (added) {
+            recordAdded(element);
+        }
+        return added;
+    }
+
+    /**
+     * Add several elements at once. Cheaper than adding them one by one, since the reservoir is only locked once.
+     */
+    public void addAll(Collection<? extends E> elements) {
+        numberOfTries.addAndGet(elements.size());
+        data.offerAll(elements, this::recordAdded);
+    }
+
+    private void recordAdded(E element) {
+        if (element.decider()) {
             decided.incrementAndGet();
             if (DistributedTraceUtil.isSampledPriority(element.getPriority())) {
                 recorded.incrementAndGet();
             }
         }
-        return added;
+    }
+
+    /**
+     * Whether an element with the given priority would be turned away without being looked at, because the reservoir
+     * already holds enough elements with a higher priority. Callers can use this to skip building elements that
+     * can't be sampled.
+     *
+     * @return true if the element would be rejected. Always false for reservoirs with a custom comparator.
+     */
+    public boolean rejects(float priority) {
+        if (!priorityOrdered) {
+            return false;
+        }
+        E bound = data.getAdmissionBound();
+        return bound != null && priority < bound.getPriority();
     }
 
     @Override
@@ -136,12 +158,7 @@ public class DistributedSamplingPriorityQueue<E extends PriorityAware> implement
 
     @Override
     public List<E> asList() {
-        List<E> elements;
-        synchronized (data) {
-            elements = new ArrayList<>(data);
-        }
-        Collections.sort(elements, this.comparator);
-        return elements;
+        return data.asList();
     }
 
     @Override
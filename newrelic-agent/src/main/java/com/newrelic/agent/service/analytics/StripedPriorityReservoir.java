@@ -0,0 +1,339 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.service.analytics;
+
+import com.google.common.collect.MinMaxPriorityQueue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A bounded reservoir that keeps the first {@code maximumSize} elements in comparator order, sharded across stripes so
+ * that concurrent writers do not share a monitor.
+ *
+ * Each thread offers into its home stripe, a {@link MinMaxPriorityQueue} bounded at {@code maximumSize} and guarded by
+ * its own monitor, so the union of the stripes always contains the overall top {@code maximumSize}. Once the stripes
+ * together hold twice that many elements, one writer trims them: it finds the element ranked {@code maximumSize} and
+ * publishes it as the admission floor, then drops everything ranked after it and the elements tying it that don't fit,
+ * so exactly {@code maximumSize} remain. Offers ranked after the floor are rejected with a single volatile read, which
+ * is what most offers hit once a busy reservoir has filled up.
+ *
+ * Every stripe publishes its first element, so {@link #peek()} reads the stripes without locking them, and its last
+ * element once it is full, so {@link #getAdmissionBound()} doesn't lock them either.
+ *
+ * This class is thread-safe.
+ */
+final class StripedPriorityReservoir<E> {
+
+    private static final int MAX_STRIPES = 64;
+
+    private final Comparator<? super E> comparator;
+    private final int maximumSize;
+    private final int trimThreshold;
+    private final Stripe<E>[] stripes;
+    private final int mask;
+
+    // elements held across all stripes; may run ahead of maximumSize until the next trim
+    private final AtomicInteger retained = new AtomicInteger();
+    private final AtomicBoolean trimming = new AtomicBoolean();
+    // elements ranked after the floor can never be part of the sample
+    private volatile E floor;
+
+    StripedPriorityReservoir(int maximumSize, Comparator<? super E> comparator) {
+        this(maximumSize, comparator, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    @SuppressWarnings("unchecked")
+    StripedPriorityReservoir(int maximumSize, Comparator<? super E> comparator, int stripeCount) {
+        this.comparator = comparator;
+        this.maximumSize = maximumSize;
+        this.trimThreshold = maximumSize > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : maximumSize * 2;
+        int size = 1;
+        while (size < stripeCount && size < MAX_STRIPES) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe<>();
+        }
+    }
+
+    /**
+     * @return false if the element was not retained, either because it ranks after the floor or because it was
+     * evicted from its stripe straight away
+     */
+    boolean offer(E element) {
+        return offer(element, stripeIndex());
+    }
+
+    // visible for testing, so tests can place elements in specific stripes
+    boolean offer(E element, int stripeIndex) {
+        if (maximumSize <= 0) {
+            return false;
+        }
+        E currentFloor = floor;
+        if (currentFloor != null && comparator.compare(element, currentFloor) > 0) {
+            return false;
+        }
+
+        Stripe<E> stripe = stripes[stripeIndex & mask];
+        boolean added;
+        int delta;
+        synchronized (stripe) {
+            if (stripe.queue == null) {
+                stripe.queue = MinMaxPriorityQueue.orderedBy(comparator).maximumSize(maximumSize).create();
+            }
+            int before = stripe.queue.size();
+            added = stripe.queue.offer(element);
+            delta = stripe.queue.size() - before;
+            stripe.publish(maximumSize);
+        }
+
+        if (delta > 0 && retained.addAndGet(delta) > trimThreshold) {
+            trim();
+        }
+        return added;
+    }
+
+    /**
+     * Offer several elements into the caller's home stripe, taking its monitor once.
+     *
+     * @param retainedElements called, under the stripe's monitor, with each element that was retained when offered
+     */
+    void offerAll(Collection<? extends E> elements, Consumer<? super E> retainedElements) {
+        if (maximumSize <= 0 || elements.isEmpty()) {
+            return;
+        }
+        E currentFloor = floor;
+
+        Stripe<E> stripe = stripes[stripeIndex()];
+        int delta;
+        synchronized (stripe) {
+            if (stripe.queue == null) {
+                stripe.queue = MinMaxPriorityQueue.orderedBy(comparator).maximumSize(maximumSize).create();
+            }
+            int before = stripe.queue.size();
+            for (E element : elements) {
+                if ((currentFloor == null || comparator.compare(element, currentFloor) <= 0) && stripe.queue.offer(element)) {
+                    retainedElements.accept(element);
+                }
+            }
+            delta = stripe.queue.size() - before;
+            stripe.publish(maximumSize);
+        }
+
+        if (delta > 0 && retained.addAndGet(delta) > trimThreshold) {
+            trim();
+        }
+    }
+
+    /**
+     * @return the element that elements offered by the calling thread have to rank no later than to be retained, or
+     * null if any element would be retained. This is the stricter of the floor and the last element of the thread's
+     * stripe, if the stripe is full.
+     */
+    E getAdmissionBound() {
+        E currentFloor = floor;
+        E stripeLast = stripes[stripeIndex()].last;
+        if (currentFloor == null) {
+            return stripeLast;
+        }
+        return stripeLast != null && comparator.compare(stripeLast, currentFloor) < 0 ? stripeLast : currentFloor;
+    }
+
+    private int stripeIndex() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32));
+        hash ^= (hash >>> 16);
+        hash *= 0x85ebca6b;
+        hash ^= (hash >>> 13);
+        return hash & mask;
+    }
+
+    /**
+     * Trim if the stripes hold more than {@code maximumSize} elements, so that draining returns no more than
+     * {@link #size()} reported.
+     */
+    private void trimToMaximumSize() {
+        if (retained.get() > maximumSize) {
+            trim();
+        }
+    }
+
+    private void trim() {
+        if (!trimming.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<E> elements = snapshot();
+            if (elements.size() <= maximumSize) {
+                return;
+            }
+            Collections.sort(elements, comparator);
+            E newFloor = elements.get(maximumSize - 1);
+            // Elements that tie the floor are kept only as far as they fit, otherwise a run of equal elements would
+            // keep the reservoir above the trim threshold and every offer would trim again.
+            int floorTies = 0;
+            for (int i = maximumSize - 1; i >= 0 && comparator.compare(elements.get(i), newFloor) == 0; i--) {
+                floorTies++;
+            }
+            floor = newFloor;
+
+            List<E> keptTies = new ArrayList<>();
+            for (Stripe<E> stripe : stripes) {
+                int removed = 0;
+                synchronized (stripe) {
+                    if (stripe.queue == null) {
+                        continue;
+                    }
+                    while (!stripe.queue.isEmpty() && comparator.compare(stripe.queue.peekLast(), newFloor) > 0) {
+                        stripe.queue.pollLast();
+                        removed++;
+                    }
+                    while (!stripe.queue.isEmpty() && comparator.compare(stripe.queue.peekLast(), newFloor) == 0) {
+                        E tie = stripe.queue.pollLast();
+                        if (floorTies > 0) {
+                            keptTies.add(tie);
+                            floorTies--;
+                        } else {
+                            removed++;
+                        }
+                    }
+                    stripe.queue.addAll(keptTies);
+                    keptTies.clear();
+                    stripe.publish(maximumSize);
+                }
+                retained.addAndGet(-removed);
+            }
+        } finally {
+            trimming.set(false);
+        }
+    }
+
+    /**
+     * @return the first element in comparator order, or null if the reservoir is empty
+     */
+    E peek() {
+        E first = null;
+        for (Stripe<E> stripe : stripes) {
+            E head = stripe.head;
+            if (head != null && (first == null || comparator.compare(head, first) < 0)) {
+                first = head;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Remove and return the first element in comparator order, or null if the reservoir is empty. Elements held
+     * beyond {@code maximumSize} since the last trim are dropped first, so at most {@code maximumSize} are returned.
+     */
+    E poll() {
+        trimToMaximumSize();
+        while (true) {
+            Stripe<E> firstStripe = null;
+            E first = null;
+            for (Stripe<E> stripe : stripes) {
+                E head = stripe.head;
+                if (head != null && (first == null || comparator.compare(head, first) < 0)) {
+                    first = head;
+                    firstStripe = stripe;
+                }
+            }
+            if (firstStripe == null) {
+                return null;
+            }
+
+            E polled;
+            synchronized (firstStripe) {
+                polled = firstStripe.queue == null ? null : firstStripe.queue.pollFirst();
+                firstStripe.publish(maximumSize);
+            }
+            if (polled != null) {
+                retained.decrementAndGet();
+                return polled;
+            }
+            // the stripe was drained by another thread after we looked at it, so look again
+        }
+    }
+
+    /**
+     * @return the retained elements in comparator order, at most {@code maximumSize} of them
+     */
+    List<E> asList() {
+        trimToMaximumSize();
+        List<E> elements = snapshot();
+        Collections.sort(elements, comparator);
+        if (elements.size() > maximumSize) {
+            return new ArrayList<>(elements.subList(0, maximumSize));
+        }
+        return elements;
+    }
+
+    private List<E> snapshot() {
+        List<E> elements = new ArrayList<>(Math.min(Math.max(retained.get(), 0), trimThreshold) + stripes.length);
+        for (Stripe<E> stripe : stripes) {
+            synchronized (stripe) {
+                if (stripe.queue != null) {
+                    elements.addAll(stripe.queue);
+                }
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * @return the number of retained elements, at most {@code maximumSize}. Elements held beyond that are dropped
+     * before {@link #poll()} or {@link #asList()} return any.
+     */
+    int size() {
+        return Math.min(Math.max(retained.get(), 0), maximumSize);
+    }
+
+    void clear() {
+        for (Stripe<E> stripe : stripes) {
+            int removed = 0;
+            synchronized (stripe) {
+                if (stripe.queue != null) {
+                    removed = stripe.queue.size();
+                    stripe.queue.clear();
+                }
+                stripe.publish(maximumSize);
+            }
+            retained.addAndGet(-removed);
+        }
+        floor = null;
+    }
+
+    int getStripeCount() {
+        return stripes.length;
+    }
+
+    private static final class Stripe<E> {
+        // guarded by this stripe
+        MinMaxPriorityQueue<E> queue;
+        // written under the stripe's monitor, read without it
+        volatile E head;
+        // the last element when the stripe is full, otherwise null
+        volatile E last;
+
+        // called under the stripe's monitor
+        void publish(int maximumSize) {
+            head = queue == null ? null : queue.peekFirst();
+            last = queue != null && queue.size() >= maximumSize ? queue.peekLast() : null;
+        }
+    }
+
+}
@@ -22,6 +22,7 @@ import org.json.simple.JSONObject;
 import org.json.simple.JSONStreamAware;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Arrays;
 import java.util.Collections;
@@ -66,7 +67,10 @@ public class TransactionEvent extends AnalyticsEvent implements JSONStreamAware
      */
     Map<String, Object> agentAttributes;
 
-
+    /**
+     * The JSON of the event, if it was serialized when it was added to a reservoir.
+     */
+    private final String json;
 
     public TransactionEvent(String appName, Map<String, Object> userAttributes, long timestamp, String name, TransactionTiming timing,
                             String guid, String referringGuid, Integer port, String tripId, PathHashes pathHashes,
@@ -92,6 +96,51 @@ public class TransactionEvent extends AnalyticsEvent implements JSONStreamAware
         this.timeoutCause = timeoutCause;
         this.decider = decider;
         this.distributedTraceIntrinsics = distributedTraceIntrinsics;
+        this.json = null;
+    }
+
+    private TransactionEvent(TransactionEvent event, String json) {
+        super(TYPE, event.getTimestamp(), event.getPriority(), Collections.emptyMap());
+        this.name = event.name;
+        this.timing = event.timing;
+        this.guid = event.guid;
+        this.referrerGuid = event.referrerGuid;
+        this.tripId = event.tripId;
+        this.pathHashes = event.pathHashes;
+        this.port = event.port;
+        this.appName = event.appName;
+        this.apdexPerfZone = event.apdexPerfZone;
+        this.syntheticsIds = event.syntheticsIds;
+        this.syntheticsInfo = event.syntheticsInfo;
+        this.error = event.error;
+        this.timeoutCause = event.timeoutCause;
+        this.decider = event.decider;
+        this.distributedTraceIntrinsics = null;
+        this.json = json;
+    }
+
+    /**
+     * Serialize the event so it can be held until harvest without its user, agent and distributed trace attributes.
+     * Attributes are filtered now rather than when the event is sent.
+     *
+     * @return a copy of this event that writes the JSON of this event and holds no attribute maps
+     */
+    public TransactionEvent serialize() {
+        if (json != null) {
+            return this;
+        }
+        StringWriter out = new StringWriter(512);
+        try {
+            writeJSONString(out);
+        } catch (IOException e) {
+            // not thrown by in-memory writers
+            return this;
+        }
+        return new TransactionEvent(this, out.toString());
+    }
+
+    public boolean isSerialized() {
+        return json != null;
     }
 
     public float getDuration() {
@@ -197,6 +246,11 @@ public class TransactionEvent extends AnalyticsEvent implements JSONStreamAware
     @SuppressWarnings("unchecked")
     @Override
     public void writeJSONString(Writer out) throws IOException {
+        if (json != null) {
+            out.write(json);
+            return;
+        }
+
         JSONObject obj = new JSONObject();
         obj.put("type", getType());
         obj.put("timestamp", getTimestamp());
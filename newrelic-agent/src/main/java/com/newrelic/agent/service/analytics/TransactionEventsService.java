@@ -334,7 +334,7 @@ public class TransactionEventsService extends AbstractService implements EventSe
                 currentSyntheticsList = syntheticsListForApp.get(appName);
             }
 
-            persisted = currentSyntheticsList.add(createEvent(transactionData, transactionStats, getMetricName(transactionData)));
+            persisted = currentSyntheticsList.add(createReservoirEvent(transactionData, transactionStats));
             String msg = MessageFormat.format("Added Synthetics transaction event: {0}, persisted: {1}", transactionData, persisted);
             Agent.LOG.finest(msg);
         }
@@ -350,13 +350,22 @@ public class TransactionEventsService extends AbstractService implements EventSe
             if (!currentReservoir.isFull() || currentReservoir.getMinPriority() < transactionData.getPriority()) {
                 // If the reservoir is not full or it is full and our current transaction
                 // is greater than the min in the reservoir we should try to create and add it
-                currentReservoir.add(createEvent(transactionData, transactionStats, getMetricName(transactionData)));
+                currentReservoir.add(createReservoirEvent(transactionData, transactionStats));
             } else {
                 currentReservoir.incrementNumberOfTries();
             }
         }
     }
 
+    /**
+     * Create the event of a transaction that is added to a reservoir. With {@code serialize_on_admission}, the event is
+     * serialized now, so only its JSON is held until harvest.
+     */
+    private TransactionEvent createReservoirEvent(TransactionData transactionData, TransactionStats transactionStats) {
+        TransactionEvent event = createEvent(transactionData, transactionStats, getMetricName(transactionData));
+        return config.isSerializeOnAdmission() ? event.serialize() : event;
+    }
+
     /**
      * Returns the metric name for the given transaction data using a cache so that only one copy
      * of any single metric name is kept in memory.
@@ -274,8 +274,9 @@ public class LogSenderServiceImpl extends AbstractService implements LogSenderSe
             for (LogEvent event : events) {
                 // Set "priority" on LogEvent based on priority value from Transaction
                 event.setPriority(priority);
-                eventList.add(event);
             }
+            // all events of the transaction go into the reservoir in one batch
+            eventList.addAll(events);
         }
     }
 
@@ -360,7 +361,13 @@ public class LogSenderServiceImpl extends AbstractService implements LogSenderSe
             return;
         }
         DistributedSamplingPriorityQueue<LogEvent> eventList = getReservoir(appName);
-        eventList.add(createValidatedEvent(attributes, contextDataKeyFilter));
+        // Sample before the event is built, so log lines the reservoir turns away don't pay for their attributes
+        float priority = DistributedTraceServiceImpl.nextTruncatedFloat();
+        if (eventList.rejects(priority)) {
+            eventList.incrementNumberOfTries();
+            return;
+        }
+        eventList.add(createValidatedEvent(attributes, contextDataKeyFilter, priority));
         Agent.LOG.finest(MessageFormat.format("Added event of type {0}", LOG_EVENT_TYPE));
     }
 
@@ -523,9 +530,10 @@ public class LogSenderServiceImpl extends AbstractService implements LogSenderSe
      *
      * @param attributes           Map of attributes to create a LogEvent from
      * @param contextDataKeyFilter
+     * @param priority             sampling priority of the LogEvent
      * @return LogEvent instance
      */
-    private static LogEvent createValidatedEvent(Map<LogAttributeKey, ?> attributes, ExcludeIncludeFilter contextDataKeyFilter) {
+    private static LogEvent createValidatedEvent(Map<LogAttributeKey, ?> attributes, ExcludeIncludeFilter contextDataKeyFilter, float priority) {
         Map<String, String> logEventLinkingMetadata = AgentLinkingMetadata.getLogEventLinkingMetadata(TraceMetadataImpl.INSTANCE,
                 ServiceFactory.getConfigService(), ServiceFactory.getRPMService());
         // Initialize new logEventAttributes map with agent linking metadata
@@ -538,7 +546,7 @@ public class LogSenderServiceImpl extends AbstractService implements LogSenderSe
             }
         }
 
-        LogEvent event = new LogEvent(logEventAttributes, DistributedTraceServiceImpl.nextTruncatedFloat());
+        LogEvent event = new LogEvent(logEventAttributes, priority);
 
         // Now add the attributes from the argument map to the event using an AttributeSender.
         // An AttributeSender is the way to reuse all the existing attribute validations. We
@@ -632,7 +640,8 @@ public class LogSenderServiceImpl extends AbstractService implements LogSenderSe
                 return;
             }
 
-            LogEvent event = createValidatedEvent(attributes, contextDataKeyFilter);
+            // the priority is replaced by the transaction's priority when the transaction finishes
+            LogEvent event = createValidatedEvent(attributes, contextDataKeyFilter, DistributedTraceServiceImpl.nextTruncatedFloat());
             if (events.offer(event)) {
                 Agent.LOG.log(Level.FINEST, "Added event of type {0} in Transaction.", LOG_EVENT_TYPE);
             } else {
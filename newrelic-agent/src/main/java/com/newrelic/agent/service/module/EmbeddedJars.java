@@ -10,8 +10,12 @@ package com.newrelic.agent.service.module;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMap.Builder;
 
+import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -49,15 +53,71 @@ public class EmbeddedJars {
                 url = new URL(url.toExternalForm().substring(0, index + 1 + entry.getValue().length()));
                 // For some reason, some JAR files cannot be read properly by JarInputStream, at least the getNextJarEntry method
                 // perhaps related to entry order (https://bugs.openjdk.org/browse/JDK-8031748)
-                JarFile jarFile = new JarFile(url.getFile());
+                final JarFile jarFile = new JarFile(url.getFile());
                 JarEntry innerEntry = jarFile.getJarEntry(path);
-                return jarFile.getInputStream(innerEntry);
+                if (innerEntry == null) {
+                    jarFile.close();
+                    throw new IOException("Unable to find " + path + " in " + url);
+                }
+                // close the outer jar along with the stream, rather than leaving it open until it is collected
+                return new FilterInputStream(jarFile.getInputStream(innerEntry)) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            jarFile.close();
+                        }
+                    }
+                };
             }
         }
         
         return url.openStream();
     }
 
+    /**
+     * Return the file for a url that points directly to a file, or null if the url points to a jar within a jar or
+     * isn't a file url.
+     */
+    static File getFile(URL url) {
+        if (isEmbedded(url)) {
+            return null;
+        }
+        return toFile(url);
+    }
+
+    /**
+     * Return the file on disk that contains the jar the url points to. For a jar within a jar this is the outermost
+     * archive. Returns null if the url isn't a file url.
+     */
+    static File getContainingFile(URL url) {
+        String externalForm = url.toExternalForm();
+        for (Entry<String, String> entry : EMBEDDED_FORMAT_TO_EXTENSION.entrySet()) {
+            int index = externalForm.indexOf(entry.getKey());
+            if (index > 0) {
+                try {
+                    url = new URL(externalForm.substring(0, index + 1 + entry.getValue().length()));
+                } catch (MalformedURLException e) {
+                    return null;
+                }
+                break;
+            }
+        }
+        return toFile(url);
+    }
+
+    private static File toFile(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return new File(url.getFile());
+        }
+    }
+
     static JarInputStream getJarInputStream(URL url) throws IOException {
         boolean isEmbedded = isEmbedded(url);
         InputStream stream = getInputStream(url);
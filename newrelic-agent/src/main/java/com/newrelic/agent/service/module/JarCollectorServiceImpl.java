@@ -32,6 +32,7 @@ public class JarCollectorServiceImpl extends AbstractService implements JarColle
     private final AtomicBoolean shouldSendAllJars;
     private final TrackedAddSet<JarData> analyzedJars;
     private final ClassToJarPathSubmitter classToJarPathSubmitter;
+    private final JarFingerprintCache fingerprintCache;
     private volatile List<JarData> jarsNotSentLastHarvest = Collections.emptyList();
 
     public JarCollectorServiceImpl(
@@ -40,6 +41,16 @@ public class JarCollectorServiceImpl extends AbstractService implements JarColle
             AtomicBoolean shouldSendAllJars,
             TrackedAddSet<JarData> analyzedJars,
             ClassToJarPathSubmitter classToJarPathSubmitter) {
+        this(logger, enabled, shouldSendAllJars, analyzedJars, classToJarPathSubmitter, null);
+    }
+
+    public JarCollectorServiceImpl(
+            Logger logger,
+            boolean enabled,
+            AtomicBoolean shouldSendAllJars,
+            TrackedAddSet<JarData> analyzedJars,
+            ClassToJarPathSubmitter classToJarPathSubmitter,
+            JarFingerprintCache fingerprintCache) {
         super(JarCollectorService.class.getSimpleName());
 
         this.shouldSendAllJars = shouldSendAllJars;
@@ -47,6 +58,7 @@ public class JarCollectorServiceImpl extends AbstractService implements JarColle
         this.logger = logger;
         this.classToJarPathSubmitter = classToJarPathSubmitter;
         this.enabled = enabled;
+        this.fingerprintCache = fingerprintCache;
 
         if (JarCollectorConfigImpl.isUsingDeprecatedConfigSettings()) {
             String deprecatedConfigMsg = "Jar Collector system properties prefixed with 'newrelic.config.module.' and environment variables prefixed with "
@@ -74,6 +86,11 @@ public class JarCollectorServiceImpl extends AbstractService implements JarColle
     public void harvest(String appName) {
         logger.log(Level.FINER, "Harvesting Modules");
 
+        if (fingerprintCache != null) {
+            // jars analyzed since the last harvest are kept for the next run of the agent
+            fingerprintCache.save();
+        }
+
         List<JarData> jarsToSend = getJars();
 
         if (!jarsToSend.isEmpty()) {
@@ -62,9 +62,18 @@ public class JarCollectorServiceProcessor implements Function<URL, JarData> {
     private final boolean skipTempJars;
     private final List<String> ignoreJars;
     private final RateLimiter processUrlRateLimiter;
+    /**
+     * Jars analyzed by earlier runs of the agent. Null unless a fingerprint cache file is configured.
+     */
+    private final JarFingerprintCache fingerprintCache;
 
     public JarCollectorServiceProcessor(Logger logger, AgentConfig agentConfig) {
+        this(logger, agentConfig, null);
+    }
+
+    public JarCollectorServiceProcessor(Logger logger, AgentConfig agentConfig, JarFingerprintCache fingerprintCache) {
         this.logger = logger;
+        this.fingerprintCache = fingerprintCache;
         this.skipTempJars = agentConfig.getJarCollectorConfig().skipTempJars();
         if (!skipTempJars) {
             logger.log(Level.FINEST, "temporary jars will be transmitted to the host");
@@ -80,9 +89,13 @@ public class JarCollectorServiceProcessor implements Function<URL, JarData> {
 
     @Override
     public JarData apply(URL url) {
-        processUrlRateLimiter.acquire(1);
+        JarInfo cachedJarInfo = fingerprintCache == null ? null : fingerprintCache.get(url);
+        if (cachedJarInfo == null) {
+            // only jars that have to be read count against the rate limit
+            processUrlRateLimiter.acquire(1);
+        }
         try {
-            return tryProcessSingleURL(url);
+            return cachedJarInfo == null ? tryProcessSingleURL(url) : tryProcessSingleURL(url, cachedJarInfo);
         } catch (Throwable t) {
             logger.log(Level.FINE, t, "Exception processing jar at {0}", url);
             return null;
@@ -91,6 +104,10 @@ public class JarCollectorServiceProcessor implements Function<URL, JarData> {
 
     @VisibleForTesting
     JarData tryProcessSingleURL(URL url) throws URISyntaxException {
+        return tryProcessSingleURL(url, null);
+    }
+
+    private JarData tryProcessSingleURL(URL url, JarInfo cachedJarInfo) throws URISyntaxException {
         if (skipTempJars && isTempFile(url)) {
             logger.log(Level.FINE, "{0} Skipping temp jar file", url);
             return null;
@@ -101,7 +118,16 @@ public class JarCollectorServiceProcessor implements Function<URL, JarData> {
             return null;
         }
 
+        if (cachedJarInfo != null) {
+            logger.log(Level.FINEST, "{0} Using jar info from the fingerprint cache", url);
+            return addJarAndVersion(url, cachedJarInfo);
+        }
+
         JarInfo jarInfo = getJarInfoSafe(url);
+        if (fingerprintCache != null && jarInfo.attributes.containsKey(SHA1_CHECKSUM_KEY)
+                && jarInfo.attributes.containsKey(SHA512_CHECKSUM_KEY)) {
+            fingerprintCache.put(url, jarInfo);
+        }
         return addJarAndVersion(url, jarInfo);
     }
 
@@ -133,17 +159,12 @@ public class JarCollectorServiceProcessor implements Function<URL, JarData> {
     JarInfo getJarInfoSafe(URL url) {
         Map<String, String> attributes = new HashMap<>();
         try {
-            String sha1Checksum = ShaChecksums.computeSha(url);
-            attributes.put(SHA1_CHECKSUM_KEY, sha1Checksum);
-        } catch (Exception ex) {
-            logger.log(Level.FINE, ex, "{0} Error getting jar file sha1 checksum", url);
-        }
-
-        try {
-            String sha512Checksum = ShaChecksums.computeSha512(url);
-            attributes.put(SHA512_CHECKSUM_KEY, sha512Checksum);
+            // both checksums are computed in a single pass over the jar
+            List<String> checksums = ShaChecksums.computeShas(url, ShaChecksums.SHA1, ShaChecksums.SHA512);
+            attributes.put(SHA1_CHECKSUM_KEY, checksums.get(0));
+            attributes.put(SHA512_CHECKSUM_KEY, checksums.get(1));
         } catch (Exception ex) {
-            logger.log(Level.FINE, ex, "{0} Error getting jar file sha512 checksum", url);
+            logger.log(Level.FINE, ex, "{0} Error getting jar file sha1 and sha512 checksums", url);
         }
 
         JarInfo jarInfo;
@@ -0,0 +1,229 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.service.module;
+
+import com.newrelic.api.agent.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * Remembers the {@link JarInfo} of every analyzed jar on disk so that a restart doesn't have to read and checksum jars
+ * that haven't changed.
+ *
+ * Entries are keyed by the url of the jar and are only used while the file that contains the jar has the same size and
+ * modification time as when the jar was analyzed. For a jar within a jar, that is the outermost archive. Entries for
+ * files that have changed or no longer exist are dropped when the cache is saved.
+ */
+public class JarFingerprintCache {
+
+    private static final int MAGIC = 0x4e524a43;
+    private static final int FORMAT_VERSION = 1;
+
+    private final File file;
+    private final Logger logger;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    /**
+     * Create a cache that is stored in the given file, loading the entries already stored there.
+     *
+     * @param fileName file configured by the user
+     * @return the cache, or null if the file can't be used
+     */
+    public static JarFingerprintCache create(String fileName, Logger logger) {
+        File file = new File(fileName);
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            logger.log(Level.WARNING, "Unable to create the directory for the jar fingerprint cache {0}. The cache is disabled.",
+                    file.getAbsolutePath());
+            return null;
+        }
+        JarFingerprintCache cache = new JarFingerprintCache(file, logger);
+        cache.load();
+        return cache;
+    }
+
+    JarFingerprintCache(File file, Logger logger) {
+        this.file = file;
+        this.logger = logger;
+    }
+
+    /**
+     * @return the jar info analyzed for the url, or null if the jar has not been analyzed or has changed since
+     */
+    JarInfo get(URL url) {
+        Entry entry = entries.get(url.toExternalForm());
+        if (entry == null) {
+            return null;
+        }
+        Fingerprint fingerprint = Fingerprint.of(url);
+        if (fingerprint == null || !fingerprint.equals(entry.fingerprint)) {
+            entries.remove(url.toExternalForm(), entry);
+            dirty.set(true);
+            return null;
+        }
+        return entry.jarInfo;
+    }
+
+    /**
+     * Store the jar info analyzed for a url. Jars that aren't on the file system are not stored.
+     */
+    void put(URL url, JarInfo jarInfo) {
+        Fingerprint fingerprint = Fingerprint.of(url);
+        if (fingerprint != null) {
+            entries.put(url.toExternalForm(), new Entry(fingerprint, jarInfo));
+            dirty.set(true);
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                logger.log(Level.FINE, "Ignoring jar fingerprint cache {0} with an unknown format", file.getAbsolutePath());
+                return;
+            }
+            int entryCount = in.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                String url = in.readUTF();
+                Fingerprint fingerprint = new Fingerprint(in.readLong(), in.readLong());
+                String version = in.readUTF();
+                int attributeCount = in.readInt();
+                Map<String, String> attributes = new HashMap<>();
+                for (int j = 0; j < attributeCount; j++) {
+                    attributes.put(in.readUTF(), in.readUTF());
+                }
+                entries.put(url, new Entry(fingerprint, new JarInfo(version, attributes)));
+            }
+            logger.log(Level.FINE, "Loaded {0} entries from the jar fingerprint cache {1}", entries.size(), file.getAbsolutePath());
+        } catch (IOException e) {
+            logger.log(Level.FINE, e, "Unable to read the jar fingerprint cache {0}", file.getAbsolutePath());
+            entries.clear();
+        }
+    }
+
+    /**
+     * Write the cache to disk if it has changed since it was last written. The cache is written to a temporary file
+     * first so that an interrupted write never leaves a partial cache behind.
+     */
+    public void save() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        File tempFile = null;
+        try {
+            Map<String, Entry> liveEntries = new HashMap<>();
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                Fingerprint fingerprint = Fingerprint.of(new URL(entry.getKey()));
+                if (entry.getValue().fingerprint.equals(fingerprint)) {
+                    liveEntries.put(entry.getKey(), entry.getValue());
+                } else {
+                    entries.remove(entry.getKey(), entry.getValue());
+                }
+            }
+
+            tempFile = File.createTempFile("jar-fingerprints", ".tmp", file.getAbsoluteFile().getParentFile());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(liveEntries.size());
+                for (Map.Entry<String, Entry> entry : liveEntries.entrySet()) {
+                    Entry value = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(value.fingerprint.size);
+                    out.writeLong(value.fingerprint.lastModified);
+                    out.writeUTF(value.jarInfo.version);
+                    out.writeInt(value.jarInfo.attributes.size());
+                    for (Map.Entry<String, String> attribute : value.jarInfo.attributes.entrySet()) {
+                        out.writeUTF(attribute.getKey());
+                        out.writeUTF(attribute.getValue());
+                    }
+                }
+            }
+            if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+                logger.log(Level.FINE, "Unable to replace the jar fingerprint cache {0}", file.getAbsolutePath());
+                dirty.set(true);
+            }
+        } catch (IOException e) {
+            logger.log(Level.FINE, e, "Unable to write the jar fingerprint cache {0}", file.getAbsolutePath());
+            dirty.set(true);
+        } finally {
+            if (tempFile != null && tempFile.exists()) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final Fingerprint fingerprint;
+        private final JarInfo jarInfo;
+
+        Entry(Fingerprint fingerprint, JarInfo jarInfo) {
+            this.fingerprint = fingerprint;
+            this.jarInfo = jarInfo;
+        }
+    }
+
+    /**
+     * The size and modification time of the file that contains a jar.
+     */
+    private static final class Fingerprint {
+        private final long size;
+        private final long lastModified;
+
+        Fingerprint(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        static Fingerprint of(URL url) {
+            File file = EmbeddedJars.getContainingFile(url);
+            if (file == null || !file.isFile()) {
+                return null;
+            }
+            return new Fingerprint(file.length(), file.lastModified());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Fingerprint)) {
+                return false;
+            }
+            Fingerprint other = (Fingerprint) obj;
+            return size == other.size && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(size) + Long.hashCode(lastModified);
+        }
+    }
+}
@@ -15,57 +15,114 @@ import java.net.URL;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.newrelic.weave.utils.Streams;
 
 public class ShaChecksums {
 
+    static final String SHA1 = "SHA1";
+    static final String SHA512 = "SHA-512";
+
+    /**
+     * Files are read through a heap buffer of this size, allocated for each file so that no thread holds on to it.
+     */
+    static final int READ_BUFFER_SIZE = 64 * 1024;
+
     private ShaChecksums() {
     }
 
     public static String computeSha(URL url) throws NoSuchAlgorithmException, IOException {
-        return computeSha(EmbeddedJars.getInputStream(url));
+        return computeShas(url, SHA1).get(0);
     }
     
     public static String computeSha(File file) throws NoSuchAlgorithmException, IOException {
-        return computeSha(new FileInputStream(file));
+        return computeShas(file, SHA1).get(0);
     }
 
     public static String computeSha(InputStream inputStream) throws NoSuchAlgorithmException, IOException {
-        return computeSha(inputStream, "SHA1");
+        return computeSha(inputStream, SHA1);
     }
     
     public static String computeSha512(URL url) throws NoSuchAlgorithmException, IOException {
-        return computeSha512(EmbeddedJars.getInputStream(url));
-    }
-    
-    private static String computeSha512(InputStream inputStream) throws NoSuchAlgorithmException, IOException {
-        return computeSha(inputStream, "SHA-512");
+        return computeShas(url, SHA512).get(0);
     }
 
     private static String computeSha(InputStream inputStream, String algorithm) throws NoSuchAlgorithmException, IOException {
+        return computeShas(inputStream, algorithm).get(0);
+    }
 
-        try {
-            final MessageDigest md = MessageDigest.getInstance(algorithm);
+    /**
+     * Compute several checksums of a jar in a single pass. Jars on the file system are read directly into a buffer that
+     * lives for this call only. Jars within jars are read from a stream.
+     *
+     * @param url the jar
+     * @param algorithms the digest algorithms, such as {@link #SHA1} and {@link #SHA512}
+     * @return the hex encoded checksums in the order of the algorithms
+     */
+    public static List<String> computeShas(URL url, String... algorithms) throws NoSuchAlgorithmException, IOException {
+        File file = EmbeddedJars.getFile(url);
+        if (file != null) {
+            return computeShas(file, algorithms);
+        }
+        return computeShas(EmbeddedJars.getInputStream(url), algorithms);
+    }
+
+    static List<String> computeShas(File file, String... algorithms) throws NoSuchAlgorithmException, IOException {
+        MessageDigest[] digests = getDigests(algorithms);
+        // a heap array read through FileInputStream, unlike a heap ByteBuffer read through a FileChannel, does not
+        // leave a temporary direct buffer cached on the calling thread
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                for (MessageDigest digest : digests) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        }
+        return toHex(digests);
+    }
 
-            DigestInputStream dis = new DigestInputStream(inputStream, md);
+    private static List<String> computeShas(InputStream inputStream, String... algorithms) throws NoSuchAlgorithmException, IOException {
+        try {
+            MessageDigest[] digests = getDigests(algorithms);
+            InputStream digestStream = inputStream;
+            for (MessageDigest digest : digests) {
+                digestStream = new DigestInputStream(digestStream, digest);
+            }
             byte[] buffer = new byte[Streams.DEFAULT_BUFFER_SIZE];
-            // read in the stream in chunks while updating the digest
-            while (dis.read(buffer) != -1) {
+            // read in the stream in chunks while updating the digests
+            while (digestStream.read(buffer) != -1) {
             }
+            return toHex(digests);
+        } finally {
+            inputStream.close();
+        }
+    }
 
-            byte[] mdbytes = md.digest();
+    private static MessageDigest[] getDigests(String... algorithms) throws NoSuchAlgorithmException {
+        MessageDigest[] digests = new MessageDigest[algorithms.length];
+        for (int i = 0; i < algorithms.length; i++) {
+            digests[i] = MessageDigest.getInstance(algorithms[i]);
+        }
+        return digests;
+    }
+
+    private static List<String> toHex(MessageDigest[] digests) {
+        List<String> checksums = new ArrayList<>(digests.length);
+        for (MessageDigest digest : digests) {
+            byte[] mdbytes = digest.digest();
 
             // convert to hex format
-            StringBuffer sb = new StringBuffer(40);
-            for (int i = 0; i < mdbytes.length; i++) {
-                sb.append(Integer.toString((mdbytes[i] & 0xff) + 0x100, 16).substring(1));
+            StringBuilder sb = new StringBuilder(mdbytes.length * 2);
+            for (byte mdbyte : mdbytes) {
+                sb.append(Integer.toString((mdbyte & 0xff) + 0x100, 16).substring(1));
             }
-
-            return sb.toString();
-        } finally {
-            inputStream.close();
+            checksums.add(sb.toString());
         }
+        return checksums;
     }
 
 }
@@ -0,0 +1,190 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.stats;
+
+import com.newrelic.agent.metric.MetricNameTable;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An open-addressing hash map from {@link MetricNameTable} ids to values, using linear probing over parallel arrays.
+ *
+ * Lookups hash and compare ints only, and no entry objects are allocated. Iterate by slot:
+ *
+ * <pre>
+ * for (int i = 0; i &lt; map.capacity(); i++) {
+ *     if (map.isOccupied(i)) {
+ *         use(map.keyAt(i), map.valueAt(i));
+ *     }
+ * }
+ * </pre>
+ *
+ * Writes must be made by one thread at a time, but {@link #get(int)} may be called concurrently with them. A new entry
+ * stores its value before its key, and removals, resizes and clears build new arrays and publish them whole, so a
+ * concurrent reader either finds the value that was put or finds nothing. Iteration must be done by the writing thread.
+ */
+final class MetricIdMap<V> {
+
+    private static final int EMPTY = MetricNameTable.NO_ID;
+    private static final int MIN_CAPACITY = 8;
+
+    private volatile Slots slots;
+    // only read and written by the writing thread
+    private int size;
+
+    MetricIdMap(int expectedSize) {
+        slots = new Slots(tableSizeFor(expectedSize));
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        // keep the load factor at or below 0.5 so probe sequences stay short
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int slot(int id, int mask) {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int id) {
+        Slots current = slots;
+        int mask = current.mask;
+        int index = slot(id, mask);
+        while (true) {
+            int key = current.keys.get(index);
+            if (key == id) {
+                return (V) current.values.get(index);
+            }
+            if (key == EMPTY) {
+                return null;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * @return the previous value for the id, or null
+     */
+    @SuppressWarnings("unchecked")
+    V put(int id, V value) {
+        Slots current = slots;
+        int mask = current.mask;
+        int index = slot(id, mask);
+        while (true) {
+            int key = current.keys.get(index);
+            if (key == id) {
+                return (V) current.values.getAndSet(index, value);
+            }
+            if (key == EMPTY) {
+                if (size + 1 > current.resizeThreshold) {
+                    Slots grown = current.copy(current.keys.length() << 1, EMPTY);
+                    grown.insert(id, value);
+                    slots = grown;
+                } else {
+                    // the value is written first so a reader that sees the key also sees the value
+                    current.values.set(index, value);
+                    current.keys.set(index, id);
+                }
+                size++;
+                return null;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Remove an id by publishing a copy of the arrays without it, so concurrent readers never see entries mid-shift.
+     *
+     * @return the removed value, or null
+     */
+    V remove(int id) {
+        V removed = get(id);
+        if (removed == null) {
+            return null;
+        }
+        Slots current = slots;
+        slots = current.copy(current.keys.length(), id);
+        size--;
+        return removed;
+    }
+
+    void clear() {
+        slots = new Slots(slots.keys.length());
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return slots.keys.length();
+    }
+
+    boolean isOccupied(int index) {
+        return slots.keys.get(index) != EMPTY;
+    }
+
+    int keyAt(int index) {
+        return slots.keys.get(index);
+    }
+
+    @SuppressWarnings("unchecked")
+    V valueAt(int index) {
+        return (V) slots.values.get(index);
+    }
+
+    private static final class Slots {
+
+        private final AtomicIntegerArray keys;
+        private final AtomicReferenceArray<Object> values;
+        private final int mask;
+        private final int resizeThreshold;
+
+        private Slots(int capacity) {
+            keys = new AtomicIntegerArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                keys.lazySet(i, EMPTY);
+            }
+            values = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+            resizeThreshold = capacity >> 1;
+        }
+
+        /**
+         * Copy every entry except {@code skipId} into new arrays of the given capacity. The copy is not yet published.
+         */
+        private Slots copy(int capacity, int skipId) {
+            Slots copy = new Slots(capacity);
+            for (int i = 0; i < keys.length(); i++) {
+                int key = keys.get(i);
+                if (key != EMPTY && key != skipId) {
+                    copy.insert(key, values.get(i));
+                }
+            }
+            return copy;
+        }
+
+        // only for arrays that have not been published
+        private void insert(int id, Object value) {
+            int index = slot(id, mask);
+            while (keys.get(index) != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            keys.lazySet(index, id);
+            values.lazySet(index, value);
+        }
+    }
+
+}
@@ -11,21 +11,30 @@ import com.newrelic.agent.MetricData;
 import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.database.DatastoreMetrics;
 import com.newrelic.agent.metric.MetricName;
+import com.newrelic.agent.metric.MetricNameTable;
 import com.newrelic.agent.normalization.Normalizer;
 import com.newrelic.agent.service.ServiceFactory;
 
 import java.text.MessageFormat;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * A class for recording metric stats.
  *
+ * Stats are keyed by {@link MetricNameTable} id rather than by metric name, so merging one engine into another only
+ * hashes and compares ints. Names the table refuses to intern (because it is full) are kept in a separate map keyed by
+ * name. Stats the engine already has are found without the lock: the id comes from the table's lock-free lookup and
+ * the id map may be read while another thread writes it. Only creating stats takes the lock.
+ *
  * This class is thread-safe.
  */
 public class SimpleStatsEngine {
@@ -34,113 +43,238 @@ public class SimpleStatsEngine {
 
     public static final int DEFAULT_CAPACITY = StatsEngineImpl.DEFAULT_SCOPED_CAPACITY;
 
-    private final Map<String, StatsBase> stats;
+    // read without the lock and written while holding this, replaced when the engine is cleared so that a retired
+    // table is let go and lock-free readers never pair ids from one table with stats keyed by another
+    private volatile IdIndex index;
+    // guarded by this, created on first use
+    private Map<String, StatsBase> unindexedStats;
+
+    private final Map<String, StatsBase> statsMapView = new StatsMapView();
 
     public SimpleStatsEngine() {
         this(DEFAULT_CAPACITY);
     }
 
     public SimpleStatsEngine(int capacity) {
-        stats = new ConcurrentHashMap<>(capacity);
+        index = new IdIndex(MetricNameTable.current(), capacity);
     }
 
+    /**
+     * A live view of the stats keyed by metric name. Lookups and puts go straight to the engine; iteration works on a
+     * snapshot taken when the iterator is created.
+     */
     public Map<String, StatsBase> getStatsMap() {
-        return stats;
+        return statsMapView;
     }
 
     public Stats getStats(String metricName) {
         if (metricName == null) {
             throw new RuntimeException("Cannot get a stat for a null metric");
         }
-        StatsBase s = stats.get(metricName);
-        if (s == null) {
-            s = new StatsImpl();
-            stats.put(metricName, s);
-        }
-        if (s instanceof Stats) {
-            return (Stats) s;
-        } else {
-            String msg = MessageFormat.format("The stats object for {0} is of type {1}", metricName, s.getClass().getName());
-            throw new RuntimeException(msg);
-        }
+        return castStats(metricName, getOrCreateStats(metricName, null, StatsImpl::new), Stats.class);
+    }
+
+    public Stats getStatsByKey(MetricNameTable.Key metricKey) {
+        return castStats(metricKey.getName(), getOrCreateStats(metricKey.getName(), metricKey, StatsImpl::new), Stats.class);
     }
 
     public ResponseTimeStats getOrCreateResponseTimeStats(String metric) {
         if (metric == null) {
             throw new RuntimeException("Cannot get a stat for a null metric");
         }
-        StatsBase s = stats.get(metric);
-        if (s == null) {
-            s = new ResponseTimeStatsImpl();
-            stats.put(metric, s);
-        }
-        if (s instanceof ResponseTimeStats) {
-            return (ResponseTimeStats) s;
-        } else {
-            String msg = MessageFormat.format("The stats object for {0} is of type {1}", metric, s.getClass().getName());
-            throw new RuntimeException(msg);
-        }
+        return castStats(metric, getOrCreateStats(metric, null, ResponseTimeStatsImpl::new), ResponseTimeStats.class);
+    }
+
+    public ResponseTimeStats getOrCreateResponseTimeStatsByKey(MetricNameTable.Key metricKey) {
+        return castStats(metricKey.getName(), getOrCreateStats(metricKey.getName(), metricKey, ResponseTimeStatsImpl::new),
+                ResponseTimeStats.class);
     }
 
     public void recordEmptyStats(String metricName) {
         if (metricName == null) {
             throw new RuntimeException("Cannot record a stat for a null metric");
         }
-        stats.put(metricName, AbstractStats.EMPTY_STATS);
+        synchronized (this) {
+            put(index.table.getId(metricName), metricName, AbstractStats.EMPTY_STATS);
+        }
     }
 
     public ApdexStats getApdexStats(String metricName) {
         if (metricName == null) {
             throw new RuntimeException("Cannot get a stat for a null metric");
         }
-        StatsBase s = stats.get(metricName);
-        if (s == null) {
-            s = new ApdexStatsImpl();
-            stats.put(metricName, s);
-        }
-        if (s instanceof ApdexStats) {
-            return (ApdexStats) s;
-        } else {
-            String msg = MessageFormat.format("The stats object for {0} is of type {1}", metricName, s.getClass().getName());
-            throw new RuntimeException(msg);
-        }
+        return castStats(metricName, getOrCreateStats(metricName, null, ApdexStatsImpl::new), ApdexStats.class);
+    }
+
+    public ApdexStats getApdexStatsByKey(MetricNameTable.Key metricKey) {
+        return castStats(metricKey.getName(), getOrCreateStats(metricKey.getName(), metricKey, ApdexStatsImpl::new), ApdexStats.class);
     }
 
     public DataUsageStats getDataUsageStats(String metricName) {
         if (metricName == null) {
             throw new RuntimeException("Cannot get a stat for a null metric");
         }
-        StatsBase s = stats.get(metricName);
-        if (s == null) {
-            s = new DataUsageStatsImpl();
-            stats.put(metricName, s);
+        return castStats(metricName, getOrCreateStats(metricName, null, DataUsageStatsImpl::new), DataUsageStats.class);
+    }
+
+    private StatsBase getOrCreateStats(String metricName, MetricNameTable.Key metricKey, Supplier<StatsBase> factory) {
+        StatsBase s = find(metricName, metricKey);
+        if (s != null) {
+            return s;
         }
-        if (s instanceof DataUsageStats) {
-            return (DataUsageStats) s;
-        } else {
-            String msg = MessageFormat.format("The stats object for {0} is of type {1}", metricName, s.getClass().getName());
-            throw new RuntimeException(msg);
+        synchronized (this) {
+            MetricNameTable table = index.table;
+            int id = metricKey == null ? table.getId(metricName) : metricKey.getId(table);
+            s = get(id, metricName);
+            if (s == null) {
+                s = factory.get();
+                put(id, metricName, s);
+            }
+            return s;
         }
     }
 
+    /**
+     * Find indexed stats without taking the lock or assigning an id.
+     *
+     * @return the stats, or null if they have to be looked up (or created) while holding the lock
+     */
+    private StatsBase find(String metricName, MetricNameTable.Key metricKey) {
+        IdIndex current = index;
+        int id = metricKey == null ? current.table.findId(metricName) : metricKey.getId(current.table);
+        return id == MetricNameTable.NO_ID ? null : current.stats.get(id);
+    }
+
+    private static <T> T castStats(String metricName, StatsBase s, Class<T> type) {
+        if (type.isInstance(s)) {
+            return type.cast(s);
+        }
+        String msg = MessageFormat.format("The stats object for {0} is of type {1}", metricName, s.getClass().getName());
+        throw new RuntimeException(msg);
+    }
+
     public void mergeStats(SimpleStatsEngine other) {
-        for (Entry<String, StatsBase> entry : other.stats.entrySet()) {
-            StatsBase ourStats = stats.get(entry.getKey());
-            StatsBase otherStats = entry.getValue();
-            if (ourStats == null) {
-                stats.put(entry.getKey(), otherStats);
+        if (other == this) {
+            return;
+        }
+
+        // Copy the other engine's entries under its own lock so the two locks are never held together.
+        MetricNameTable otherTable;
+        int[] otherIds;
+        StatsBase[] otherStats;
+        Map<String, StatsBase> otherUnindexed = null;
+        synchronized (other) {
+            otherTable = other.index.table;
+            MetricIdMap<StatsBase> otherIndexed = other.index.stats;
+            otherIds = new int[otherIndexed.size()];
+            otherStats = new StatsBase[otherIds.length];
+            int count = 0;
+            for (int i = 0; i < otherIndexed.capacity(); i++) {
+                if (otherIndexed.isOccupied(i)) {
+                    otherIds[count] = otherIndexed.keyAt(i);
+                    otherStats[count] = otherIndexed.valueAt(i);
+                    count++;
+                }
+            }
+            if (other.unindexedStats != null && !other.unindexedStats.isEmpty()) {
+                otherUnindexed = new HashMap<>(other.unindexedStats);
+            }
+        }
+
+        synchronized (this) {
+            MetricNameTable table = index.table;
+            if (otherTable == table) {
+                for (int i = 0; i < otherIds.length; i++) {
+                    StatsBase ourStats = index.stats.get(otherIds[i]);
+                    if (ourStats == null) {
+                        put(otherIds[i], table.getName(otherIds[i]), otherStats[i]);
+                    } else {
+                        ourStats.merge(otherStats[i]);
+                    }
+                }
             } else {
-                ourStats.merge(otherStats);
+                // the other engine was keyed by a retired table (or we were), so its ids mean nothing here
+                for (int i = 0; i < otherIds.length; i++) {
+                    mergeByName(otherTable.getName(otherIds[i]), otherStats[i]);
+                }
+            }
+            if (otherUnindexed != null) {
+                for (Entry<String, StatsBase> entry : otherUnindexed.entrySet()) {
+                    mergeByName(entry.getKey(), entry.getValue());
+                }
             }
         }
     }
 
-    public void clear() {
-        stats.clear();
+    // must hold this
+    private void mergeByName(String metricName, StatsBase otherStats) {
+        int id = index.table.getId(metricName);
+        StatsBase ourStats = get(id, metricName);
+        if (ourStats == null) {
+            put(id, metricName, otherStats);
+        } else {
+            ourStats.merge(otherStats);
+        }
+    }
+
+    public synchronized void clear() {
+        MetricIdMap<StatsBase> stats = index.stats;
+        index = new IdIndex(MetricNameTable.current(), stats.capacity() >> 1);
+        if (unindexedStats != null) {
+            unindexedStats.clear();
+        }
     }
 
-    public int getSize() {
-        return stats.size();
+    public synchronized int getSize() {
+        return index.stats.size() + (unindexedStats == null ? 0 : unindexedStats.size());
+    }
+
+    // must hold this
+    private StatsBase get(int id, String metricName) {
+        if (id == MetricNameTable.NO_ID) {
+            return unindexedStats == null ? null : unindexedStats.get(metricName);
+        }
+        return index.stats.get(id);
+    }
+
+    // must hold this
+    private StatsBase put(int id, String metricName, StatsBase statsBase) {
+        if (id == MetricNameTable.NO_ID) {
+            return getUnindexedStats().put(metricName, statsBase);
+        }
+        return index.stats.put(id, statsBase);
+    }
+
+    // must hold this
+    private StatsBase remove(int id, String metricName) {
+        if (id == MetricNameTable.NO_ID) {
+            return unindexedStats == null ? null : unindexedStats.remove(metricName);
+        }
+        return index.stats.remove(id);
+    }
+
+    // must hold this
+    private Map<String, StatsBase> getUnindexedStats() {
+        if (unindexedStats == null) {
+            unindexedStats = new HashMap<>();
+        }
+        return unindexedStats;
+    }
+
+    // must hold this
+    private Map<String, StatsBase> copyStatsByName() {
+        Map<String, StatsBase> copy = new HashMap<>(getSize() * 2);
+        MetricNameTable table = index.table;
+        MetricIdMap<StatsBase> stats = index.stats;
+        for (int i = 0; i < stats.capacity(); i++) {
+            if (stats.isOccupied(i)) {
+                copy.put(table.getName(stats.keyAt(i)), stats.valueAt(i));
+            }
+        }
+        if (unindexedStats != null) {
+            copy.putAll(unindexedStats);
+        }
+        return copy;
     }
 
     /**
@@ -151,14 +285,18 @@ public class SimpleStatsEngine {
      * @return The list of metric data generated from the internal stats object.
      */
     public List<MetricData> getMetricData(Normalizer metricNormalizer, String scope) {
-        List<MetricData> result = new ArrayList<>(stats.size() + 1); // +1 for Java/other
         boolean isTrimStats = ServiceFactory.getConfigService().getDefaultAgentConfig().isTrimStats();
 
-        if (isTrimStats && !scope.equals(MetricName.EMPTY_SCOPE)) {
-            trimStats();
+        Map<String, StatsBase> statsByName;
+        synchronized (this) {
+            if (isTrimStats && !scope.equals(MetricName.EMPTY_SCOPE)) {
+                trimStats();
+            }
+            statsByName = copyStatsByName();
         }
 
-        for (Entry<String, StatsBase> entry : stats.entrySet()) {
+        List<MetricData> result = new ArrayList<>(statsByName.size() + 1); // +1 for Java/other
+        for (Entry<String, StatsBase> entry : statsByName.entrySet()) {
             MetricName metricName = MetricName.create(entry.getKey(), scope);
             MetricData metricData = createMetricData(metricName, entry.getValue(), metricNormalizer);
             if (metricData != null) {
@@ -187,9 +325,11 @@ public class SimpleStatsEngine {
         return MetricData.create(normalizedMetricName, statsBase);
     }
 
+    // must hold this
     private void trimStats() {
+        Map<String, StatsBase> statsByName = copyStatsByName();
         float totalTime = 0;
-        for (StatsBase statsBase : stats.values()) {
+        for (StatsBase statsBase : statsByName.values()) {
             ResponseTimeStats stats = (ResponseTimeStats) statsBase;
             totalTime += stats.getTotalExclusiveTime();
         }
@@ -197,7 +337,7 @@ public class SimpleStatsEngine {
         ResponseTimeStatsImpl other = null;
         float threshold = totalTime * SCOPED_METRIC_THRESHOLD;
         Set<String> remove = new HashSet<>();
-        for (Entry<String, StatsBase> entry : stats.entrySet()) {
+        for (Entry<String, StatsBase> entry : statsByName.entrySet()) {
             ResponseTimeStatsImpl statsObj = (ResponseTimeStatsImpl) entry.getValue();
             if (statsObj.getTotalExclusiveTime() < threshold && trimmableMetric(entry.getKey())) {
                 if (other == null) {
@@ -209,9 +349,10 @@ public class SimpleStatsEngine {
             }
         }
         if (other != null) {
-            stats.put(MetricNames.JAVA_OTHER, other);
+            MetricNameTable table = index.table;
+            put(table.getId(MetricNames.JAVA_OTHER), MetricNames.JAVA_OTHER, other);
             for (String name : remove) {
-                stats.remove(name);
+                remove(table.findId(name), name);
             }
         }
     }
@@ -224,7 +365,85 @@ public class SimpleStatsEngine {
 
     @Override
     public String toString() {
-        return "SimpleStatsEngine [stats=" + stats + "]";
+        return "SimpleStatsEngine [stats=" + statsMapView + "]";
+    }
+
+    private final class StatsMapView extends AbstractMap<String, StatsBase> {
+
+        @Override
+        public StatsBase get(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            String metricName = (String) key;
+            StatsBase s = find(metricName, null);
+            if (s != null) {
+                return s;
+            }
+            synchronized (SimpleStatsEngine.this) {
+                // look the id up without assigning one: a name the table has never seen can only be unindexed
+                return SimpleStatsEngine.this.get(index.table.findId(metricName), metricName);
+            }
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public StatsBase put(String key, StatsBase value) {
+            if (key == null || value == null) {
+                throw new NullPointerException();
+            }
+            synchronized (SimpleStatsEngine.this) {
+                return SimpleStatsEngine.this.put(index.table.getId(key), key, value);
+            }
+        }
+
+        @Override
+        public StatsBase remove(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            synchronized (SimpleStatsEngine.this) {
+                // look the id up without assigning one: a name the table has never seen is not in this engine either
+                return SimpleStatsEngine.this.remove(index.table.findId((String) key), (String) key);
+            }
+        }
+
+        @Override
+        public int size() {
+            return getSize();
+        }
+
+        @Override
+        public void clear() {
+            SimpleStatsEngine.this.clear();
+        }
+
+        @Override
+        public Set<Entry<String, StatsBase>> entrySet() {
+            Map<String, StatsBase> snapshot;
+            synchronized (SimpleStatsEngine.this) {
+                snapshot = copyStatsByName();
+            }
+            return Collections.unmodifiableMap(snapshot).entrySet();
+        }
+    }
+
+    /**
+     * The table ids come from and the stats keyed by them, published together.
+     */
+    private static final class IdIndex {
+
+        private final MetricNameTable table;
+        private final MetricIdMap<StatsBase> stats;
+
+        private IdIndex(MetricNameTable table, int capacity) {
+            this.table = table;
+            this.stats = new MetricIdMap<>(capacity);
+        }
     }
 
 }
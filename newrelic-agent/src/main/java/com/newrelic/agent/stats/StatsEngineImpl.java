@@ -10,6 +10,7 @@ package com.newrelic.agent.stats;
 import com.newrelic.agent.Agent;
 import com.newrelic.agent.MetricData;
 import com.newrelic.agent.metric.MetricName;
+import com.newrelic.agent.metric.MetricNameTable;
 import com.newrelic.agent.normalization.Normalizer;
 
 import java.util.ArrayList;
@@ -35,7 +36,12 @@ public class StatsEngineImpl implements StatsEngine {
     public static final int DOUBLE = 2;
 
     private final SimpleStatsEngine unscopedStats;
-    private final Map<String, SimpleStatsEngine> scopedStats;
+    // the table scope ids come from, replaced when the engine is cleared
+    private MetricNameTable table = MetricNameTable.current();
+    // keyed by the MetricNameTable id of the scope
+    private final MetricIdMap<SimpleStatsEngine> scopedStats;
+    // scopes that could not be interned, created on first use
+    private Map<String, SimpleStatsEngine> unindexedScopedStats;
 
     public StatsEngineImpl() {
         this(DEFAULT_CAPACITY);
@@ -43,7 +49,7 @@ public class StatsEngineImpl implements StatsEngine {
 
     public StatsEngineImpl(int capacity) {
         unscopedStats = new SimpleStatsEngine(capacity);
-        scopedStats = new HashMap<>(capacity);
+        scopedStats = new MetricIdMap<>(capacity);
     }
 
     public SimpleStatsEngine getUnscopedStatsForTesting() {
@@ -51,7 +57,41 @@ public class StatsEngineImpl implements StatsEngine {
     }
 
     public Map<String, SimpleStatsEngine> getScopedStatsForTesting() {
-        return scopedStats;
+        return getScopedStatsByName();
+    }
+
+    private Map<String, SimpleStatsEngine> getScopedStatsByName() {
+        Map<String, SimpleStatsEngine> result = new HashMap<>();
+        for (int i = 0; i < scopedStats.capacity(); i++) {
+            if (scopedStats.isOccupied(i)) {
+                result.put(table.getName(scopedStats.keyAt(i)), scopedStats.valueAt(i));
+            }
+        }
+        if (unindexedScopedStats != null) {
+            result.putAll(unindexedScopedStats);
+        }
+        return result;
+    }
+
+    private SimpleStatsEngine getOrCreateScopedStatsEngine(String scope, int capacity) {
+        int id = table.getId(scope);
+        if (id == MetricNameTable.NO_ID) {
+            if (unindexedScopedStats == null) {
+                unindexedScopedStats = new HashMap<>();
+            }
+            SimpleStatsEngine statsEngine = unindexedScopedStats.get(scope);
+            if (statsEngine == null) {
+                statsEngine = new SimpleStatsEngine(capacity);
+                unindexedScopedStats.put(scope, statsEngine);
+            }
+            return statsEngine;
+        }
+        SimpleStatsEngine statsEngine = scopedStats.get(id);
+        if (statsEngine == null) {
+            statsEngine = new SimpleStatsEngine(capacity);
+            scopedStats.put(id, statsEngine);
+        }
+        return statsEngine;
     }
 
     @Override
@@ -82,12 +122,7 @@ public class StatsEngineImpl implements StatsEngine {
 
     private SimpleStatsEngine getStatsEngine(MetricName metricName) {
         if (metricName.isScoped()) {
-            SimpleStatsEngine statsEngine = scopedStats.get(metricName.getScope());
-            if (statsEngine == null) {
-                statsEngine = new SimpleStatsEngine(DEFAULT_SCOPED_CAPACITY);
-                scopedStats.put(metricName.getScope(), statsEngine);
-            }
-            return statsEngine;
+            return getOrCreateScopedStatsEngine(metricName.getScope(), DEFAULT_SCOPED_CAPACITY);
         } else {
             return unscopedStats;
         }
@@ -128,7 +163,7 @@ public class StatsEngineImpl implements StatsEngine {
         for (String name : unscopedStats.getStatsMap().keySet()) {
             result.add(MetricName.create(name));
         }
-        for (Entry<String, SimpleStatsEngine> entry : scopedStats.entrySet()) {
+        for (Entry<String, SimpleStatsEngine> entry : getScopedStatsByName().entrySet()) {
             for (String name : entry.getValue().getStatsMap().keySet()) {
                 result.add(MetricName.create(name, entry.getKey()));
             }
@@ -140,6 +175,8 @@ public class StatsEngineImpl implements StatsEngine {
     public void clear() {
         unscopedStats.clear();
         scopedStats.clear();
+        unindexedScopedStats = null;
+        table = MetricNameTable.current();
     }
 
     /**
@@ -147,9 +184,16 @@ public class StatsEngineImpl implements StatsEngine {
      */
     @Override
     public int getSize() {
-        int size = unscopedStats.getStatsMap().size();
-        for (SimpleStatsEngine engine : scopedStats.values()) {
-            size += engine.getStatsMap().size();
+        int size = unscopedStats.getSize();
+        for (int i = 0; i < scopedStats.capacity(); i++) {
+            if (scopedStats.isOccupied(i)) {
+                size += scopedStats.valueAt(i).getSize();
+            }
+        }
+        if (unindexedScopedStats != null) {
+            for (SimpleStatsEngine engine : unindexedScopedStats.values()) {
+                size += engine.getSize();
+            }
         }
         return size;
     }
@@ -163,13 +207,28 @@ public class StatsEngineImpl implements StatsEngine {
 
     private void mergeStats(StatsEngineImpl other) {
         unscopedStats.mergeStats(other.unscopedStats);
-        for (Entry<String, SimpleStatsEngine> entry : other.scopedStats.entrySet()) {
-            SimpleStatsEngine scopedStatsEngine = scopedStats.get(entry.getKey());
-            if (scopedStatsEngine == null) {
-                scopedStatsEngine = new SimpleStatsEngine(entry.getValue().getSize());
-                scopedStats.put(entry.getKey(), scopedStatsEngine);
+        for (int i = 0; i < other.scopedStats.capacity(); i++) {
+            if (other.scopedStats.isOccupied(i)) {
+                int id = other.scopedStats.keyAt(i);
+                SimpleStatsEngine otherStatsEngine = other.scopedStats.valueAt(i);
+                if (other.table != table) {
+                    // scope ids from a retired table mean nothing here
+                    String scope = other.table.getName(id);
+                    getOrCreateScopedStatsEngine(scope, otherStatsEngine.getSize()).mergeStats(otherStatsEngine);
+                    continue;
+                }
+                SimpleStatsEngine scopedStatsEngine = scopedStats.get(id);
+                if (scopedStatsEngine == null) {
+                    scopedStatsEngine = new SimpleStatsEngine(otherStatsEngine.getSize());
+                    scopedStats.put(id, scopedStatsEngine);
+                }
+                scopedStatsEngine.mergeStats(otherStatsEngine);
+            }
+        }
+        if (other.unindexedScopedStats != null) {
+            for (Entry<String, SimpleStatsEngine> entry : other.unindexedScopedStats.entrySet()) {
+                getOrCreateScopedStatsEngine(entry.getKey(), entry.getValue().getSize()).mergeStats(entry.getValue());
             }
-            scopedStatsEngine.mergeStats(entry.getValue());
         }
     }
 
@@ -179,18 +238,15 @@ public class StatsEngineImpl implements StatsEngine {
         if (resolvedScope == null) {
             return;
         }
-        SimpleStatsEngine scopedStatsEngine = scopedStats.get(resolvedScope);
-        if (scopedStatsEngine == null) {
-            scopedStatsEngine = new SimpleStatsEngine(txStats.getScopedStats().getSize());
-            scopedStats.put(resolvedScope, scopedStatsEngine);
-        }
+        SimpleStatsEngine scopedStatsEngine = getOrCreateScopedStatsEngine(resolvedScope, txStats.getScopedStats().getSize());
         scopedStatsEngine.mergeStats(txStats.getScopedStats());
     }
 
     @Override
     public List<MetricData> getMetricData(Normalizer metricNormalizer) {
-        List<MetricData> result = new ArrayList<>(unscopedStats.getStatsMap().size() + (scopedStats.size() * DEFAULT_SCOPED_CAPACITY * DOUBLE));
-        for (Entry<String, SimpleStatsEngine> entry : scopedStats.entrySet()) {
+        Map<String, SimpleStatsEngine> scopedStatsByName = getScopedStatsByName();
+        List<MetricData> result = new ArrayList<>(unscopedStats.getSize() + (scopedStatsByName.size() * DEFAULT_SCOPED_CAPACITY * DOUBLE));
+        for (Entry<String, SimpleStatsEngine> entry : scopedStatsByName.entrySet()) {
             result.addAll(entry.getValue().getMetricData(metricNormalizer, entry.getKey()));
         }
         // add the unscoped to match the scoped
@@ -8,6 +8,7 @@
 package com.newrelic.agent.stats;
 
 import com.newrelic.agent.Agent;
+import com.newrelic.agent.config.AgentConfig;
 import com.newrelic.agent.service.AbstractService;
 import com.newrelic.agent.service.ServiceFactory;
 import com.newrelic.agent.service.StatsServiceMetricAggregator;
@@ -29,15 +30,25 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * This class is thread-safe.
  */
 public class StatsServiceImpl extends AbstractService implements StatsService {
+
+    /**
+     * When enabled, stats work is aggregated into per-stripe {@link StatsEngine}s without taking any locks on the
+     * request thread. See {@link StripedStatsEngineQueue}.
+     */
+    static final String STRIPED_AGGREGATION_ENABLED = "stats_service.striped_aggregation.enabled";
+
     private final MetricAggregator metricAggregator = new StatsServiceMetricAggregator(this);
 
     private final ConcurrentMap<String, StatsEngineQueue> statsEngineQueues = new ConcurrentHashMap<>();
     private volatile StatsEngineQueue defaultStatsEngineQueue;
     private final String defaultAppName;
+    private final boolean stripedAggregation;
 
     public StatsServiceImpl() {
         super(StatsService.class.getSimpleName());
-        defaultAppName = ServiceFactory.getConfigService().getDefaultAgentConfig().getApplicationName();
+        AgentConfig config = ServiceFactory.getConfigService().getDefaultAgentConfig();
+        defaultAppName = config.getApplicationName();
+        stripedAggregation = config.getValue(STRIPED_AGGREGATION_ENABLED, Boolean.FALSE);
         defaultStatsEngineQueue = createStatsEngineQueue();
     }
 
@@ -105,10 +116,23 @@ public class StatsServiceImpl extends AbstractService implements StatsService {
     }
 
     private StatsEngineQueue createStatsEngineQueue() {
-        return new StatsEngineQueue();
+        return stripedAggregation ? new StripedStatsEngineQueue() : new LockingStatsEngineQueue();
+    }
+
+    /**
+     * Holds the stats engines for one application for a single harvest cycle.
+     */
+    interface StatsEngineQueue {
+
+        /**
+         * @return false if this queue has already been harvested and the work must be retried on its replacement
+         */
+        boolean doStatsWork(StatsWork work);
+
+        StatsEngine getStatsEngineForHarvest();
     }
 
-    private static class StatsEngineQueue {
+    private static class LockingStatsEngineQueue implements StatsEngineQueue {
 
         private final Lock readLock;
         private final Lock writeLock;
@@ -117,12 +141,13 @@ public class StatsServiceImpl extends AbstractService implements StatsService {
         // reference is guarded by readLock + writeLock
         private ConcurrentLinkedQueue<StatsEngine> statsEngineQueue = new ConcurrentLinkedQueue<>();
 
-        private StatsEngineQueue() {
+        private LockingStatsEngineQueue() {
             ReadWriteLock lock = new ReentrantReadWriteLock();
             readLock = lock.readLock();
             writeLock = lock.writeLock();
         }
 
+        @Override
         public boolean doStatsWork(StatsWork work) {
             if (readLock.tryLock()) {
                 try {
@@ -170,6 +195,7 @@ public class StatsServiceImpl extends AbstractService implements StatsService {
             }
         }
 
+        @Override
         public StatsEngine getStatsEngineForHarvest() {
             final Queue<StatsEngine> statsEngineQueue;
             writeLock.lock();
@@ -28,4 +28,8 @@ public class StatsWorks {
     public static StatsWork getRecordResponseTimeWork(String name, long millis) {
         return new RecordResponseTimeMetric(millis, name, TimeUnit.MILLISECONDS);
     }
+
+    public static StatsWork getRecordResponseTimeWork(String name, long duration, TimeUnit timeUnit) {
+        return new RecordResponseTimeMetric(duration, name, timeUnit);
+    }
 }
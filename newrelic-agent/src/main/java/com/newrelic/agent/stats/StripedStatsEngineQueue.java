@@ -0,0 +1,166 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.stats;
+
+import com.newrelic.agent.Agent;
+
+import java.text.MessageFormat;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link StatsServiceImpl.StatsEngineQueue} that shards {@link StatsEngine}s across a fixed number of stripes.
+ *
+ * Request threads claim the engine in their home stripe with a single atomic swap, so two threads only meet when they
+ * hash to the same stripe, and even then the loser moves on to a neighbouring stripe rather than blocking. No locks are
+ * taken on the {@link #doStatsWork(StatsWork)} path, and in-flight work is counted per home stripe so request threads do
+ * not share a counter either. The harvest thread closes the queue, waits for in-flight work to drain and merges every
+ * engine that was ever created.
+ *
+ * Each instance is used for a single harvest cycle: once {@link #getStatsEngineForHarvest()} has been called,
+ * {@link #doStatsWork(StatsWork)} returns false so the caller retries against the replacement queue.
+ *
+ * This class is thread-safe.
+ */
+class StripedStatsEngineQueue implements StatsServiceImpl.StatsEngineQueue {
+
+    private static final int MAX_STRIPES = 256;
+    // 32 ints = 128 bytes between the worker counts of two stripes, so they never share a cache line
+    private static final int WORKERS_SPACING = 32;
+
+    private final int mask;
+    private final AtomicReferenceArray<StatsEngine> stripes;
+    // the number of threads doing work, by home stripe, at index stripe * WORKERS_SPACING
+    private final AtomicIntegerArray activeWorkers;
+
+    // every engine created by this queue, whether or not it currently sits in a stripe
+    private final Queue<StatsEngine> allStatsEngines = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger statsEngineCount = new AtomicInteger();
+    private volatile boolean harvested = false;
+
+    StripedStatsEngineQueue() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    StripedStatsEngineQueue(int stripeCount) {
+        int size = 1;
+        while (size < stripeCount && size < MAX_STRIPES) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        stripes = new AtomicReferenceArray<>(size);
+        activeWorkers = new AtomicIntegerArray(size * WORKERS_SPACING);
+    }
+
+    @Override
+    public boolean doStatsWork(StatsWork work) {
+        int home = stripeIndex();
+        int workers = home * WORKERS_SPACING;
+        activeWorkers.incrementAndGet(workers);
+        try {
+            // The increment above happens before this read, and the harvest thread sets the flag before it reads the
+            // worker counts, so either we see the flag or the harvest thread waits for us.
+            if (harvested) {
+                return false;
+            }
+            doStatsWorkInStripe(work, home);
+            return true;
+        } finally {
+            activeWorkers.decrementAndGet(workers);
+        }
+    }
+
+    private void doStatsWorkInStripe(StatsWork work, int home) {
+        StatsEngine statsEngine = null;
+        int index = home;
+        for (int i = 0; i <= mask; i++) {
+            statsEngine = stripes.getAndSet(index, null);
+            if (statsEngine != null) {
+                break;
+            }
+            index = (index + 1) & mask;
+        }
+        if (statsEngine == null) {
+            statsEngine = createStatsEngine();
+            index = home;
+        }
+
+        try {
+            work.doWork(statsEngine);
+        } catch (Exception e) {
+            String msg = MessageFormat.format("Exception doing stats work: {0}", e);
+            Agent.LOG.warning(msg);
+        } finally {
+            returnStatsEngine(index, statsEngine);
+        }
+    }
+
+    private void returnStatsEngine(int index, StatsEngine statsEngine) {
+        for (int i = 0; i <= mask; i++) {
+            if (stripes.compareAndSet(index, null, statsEngine)) {
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        // Every stripe is occupied. The engine is still tracked in allStatsEngines so its data is merged at harvest;
+        // it just won't be handed out again during this cycle.
+    }
+
+    private int stripeIndex() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32));
+        hash ^= (hash >>> 16);
+        hash *= 0x85ebca6b;
+        hash ^= (hash >>> 13);
+        return hash & mask;
+    }
+
+    private StatsEngine createStatsEngine() {
+        StatsEngine statsEngine = new StatsEngineImpl();
+        allStatsEngines.add(statsEngine);
+        statsEngineCount.incrementAndGet();
+        return statsEngine;
+    }
+
+    @Override
+    public StatsEngine getStatsEngineForHarvest() {
+        harvested = true;
+
+        // Only work that started before the flag was set can still be running. It does not block on anything,
+        // so this wait is bounded by the duration of a single StatsWork.
+        for (int i = 0; i < activeWorkers.length(); i += WORKERS_SPACING) {
+            while (activeWorkers.get(i) != 0) {
+                Thread.yield();
+            }
+        }
+
+        StatsEngine harvestStatsEngine = new StatsEngineImpl();
+        int actualStatsEngineCount = 0;
+        for (StatsEngine statsEngine : allStatsEngines) {
+            harvestStatsEngine.mergeStats(statsEngine);
+            actualStatsEngineCount++;
+        }
+
+        final int expectedStatsEngineCount = statsEngineCount.get();
+        if (actualStatsEngineCount != expectedStatsEngineCount) {
+            String msg = MessageFormat.format("Error draining striped stats engines. Expected: {0} actual: {1}",
+                    expectedStatsEngineCount, actualStatsEngineCount);
+            Agent.LOG.warning(msg);
+        }
+
+        return harvestStatsEngine;
+    }
+
+    int getStripeCount() {
+        return mask + 1;
+    }
+
+}
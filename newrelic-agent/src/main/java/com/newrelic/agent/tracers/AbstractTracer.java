@@ -31,7 +31,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.logging.Level;
 
 /**
@@ -43,6 +44,23 @@ public abstract class AbstractTracer implements Tracer, AttributeHolder {
     static final int INITIAL_PARAMETER_SET_SIZE = 5;
     protected static final String ATTRIBUTE_TYPE = "custom";
 
+    /**
+     * Tracers never change the transactional setting of their validator, so tracers that validate custom attributes
+     * share one instead of allocating a validator per traced method.
+     */
+    static final AttributeValidator CUSTOM_ATTRIBUTE_VALIDATOR = new AttributeValidator(ATTRIBUTE_TYPE);
+
+    /**
+     * The value of {@link #finishTime} until {@link #markFinishTime()} is called.
+     */
+    static final long FINISH_TIME_NOT_MARKED = Long.MIN_VALUE;
+
+    // Field updaters rather than AtomicReference fields save two allocations for every tracer.
+    private static final AtomicReferenceFieldUpdater<AbstractTracer, TracedException> TRACER_ERROR_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(AbstractTracer.class, TracedException.class, "tracerError");
+    private static final AtomicLongFieldUpdater<AbstractTracer> FINISH_TIME_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(AbstractTracer.class, "finishTime");
+
     private final TransactionActivity transactionActivity;
     private AttributeValidator attributeValidator;
     private Set<String> rollupMetricNames;
@@ -54,10 +72,11 @@ public abstract class AbstractTracer implements Tracer, AttributeHolder {
     // doesn't need to be thread safe since this flag affects the decision to registerAsync
     private Boolean trackChildThreads = null;
     private Boolean trackCallBackRunnable = false;
-    private AtomicReference<TracedException> tracerError = new AtomicReference<>(TracedException.NO_EXCEPTION);
+    private volatile TracedException tracerError = TracedException.NO_EXCEPTION;
 
     private final long startTimeInMillis;
-    AtomicReference<Long> finishTime = new AtomicReference<>(null);
+    // set by markFinishTime(), FINISH_TIME_NOT_MARKED until then
+    volatile long finishTime = FINISH_TIME_NOT_MARKED;
     private final String ATTRIBUTE_API_METHOD_NAME = "TracedMethod.addCustomAttributes";
 
     // Tracers MUST NOT store references to the Transaction. Why: tracers are stored in the TransactionActivity,
@@ -69,7 +88,7 @@ public abstract class AbstractTracer implements Tracer, AttributeHolder {
      * @param transaction the transaction that owns the activity on the current thread. Must not be null.
      */
     public AbstractTracer(Transaction transaction) {
-        this(transaction.getTransactionActivity(), new AttributeValidator(ATTRIBUTE_TYPE));
+        this(transaction.getTransactionActivity(), CUSTOM_ATTRIBUTE_VALIDATOR);
     }
 
     /**
@@ -275,7 +294,7 @@ public abstract class AbstractTracer implements Tracer, AttributeHolder {
 
     @Override
     public void markFinishTime() {
-        finishTime.compareAndSet(null, System.nanoTime());
+        FINISH_TIME_UPDATER.compareAndSet(this, FINISH_TIME_NOT_MARKED, System.nanoTime());
     }
 
     @Override
@@ -290,22 +309,22 @@ public abstract class AbstractTracer implements Tracer, AttributeHolder {
 
     @Override
     public void setNoticedError(Throwable throwable) {
-        tracerError.compareAndSet(TracedException.NO_EXCEPTION, new TracedException(TransactionErrorPriority.API, throwable));
+        TRACER_ERROR_UPDATER.compareAndSet(this, TracedException.NO_EXCEPTION, new TracedException(TransactionErrorPriority.API, throwable));
     }
 
     @Override
     public void setThrownException(Throwable throwable) {
-        tracerError.compareAndSet(TracedException.NO_EXCEPTION, new TracedException(TransactionErrorPriority.TRACER, throwable));
+        TRACER_ERROR_UPDATER.compareAndSet(this, TracedException.NO_EXCEPTION, new TracedException(TransactionErrorPriority.TRACER, throwable));
     }
 
     @Override
     public boolean wasExceptionSetByAPI() {
-        return tracerError.get().getPriority() == TransactionErrorPriority.API;
+        return tracerError.getPriority() == TransactionErrorPriority.API;
     }
 
     @Override
     public Throwable getException() {
-        return tracerError.get().getException();
+        return tracerError.getException();
     }
 
     @Override
@@ -343,7 +362,7 @@ public abstract class AbstractTracer implements Tracer, AttributeHolder {
         }
     }
 
-    private boolean shouldAddAttribute() {
+    boolean shouldAddAttribute() {
         return getTransaction() != null && !getTransaction().getTransactionCounts().isOverTracerSegmentLimit();
     }
 
@@ -366,6 +385,8 @@ public abstract class AbstractTracer implements Tracer, AttributeHolder {
             }
             customAttributes.put(key, value);
         } else {
+            // deferred attributes go first, so that an attribute set later replaces them as it did before
+            materializeAgentAttributes();
             if (agentAttributes == null) {
                 agentAttributes = new HashMap<>(1, INITIAL_PARAMETER_MAP_SIZE);
             }
@@ -379,6 +400,13 @@ public abstract class AbstractTracer implements Tracer, AttributeHolder {
         }
     }
 
+    /**
+     * Put agent attributes that a subclass deferred into the agent attribute map. Called before the map is read or
+     * changed, so subclasses can set attributes that are rarely read without allocating the map.
+     */
+    void materializeAgentAttributes() {
+    }
+
     static int sizeof(Object value) {
         int size = 0;
         if (value == null) {
@@ -409,6 +437,7 @@ public abstract class AbstractTracer implements Tracer, AttributeHolder {
 
     @Override
     public void removeAgentAttribute(String key) {
+        materializeAgentAttributes();
         if (agentAttributes != null) {
             agentAttributes.remove(key);
         }
@@ -416,11 +445,13 @@ public abstract class AbstractTracer implements Tracer, AttributeHolder {
 
     @Override
     public Object getAgentAttribute(String key) {
+        materializeAgentAttributes();
         return ((agentAttributes == null) ? null : agentAttributes.get(key));
     }
 
     @Override
     public Map<String, Object> getAgentAttributes() {
+        materializeAgentAttributes();
         if (agentAttributes == null) {
             return Collections.emptyMap();
         }
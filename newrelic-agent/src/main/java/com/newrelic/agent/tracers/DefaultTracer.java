@@ -12,7 +12,6 @@ import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.Transaction;
 import com.newrelic.agent.TransactionActivity;
 import com.newrelic.agent.attributes.AttributeNames;
-import com.newrelic.agent.attributes.AttributeValidator;
 import com.newrelic.agent.bridge.external.ExternalMetrics;
 import com.newrelic.agent.config.AgentConfigImpl;
 import com.newrelic.agent.config.DatastoreConfig;
@@ -26,6 +25,7 @@ import com.newrelic.agent.trace.TransactionGuidFactory;
 import com.newrelic.agent.trace.TransactionSegment;
 import com.newrelic.agent.tracers.metricname.MetricNameFormat;
 import com.newrelic.agent.tracers.metricname.SimpleMetricNameFormat;
+import com.newrelic.agent.util.Backtrace;
 import com.newrelic.agent.util.ExternalsUtil;
 import com.newrelic.agent.util.Strings;
 import com.newrelic.api.agent.CloudParameters;
@@ -70,7 +70,6 @@ public class DefaultTracer extends AbstractTracer {
             | TracerFlags.GENERATE_SCOPED_METRIC;
 
     private final long startTime;
-    private final long timestamp;
     private long duration;
     private long exclusiveDuration;
     private Tracer parentTracer;
@@ -91,6 +90,10 @@ public class DefaultTracer extends AbstractTracer {
     private byte tracerFlags;
     private int childCount = 0;
 
+    // attributes set at finish that are only put in the agent attributes map if it is read
+    private boolean threadIdPending;
+    private boolean codeLevelMetricsPending;
+
     // values applied at the finish of the tracer
     private ExternalParameters externalParameters = null;
     private InboundHeaders inboundResponseHeaders = null;
@@ -132,13 +135,21 @@ public class DefaultTracer extends AbstractTracer {
      */
     public DefaultTracer(TransactionActivity txa, ClassMethodSignature sig, Object object,
             MetricNameFormat metricNameFormatter, int tracerFlags, long pStartTime) {
-        super(txa, new AttributeValidator(ATTRIBUTE_TYPE));
+        this(txa, txa.getLastTracer(), sig, object, metricNameFormatter, tracerFlags, pStartTime);
+    }
+
+    /**
+     * Constructor for a tracer that takes the place of a {@link PooledTracer} already on the stack, so the parent is
+     * the parent of the pooled tracer rather than the last tracer of the activity.
+     */
+    DefaultTracer(TransactionActivity txa, Tracer parent, ClassMethodSignature sig, Object object,
+            MetricNameFormat metricNameFormatter, int tracerFlags, long pStartTime) {
+        super(txa, CUSTOM_ATTRIBUTE_VALIDATOR);
         metricNameFormat = metricNameFormatter;
         classMethodSignature = sig;
         startTime = pStartTime;
-        timestamp = System.currentTimeMillis();
         invocationTarget = object;
-        parentTracer = txa.getLastTracer();
+        parentTracer = parent;
         if (!txa.canCreateTransactionSegment()) {
             // Over segment limit; prevent segment creation.
             tracerFlags = TracerFlags.clearSegment(tracerFlags);
@@ -234,7 +245,28 @@ public class DefaultTracer extends AbstractTracer {
             return;
         }
 
-        performFinishWork(finishTime.get() == null ? System.nanoTime() : finishTime.get(), opcode, returnValue);
+        long markedFinishTime = finishTime;
+        performFinishWork(markedFinishTime == FINISH_TIME_NOT_MARKED ? System.nanoTime() : markedFinishTime, opcode,
+                returnValue);
+    }
+
+    @Override
+    void materializeAgentAttributes() {
+        boolean addThreadId = threadIdPending;
+        boolean addCodeLevelMetrics = codeLevelMetricsPending;
+        if (!addThreadId && !addCodeLevelMetrics) {
+            return;
+        }
+        threadIdPending = false;
+        codeLevelMetricsPending = false;
+        // the sizes were counted when the tracer finished
+        if (addThreadId) {
+            setAttribute(AttributeNames.THREAD_ID, getTransactionActivity().getThreadId(), false, false, false);
+        }
+        if (addCodeLevelMetrics) {
+            setAttribute(AttributeNames.CLM_NAMESPACE, classMethodSignature.getClassName(), false, false, false);
+            setAttribute(AttributeNames.CLM_FUNCTION, classMethodSignature.getMethodName(), false, false, false);
+        }
     }
 
     // this is public for testing - do not call directly unless testing
@@ -291,16 +323,20 @@ public class DefaultTracer extends AbstractTracer {
             }
 
             try {
-                setAgentAttribute(AttributeNames.THREAD_ID, getTransactionActivity().getThreadId());
-                if (classMethodSignature != null && getTransaction() != null &&
-                        ServiceFactory.getConfigService().getDefaultAgentConfig().getCodeLevelMetricsConfig().isEnabled()) {
-                    String className = classMethodSignature.getClassName();
-                    String methodName = classMethodSignature.getMethodName();
-
-                    // tracers created by the API will only have the className and should be ignored
-                    if (StringUtils.isNotEmpty(className) && StringUtils.isNotEmpty(methodName)) {
-                        setAgentAttribute(AttributeNames.CLM_NAMESPACE, className);
-                        setAgentAttribute(AttributeNames.CLM_FUNCTION, methodName);
+                // most tracers are never read by a transaction trace or span event, so these attributes are counted
+                // against the transaction now but only put in the map by materializeAgentAttributes()
+                if (shouldAddAttribute()) {
+                    threadIdPending = true;
+                    if (classMethodSignature != null &&
+                            ServiceFactory.getConfigService().getDefaultAgentConfig().getCodeLevelMetricsConfig().isEnabled()) {
+                        String className = classMethodSignature.getClassName();
+                        String methodName = classMethodSignature.getMethodName();
+
+                        // tracers created by the API will only have the className and should be ignored
+                        if (StringUtils.isNotEmpty(className) && StringUtils.isNotEmpty(methodName)) {
+                            getTransaction().getTransactionCounts().incrementSize(sizeof(className) + sizeof(methodName));
+                            codeLevelMetricsPending = true;
+                        }
                     }
                 }
             } catch (Throwable t) {
@@ -327,11 +363,6 @@ public class DefaultTracer extends AbstractTracer {
         }
     }
 
-    @Override
-    public long getStartTimeInMillis() {
-        return timestamp;
-    }
-
     @Override
     public ExternalParameters getExternalParameters() {
         return externalParameters;
@@ -378,7 +409,10 @@ public class DefaultTracer extends AbstractTracer {
      * unless you are in a test.
      */
     public void storeStackTrace() {
-        setAgentAttribute(BACKTRACE_PARAMETER_NAME, Thread.currentThread().getStackTrace());
+        Transaction tx = getTransaction();
+        boolean useStackWalker = tx == null || tx.getTransactionTracerConfig().isStackWalkerEnabled();
+        setAgentAttribute(BACKTRACE_PARAMETER_NAME, Backtrace.capture(useStackWalker,
+                ServiceFactory.getConfigService().getDefaultAgentConfig().getMaxStackTraceLines()));
     }
 
     @Override
@@ -0,0 +1,503 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.tracers;
+
+import com.newrelic.agent.Agent;
+import com.newrelic.agent.Transaction;
+import com.newrelic.agent.TransactionActivity;
+import com.newrelic.agent.bridge.TracedMethod;
+import com.newrelic.agent.bridge.TransactionNamePriority;
+import com.newrelic.agent.bridge.external.ExternalParameters;
+import com.newrelic.agent.config.TransactionTracerConfig;
+import com.newrelic.agent.database.SqlObfuscator;
+import com.newrelic.agent.instrumentation.AgentWrapper;
+import com.newrelic.agent.trace.TransactionSegment;
+import com.newrelic.agent.tracers.metricname.MetricNameFormat;
+import com.newrelic.api.agent.InboundHeaders;
+import com.newrelic.api.agent.OutboundHeaders;
+
+import java.lang.reflect.Method;
+import java.text.MessageFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * A tracer that is reused by every method invocation at its depth of the tracer stack of a {@link TransactionActivity}.
+ * It is only used by transactions that report neither transaction traces nor span events, so most invocations only
+ * need their timing and their scoped metric: the timing is kept in the primitive arrays of the {@link TracerPool} and
+ * the metric is recorded when the tracer finishes.
+ *
+ * A pooled tracer is materialized into a {@link DefaultTracer} with the same start time and parent as soon as it is
+ * used for anything else, and forwards to it from then on. That happens when it is handed out by
+ * {@link TransactionActivity#getLastTracer()} or to instrumentation code, because the caller may keep it after the
+ * invocation finishes and the pooled tracer is reused. Materializing a tracer also materializes its pooled parents.
+ */
+public final class PooledTracer implements Tracer {
+
+    private final TransactionActivity txa;
+    private final TracerPool pool;
+    private final int slot;
+
+    private Tracer parentTracer;
+    private ClassMethodSignature classMethodSignature;
+    private Object invocationTarget;
+    private MetricNameFormat metricNameFormat;
+    private int tracerFlags;
+    private DefaultTracer tracer;
+
+    PooledTracer(TransactionActivity txa, TracerPool pool, int slot) {
+        this.txa = txa;
+        this.pool = pool;
+        this.slot = slot;
+    }
+
+    void start(Tracer parent, ClassMethodSignature sig, Object object, MetricNameFormat metricNameFormatter,
+            int flags) {
+        parentTracer = parent;
+        classMethodSignature = sig;
+        invocationTarget = object;
+        metricNameFormat = metricNameFormatter;
+        // nothing reads the segments of a transaction that pools its tracers
+        tracerFlags = TracerFlags.clearSegment(flags);
+    }
+
+    void clear() {
+        parentTracer = null;
+        classMethodSignature = null;
+        invocationTarget = null;
+        metricNameFormat = null;
+        tracer = null;
+    }
+
+    int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Returns true if this tracer has been replaced by a {@link DefaultTracer}.
+     */
+    public boolean isMaterialized() {
+        return tracer != null;
+    }
+
+    /**
+     * Create the {@link DefaultTracer} that replaces this tracer, if it doesn't exist yet.
+     */
+    public DefaultTracer materialize() {
+        if (tracer == null) {
+            if (parentTracer instanceof PooledTracer) {
+                parentTracer = ((PooledTracer) parentTracer).materialize();
+            }
+            tracer = new DefaultTracer(txa, parentTracer, classMethodSignature, invocationTarget, metricNameFormat,
+                    tracerFlags, pool.getStartTime(slot));
+            // children that already finished
+            tracer.childTracerFinished(pool.getExclusiveDuration(slot));
+            txa.tracerMaterialized(this, tracer);
+        }
+        return tracer;
+    }
+
+    @Override
+    public void finish(int opcode, Object returnValue) {
+        if (tracer != null) {
+            try {
+                tracer.finish(opcode, returnValue);
+            } finally {
+                pool.release(this);
+            }
+            return;
+        }
+
+        Transaction tx = txa.getTransaction();
+        if (tx != null && !tx.getTransactionState().finish(tx, this)) {
+            return;
+        }
+
+        pool.finish(slot, System.nanoTime());
+        txa.lockTracerStart();
+        try {
+            Tracer parent = getParentTracer();
+            if (parent != null && parent.getTransactionActivity() == txa) {
+                parent.childTracerFinished(this);
+            }
+
+            if (tx != null && !tx.isIgnore() && isMetricProducer()) {
+                String metricName = getMetricName();
+                if (metricName != null) {
+                    txa.getTransactionStats().getScopedStats().getOrCreateResponseTimeStats(metricName)
+                            .recordResponseTimeInNanos(getDuration(), getExclusiveDuration());
+                }
+            }
+
+            txa.tracerFinished(this, opcode);
+        } catch (Throwable t) {
+            String msg = MessageFormat.format("An error occurred finishing pooled tracer for class {0} : {1}",
+                    classMethodSignature.getClassName(), t.toString());
+            Agent.LOG.severe(msg);
+            Agent.LOG.log(Level.FINER, msg, t);
+        } finally {
+            txa.unlockTracerStart();
+            pool.release(this);
+        }
+    }
+
+    @Override
+    public void finish(Throwable throwable) {
+        // the exception is noticed against the span id of the tracer, so it needs a real one
+        try {
+            materialize().finish(throwable);
+        } finally {
+            pool.release(this);
+        }
+    }
+
+    @Override
+    public Object invoke(Object methodName, Method method, Object[] args) {
+        if (args != null && AgentWrapper.SUCCESSFUL_METHOD_INVOCATION == methodName && args.length == 2) {
+            finish((Integer) args[0], args[1]);
+            return null;
+        }
+        if (args != null && AgentWrapper.UNSUCCESSFUL_METHOD_INVOCATION == methodName && args.length == 1) {
+            finish((Throwable) args[0]);
+            return null;
+        }
+        return materialize().invoke(methodName, method, args);
+    }
+
+    @Override
+    public TracedMethod getTracedMethod() {
+        return materialize();
+    }
+
+    @Override
+    public void childTracerFinished(Tracer child) {
+        if (tracer != null) {
+            tracer.childTracerFinished(child);
+        } else if (child.isMetricProducer() && !(child instanceof SkipTracer)) {
+            pool.childTracerFinished(slot, child.getDuration());
+        }
+    }
+
+    public void childTracerFinished(long childDurationInNanos) {
+        if (tracer != null) {
+            tracer.childTracerFinished(childDurationInNanos);
+        } else {
+            pool.childTracerFinished(slot, childDurationInNanos);
+        }
+    }
+
+    @Override
+    public TransactionActivity getTransactionActivity() {
+        return txa;
+    }
+
+    @Override
+    public Tracer getParentTracer() {
+        if (parentTracer instanceof PooledTracer && ((PooledTracer) parentTracer).isMaterialized()) {
+            return ((PooledTracer) parentTracer).materialize();
+        }
+        return parentTracer;
+    }
+
+    @Override
+    public void setParentTracer(Tracer parent) {
+        if (tracer != null) {
+            tracer.setParentTracer(parent);
+        }
+        parentTracer = parent;
+    }
+
+    @Override
+    public ClassMethodSignature getClassMethodSignature() {
+        return classMethodSignature;
+    }
+
+    @Override
+    public String getMetricName() {
+        return tracer != null ? tracer.getMetricName() : metricNameFormat == null ? null : metricNameFormat.getMetricName();
+    }
+
+    @Override
+    public boolean isMetricProducer() {
+        return (tracerFlags & TracerFlags.GENERATE_SCOPED_METRIC) == TracerFlags.GENERATE_SCOPED_METRIC;
+    }
+
+    @Override
+    public boolean isTransactionSegment() {
+        return false;
+    }
+
+    @Override
+    public boolean isLeaf() {
+        return (tracerFlags & TracerFlags.LEAF) == TracerFlags.LEAF;
+    }
+
+    @Override
+    public boolean isAsync() {
+        return TracerFlags.isAsync(tracerFlags);
+    }
+
+    @Override
+    public long getStartTime() {
+        return tracer != null ? tracer.getStartTime() : pool.getStartTime(slot);
+    }
+
+    @Override
+    public long getStartTimeInMilliseconds() {
+        return TimeUnit.MILLISECONDS.convert(getStartTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long getStartTimeInMillis() {
+        return getStartTimeInMilliseconds();
+    }
+
+    @Override
+    public long getDuration() {
+        return tracer != null ? tracer.getDuration() : pool.getDuration(slot);
+    }
+
+    @Override
+    public long getExclusiveDuration() {
+        return tracer != null ? tracer.getExclusiveDuration() : pool.getExclusiveDuration(slot);
+    }
+
+    @Override
+    public long getDurationInMilliseconds() {
+        return TimeUnit.MILLISECONDS.convert(getDuration(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long getRunningDurationInNanos() {
+        long duration = getDuration();
+        return duration > 0 ? duration : Math.max(0, System.nanoTime() - getStartTime());
+    }
+
+    @Override
+    public long getEndTime() {
+        return getStartTime() + getDuration();
+    }
+
+    @Override
+    public long getEndTimeInMilliseconds() {
+        return TimeUnit.MILLISECONDS.convert(getEndTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /////////////////////////////////////////////
+    //// Everything below materializes the tracer
+    /////////////////////////////////////////////
+
+    @Override
+    public TracedMethod getParentTracedMethod() {
+        return materialize().getParentTracedMethod();
+    }
+
+    @Override
+    public String getTransactionSegmentName() {
+        return materialize().getTransactionSegmentName();
+    }
+
+    @Override
+    public String getTransactionSegmentUri() {
+        return materialize().getTransactionSegmentUri();
+    }
+
+    @Override
+    public TransactionSegment getTransactionSegment(TransactionTracerConfig ttConfig, SqlObfuscator sqlObfuscator,
+            long startTime, TransactionSegment lastSibling) {
+        return materialize().getTransactionSegment(ttConfig, sqlObfuscator, startTime, lastSibling);
+    }
+
+    @Override
+    public Map<String, Object> getCustomAttributes() {
+        return materialize().getCustomAttributes();
+    }
+
+    @Override
+    public Map<String, Object> getAgentAttributes() {
+        return materialize().getAgentAttributes();
+    }
+
+    @Override
+    public Set<String> getAgentAttributeNamesForSpans() {
+        return materialize().getAgentAttributeNamesForSpans();
+    }
+
+    @Override
+    public void setAgentAttribute(String key, Object value) {
+        materialize().setAgentAttribute(key, value);
+    }
+
+    @Override
+    public void setAgentAttribute(String key, Object value, boolean addToSpan) {
+        materialize().setAgentAttribute(key, value, addToSpan);
+    }
+
+    @Override
+    public void removeAgentAttribute(String key) {
+        materialize().removeAgentAttribute(key);
+    }
+
+    @Override
+    public Object getAgentAttribute(String key) {
+        return materialize().getAgentAttribute(key);
+    }
+
+    @Override
+    public void addCustomAttribute(String key, Number value) {
+        materialize().addCustomAttribute(key, value);
+    }
+
+    @Override
+    public void addCustomAttribute(String key, String value) {
+        materialize().addCustomAttribute(key, value);
+    }
+
+    @Override
+    public void addCustomAttribute(String key, boolean value) {
+        materialize().addCustomAttribute(key, value);
+    }
+
+    @Override
+    public void addCustomAttributes(Map<String, Object> attributes) {
+        materialize().addCustomAttributes(attributes);
+    }
+
+    @Override
+    public int getChildCount() {
+        return materialize().getChildCount();
+    }
+
+    @Override
+    public boolean isParent() {
+        return materialize().isParent();
+    }
+
+    @Override
+    public boolean isChildHasStackTrace() {
+        return materialize().isChildHasStackTrace();
+    }
+
+    @Override
+    public void removeTransactionSegment() {
+        materialize().removeTransactionSegment();
+    }
+
+    @Override
+    public void markFinishTime() {
+        materialize().markFinishTime();
+    }
+
+    @Override
+    public String getGuid() {
+        return materialize().getGuid();
+    }
+
+    @Override
+    public com.newrelic.api.agent.ExternalParameters getExternalParameters() {
+        return materialize().getExternalParameters();
+    }
+
+    @Override
+    public void setMetricName(String... metricNameParts) {
+        materialize().setMetricName(metricNameParts);
+    }
+
+    @Override
+    public void addRollupMetricName(String... metricNameParts) {
+        materialize().addRollupMetricName(metricNameParts);
+    }
+
+    @Override
+    public void setRollupMetricNames(String... metricNames) {
+        materialize().setRollupMetricNames(metricNames);
+    }
+
+    @Override
+    public void setMetricNameFormatInfo(String metricName, String transactionSegmentName, String transactionSegmentUri) {
+        materialize().setMetricNameFormatInfo(metricName, transactionSegmentName, transactionSegmentUri);
+    }
+
+    @Override
+    public void addExclusiveRollupMetricName(String... metricNameParts) {
+        materialize().addExclusiveRollupMetricName(metricNameParts);
+    }
+
+    @Override
+    public void nameTransaction(TransactionNamePriority namePriority) {
+        materialize().nameTransaction(namePriority);
+    }
+
+    @Override
+    public void setCustomMetricPrefix(String prefix) {
+        materialize().setCustomMetricPrefix(prefix);
+    }
+
+    @Override
+    public void setTrackChildThreads(boolean shouldTrack) {
+        materialize().setTrackChildThreads(shouldTrack);
+    }
+
+    @Override
+    public boolean trackChildThreads() {
+        return materialize().trackChildThreads();
+    }
+
+    @Override
+    public void setTrackCallbackRunnable(boolean shouldTrack) {
+        materialize().setTrackCallbackRunnable(shouldTrack);
+    }
+
+    @Override
+    public boolean isTrackCallbackRunnable() {
+        return materialize().isTrackCallbackRunnable();
+    }
+
+    @Override
+    public void addOutboundRequestHeaders(OutboundHeaders outboundHeaders) {
+        materialize().addOutboundRequestHeaders(outboundHeaders);
+    }
+
+    @Override
+    public void readInboundResponseHeaders(InboundHeaders inboundResponseHeaders) {
+        materialize().readInboundResponseHeaders(inboundResponseHeaders);
+    }
+
+    @Override
+    public void reportAsExternal(com.newrelic.api.agent.ExternalParameters externalParameters) {
+        materialize().reportAsExternal(externalParameters);
+    }
+
+    @Override
+    public void reportAsExternal(ExternalParameters externalParameters) {
+        materialize().reportAsExternal(externalParameters);
+    }
+
+    @Override
+    public void setNoticedError(Throwable throwable) {
+        materialize().setNoticedError(throwable);
+    }
+
+    @Override
+    public Throwable getException() {
+        return materialize().getException();
+    }
+
+    @Override
+    public void setThrownException(Throwable throwable) {
+        materialize().setThrownException(throwable);
+    }
+
+    @Override
+    public boolean wasExceptionSetByAPI() {
+        return materialize().wasExceptionSetByAPI();
+    }
+
+}
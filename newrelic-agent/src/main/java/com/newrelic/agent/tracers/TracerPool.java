@@ -0,0 +1,100 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.tracers;
+
+import com.newrelic.agent.TransactionActivity;
+import com.newrelic.agent.tracers.metricname.MetricNameFormat;
+
+import java.util.Arrays;
+
+/**
+ * The pooled tracers of a {@link TransactionActivity}. Tracers start and finish in stack order on the activity's
+ * thread, so the pool is a stack: the tracer at depth n is reused by every method that runs at depth n, and its timing
+ * is kept in primitive arrays indexed by depth rather than in the tracer.
+ *
+ * This class is not thread safe. It must only be used by the thread of its activity.
+ */
+public final class TracerPool {
+
+    private static final int INITIAL_DEPTH = 16;
+
+    private final TransactionActivity txa;
+    private PooledTracer[] tracers = new PooledTracer[INITIAL_DEPTH];
+    private long[] startTimes = new long[INITIAL_DEPTH];
+    private long[] durations = new long[INITIAL_DEPTH];
+    // the time spent in children until the tracer finishes, then the exclusive duration
+    private long[] exclusiveDurations = new long[INITIAL_DEPTH];
+    private int depth;
+
+    public TracerPool(TransactionActivity txa) {
+        this.txa = txa;
+    }
+
+    /**
+     * Take the tracer for the next depth and start it. The caller must add it to the activity's tracer stack.
+     */
+    public PooledTracer acquire(Tracer parent, ClassMethodSignature sig, Object invocationTarget,
+            MetricNameFormat metricNameFormat, int tracerFlags) {
+        if (depth == tracers.length) {
+            int length = depth * 2;
+            tracers = Arrays.copyOf(tracers, length);
+            startTimes = Arrays.copyOf(startTimes, length);
+            durations = Arrays.copyOf(durations, length);
+            exclusiveDurations = Arrays.copyOf(exclusiveDurations, length);
+        }
+        PooledTracer tracer = tracers[depth];
+        if (tracer == null) {
+            tracer = new PooledTracer(txa, this, depth);
+            tracers[depth] = tracer;
+        }
+        startTimes[depth] = System.nanoTime();
+        durations[depth] = 0;
+        exclusiveDurations[depth] = 0;
+        depth++;
+        tracer.start(parent, sig, invocationTarget, metricNameFormat, tracerFlags);
+        return tracer;
+    }
+
+    /**
+     * Return a finished tracer to the pool. Any tracers above it were abandoned and are returned with it.
+     */
+    void release(PooledTracer tracer) {
+        int slot = tracer.getSlot();
+        for (int i = depth - 1; i >= slot; i--) {
+            tracers[i].clear();
+        }
+        depth = Math.min(depth, slot);
+    }
+
+    long getStartTime(int slot) {
+        return startTimes[slot];
+    }
+
+    long getDuration(int slot) {
+        return durations[slot];
+    }
+
+    long getExclusiveDuration(int slot) {
+        return exclusiveDurations[slot];
+    }
+
+    void childTracerFinished(int slot, long childDurationInNanos) {
+        exclusiveDurations[slot] += childDurationInNanos;
+    }
+
+    /**
+     * Record the duration of a finishing tracer and turn its child time into its exclusive duration.
+     */
+    void finish(int slot, long finishTime) {
+        long duration = Math.max(0, finishTime - startTimes[slot]);
+        long exclusiveDuration = duration - exclusiveDurations[slot];
+        durations[slot] = duration;
+        exclusiveDurations[slot] = exclusiveDuration < 0 || exclusiveDuration > duration ? duration : exclusiveDuration;
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An output stream that collects an encoded request payload in fixed-size chunks borrowed from a shared pool.
+ *
+ * Unlike a {@code ByteArrayOutputStream} this never grows a single large array and never copies the payload to hand it
+ * to the HTTP client; the chunks are written straight to the request entity. The size limit is checked on every write,
+ * so an oversized payload fails as soon as it crosses the limit instead of after it has been fully serialized.
+ *
+ * Call {@link #release()} once the request has been sent so the chunks can be reused by the next harvest.
+ *
+ * This class is not thread-safe.
+ */
+public class ChunkedPayload extends OutputStream {
+
+    static final int CHUNK_SIZE = 64 * 1024;
+    // 4 MB of chunks are kept around between harvests; anything beyond that is left to the garbage collector
+    private static final int MAX_POOLED_CHUNKS = 64;
+
+    private static final Queue<byte[]> chunkPool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooledChunkCount = new AtomicInteger();
+
+    private final long maxSizeInBytes;
+    private final List<byte[]> chunks = new ArrayList<>();
+    private byte[] currentChunk;
+    private int position;
+    private long size;
+    private boolean released;
+
+    /**
+     * @param maxSizeInBytes the largest payload that may be written, or 0 for no limit
+     */
+    public ChunkedPayload(long maxSizeInBytes) {
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        checkSize(1);
+        if (currentChunk == null || position == currentChunk.length) {
+            nextChunk();
+        }
+        currentChunk[position++] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        checkSize(length);
+        while (length > 0) {
+            if (currentChunk == null || position == currentChunk.length) {
+                nextChunk();
+            }
+            int count = Math.min(length, currentChunk.length - position);
+            System.arraycopy(bytes, offset, currentChunk, position, count);
+            position += count;
+            offset += count;
+            length -= count;
+            size += count;
+        }
+    }
+
+    private void checkSize(int length) throws PayloadSizeExceededException {
+        if (released) {
+            throw new IllegalStateException("Payload has been released");
+        }
+        if (maxSizeInBytes > 0 && size + length > maxSizeInBytes) {
+            throw new PayloadSizeExceededException(maxSizeInBytes);
+        }
+    }
+
+    private void nextChunk() {
+        byte[] chunk = chunkPool.poll();
+        if (chunk == null) {
+            chunk = new byte[CHUNK_SIZE];
+        } else {
+            pooledChunkCount.decrementAndGet();
+        }
+        chunks.add(chunk);
+        currentChunk = chunk;
+        position = 0;
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Write the payload to the given stream without copying it.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        int lastChunk = chunks.size() - 1;
+        for (int i = 0; i <= lastChunk; i++) {
+            out.write(chunks.get(i), 0, i == lastChunk ? position : CHUNK_SIZE);
+        }
+    }
+
+    /**
+     * @return a stream over the payload that does not copy it
+     */
+    public InputStream getInputStream() {
+        List<InputStream> streams = new ArrayList<>(chunks.size());
+        int lastChunk = chunks.size() - 1;
+        for (int i = 0; i <= lastChunk; i++) {
+            streams.add(new ByteArrayInputStream(chunks.get(i), 0, i == lastChunk ? position : CHUNK_SIZE));
+        }
+        return new SequenceInputStream(Collections.enumeration(streams));
+    }
+
+    /**
+     * Copies the payload into a single array. Only for callers that need the raw bytes, such as audit listeners.
+     */
+    public byte[] toByteArray() {
+        byte[] result = new byte[(int) size];
+        int offset = 0;
+        int lastChunk = chunks.size() - 1;
+        for (int i = 0; i <= lastChunk; i++) {
+            int length = i == lastChunk ? position : CHUNK_SIZE;
+            System.arraycopy(chunks.get(i), 0, result, offset, length);
+            offset += length;
+        }
+        return result;
+    }
+
+    /**
+     * Return the chunks to the pool. The payload must not be used afterwards.
+     */
+    public void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        for (byte[] chunk : chunks) {
+            if (pooledChunkCount.incrementAndGet() <= MAX_POOLED_CHUNKS) {
+                chunkPool.offer(chunk);
+            } else {
+                pooledChunkCount.decrementAndGet();
+            }
+        }
+        chunks.clear();
+        currentChunk = null;
+    }
+
+    /**
+     * Thrown from a write that would take the payload over its size limit.
+     */
+    public static class PayloadSizeExceededException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public PayloadSizeExceededException(long maxSizeInBytes) {
+            super("Payload exceeded maximum size " + maxSizeInBytes);
+        }
+    }
+
+}
@@ -9,6 +9,7 @@ package com.newrelic.agent.transport;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.io.CountingOutputStream;
 import com.newrelic.agent.ForceDisconnectException;
 import com.newrelic.agent.ForceRestartException;
 import com.newrelic.agent.LicenseException;
@@ -54,6 +55,7 @@ import java.nio.charset.StandardCharsets;
 import java.rmi.UnexpectedException;
 import java.security.NoSuchAlgorithmException;
 import java.text.MessageFormat;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -125,6 +127,8 @@ public class DataSenderImpl implements DataSender, HealthDataProducer {
     private final DataSenderListener dataSenderListener;
     private final String compressedEncoding;
     private final boolean putForDataSend;
+    private final boolean streamingPayloads;
+    private final PayloadSpill payloadSpill;
     private Map<String, Boolean> policiesJson;
     private volatile int maxPayloadSizeInBytes = DEFAULT_MAX_PAYLOAD_SIZE_IN_BYTES;
     private volatile Map<String, String> requestMetadata;
@@ -153,6 +157,8 @@ public class DataSenderImpl implements DataSender, HealthDataProducer {
         this.dataSenderListener = dataSenderListener;
         this.compressedEncoding = config.getCompressedContentEncoding();
         this.putForDataSend = config.isPutForDataSend();
+        this.streamingPayloads = config.isStreamingPayloads();
+        this.payloadSpill = PayloadSpill.create(config, logger);
 
         this.metadata = new HashMap<>();
         Map<String, String> env = System.getenv();
@@ -371,7 +377,7 @@ public class DataSenderImpl implements DataSender, HealthDataProducer {
         params.add(metadata);
 
         params.add(events);
-        invokeRunId(method, encoding, runId, params);
+        invokeRunIdOrSpill(method, encoding, runId, params, true, Arrays.asList(metadata, events));
     }
 
     // Sends LogEvent data in the MELT format for logs
@@ -400,7 +406,33 @@ public class DataSenderImpl implements DataSender, HealthDataProducer {
         InitialSizedJsonArray params = new InitialSizedJsonArray(3);
         params.add(common);
         params.add(logs);
-        invokeRunId(method, encoding, runId, params);
+        invokeRunIdOrSpill(method, encoding, runId, params, false, Arrays.asList(common, logs));
+    }
+
+    /**
+     * Send an event payload. If the collector can't be reached or asks to retry, and spilling is enabled, the payload is
+     * spilled to disk and this returns normally, so the caller doesn't keep the events in memory. After a successful
+     * send, some of the spilled payloads of the method are sent too.
+     *
+     * @param withRunId whether the run id is the first element of params
+     * @param elements the other elements of params
+     */
+    private void invokeRunIdOrSpill(String method, String encoding, Object runId, JSONStreamAware params, boolean withRunId,
+            List<?> elements) throws Exception {
+        if (payloadSpill == null) {
+            invokeRunId(method, encoding, runId, params);
+            return;
+        }
+
+        try {
+            invokeRunId(method, encoding, runId, params);
+        } catch (Exception e) {
+            if (PayloadSpill.isSpillable(e) && payloadSpill.spill(method, withRunId, elements)) {
+                return;
+            }
+            throw e;
+        }
+        payloadSpill.drain(method, runId, spilled -> invokeRunId(method, encoding, runId, spilled));
     }
 
     @Override
@@ -519,6 +551,9 @@ public class DataSenderImpl implements DataSender, HealthDataProducer {
         } finally {
             setAgentRunId(NO_AGENT_RUN_ID);
             this.httpClientWrapper.shutdown();
+            if (payloadSpill != null) {
+                payloadSpill.close();
+            }
         }
     }
 
@@ -578,6 +613,10 @@ public class DataSenderImpl implements DataSender, HealthDataProducer {
      * matched/parsed has been deprecated.
      */
     private ReadResult connectAndSend(String host, String method, String encoding, String uri, JSONStreamAware params) throws Exception {
+        if (streamingPayloads) {
+            return connectAndSendStreaming(host, method, encoding, uri, params);
+        }
+
         byte[] data = writeData(encoding, params);
 
         /*
@@ -594,14 +633,57 @@ public class DataSenderImpl implements DataSender, HealthDataProducer {
         }
 
         final URL url = new URL(PROTOCOL, host, port, uri);
-        HttpClientWrapper.Request request = createRequest(method, encoding, url, data);
+        HttpClientWrapper.Request request = createRequest(method, encoding, url).setData(data);
+
+        return execute(host, method, encoding, uri, request, DataSenderWriter.toJSONString(params));
+    }
+
+    /**
+     * Serializes the payload through a pooled compressor into pooled chunks that are handed to the HTTP client as is.
+     * The payload size limit is enforced while writing, and the JSON is only rendered as a string for audit logging.
+     */
+    private ReadResult connectAndSendStreaming(String host, String method, String encoding, String uri, JSONStreamAware params) throws Exception {
+        /*
+         * We don't enforce max_payload_size_in_bytes for error_data (aka error traces). Instead, we halve the
+         * payload and try again. See RPMService sendErrorData
+         */
+        long maxSize = method.equals(CollectorMethods.ERROR_DATA) ? 0 : maxPayloadSizeInBytes;
+        ChunkedPayload payload = new ChunkedPayload(maxSize);
+        try {
+            long uncompressedSize;
+            try {
+                uncompressedSize = writeData(encoding, params, payload);
+            } catch (ChunkedPayload.PayloadSizeExceededException e) {
+                ServiceFactory.getStatsService().doStatsWork(StatsWorks.getIncrementCounterWork(
+                        MessageFormat.format(MetricNames.SUPPORTABILITY_PAYLOAD_SIZE_EXCEEDS_MAX, method), 1), MetricNames.SUPPORTABILITY_PAYLOAD_SIZE_EXCEEDS_MAX);
+                String msg = MessageFormat.format("Payload exceeded maximum size {0} for {1} method ", maxPayloadSizeInBytes, method);
+                logger.log(Level.WARNING, msg);
+                throw new MaxPayloadException(msg);
+            }
+
+            final URL url = new URL(PROTOCOL, host, port, uri);
+            HttpClientWrapper.Request request = createRequest(method, encoding, url).setPayload(payload);
+
+            String payloadJsonSent = auditMode && methodShouldBeAudited(method) ? DataSenderWriter.toJSONString(params) : null;
+            return execute(host, method, encoding, uri, request, payloadJsonSent, uncompressedSize);
+        } finally {
+            payload.release();
+        }
+    }
+
+    private ReadResult execute(String host, String method, String encoding, String uri, HttpClientWrapper.Request request,
+            String payloadJsonSent) throws Exception {
+        return execute(host, method, encoding, uri, request, payloadJsonSent, payloadJsonSent.getBytes().length);
+    }
+
+    private ReadResult execute(String host, String method, String encoding, String uri, HttpClientWrapper.Request request,
+            String payloadJsonSent, long payloadBytesSent) throws Exception {
+        final URL url = request.getURL();
 
         httpClientWrapper.captureSupportabilityMetrics(ServiceFactory.getStatsService(), host);
 
         ReadResult result = httpClientWrapper.execute(request, new TimingEventHandler(method, ServiceFactory.getStatsService()));
 
-        String payloadJsonSent = DataSenderWriter.toJSONString(params);
-
         if (auditMode && methodShouldBeAudited(method)) {
 
             String msg = MessageFormat.format("Sent JSON({0}) to: {1}, with payload: {2}", method, obfuscateLicenseKey(url.toString()), obfuscateLicenseKey(payloadJsonSent));
@@ -613,7 +695,7 @@ public class DataSenderImpl implements DataSender, HealthDataProducer {
                 MessageFormat.format(MetricNames.SUPPORTABILITY_HTTP_CODE, result.getStatusCode()), 1), MetricNames.SUPPORTABILITY_HTTP_CODE);
 
         if (result.getStatusCode() != HttpResponseCode.OK && result.getStatusCode() != HttpResponseCode.ACCEPTED) {
-            throwExceptionFromStatusCode(method, result, data, request);
+            throwExceptionFromStatusCode(method, result, request);
         }
 
         String payloadJsonReceived = result.getResponseBody();
@@ -623,12 +705,12 @@ public class DataSenderImpl implements DataSender, HealthDataProducer {
             logger.info(MessageFormat.format("Received JSON({0}): {1}", method, payloadJsonReceived));
         }
 
-        recordDataUsageMetrics(method, payloadJsonSent, payloadJsonReceived);
+        recordDataUsageMetrics(method, payloadBytesSent, payloadJsonReceived);
 
         AgentControlIntegrationUtils.reportHealthyStatus(healthDataChangeListeners, AgentHealth.Category.HARVEST, AgentHealth.Category.CONFIG);
 
         if (dataSenderListener != null) {
-            dataSenderListener.dataSent(method, encoding, uri, data);
+            dataSenderListener.dataSent(method, encoding, uri, request.getData());
         }
 
         return result;
@@ -638,11 +720,10 @@ public class DataSenderImpl implements DataSender, HealthDataProducer {
      * Record metrics tracking amount of bytes sent and received for each agent endpoint payload
      *
      * @param method method for the agent endpoint
-     * @param payloadJsonSent JSON String of the payload that was sent
+     * @param payloadBytesSent size of the uncompressed JSON payload that was sent
      * @param payloadJsonReceived JSON String of the payload that was received
      */
-    private void recordDataUsageMetrics(String method, String payloadJsonSent, String payloadJsonReceived) {
-        int payloadBytesSent = payloadJsonSent.getBytes().length;
+    private void recordDataUsageMetrics(String method, long payloadBytesSent, String payloadJsonReceived) {
         int payloadBytesReceived = payloadJsonReceived.getBytes().length;
 
         // COLLECTOR is always the destination for data reported via DataSenderImpl.
@@ -660,8 +741,9 @@ public class DataSenderImpl implements DataSender, HealthDataProducer {
                         MetricNames.SUPPORTABILITY_DATA_USAGE_DESTINATION_ENDPOINT_OUTPUT_BYTES + " " + COLLECTOR);
     }
 
-    private void throwExceptionFromStatusCode(String method, ReadResult result, byte[] data, HttpClientWrapper.Request request)
+    private void throwExceptionFromStatusCode(String method, ReadResult result, HttpClientWrapper.Request request)
             throws HttpError, LicenseException, ForceRestartException, ForceDisconnectException {
+        int dataLength = (int) request.getDataLength();
         // Comply with spec and send supportability metric only for error responses
         ServiceFactory.getStatsService().doStatsWork(StatsWorks.getIncrementCounterWork(
                 MessageFormat.format(MetricNames.SUPPORTABILITY_AGENT_ENDPOINT_HTTP_ERROR, result.getStatusCode()), 1), MetricNames.SUPPORTABILITY_AGENT_ENDPOINT_HTTP_ERROR);
@@ -676,9 +758,9 @@ public class DataSenderImpl implements DataSender, HealthDataProducer {
                         Integer.toString(result.getStatusCode()), method);
                 final String authField = result.getProxyAuthenticateHeader();
                 if (authField != null) {
-                    throw new HttpError("Proxy Authentication Mechanism Failed: " + authField, result.getStatusCode(), data.length);
+                    throw new HttpError("Proxy Authentication Mechanism Failed: " + authField, result.getStatusCode(), dataLength);
                 } else {
-                    throw new HttpError("Proxy Authentication Mechanism Failed: " + "null Proxy-Authenticate header", result.getStatusCode(), data.length);
+                    throw new HttpError("Proxy Authentication Mechanism Failed: " + "null Proxy-Authenticate header", result.getStatusCode(), dataLength);
                 }
             case HttpResponseCode.UNAUTHORIZED:
                 // received 401 Unauthorized, throw exception instead of parsing LicenseException from 200 response body
@@ -696,7 +778,7 @@ public class DataSenderImpl implements DataSender, HealthDataProducer {
                 AgentControlIntegrationUtils.reportUnhealthyStatus(healthDataChangeListeners, AgentHealth.Status.HTTP_ERROR,
                         Integer.toString(result.getStatusCode()), method);
                 logger.log(Level.FINER, "Connection http status code: {0}", result.getStatusCode());
-                throw HttpError.create(result.getStatusCode(), request.getURL().getHost(), data.length);
+                throw HttpError.create(result.getStatusCode(), request.getURL().getHost(), dataLength);
         }
     }
 
@@ -756,7 +838,7 @@ public class DataSenderImpl implements DataSender, HealthDataProducer {
         }
     }
 
-    private HttpClientWrapper.Request createRequest(String method, String encoding, URL url, byte[] data) {
+    private HttpClientWrapper.Request createRequest(String method, String encoding, URL url) {
         final boolean isConnectOrPreconnect = method.equals(CollectorMethods.CONNECT) || method.equals(CollectorMethods.PRECONNECT);
         final Map<String, String> requestMetadata = (this.requestMetadata != null && !isConnectOrPreconnect)
                 ? this.requestMetadata
@@ -766,7 +848,6 @@ public class DataSenderImpl implements DataSender, HealthDataProducer {
                 .setURL(url)
                 .setVerb(putForDataSend ? HttpClientWrapper.Verb.PUT : HttpClientWrapper.Verb.POST)
                 .setEncoding(encoding)
-                .setData(data)
                 .setRequestMetadata(requestMetadata);
     }
 
@@ -782,6 +863,33 @@ public class DataSenderImpl implements DataSender, HealthDataProducer {
         return outStream.toByteArray();
     }
 
+    /**
+     * Writes the JSON for params through a pooled compressor into the given payload.
+     *
+     * @return the size of the uncompressed JSON in bytes
+     */
+    private long writeData(String encoding, JSONStreamAware params, ChunkedPayload payload) throws IOException {
+        CountingOutputStream countingStream;
+        try (
+                OutputStream os = getPooledOutputStream(payload, encoding);
+                Writer out = new OutputStreamWriter(countingStream = new CountingOutputStream(os), StandardCharsets.UTF_8)
+        ) {
+            JSONValue.writeJSONString(params, out);
+            out.flush();
+        }
+        return countingStream.getCount();
+    }
+
+    private OutputStream getPooledOutputStream(OutputStream out, String encoding) throws IOException {
+        if (DEFLATE_ENCODING.equals(encoding)) {
+            return PooledDeflaterOutputStream.deflate(out, COMPRESSION_LEVEL);
+        } else if (GZIP_ENCODING.equals(encoding)) {
+            return PooledDeflaterOutputStream.gzip(out, COMPRESSION_LEVEL);
+        } else {
+            return out;
+        }
+    }
+
     private OutputStream getOutputStream(OutputStream out, String encoding) throws IOException {
         if (DEFLATE_ENCODING.equals(encoding)) {
             return new DeflaterOutputStream(out, new Deflater(COMPRESSION_LEVEL));
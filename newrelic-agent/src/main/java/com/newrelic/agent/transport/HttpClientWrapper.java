@@ -69,15 +69,40 @@ public interface HttpClientWrapper {
             return this;
         }
 
+        /**
+         * The encoded request body. For a request built from a {@link ChunkedPayload} this copies the payload, so
+         * clients should prefer {@link #getPayload()} when it is set.
+         */
         public byte[] getData() {
+            if (data == null && payload != null) {
+                return payload.toByteArray();
+            }
             return data;
         }
 
         public Request setData(byte[] data) {
             this.data = data;
+            this.payload = null;
             return this;
         }
 
+        public ChunkedPayload getPayload() {
+            return payload;
+        }
+
+        public Request setPayload(ChunkedPayload payload) {
+            this.payload = payload;
+            this.data = null;
+            return this;
+        }
+
+        public long getDataLength() {
+            if (payload != null) {
+                return payload.size();
+            }
+            return data == null ? 0 : data.length;
+        }
+
         public Map<String, String> getRequestMetadata() {
             return requestMetadata;
         }
@@ -91,6 +116,7 @@ public interface HttpClientWrapper {
         private Verb verb;
         private String encoding;
         private byte[] data;
+        private ChunkedPayload payload;
         private Map<String, String> requestMetadata;
     }
 }
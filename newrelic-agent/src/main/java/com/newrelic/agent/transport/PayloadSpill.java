@@ -0,0 +1,303 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.transport;
+
+import com.newrelic.agent.MaxPayloadException;
+import com.newrelic.agent.MetricNames;
+import com.newrelic.agent.config.DataSenderConfig;
+import com.newrelic.agent.logging.IAgentLogger;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.stats.StatsWorks;
+import org.json.simple.JSONStreamAware;
+import org.json.simple.JSONValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Keeps event payloads on disk while the collector can't be reached or asks the agent to retry, instead of merging
+ * them back into the reservoirs where they would crowd out new events and be dropped. Spilled payloads are sent again,
+ * a few at a time, after the collector accepts the next payload of the same method.
+ *
+ * Payloads are stored per application and collector method in a {@link SpillQueue}, as deflated JSON without the
+ * agent run id. The run id of the agent run that sends the payload is put back in front of it.
+ */
+class PayloadSpill {
+
+    private static final String LOCK_FILE = "spill.lock";
+    private static final byte WITH_RUN_ID = 1;
+
+    /**
+     * Sends a spilled payload to the collector.
+     */
+    interface Sender {
+        void send(JSONStreamAware params) throws Exception;
+    }
+
+    private final File directory;
+    private final long maxSizeInBytes;
+    private final int drainLimit;
+    private final IAgentLogger logger;
+    private final FileChannel lockChannel;
+    private final ConcurrentHashMap<String, SpillQueue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * @return the spill for the application of the config, or null if spilling is disabled or the spill directory
+     * can't be used
+     */
+    static PayloadSpill create(DataSenderConfig config, IAgentLogger logger) {
+        String baseDirectory = config.getSpillDirectory();
+        if (baseDirectory == null || baseDirectory.isEmpty() || config.getSpillMaxSizeInMb() <= 0) {
+            return null;
+        }
+        String appName = config.getApplicationName() == null ? "default" : config.getApplicationName();
+        File directory = new File(baseDirectory, appName.replaceAll("[^A-Za-z0-9._-]", "_"));
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            logger.log(Level.WARNING, "Unable to create the spill directory {0}. Payloads will not be spilled.",
+                    directory.getAbsolutePath());
+            return null;
+        }
+
+        // another agent, or another sender of this agent, may already use the directory
+        FileChannel lockChannel = null;
+        try {
+            lockChannel = FileChannel.open(new File(directory, LOCK_FILE).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock = lockChannel.tryLock();
+            if (lock != null) {
+                return new PayloadSpill(directory, config.getSpillMaxSizeInMb() * 1024L * 1024L,
+                        config.getSpillDrainLimit(), logger, lockChannel);
+            }
+        } catch (IOException | OverlappingFileLockException e) {
+            logger.log(Level.FINEST, e, e.toString());
+        }
+        logger.log(Level.WARNING, "The spill directory {0} is in use. Payloads will not be spilled.", directory.getAbsolutePath());
+        closeQuietly(lockChannel);
+        return null;
+    }
+
+    PayloadSpill(File directory, long maxSizeInBytes, int drainLimit, IAgentLogger logger, FileChannel lockChannel) {
+        this.directory = directory;
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.drainLimit = drainLimit;
+        this.logger = logger;
+        this.lockChannel = lockChannel;
+
+        // payloads spilled by a previous agent run
+        File[] methodDirectories = directory.listFiles(File::isDirectory);
+        if (methodDirectories != null) {
+            for (File methodDirectory : methodDirectories) {
+                try {
+                    getQueue(methodDirectory.getName());
+                } catch (IOException e) {
+                    logger.log(Level.FINE, e, "Unable to read the spilled {0} payloads", methodDirectory.getName());
+                }
+            }
+        }
+        logger.log(Level.FINE, "Spilling payloads to {0}", directory.getAbsolutePath());
+    }
+
+    /**
+     * @return true if a payload that failed with the exception will be accepted by the collector later
+     */
+    static boolean isSpillable(Exception e) {
+        if (e instanceof HttpError) {
+            return !((HttpError) e).discardHarvestData();
+        }
+        // the collector couldn't be reached
+        return e instanceof IOException;
+    }
+
+    /**
+     * Spill a payload that failed to send.
+     *
+     * @param method the collector method
+     * @param withRunId whether the agent run id is the first element of the payload
+     * @param elements the other elements of the payload
+     * @return true if the payload was spilled
+     */
+    boolean spill(String method, boolean withRunId, List<?> elements) {
+        try {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            data.write(withRunId ? WITH_RUN_ID : 0);
+            try (Writer out = new OutputStreamWriter(new DeflaterOutputStream(data), StandardCharsets.UTF_8)) {
+                for (int i = 0; i < elements.size(); i++) {
+                    if (i > 0) {
+                        out.write(',');
+                    }
+                    JSONValue.writeJSONString(elements.get(i), out);
+                }
+            }
+            SpillQueue queue = getQueue(method);
+            boolean spilled = queue.append(data.toByteArray());
+            recordCount(MetricNames.SUPPORTABILITY_SPILL_DROPPED, method, queue.getAndResetDropped());
+            if (spilled) {
+                recordCount(MetricNames.SUPPORTABILITY_SPILL_SPILLED, method, 1);
+                logger.log(Level.FINE, "Spilled a {0} payload. {1} payloads are waiting to be sent.", method, queue.size());
+            }
+            return spilled;
+        } catch (IOException e) {
+            logger.log(Level.FINE, e, "Unable to spill a {0} payload", method);
+            return false;
+        }
+    }
+
+    /**
+     * Send up to the drain limit of spilled payloads, oldest first. Stops at the first payload the collector doesn't
+     * accept yet.
+     * Payloads the collector rejects for good are dropped. Does nothing if the payloads of the method are already being
+     * sent.
+     *
+     * @param runId the current agent run id
+     */
+    void drain(String method, Object runId, Sender sender) {
+        SpillQueue queue = queues.get(method);
+        if (queue == null || !queue.sendLock.tryLock()) {
+            return;
+        }
+
+        int drained = 0;
+        try {
+            int attempts = 0;
+            SpillQueue.Record record;
+            while (attempts++ < drainLimit && (record = queue.peekRecord()) != null) {
+                byte[] data = record.data;
+                try {
+                    sender.send(new SpilledPayload(data[0] == WITH_RUN_ID ? runId : null, inflate(data)));
+                    drained++;
+                } catch (HttpError | MaxPayloadException | CorruptPayloadException e) {
+                    if (isSpillable(e)) {
+                        break;
+                    }
+                    // the collector will never accept the payload
+                    logger.log(Level.FINE, "Dropping a spilled {0} payload: {1}", method, e.toString());
+                    recordCount(MetricNames.SUPPORTABILITY_SPILL_DROPPED, method, 1);
+                } catch (Exception e) {
+                    // the collector couldn't be reached, or the agent has to reconnect
+                    break;
+                }
+                // the record may have been dropped to make room while it was sent
+                queue.remove(record);
+            }
+        } catch (IOException e) {
+            logger.log(Level.FINE, e, "Unable to read the spilled {0} payloads", method);
+        } finally {
+            queue.sendLock.unlock();
+        }
+        recordCount(MetricNames.SUPPORTABILITY_SPILL_DRAINED, method, drained);
+        recordCount(MetricNames.SUPPORTABILITY_SPILL_DROPPED, method, queue.getAndResetDropped());
+        if (drained > 0) {
+            logger.log(Level.FINE, "Sent {0} spilled {1} payloads. {2} payloads are waiting to be sent.", drained, method, queue.size());
+        }
+    }
+
+    /**
+     * Release the spill directory. Payloads that were not sent stay on disk for the next agent run.
+     */
+    void close() {
+        for (SpillQueue queue : queues.values()) {
+            queue.close();
+        }
+        closeQuietly(lockChannel);
+    }
+
+    private SpillQueue getQueue(String method) throws IOException {
+        SpillQueue queue = queues.get(method);
+        if (queue == null) {
+            synchronized (queues) {
+                queue = queues.get(method);
+                if (queue == null) {
+                    queue = new SpillQueue(new File(directory, method), maxSizeInBytes, SpillQueue.DEFAULT_SEGMENT_SIZE);
+                    queues.put(method, queue);
+                }
+            }
+        }
+        return queue;
+    }
+
+    private static String inflate(byte[] data) throws CorruptPayloadException {
+        StringBuilder json = new StringBuilder(data.length * 4);
+        try (Reader in = new InputStreamReader(new InflaterInputStream(
+                new ByteArrayInputStream(data, 1, data.length - 1)), StandardCharsets.UTF_8)) {
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                json.append(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new CorruptPayloadException(e);
+        }
+        return json.toString();
+    }
+
+    private static void recordCount(String metricPattern, String method, int count) {
+        if (count > 0) {
+            ServiceFactory.getStatsService().doStatsWork(StatsWorks.getIncrementCounterWork(
+                    MessageFormat.format(metricPattern, method), count), metricPattern);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static final class CorruptPayloadException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        CorruptPayloadException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * A spilled payload with the current run id put back in front of it.
+     */
+    private static final class SpilledPayload implements JSONStreamAware {
+
+        private final Object runId;
+        private final String json;
+
+        SpilledPayload(Object runId, String json) {
+            this.runId = runId;
+            this.json = json;
+        }
+
+        @Override
+        public void writeJSONString(Writer out) throws IOException {
+            out.write('[');
+            if (runId != null) {
+                JSONValue.writeJSONString(runId, out);
+                out.write(',');
+            }
+            out.write(json);
+            out.write(']');
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.transport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A deflate or gzip stream whose {@link Deflater} is borrowed from a pool and returned on {@link #close()}.
+ *
+ * {@code GZIPOutputStream} and {@code new Deflater()} allocate a native zlib context (a few hundred KB) for every
+ * payload and only free it on finalization or close. Harvests compress a payload per endpoint every few seconds, so
+ * the deflaters are reused instead. The gzip framing matches what {@code GZIPOutputStream} writes.
+ *
+ * This class is not thread-safe.
+ */
+final class PooledDeflaterOutputStream extends DeflaterOutputStream {
+
+    private static final int MAX_POOLED_DEFLATERS = 4;
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final byte[] GZIP_HEADER = {
+            (byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+    private static final Queue<Deflater> zlibDeflaters = new ConcurrentLinkedQueue<>();
+    private static final Queue<Deflater> rawDeflaters = new ConcurrentLinkedQueue<>();
+
+    private final boolean gzip;
+    private final CRC32 crc;
+    private boolean closed = false;
+
+    static PooledDeflaterOutputStream deflate(OutputStream out, int level) {
+        return new PooledDeflaterOutputStream(out, borrow(zlibDeflaters, level, false), false);
+    }
+
+    static PooledDeflaterOutputStream gzip(OutputStream out, int level) throws IOException {
+        PooledDeflaterOutputStream stream = new PooledDeflaterOutputStream(out, borrow(rawDeflaters, level, true), true);
+        out.write(GZIP_HEADER);
+        return stream;
+    }
+
+    private PooledDeflaterOutputStream(OutputStream out, Deflater deflater, boolean gzip) {
+        super(out, deflater, BUFFER_SIZE);
+        this.gzip = gzip;
+        this.crc = gzip ? new CRC32() : null;
+    }
+
+    private static Deflater borrow(Queue<Deflater> pool, int level, boolean nowrap) {
+        Deflater deflater = pool.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, nowrap);
+        } else {
+            deflater.setLevel(level);
+        }
+        return deflater;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        super.write(b, off, len);
+        if (gzip) {
+            crc.update(b, off, len);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (!def.finished()) {
+            super.finish();
+            if (gzip) {
+                writeTrailer();
+            }
+        }
+    }
+
+    private void writeTrailer() throws IOException {
+        writeInt((int) crc.getValue());
+        writeInt(def.getTotalIn());
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            super.close();
+        } finally {
+            giveBack();
+        }
+    }
+
+    private void giveBack() {
+        def.reset();
+        Queue<Deflater> pool = gzip ? rawDeflaters : zlibDeflaters;
+        // the pools are tiny, so the O(n) size() is fine
+        if (pool.size() < MAX_POOLED_DEFLATERS) {
+            pool.offer(def);
+        } else {
+            def.end();
+        }
+    }
+
+}
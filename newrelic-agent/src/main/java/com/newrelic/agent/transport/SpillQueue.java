@@ -0,0 +1,389 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.transport;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * The spilled payloads of one collector method, stored as records in append-only segment files.
+ *
+ * A record is its length and the CRC32 of its data, followed by the data. A sent record is marked by negating its
+ * length in place, and a segment is deleted once all of its records are sent. A length of 0 ends a segment, so a
+ * segment that was never filled, or whose last record was torn by a crash, ends at its last complete record. Records
+ * that were not sent are found again when the queue is opened by the next agent run.
+ *
+ * Segments are read and written through their file channel rather than mapped, so a segment file can be deleted as soon
+ * as its channel is closed on every platform. A segment that can't be deleted is truncated to an empty tombstone, which
+ * holds no records and is deleted by the next agent run.
+ *
+ * The size of all segments is bounded. The oldest segment is dropped, sent or not, to make room for a new one.
+ */
+class SpillQueue {
+
+    static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+    private static final String SEGMENT_SUFFIX = ".spill";
+    private static final int HEADER_SIZE = 8;
+
+    private final File directory;
+    private final long maxSizeInBytes;
+    private final int segmentSize;
+    // held while records are sent, so two senders never send the same record
+    final Lock sendLock = new ReentrantLock();
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    // emptied segment files that could not be deleted yet
+    private final List<File> tombstones = new ArrayList<>();
+    private long sizeInBytes;
+    private long nextSequence;
+    private int pending;
+    private int dropped;
+
+    SpillQueue(File directory, long maxSizeInBytes, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.segmentSize = segmentSize;
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory.getAbsolutePath());
+        }
+        String[] names = directory.list();
+        if (names != null) {
+            // zero padded sequence numbers sort in order
+            Arrays.sort(names);
+            for (String name : names) {
+                if (name.endsWith(SEGMENT_SUFFIX)) {
+                    recover(new File(directory, name), Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                }
+            }
+        }
+    }
+
+    private void recover(File file, long sequence) throws IOException {
+        nextSequence = Math.max(nextSequence, sequence + 1);
+        Segment segment = Segment.open(file, (int) file.length());
+        segment.recover();
+        if (segment.pending == 0) {
+            if (!segment.delete()) {
+                tombstones.add(file);
+            }
+            return;
+        }
+        segments.addLast(segment);
+        sizeInBytes += segment.capacity();
+        pending += segment.pending;
+    }
+
+    /**
+     * Append a record, dropping the oldest segments if the queue is full.
+     *
+     * @return false if the record is larger than the queue
+     */
+    synchronized boolean append(byte[] data) throws IOException {
+        int recordSize = HEADER_SIZE + data.length;
+        Segment tail = segments.peekLast();
+        if (tail == null || tail.remaining() < recordSize) {
+            int capacity = Math.max(segmentSize, recordSize);
+            if (capacity > maxSizeInBytes) {
+                dropped++;
+                return false;
+            }
+            if (tail != null && tail.pending == 0) {
+                // records are sent in order, so a tail without pending records is the only segment
+                removeFirst();
+            }
+            while (sizeInBytes + capacity > maxSizeInBytes && !segments.isEmpty()) {
+                Segment oldest = removeFirst();
+                dropped += oldest.pending;
+                pending -= oldest.pending;
+            }
+            tail = Segment.open(new File(directory, String.format("%020d%s", nextSequence++, SEGMENT_SUFFIX)), capacity);
+            segments.addLast(tail);
+            sizeInBytes += capacity;
+        }
+        tail.append(data);
+        pending++;
+        return true;
+    }
+
+    /**
+     * @return the data of the oldest record that was not sent, or null if the queue is empty
+     */
+    synchronized byte[] peek() throws IOException {
+        Record record = peekRecord();
+        return record == null ? null : record.data;
+    }
+
+    /**
+     * @return the oldest record that was not sent, to be passed to {@link #remove(Record)} once it is sent, or null if
+     * the queue is empty
+     */
+    synchronized Record peekRecord() throws IOException {
+        Segment head;
+        while ((head = segments.peekFirst()) != null && head.pending > 0) {
+            byte[] data = head.read();
+            if (data != null) {
+                return new Record(data, head, head.readPosition);
+            }
+            // the record is corrupt
+            dropped++;
+            remove();
+        }
+        return null;
+    }
+
+    /**
+     * Mark the oldest record that was not sent as sent.
+     */
+    synchronized void remove() throws IOException {
+        Segment head = segments.peekFirst();
+        if (head == null || head.pending == 0) {
+            return;
+        }
+        head.markSent();
+        pending--;
+        if (head.pending == 0 && head != segments.peekLast()) {
+            removeFirst();
+        }
+    }
+
+    /**
+     * Mark a record returned by {@link #peekRecord()} as sent. Does nothing if the record is no longer the oldest one
+     * that was not sent, because it was dropped to make room or already marked as sent.
+     */
+    synchronized void remove(Record record) throws IOException {
+        if (segments.peekFirst() == record.segment && record.segment.pending > 0 && record.segment.readPosition == record.position) {
+            remove();
+        }
+    }
+
+    private Segment removeFirst() {
+        Segment segment = segments.pollFirst();
+        sizeInBytes -= segment.capacity();
+        tombstones.removeIf(file -> file.delete() || !file.exists());
+        if (!segment.delete()) {
+            tombstones.add(segment.file);
+        }
+        return segment;
+    }
+
+    /**
+     * Close the segment files. Records that were not sent stay on disk.
+     */
+    synchronized void close() {
+        for (Segment segment : segments) {
+            Segment.closeQuietly(segment.channel);
+        }
+        segments.clear();
+    }
+
+    /**
+     * @return the number of records that were not sent
+     */
+    synchronized int size() {
+        return pending;
+    }
+
+    /**
+     * @return the number of records dropped since the last call
+     */
+    synchronized int getAndResetDropped() {
+        int result = dropped;
+        dropped = 0;
+        return result;
+    }
+
+    /**
+     * A record and where it was read from.
+     */
+    static final class Record {
+
+        final byte[] data;
+        private final Segment segment;
+        private final int position;
+
+        private Record(byte[] data, Segment segment, int position) {
+            this.data = data;
+            this.segment = segment;
+            this.position = position;
+        }
+    }
+
+    private static final class Segment {
+
+        private final File file;
+        private final FileChannel channel;
+        private final int capacity;
+        private int writePosition;
+        private int readPosition;
+        private int pending;
+
+        private Segment(File file, FileChannel channel, int capacity) {
+            this.file = file;
+            this.channel = channel;
+            this.capacity = capacity;
+        }
+
+        static Segment open(File file, int capacity) throws IOException {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            try {
+                if (channel.size() < capacity) {
+                    // reserve the whole segment up front, as the queue size counts it
+                    write(channel, ByteBuffer.allocate(1), capacity - 1);
+                }
+            } catch (IOException e) {
+                closeQuietly(channel);
+                throw e;
+            }
+            return new Segment(file, channel, capacity);
+        }
+
+        int capacity() {
+            return capacity;
+        }
+
+        int remaining() {
+            return capacity - writePosition;
+        }
+
+        void recover() throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(capacity);
+            read(channel, buffer, 0);
+            int position = 0;
+            int firstPending = -1;
+            while (position + HEADER_SIZE <= capacity) {
+                int length = buffer.getInt(position);
+                if (length == 0 || length == Integer.MIN_VALUE || Math.abs(length) > capacity - position - HEADER_SIZE) {
+                    break;
+                }
+                if (length > 0) {
+                    if (buffer.getInt(position + 4) != crc(buffer, position + HEADER_SIZE, length)) {
+                        // torn write
+                        break;
+                    }
+                    if (firstPending < 0) {
+                        firstPending = position;
+                    }
+                    pending++;
+                }
+                position += HEADER_SIZE + Math.abs(length);
+            }
+            writePosition = position;
+            readPosition = firstPending < 0 ? position : firstPending;
+        }
+
+        void append(byte[] data) throws IOException {
+            int end = writePosition + HEADER_SIZE + data.length;
+            // overwrite what a torn record may have left behind
+            boolean terminate = end + 4 <= capacity;
+            ByteBuffer record = ByteBuffer.allocate(4 + data.length + (terminate ? 4 : 0));
+            record.putInt(crc(data)).put(data);
+            if (terminate) {
+                record.putInt(0);
+            }
+            record.flip();
+            write(channel, record, writePosition + 4);
+            // the length is written last, so a record is only found once it is complete
+            writeInt(writePosition, data.length);
+            writePosition = end;
+            pending++;
+        }
+
+        byte[] read() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            read(channel, header, readPosition);
+            int length = header.getInt(0);
+            if (length <= 0 || length > capacity - readPosition - HEADER_SIZE) {
+                return null;
+            }
+            byte[] data = new byte[length];
+            read(channel, ByteBuffer.wrap(data), readPosition + HEADER_SIZE);
+            return header.getInt(4) == crc(data) ? data : null;
+        }
+
+        void markSent() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            read(channel, header, readPosition);
+            int length = header.getInt(0);
+            writeInt(readPosition, -length);
+            readPosition += HEADER_SIZE + Math.abs(length);
+            pending--;
+        }
+
+        /**
+         * Close and delete the segment file. The file is emptied first, so if it can't be deleted the next agent run
+         * finds no records in it.
+         *
+         * @return false if the file could not be deleted
+         */
+        boolean delete() {
+            try {
+                channel.truncate(0);
+            } catch (IOException ignored) {
+            }
+            closeQuietly(channel);
+            return file.delete() || !file.exists();
+        }
+
+        private void writeInt(int position, int value) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(4);
+            buffer.putInt(value).flip();
+            write(channel, buffer, position);
+        }
+
+        private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+
+        private static void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new EOFException();
+                }
+                position += read;
+            }
+        }
+
+        private static void closeQuietly(FileChannel channel) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        private static int crc(byte[] data) {
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, data.length);
+            return (int) crc.getValue();
+        }
+
+        private static int crc(ByteBuffer buffer, int offset, int length) {
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset);
+            view.limit(offset + length);
+            CRC32 crc = new CRC32();
+            crc.update(view);
+            return (int) crc.getValue();
+        }
+    }
+}
@@ -191,7 +191,9 @@ public class ApacheHttpClientWrapper implements HttpClientWrapper {
         requestBuilder
                 .setUri(request.getURL().toURI())
                 .setHeader(new BasicHeader("CONTENT-ENCODING", request.getEncoding()))
-                .setEntity(new ByteArrayEntity(request.getData()));
+                .setEntity(request.getPayload() != null
+                        ? new ChunkedPayloadEntity(request.getPayload())
+                        : new ByteArrayEntity(request.getData()));
 
         for (Map.Entry<String, String> entry : request.getRequestMetadata().entrySet()) {
             requestBuilder.addHeader(entry.getKey(), entry.getValue());
@@ -0,0 +1,53 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.transport.apache;
+
+import com.newrelic.agent.transport.ChunkedPayload;
+import org.apache.http.entity.AbstractHttpEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A repeatable request entity that writes a {@link ChunkedPayload} straight to the connection without copying it.
+ */
+class ChunkedPayloadEntity extends AbstractHttpEntity {
+
+    private final ChunkedPayload payload;
+
+    ChunkedPayloadEntity(ChunkedPayload payload) {
+        this.payload = payload;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return payload.size();
+    }
+
+    @Override
+    public InputStream getContent() {
+        return payload.getInputStream();
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        payload.writeTo(outStream);
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+}
@@ -0,0 +1,251 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A stack trace of the current thread captured with StackWalker on Java 9 and later.
+ *
+ * Agent frames are scrubbed and the trace is truncated while the stack is walked, with the same result as
+ * {@link StackTraces#scrubAndTruncate(List, int)}. The backtrace only holds the stack frames it keeps and turns them
+ * into {@link StackTraceElement}s the first time it is read, which for most slow tracers is never, since few of their
+ * traces are sent.
+ */
+public final class Backtrace extends AbstractList<StackTraceElement> implements RandomAccess {
+
+    private static final Walker WALKER = Walker.create();
+
+    /**
+     * The kept frames, outermost last. When the trace was truncated, the skipped frames were between the first
+     * {@link #skipIndex} frames and the rest.
+     */
+    private final Object[] frames;
+    private final int skipIndex;
+    private final int skippedCount;
+    private final int maxStackTraceLines;
+    private volatile StackTraceElement[] elements;
+
+    private Backtrace(Object[] frames, int skipIndex, int skippedCount, int maxStackTraceLines) {
+        this.frames = frames;
+        this.skipIndex = skipIndex;
+        this.skippedCount = skippedCount;
+        this.maxStackTraceLines = maxStackTraceLines;
+    }
+
+    /**
+     * Capture the stack trace of the current thread.
+     *
+     * @param useStackWalker walk the stack with StackWalker if the JVM supports it
+     * @param maxStackTraceLines truncate the trace to the given number of lines. if 0, don't truncate
+     * @return a {@link Backtrace}, or the full stack trace of the thread if StackWalker is not used
+     */
+    public static List<StackTraceElement> capture(boolean useStackWalker, int maxStackTraceLines) {
+        if (useStackWalker && WALKER != null) {
+            try {
+                return WALKER.walk(maxStackTraceLines);
+            } catch (Throwable t) {
+                // fall back to the thread's stack trace
+            }
+        }
+        return Arrays.asList(Thread.currentThread().getStackTrace());
+    }
+
+    /**
+     * @return true if StackWalker is available
+     */
+    public static boolean isStackWalkerSupported() {
+        return WALKER != null;
+    }
+
+    /**
+     * @return true if scrubbing and truncating this backtrace to the given number of lines would not change it
+     */
+    boolean isScrubbedAndTruncatedTo(int maxLines) {
+        return skippedCount == 0 ? (maxLines == 0 || frames.length <= maxLines) : maxLines == maxStackTraceLines;
+    }
+
+    @Override
+    public StackTraceElement get(int index) {
+        return getElements()[index];
+    }
+
+    @Override
+    public int size() {
+        return skippedCount == 0 ? frames.length : frames.length + 1;
+    }
+
+    private StackTraceElement[] getElements() {
+        StackTraceElement[] result = elements;
+        if (result == null) {
+            result = new StackTraceElement[size()];
+            int index = 0;
+            for (int i = 0; i < skipIndex; i++) {
+                result[index++] = WALKER.toStackTraceElement(frames[i]);
+            }
+            if (skippedCount > 0) {
+                result[index++] = new StackTraceElement("Skipping " + skippedCount + " lines...", "", "", 0);
+            }
+            for (int i = skipIndex; i < frames.length; i++) {
+                result[index++] = WALKER.toStackTraceElement(frames[i]);
+            }
+            elements = result;
+        }
+        return result;
+    }
+
+    /**
+     * Collects the frames of one walk, innermost first. An agent frame drops every frame collected before it, and
+     * once the top of the trace is full only the most recent frames are kept for the bottom.
+     */
+    private static final class FrameCollector implements Consumer<Object> {
+
+        private final int topLimit;
+        private final int bottomLimit;
+        private final int maxStackTraceLines;
+        private final Object[] bottom;
+        private Object[] top;
+        private int topCount;
+        private int bottomCount;
+        private int totalCount;
+
+        FrameCollector(int maxStackTraceLines, int initialCapacity) {
+            this.maxStackTraceLines = maxStackTraceLines;
+            if (maxStackTraceLines > 0) {
+                bottomLimit = maxStackTraceLines / 3;
+                topLimit = maxStackTraceLines - bottomLimit;
+                top = new Object[topLimit];
+                bottom = new Object[bottomLimit];
+            } else {
+                bottomLimit = 0;
+                topLimit = Integer.MAX_VALUE;
+                top = new Object[initialCapacity];
+                bottom = new Object[0];
+            }
+        }
+
+        @Override
+        public void accept(Object frame) {
+            if (WALKER.isScrubbed(frame)) {
+                topCount = 0;
+                bottomCount = 0;
+                totalCount = 0;
+                return;
+            }
+            totalCount++;
+            if (topCount < topLimit) {
+                if (topCount == top.length) {
+                    top = Arrays.copyOf(top, top.length * 2);
+                }
+                top[topCount++] = frame;
+            } else if (bottomLimit > 0) {
+                bottom[bottomCount++ % bottomLimit] = frame;
+            }
+        }
+
+        Backtrace toBacktrace() {
+            if (totalCount <= topCount + bottomLimit) {
+                // nothing to skip: the bottom buffer never wrapped
+                Object[] frames = new Object[totalCount];
+                System.arraycopy(top, 0, frames, 0, topCount);
+                System.arraycopy(bottom, 0, frames, topCount, totalCount - topCount);
+                return new Backtrace(frames, topCount, 0, maxStackTraceLines);
+            }
+            Object[] frames = new Object[topCount + bottomLimit];
+            System.arraycopy(top, 0, frames, 0, topCount);
+            for (int i = 0; i < bottomLimit; i++) {
+                frames[topCount + i] = bottom[(bottomCount + i) % bottomLimit];
+            }
+            return new Backtrace(frames, topCount, totalCount - topCount - bottomLimit, maxStackTraceLines);
+        }
+    }
+
+    /**
+     * StackWalker, looked up at runtime since the agent is compiled for Java 8.
+     */
+    private static final class Walker {
+
+        private final MethodHandle walk;
+        private final MethodHandle getClassName;
+        private final MethodHandle getMethodName;
+        private final MethodHandle toStackTraceElement;
+
+        private Walker(MethodHandle walk, MethodHandle getClassName, MethodHandle getMethodName, MethodHandle toStackTraceElement) {
+            this.walk = walk;
+            this.getClassName = getClassName;
+            this.getMethodName = getMethodName;
+            this.toStackTraceElement = toStackTraceElement;
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        static Walker create() {
+            try {
+                Class<?> stackWalkerClass = Class.forName("java.lang.StackWalker");
+                Class<? extends Enum> optionClass = (Class<? extends Enum>) Class.forName("java.lang.StackWalker$Option");
+                Class<?> stackFrameClass = Class.forName("java.lang.StackWalker$StackFrame");
+                // walk is caller sensitive, so it can't be found with the public lookup
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+                // Thread.getStackTrace() shows reflection frames, so the walker does too
+                Set<?> options = Collections.singleton(Enum.valueOf(optionClass, "SHOW_REFLECT_FRAMES"));
+                Object stackWalker = lookup.findStatic(stackWalkerClass, "getInstance", MethodType.methodType(stackWalkerClass, Set.class))
+                        .invoke(options);
+
+                MethodHandle walk = lookup.findVirtual(stackWalkerClass, "walk", MethodType.methodType(Object.class, Function.class))
+                        .bindTo(stackWalker);
+                MethodType frameToString = MethodType.methodType(String.class, Object.class);
+                return new Walker(walk,
+                        lookup.findVirtual(stackFrameClass, "getClassName", MethodType.methodType(String.class)).asType(frameToString),
+                        lookup.findVirtual(stackFrameClass, "getMethodName", MethodType.methodType(String.class)).asType(frameToString),
+                        lookup.findVirtual(stackFrameClass, "toStackTraceElement", MethodType.methodType(StackTraceElement.class))
+                                .asType(MethodType.methodType(StackTraceElement.class, Object.class)));
+            } catch (Throwable t) {
+                return null;
+            }
+        }
+
+        Backtrace walk(int maxStackTraceLines) throws Throwable {
+            Function<Stream<Object>, Backtrace> collect = frames -> {
+                FrameCollector collector = new FrameCollector(maxStackTraceLines, 64);
+                frames.forEach(collector);
+                return collector.toBacktrace();
+            };
+            return (Backtrace) walk.invoke(collect);
+        }
+
+        boolean isScrubbed(Object frame) {
+            try {
+                String className = (String) getClassName.invokeExact(frame);
+                // the method name is only needed for proxies
+                String methodName = "java.lang.reflect.Proxy".equals(className) ? (String) getMethodName.invokeExact(frame) : null;
+                return StackTraces.isScrubbed(className, methodName);
+            } catch (Throwable t) {
+                return false;
+            }
+        }
+
+        StackTraceElement toStackTraceElement(Object frame) {
+            try {
+                return (StackTraceElement) toStackTraceElement.invokeExact(frame);
+            } catch (Throwable t) {
+                return new StackTraceElement("Unknown", "unknown", null, -1);
+            }
+        }
+    }
+}
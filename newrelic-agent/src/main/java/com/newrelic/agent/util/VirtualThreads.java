@@ -0,0 +1,66 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Detects virtual threads without compiling against Java 21.
+ *
+ * Virtual threads are cheap and short-lived, and an application may start millions of them. Per-thread state that the
+ * agent keeps for long-lived platform threads (thread locals, caches keyed by thread id, thread cpu time) should be
+ * shared or skipped on virtual threads.
+ */
+public class VirtualThreads {
+
+    /**
+     * Thread#isVirtual(), or null if the JVM doesn't support virtual threads.
+     */
+    private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+
+    private VirtualThreads() {
+    }
+
+    private static MethodHandle findIsVirtual() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the JVM supports virtual threads
+     */
+    public static boolean isSupported() {
+        return IS_VIRTUAL != null;
+    }
+
+    /**
+     * @return true if the thread is a virtual thread. Always false before Java 21.
+     */
+    public static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null || thread == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(thread);
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the current thread is a virtual thread. Always false before Java 21.
+     */
+    public static boolean isCurrentThreadVirtual() {
+        return isVirtual(Thread.currentThread());
+    }
+}
@@ -10,11 +10,13 @@ package com.newrelic.agent;
 import com.newrelic.agent.config.AgentConfig;
 import com.newrelic.agent.config.AgentConfigFactory;
 import com.newrelic.agent.config.AgentConfigFactoryTest;
+import com.newrelic.agent.config.AgentConfigImpl;
 import com.newrelic.agent.config.ConfigService;
 import com.newrelic.agent.config.ConfigServiceFactory;
 import com.newrelic.agent.environment.Environment;
 import com.newrelic.agent.environment.EnvironmentService;
 import com.newrelic.agent.metric.MetricIdRegistry;
+import com.newrelic.agent.service.EventService;
 import com.newrelic.agent.service.ServiceFactory;
 import com.newrelic.agent.stats.Stats;
 import com.newrelic.agent.stats.StatsEngine;
@@ -31,6 +33,8 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import org.mockito.internal.stubbing.answers.Returns;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -211,6 +215,140 @@ public class HarvestServiceTest {
         harvestService.stop();
     }
 
+    @Test
+    public void parallelLanesDoNotWaitForSlowHarvestables() throws Exception {
+        final CountDownLatch slowHarvestStarted = new CountDownLatch(1);
+        final CountDownLatch releaseSlowHarvest = new CountDownLatch(1);
+        Harvestable slowHarvestable = new TestHarvestable("slow_event_data") {
+            @Override
+            public void harvest() {
+                slowHarvestStarted.countDown();
+                try {
+                    releaseSlowHarvest.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        final CountDownLatch fastHarvests = new CountDownLatch(3);
+        Harvestable fastHarvestable = new TestHarvestable("fast_event_data") {
+            @Override
+            public void harvest() {
+                fastHarvests.countDown();
+            }
+        };
+
+        Map<String, Object> harvestLimits = new HashMap<>();
+        harvestLimits.put("slow_event_data", 10L);
+        harvestLimits.put("fast_event_data", 10L);
+        Map<String, Object> eventHarvestConfig = new HashMap<>();
+        eventHarvestConfig.put(HarvestServiceImpl.HARVEST_LIMITS, harvestLimits);
+        eventHarvestConfig.put("report_period_ms", 50L);
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(AgentConfigFactory.EVENT_HARVEST_CONFIG, eventHarvestConfig);
+        settings.put("harvest_service", Collections.singletonMap("parallel_lanes", Collections.singletonMap("enabled", true)));
+
+        HarvestServiceImpl harvestService = new HarvestServiceImpl();
+        harvestService.start();
+        harvestService.addHarvestable(slowHarvestable);
+        harvestService.addHarvestable(fastHarvestable);
+        try {
+            harvestService.startHarvestables(new MyRPMService(), AgentConfigImpl.createAgentConfig(settings));
+            Assert.assertTrue(slowHarvestStarted.await(5, TimeUnit.SECONDS));
+            // the slow harvestable is still blocked, but the other lane keeps harvesting
+            Assert.assertTrue(fastHarvests.await(5, TimeUnit.SECONDS));
+        } finally {
+            releaseSlowHarvest.countDown();
+            harvestService.stop();
+        }
+    }
+
+    @Test
+    public void restartedLaneDoesNotRunHarvestableConcurrently() throws Exception {
+        final CountDownLatch firstHarvestStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstHarvest = new CountDownLatch(1);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final AtomicInteger harvests = new AtomicInteger();
+        Harvestable harvestable = new TestHarvestable("slow_event_data") {
+            @Override
+            public void harvest() {
+                int now = running.incrementAndGet();
+                maxRunning.accumulateAndGet(now, Math::max);
+                try {
+                    if (harvests.incrementAndGet() == 1) {
+                        firstHarvestStarted.countDown();
+                        releaseFirstHarvest.await(10, TimeUnit.SECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+        };
+
+        Map<String, Object> eventHarvestConfig = new HashMap<>();
+        eventHarvestConfig.put(HarvestServiceImpl.HARVEST_LIMITS, Collections.singletonMap("slow_event_data", 10L));
+        eventHarvestConfig.put("report_period_ms", 50L);
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(AgentConfigFactory.EVENT_HARVEST_CONFIG, eventHarvestConfig);
+        settings.put("harvest_service", Collections.singletonMap("parallel_lanes", Collections.singletonMap("enabled", true)));
+        AgentConfig config = AgentConfigImpl.createAgentConfig(settings);
+
+        HarvestServiceImpl harvestService = new HarvestServiceImpl();
+        harvestService.start();
+        harvestService.addHarvestable(harvestable);
+        try {
+            harvestService.startHarvestables(new MyRPMService(), config);
+            Assert.assertTrue(firstHarvestStarted.await(5, TimeUnit.SECONDS));
+            // a reconnect restarts the harvestables while the first harvest is still running
+            harvestService.startHarvestables(new MyRPMService(), config);
+            Thread.sleep(300);
+            Assert.assertEquals(1, harvests.get());
+            releaseFirstHarvest.countDown();
+            // the run queued during the first harvest follows it
+            long deadline = System.currentTimeMillis() + 5000;
+            while (harvests.get() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertTrue(harvests.get() >= 3);
+            Assert.assertEquals(1, maxRunning.get());
+        } finally {
+            releaseFirstHarvest.countDown();
+            harvestService.stop();
+        }
+    }
+
+    private static class TestHarvestable extends Harvestable {
+
+        private final String endpointMethodName;
+
+        TestHarvestable(String endpointMethodName) {
+            super(createEventService(), "test");
+            this.endpointMethodName = endpointMethodName;
+        }
+
+        private static EventService createEventService() {
+            EventService eventService = mock(EventService.class);
+            Mockito.when(eventService.getReportPeriodInSecondsMetric()).thenReturn("Test/ReportPeriod");
+            Mockito.when(eventService.getEventHarvestLimitMetric()).thenReturn("Test/HarvestLimit");
+            Mockito.when(eventService.getEventHarvestIntervalMetric()).thenReturn("Test/HarvestInterval");
+            Mockito.when(eventService.getMaxSamplesStored()).thenReturn(10);
+            return eventService;
+        }
+
+        @Override
+        public String getEndpointMethodName() {
+            return endpointMethodName;
+        }
+
+        @Override
+        public int getMaxSamplesStored() {
+            return 10;
+        }
+    }
+
     private static class MyRPMService extends BaseRPMService {
 
         @Override
@@ -0,0 +1,116 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent;
+
+import com.newrelic.agent.stats.StatsEngine;
+import com.newrelic.agent.stats.StatsEngineImpl;
+import com.newrelic.agent.stats.TransactionStats;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TokenRegistryTest {
+
+    @Test
+    public void testRecordMetrics() throws InterruptedException {
+        TokenRegistry registry = new TokenRegistry(new FixedTimedSet(2));
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    registry.tokenCreated();
+                    registry.tokenLinked(j % 10 != 0);
+                    registry.tokenExpired();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        TransactionStats stats = new TransactionStats();
+        registry.recordMetrics(stats);
+        Assert.assertEquals(4000, stats.getUnscopedStats().getStats(MetricNames.SUPPORTABILITY_ASYNC_TOKEN_CREATE).getCallCount());
+        Assert.assertEquals(4000, stats.getUnscopedStats().getStats(MetricNames.SUPPORTABILITY_ASYNC_TOKEN_EXPIRE).getCallCount());
+        Assert.assertEquals(3600, stats.getUnscopedStats().getStats(MetricNames.SUPPORTABILITY_ASYNC_TOKEN_LINK_SUCCESS).getCallCount());
+        Assert.assertEquals(400, stats.getUnscopedStats().getStats(MetricNames.SUPPORTABILITY_ASYNC_TOKEN_LINK_IGNORE).getCallCount());
+        Assert.assertEquals(2, stats.getUnscopedStats().getStats(MetricNames.SUPPORTABILITY_ASYNC_TOKEN_TIMEOUT).getCallCount());
+    }
+
+    @Test
+    public void testHarvestRecordsActivitySoFar() {
+        TokenRegistry registry = new TokenRegistry(new FixedTimedSet(1));
+        registry.tokenCreated();
+        registry.tokenCreated();
+        registry.tokenLinked(true);
+
+        StatsEngine harvestStats = new StatsEngineImpl();
+        registry.recordMetrics(harvestStats);
+        Assert.assertEquals(2, harvestStats.getStats(MetricNames.SUPPORTABILITY_ASYNC_TOKEN_CREATE).getCallCount());
+        Assert.assertEquals(1, harvestStats.getStats(MetricNames.SUPPORTABILITY_ASYNC_TOKEN_LINK_SUCCESS).getCallCount());
+        // timeouts are only known when the transaction finishes
+        Assert.assertEquals(0, harvestStats.getStats(MetricNames.SUPPORTABILITY_ASYNC_TOKEN_TIMEOUT).getCallCount());
+
+        registry.tokenCreated();
+        registry.tokenExpired();
+        registry.tokenExpired();
+
+        // only the activity since the harvest is recorded when the transaction finishes
+        TransactionStats stats = new TransactionStats();
+        registry.recordMetrics(stats);
+        Assert.assertEquals(1, stats.getUnscopedStats().getStats(MetricNames.SUPPORTABILITY_ASYNC_TOKEN_CREATE).getCallCount());
+        Assert.assertEquals(2, stats.getUnscopedStats().getStats(MetricNames.SUPPORTABILITY_ASYNC_TOKEN_EXPIRE).getCallCount());
+        Assert.assertEquals(0, stats.getUnscopedStats().getStats(MetricNames.SUPPORTABILITY_ASYNC_TOKEN_LINK_SUCCESS).getCallCount());
+        Assert.assertEquals(1, stats.getUnscopedStats().getStats(MetricNames.SUPPORTABILITY_ASYNC_TOKEN_TIMEOUT).getCallCount());
+    }
+
+    @Test
+    public void testNoActivityRecordsNothing() {
+        TransactionStats stats = new TransactionStats();
+        new TokenRegistry(new FixedTimedSet(0)).recordMetrics(stats);
+        Assert.assertEquals(0, stats.getUnscopedStats().getSize());
+    }
+
+    private static class FixedTimedSet implements TimedSet<TokenImpl> {
+        private final int timedOut;
+
+        FixedTimedSet(int timedOut) {
+            this.timedOut = timedOut;
+        }
+
+        @Override
+        public int timedOutCount() {
+            return timedOut;
+        }
+
+        @Override
+        public void put(TokenImpl value) {
+        }
+
+        @Override
+        public boolean remove(TokenImpl value) {
+            return false;
+        }
+
+        @Override
+        public void removeAll() {
+        }
+
+        @Override
+        public void cleanUp() {
+        }
+
+        @Override
+        public void refresh(TokenImpl token) {
+        }
+    }
+}
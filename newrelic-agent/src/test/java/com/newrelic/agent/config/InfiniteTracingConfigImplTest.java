@@ -67,6 +67,19 @@ public class InfiniteTracingConfigImplTest {
         assertTrue(config.getUseBatching());
     }
 
+    @Test
+    public void testSingleSenderStreamByDefault() {
+        InfiniteTracingConfigImpl config = new InfiniteTracingConfigImpl(localProps);
+        assertEquals(1, config.getSenderStreams());
+    }
+
+    @Test
+    public void testSenderStreams() {
+        localProps.put(InfiniteTracingConfigImpl.SENDER_STREAMS, 4);
+        InfiniteTracingConfigImpl config = new InfiniteTracingConfigImpl(localProps);
+        assertEquals(4, config.getSenderStreams());
+    }
+
     @Test
     public void testUseCompressionByDefault() {
         InfiniteTracingConfigImpl config = new InfiniteTracingConfigImpl(localProps);
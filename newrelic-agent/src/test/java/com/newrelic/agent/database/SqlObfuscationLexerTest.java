@@ -0,0 +1,93 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.database;
+
+import com.newrelic.agent.attributes.CrossAgentInput;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the lexer produces exactly what the original regular expressions produce.
+ */
+public class SqlObfuscationLexerTest {
+
+    private static final List<String> DIALECTS = Arrays.asList("mysql", "postgres", "postgresql", "oracle", "mssql");
+
+    // pieces of SQL that exercise every token kind and every way a token can fail to close
+    private static final String[] FRAGMENTS = { "'", "''", "\"", "$", "$$", "$a$", "$A$", "$1", "q'[", "Q'{", "q'<",
+            "q'(", "]'", "}'", ">'", ")'", "#", "--", "-", "/*", "*/", "/", "*", "\\", "\\'", "\\\"", "\n", "\r\n", " ",
+            "0x", "0X1f", "true", "FALSE", "Null", "nul", "1", "23", "_", "4.5", ".", "e", "E", "+", "9e-3", "a", "f",
+            "q", "{", "}", "?", "0123456789abcdef0123456789ABCDEF", "0-1-2-3", "select * from t where x = " };
+
+    private final RegexSqlObfuscator reference = new RegexSqlObfuscator();
+
+    @Test
+    public void crossAgentCorpus() throws Exception {
+        JSONArray tests = CrossAgentInput.readJsonAndGetTests(
+                "com/newrelic/agent/cross_agent_tests/sql_obfuscation/sql_obfuscation.json");
+        for (Object test : tests) {
+            String sql = (String) ((JSONObject) test).get("sql");
+            assertSameAsReference(sql);
+        }
+    }
+
+    @Test
+    public void randomStatements() {
+        Random random = new Random(20240611L);
+        for (int i = 0; i < 50000; i++) {
+            StringBuilder sql = new StringBuilder();
+            int fragments = 1 + random.nextInt(12);
+            for (int j = 0; j < fragments; j++) {
+                sql.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            assertSameAsReference(sql.toString());
+        }
+    }
+
+    @Test
+    public void unterminatedTokens() {
+        assertSameAsReference("select * from t where a = 'abc");
+        assertSameAsReference("select * from t where a = \"abc");
+        assertSameAsReference("select * from t where a = 1 /* comment");
+        assertSameAsReference("select * from t where a = 1 */");
+        assertSameAsReference("select * from t where a = $tag$abc");
+        assertSameAsReference("select * from t where a = $1 and b = $");
+        assertSameAsReference("select * from t where a = q'[abc");
+    }
+
+    @Test
+    public void trailingLineTerminators() {
+        assertSameAsReference("select * from t -- comment\n");
+        assertSameAsReference("select * from t where a = $$abc\n");
+        assertSameAsReference("select * from t where a = $$abc\r\n");
+        assertSameAsReference("select * from t where a = q'<abc\r");
+    }
+
+    @Test
+    public void noLiterals() {
+        String sql = "select id0, name from metrics0 where x = ?";
+        assertEquals(sql, SqlObfuscationLexer.obfuscate(sql, SqlObfuscationLexer.Dialect.ALL));
+    }
+
+    private void assertSameAsReference(String sql) {
+        assertEquals(sql, reference.obfuscateSql(sql),
+                SqlObfuscationLexer.obfuscate(sql, SqlObfuscationLexer.Dialect.ALL));
+        for (String dialect : DIALECTS) {
+            assertEquals(dialect + ": " + sql, reference.obfuscateSql(sql, dialect),
+                    SqlObfuscationLexer.obfuscate(sql, SqlObfuscationLexer.Dialect.forName(dialect)));
+        }
+    }
+
+}
@@ -289,5 +289,15 @@ public class ErrorAnalyzerImplTest {
         public Object getExceptionHandlers() {
             throw new AssertionError("not a thing here!");
         }
+
+        @Override
+        public boolean isDeduplicateErrors() {
+            return false;
+        }
+
+        @Override
+        public int getFingerprintStackFrames() {
+            return 0;
+        }
     }
 }
@@ -378,6 +378,44 @@ public class ErrorServiceTest {
         Assert.assertEquals(1, statsEngine.getStats(MetricNames.ERRORS_ALL).getCallCount());
     }
 
+    @Test
+    public void deduplicateRepeatedErrors() throws Exception {
+        Map<String, Object> config = createConfig("java.lang.Exception");
+        ((Map<String, Object>) config.get(AgentConfigImpl.ERROR_COLLECTOR)).put(ErrorCollectorConfigImpl.DEDUPLICATE_ERRORS, true);
+        EventTestHelper.createServiceManager(config);
+
+        ErrorServiceImpl errorService = (ErrorServiceImpl) ServiceFactory.getRPMService().getErrorService();
+        ErrorCollectorConfig errorCollectorConfig = ServiceFactory.getConfigService().getErrorCollectorConfig(APP_NAME);
+        for (int i = 0; i < 30; i++) {
+            errorService.reportError(ThrowableError
+                    .builder(errorCollectorConfig, APP_NAME, "dude", newRepeatedError("attempt " + i), System.currentTimeMillis())
+                    .build());
+        }
+        errorService.reportError(ThrowableError
+                .builder(errorCollectorConfig, APP_NAME, "dude", new IllegalArgumentException(), System.currentTimeMillis())
+                .build());
+
+        List<TracedError> actualErrors = errorService.getAndClearTracedErrors();
+        Assert.assertEquals(2, actualErrors.size());
+        Assert.assertEquals(31, errorService.errorCountThisHarvest.get());
+        ThrowableError repeated = (ThrowableError) actualErrors.get(0);
+        Assert.assertEquals("attempt 0", repeated.getMessage());
+        Assert.assertEquals(30, repeated.getOccurrences());
+        Assert.assertEquals(1, ((ThrowableError) actualErrors.get(1)).getOccurrences());
+
+        // the next reporting period starts over
+        errorService.reportError(ThrowableError
+                .builder(errorCollectorConfig, APP_NAME, "dude", newRepeatedError("attempt 30"), System.currentTimeMillis())
+                .build());
+        actualErrors = errorService.getAndClearTracedErrors();
+        Assert.assertEquals(1, actualErrors.size());
+        Assert.assertEquals(1, ((ThrowableError) actualErrors.get(0)).getOccurrences());
+    }
+
+    private static Throwable newRepeatedError(String message) {
+        return new IllegalStateException(message);
+    }
+
     @Test
     public void errorCountMetrics() throws Exception {
         Map<String, Object> config = createConfig("java.lang.Exception");
@@ -0,0 +1,134 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.instrumentation.context;
+
+import com.newrelic.agent.instrumentation.tracing.TraceClassTransformer;
+import com.newrelic.agent.stats.ResponseTimeStats;
+import com.newrelic.agent.stats.StatsEngine;
+import com.newrelic.agent.stats.StatsEngineImpl;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+public class ClassTransformProfilerTest {
+
+    private static final String TRACE_METRIC = "Supportability/ClassTransform/Transformer/TraceClassTransformer";
+    private static final String PACKAGE_METRIC = "Supportability/ClassTransform/WeavePackage/com.newrelic.instrumentation.test";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testHarvestReportsInterval() {
+        ClassTransformProfiler profiler = new ClassTransformProfiler(null);
+        TraceClassTransformer transformer = new TraceClassTransformer();
+        profiler.recordTransform(transformer, TimeUnit.MILLISECONDS.toNanos(2), 100, true);
+        profiler.recordTransform(transformer, TimeUnit.MILLISECONDS.toNanos(4), 300, false);
+        profiler.recordTransform(transformer, TimeUnit.MILLISECONDS.toNanos(6), 200, false);
+
+        StatsEngine statsEngine = new StatsEngineImpl();
+        profiler.beforeHarvest("test", statsEngine);
+
+        ResponseTimeStats stats = statsEngine.getResponseTimeStats(TRACE_METRIC);
+        Assert.assertEquals(3, stats.getCallCount());
+        Assert.assertEquals(0.012f, stats.getTotal(), 0.0001f);
+        Assert.assertEquals(0.002f, stats.getMinCallTime(), 0.0001f);
+        Assert.assertEquals(0.006f, stats.getMaxCallTime(), 0.0001f);
+        Assert.assertEquals(600f, statsEngine.getStats(TRACE_METRIC + "/Bytes").getTotal(), 0.1f);
+        Assert.assertEquals(1, statsEngine.getStats(TRACE_METRIC + "/Matched").getCallCount());
+        Assert.assertEquals(2, statsEngine.getStats(TRACE_METRIC + "/Rejected").getCallCount());
+
+        // nothing new was recorded, so nothing is reported
+        StatsEngine nextStatsEngine = new StatsEngineImpl();
+        profiler.beforeHarvest("test", nextStatsEngine);
+        Assert.assertEquals(0, nextStatsEngine.getSize());
+    }
+
+    @Test
+    public void testWeavePackageMetrics() {
+        ClassTransformProfiler profiler = new ClassTransformProfiler(null);
+        profiler.recordWeavePackage("com.newrelic.instrumentation.test", 1000, true);
+
+        StatsEngine statsEngine = new StatsEngineImpl();
+        profiler.beforeHarvest("test", statsEngine);
+
+        Assert.assertEquals(1, statsEngine.getResponseTimeStats(PACKAGE_METRIC).getCallCount());
+        Assert.assertEquals(1, statsEngine.getStats(PACKAGE_METRIC + "/Matched").getCallCount());
+        // bytes are not known for weave packages
+        Assert.assertEquals(0, statsEngine.getStats(PACKAGE_METRIC + "/Bytes").getCallCount());
+    }
+
+    @Test
+    public void testWeavePackageValidationMetrics() {
+        ClassTransformProfiler profiler = new ClassTransformProfiler(null);
+        profiler.recordWeavePackageValidation("com.newrelic.instrumentation.test", 1000, false);
+        profiler.recordWeavePackageValidation("com.newrelic.instrumentation.test", 2000, true);
+
+        StatsEngine statsEngine = new StatsEngineImpl();
+        profiler.beforeHarvest("test", statsEngine);
+
+        Assert.assertEquals(2, statsEngine.getResponseTimeStats(PACKAGE_METRIC + "/Validate").getCallCount());
+        Assert.assertEquals(1, statsEngine.getStats(PACKAGE_METRIC + "/Validate/Matched").getCallCount());
+        // validation is not counted as weaving
+        Assert.assertEquals(0, statsEngine.getResponseTimeStats(PACKAGE_METRIC).getCallCount());
+    }
+
+    @Test
+    public void testReportWrittenAfterFirstHarvest() throws Exception {
+        File reportFile = new File(folder.getRoot(), "transform-profile.json");
+        ClassTransformProfiler profiler = new ClassTransformProfiler(reportFile.getAbsolutePath());
+        profiler.recordClassMatch(500, 100, false);
+        profiler.recordWeavePackage("com.newrelic.instrumentation.cheap", 1000, false);
+        profiler.recordWeavePackage("com.newrelic.instrumentation.expensive", 9000, true);
+        profiler.recordWeavePackage("com.newrelic.instrumentation.expensive", 3000, true);
+
+        profiler.beforeHarvest("test", new StatsEngineImpl());
+        profiler.afterHarvest("test");
+        Assert.assertTrue(reportFile.exists());
+
+        JSONObject report = (JSONObject) JSONValue.parse(new String(Files.readAllBytes(reportFile.toPath()), StandardCharsets.UTF_8));
+        JSONArray transformers = (JSONArray) report.get("transformers");
+        Assert.assertEquals(1, transformers.size());
+        JSONObject classMatch = (JSONObject) transformers.get(0);
+        Assert.assertEquals(ClassTransformProfiler.CLASS_MATCH, classMatch.get("name"));
+        Assert.assertEquals(1L, classMatch.get("rejected"));
+
+        JSONArray weavePackages = (JSONArray) report.get("weavePackages");
+        Assert.assertEquals(2, weavePackages.size());
+        JSONObject expensive = (JSONObject) weavePackages.get(0);
+        Assert.assertEquals("com.newrelic.instrumentation.expensive", expensive.get("name"));
+        Assert.assertEquals(2L, expensive.get("count"));
+        Assert.assertEquals(12000L, expensive.get("totalNanos"));
+        Assert.assertEquals(3000L, expensive.get("minNanos"));
+        Assert.assertEquals(9000L, expensive.get("maxNanos"));
+        Assert.assertEquals(2L, expensive.get("matched"));
+
+        // the report is only written once
+        Assert.assertTrue(reportFile.delete());
+        profiler.beforeHarvest("test", new StatsEngineImpl());
+        profiler.afterHarvest("test");
+        Assert.assertFalse(reportFile.exists());
+    }
+
+    @Test
+    public void testTransformerName() {
+        Assert.assertEquals("TraceClassTransformer", ClassTransformProfiler.getTransformerName(new TraceClassTransformer()));
+        Runnable lambda = () -> {
+        };
+        Assert.assertEquals(lambda.getClass().getName(), ClassTransformProfiler.getTransformerName(lambda));
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.instrumentation.weaver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.commons.Method;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PersistentWeaveCacheTest {
+
+    private static final String CLASS_NAME = "com/example/Foo";
+    private static final byte[] CLASS_BYTES = { 1, 2, 3, 4 };
+    private static final List<String> SUPER_NAMES = Arrays.asList("com/example/Base", "java/lang/Object");
+    private static final List<String> INTERFACES = Collections.singletonList("com/example/Service");
+    private static final Map<Method, Collection<String>> NO_SKIP_METHODS = Collections.emptyMap();
+    private static final long MAX_SIZE = 1024 * 1024;
+
+    private File baseDirectory;
+
+    @Before
+    public void before() throws IOException {
+        baseDirectory = Files.createTempDirectory("weave-cache").toFile();
+    }
+
+    @After
+    public void after() {
+        delete(baseDirectory);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        PersistentWeaveCache cache = PersistentWeaveCache.create(baseDirectory.getAbsolutePath(), "8.0.0", "config", MAX_SIZE);
+        String key = cache.getKey(CLASS_NAME, CLASS_BYTES, SUPER_NAMES, INTERFACES, NO_SKIP_METHODS);
+        assertNull(cache.get(key, CLASS_NAME));
+
+        cache.put(key, CLASS_NAME, createEntry());
+
+        // a new instance reads what the previous run stored
+        PersistentWeaveCache restarted = PersistentWeaveCache.create(baseDirectory.getAbsolutePath(), "8.0.0", "config", MAX_SIZE);
+        PersistentWeaveCache.Entry entry = restarted.get(key, CLASS_NAME);
+        assertNotNull(entry);
+        assertArrayEquals(new byte[] { 5, 6, 7 }, entry.getCompositeBytes());
+        assertEquals(Arrays.asList(new Method("foo", "()V"), new Method("bar", "(I)I")),
+                entry.getWeavedMethods().get("com.newrelic.instrumentation.foo"));
+        assertTrue(entry.isValidFor(fingerprints("com.newrelic.instrumentation.foo", "1.0")));
+        assertFalse(entry.isValidFor(fingerprints("com.newrelic.instrumentation.foo", "2.0")));
+        assertFalse(entry.isValidFor(Collections.<String, String>emptyMap()));
+    }
+
+    @Test
+    public void testAgentVersionIsolatesEntries() {
+        PersistentWeaveCache cache = PersistentWeaveCache.create(baseDirectory.getAbsolutePath(), "8.0.0", "config", MAX_SIZE);
+        String key = cache.getKey(CLASS_NAME, CLASS_BYTES, SUPER_NAMES, INTERFACES, NO_SKIP_METHODS);
+        cache.put(key, CLASS_NAME, createEntry());
+
+        PersistentWeaveCache upgraded = PersistentWeaveCache.create(baseDirectory.getAbsolutePath(), "8.1.0", "config", MAX_SIZE);
+        assertNull(upgraded.get(key, CLASS_NAME));
+    }
+
+    @Test
+    public void testKeyChangesWithInputs() {
+        PersistentWeaveCache cache = PersistentWeaveCache.create(baseDirectory.getAbsolutePath(), "8.0.0", "config", MAX_SIZE);
+        String key = cache.getKey(CLASS_NAME, CLASS_BYTES, SUPER_NAMES, INTERFACES, NO_SKIP_METHODS);
+
+        assertEquals(key, cache.getKey(CLASS_NAME, CLASS_BYTES, SUPER_NAMES, INTERFACES, NO_SKIP_METHODS));
+        assertNotEquals(key, cache.getKey(CLASS_NAME, new byte[] { 1, 2, 3, 5 }, SUPER_NAMES, INTERFACES, NO_SKIP_METHODS));
+        assertNotEquals(key, cache.getKey(CLASS_NAME, CLASS_BYTES, Collections.singletonList("java/lang/Object"),
+                INTERFACES, NO_SKIP_METHODS));
+        assertNotEquals(key, cache.getKey(CLASS_NAME, CLASS_BYTES, SUPER_NAMES, Collections.<String>emptyList(),
+                NO_SKIP_METHODS));
+        assertNotEquals(key, cache.getKey(CLASS_NAME, CLASS_BYTES, SUPER_NAMES, INTERFACES,
+                Collections.<Method, Collection<String>>singletonMap(new Method("foo", "()V"),
+                        Collections.singletonList("com.newrelic.instrumentation.foo"))));
+
+        PersistentWeaveCache otherConfig = PersistentWeaveCache.create(baseDirectory.getAbsolutePath(), "8.0.0", "other", MAX_SIZE);
+        assertNotEquals(key, otherConfig.getKey(CLASS_NAME, CLASS_BYTES, SUPER_NAMES, INTERFACES, NO_SKIP_METHODS));
+    }
+
+    @Test
+    public void testCorruptEntryIsDiscarded() throws IOException {
+        PersistentWeaveCache cache = PersistentWeaveCache.create(baseDirectory.getAbsolutePath(), "8.0.0", "config", MAX_SIZE);
+        String key = cache.getKey(CLASS_NAME, CLASS_BYTES, SUPER_NAMES, INTERFACES, NO_SKIP_METHODS);
+        cache.put(key, CLASS_NAME, createEntry());
+
+        File entryFile = new File(new File(baseDirectory, "8.0.0"), key + ".weave");
+        assertTrue(entryFile.exists());
+        try (FileOutputStream out = new FileOutputStream(entryFile)) {
+            out.write(new byte[] { 0, 1 });
+        }
+
+        assertNull(cache.get(key, CLASS_NAME));
+        assertFalse(entryFile.exists());
+    }
+
+    @Test
+    public void testEntryForDifferentClassIsIgnored() {
+        PersistentWeaveCache cache = PersistentWeaveCache.create(baseDirectory.getAbsolutePath(), "8.0.0", "config", MAX_SIZE);
+        String key = cache.getKey(CLASS_NAME, CLASS_BYTES, SUPER_NAMES, INTERFACES, NO_SKIP_METHODS);
+        cache.put(key, CLASS_NAME, createEntry());
+
+        assertNull(cache.get(key, "com/example/Bar"));
+    }
+
+    @Test
+    public void testOtherVersionsAreDeleted() throws IOException {
+        PersistentWeaveCache cache = PersistentWeaveCache.create(baseDirectory.getAbsolutePath(), "8.0.0", "config", MAX_SIZE);
+        cache.put(cache.getKey(CLASS_NAME, CLASS_BYTES, SUPER_NAMES, INTERFACES, NO_SKIP_METHODS), CLASS_NAME, createEntry());
+        File unrelated = new File(baseDirectory, "unrelated");
+        assertTrue(unrelated.mkdir());
+        assertTrue(new File(unrelated, "notes.txt").createNewFile());
+
+        PersistentWeaveCache.create(baseDirectory.getAbsolutePath(), "8.1.0", "config", MAX_SIZE);
+        assertFalse(new File(baseDirectory, "8.0.0").exists());
+        assertTrue(new File(baseDirectory, "8.1.0").isDirectory());
+        // a directory that holds anything other than weave cache files is not ours to delete
+        assertTrue(unrelated.isDirectory());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() {
+        PersistentWeaveCache cache = PersistentWeaveCache.create(baseDirectory.getAbsolutePath(), "8.0.0", "config", MAX_SIZE);
+        String first = cache.getKey(CLASS_NAME, new byte[] { 1 }, SUPER_NAMES, INTERFACES, NO_SKIP_METHODS);
+        cache.put(first, CLASS_NAME, createEntry());
+        File firstFile = new File(new File(baseDirectory, "8.0.0"), first + ".weave");
+        long entrySize = firstFile.length();
+        long now = System.currentTimeMillis();
+        assertTrue(firstFile.setLastModified(now - 20000));
+
+        // room for two and a half entries
+        cache = PersistentWeaveCache.create(baseDirectory.getAbsolutePath(), "8.0.0", "config", entrySize * 5 / 2);
+        String second = cache.getKey(CLASS_NAME, new byte[] { 2 }, SUPER_NAMES, INTERFACES, NO_SKIP_METHODS);
+        cache.put(second, CLASS_NAME, createEntry());
+        assertTrue(new File(new File(baseDirectory, "8.0.0"), second + ".weave").setLastModified(now - 10000));
+        // reading the first entry makes the second the least recently used
+        assertNotNull(cache.get(first, CLASS_NAME));
+
+        String third = cache.getKey(CLASS_NAME, new byte[] { 3 }, SUPER_NAMES, INTERFACES, NO_SKIP_METHODS);
+        cache.put(third, CLASS_NAME, createEntry());
+        assertNotNull(cache.get(first, CLASS_NAME));
+        assertNull(cache.get(second, CLASS_NAME));
+        assertNotNull(cache.get(third, CLASS_NAME));
+    }
+
+    private static PersistentWeaveCache.Entry createEntry() {
+        Map<String, List<Method>> weavedMethods = new HashMap<>();
+        weavedMethods.put("com.newrelic.instrumentation.foo", Arrays.asList(new Method("foo", "()V"), new Method("bar", "(I)I")));
+        return new PersistentWeaveCache.Entry(fingerprints("com.newrelic.instrumentation.foo", "1.0"), weavedMethods,
+                new byte[] { 5, 6, 7 });
+    }
+
+    private static Map<String, String> fingerprints(String packageName, String fingerprint) {
+        return Collections.singletonMap(packageName, fingerprint);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.metric;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricNameTableTest {
+
+    @Test
+    public void getId() {
+        String name = "Datastore/statement/MySQL/users/select";
+        int id = MetricNameTable.current().getId(name);
+        Assert.assertTrue(id >= 0);
+        Assert.assertEquals(id, MetricNameTable.current().getId(new String(name.toCharArray())));
+        Assert.assertEquals(name, MetricNameTable.current().getName(id));
+    }
+
+    @Test
+    public void getIdDistinctNames() {
+        int id1 = MetricNameTable.current().getId("MetricNameTableTest/one");
+        int id2 = MetricNameTable.current().getId("MetricNameTableTest/two");
+        Assert.assertNotEquals(id1, id2);
+        Assert.assertEquals("MetricNameTableTest/one", MetricNameTable.current().getName(id1));
+        Assert.assertEquals("MetricNameTableTest/two", MetricNameTable.current().getName(id2));
+    }
+
+    @Test
+    public void getIdNull() {
+        Assert.assertEquals(MetricNameTable.NO_ID, MetricNameTable.current().getId(null));
+    }
+
+    @Test
+    public void getIdGrowsTable() {
+        int[] ids = new int[5000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = MetricNameTable.current().getId("MetricNameTableTest/grow/" + i);
+        }
+        for (int i = 0; i < ids.length; i++) {
+            Assert.assertEquals("MetricNameTableTest/grow/" + i, MetricNameTable.current().getName(ids[i]));
+        }
+    }
+
+    @Test
+    public void findIdDoesNotAssign() {
+        MetricNameTable table = MetricNameTable.current();
+        Assert.assertEquals(MetricNameTable.NO_ID, table.findId("MetricNameTableTest/find"));
+        Assert.assertEquals(MetricNameTable.NO_ID, table.findId("MetricNameTableTest/find"));
+        int id = table.getId("MetricNameTableTest/find");
+        Assert.assertEquals(id, table.findId("MetricNameTableTest/find"));
+        Assert.assertEquals(MetricNameTable.NO_ID, table.findId(null));
+    }
+
+    @Test
+    public void keyCachesIdPerTable() {
+        MetricNameTable table = MetricNameTable.current();
+        MetricNameTable.Key key = MetricNameTable.key("MetricNameTableTest/key");
+        int id = key.getId(table);
+        Assert.assertEquals(id, table.findId("MetricNameTableTest/key"));
+        Assert.assertEquals(id, key.getId(table));
+        Assert.assertEquals("MetricNameTableTest/key", key.getName());
+    }
+
+    @Test
+    public void retireIfFull() {
+        MetricNameTable full = MetricNameTable.current();
+        for (int i = 0; !full.isFull(); i++) {
+            full.getId("MetricNameTableTest/full/" + i);
+        }
+        Assert.assertEquals(MetricNameTable.NO_ID, full.getId("MetricNameTableTest/full/extra"));
+        MetricNameTable.Key key = MetricNameTable.key("MetricNameTableTest/full/0");
+        int oldId = key.getId(full);
+
+        Assert.assertTrue(MetricNameTable.retireIfFull());
+        Assert.assertFalse(MetricNameTable.retireIfFull());
+        MetricNameTable table = MetricNameTable.current();
+        Assert.assertNotSame(full, table);
+        Assert.assertEquals(0, table.getSize());
+
+        int id = table.getId("MetricNameTableTest/full/extra");
+        Assert.assertNotEquals(MetricNameTable.NO_ID, id);
+        Assert.assertEquals("MetricNameTableTest/full/extra", table.getName(id));
+        Assert.assertEquals(table.getId("MetricNameTableTest/full/0"), key.getId(table));
+
+        // ids handed out by the retired table still resolve through it
+        Assert.assertEquals("MetricNameTableTest/full/0", full.getName(oldId));
+    }
+
+}
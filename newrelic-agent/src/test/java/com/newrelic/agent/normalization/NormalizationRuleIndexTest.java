@@ -0,0 +1,128 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.normalization;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class NormalizationRuleIndexTest {
+
+    private static final String APP_NAME = "Unit Test";
+
+    @Test
+    public void literalPrefix() {
+        Assert.assertEquals("/artifact/", NormalizationRuleIndex.literalPrefix("^/artifact/"));
+        Assert.assertEquals("webtransaction/servlet/", NormalizationRuleIndex.literalPrefix("^WebTransaction/Servlet/.*"));
+        Assert.assertEquals("/api/", NormalizationRuleIndex.literalPrefix("^/api/(v1|v2)/"));
+        Assert.assertEquals("a.", NormalizationRuleIndex.literalPrefix("^a\\.b{2}"));
+        Assert.assertEquals("ab", NormalizationRuleIndex.literalPrefix("^ab+c"));
+        Assert.assertEquals("/x", NormalizationRuleIndex.literalPrefix("^/x[|]y"));
+    }
+
+    @Test
+    public void noLiteralPrefix() {
+        Assert.assertNull(NormalizationRuleIndex.literalPrefix("/artifact/"));
+        Assert.assertNull(NormalizationRuleIndex.literalPrefix("^a|b"));
+        Assert.assertNull(NormalizationRuleIndex.literalPrefix("^a?b"));
+        Assert.assertNull(NormalizationRuleIndex.literalPrefix("^(Apdex|WebTransaction)/"));
+        Assert.assertNull(NormalizationRuleIndex.literalPrefix("^\\d+"));
+        Assert.assertNull(NormalizationRuleIndex.literalPrefix("^\\Qa\\E"));
+        Assert.assertNull(NormalizationRuleIndex.literalPrefix("^(?m)a"));
+        Assert.assertNull(NormalizationRuleIndex.literalPrefix("^[]|]x"));
+    }
+
+    @Test
+    public void candidatesAreInRuleOrder() {
+        List<NormalizationRule> rules = Arrays.asList(
+                rule("^/foo/bar", false),
+                rule(".*\\.jpg$", false),
+                rule("^/FOO", false),
+                rule("^/baz", false),
+                rule("^/foo", true));
+        NormalizationRuleIndex index = new NormalizationRuleIndex(rules);
+
+        Assert.assertTrue(index.isSelective());
+        Assert.assertArrayEquals(new int[] { 0, 1, 2, 4 }, index.candidates("/Foo/Bar/image.jpg", -1));
+        Assert.assertArrayEquals(new int[] { 2, 4 }, index.candidates("/foo/bar", 1));
+        Assert.assertArrayEquals(new int[] { 1, 3, 4 }, index.candidates("/baz", -1));
+        Assert.assertArrayEquals(new int[] { 1, 4 }, index.candidates("/other", -1));
+    }
+
+    @Test
+    public void normalizesLikeApplyingEveryRule() {
+        List<NormalizationRule> rules = new ArrayList<>();
+        rules.add(new NormalizationRule("^/artifact/([^/]+)/.*", "/artifact/\\1/*", false, 1, false, false, false));
+        rules.add(new NormalizationRule("^/artifact/dep", "/dependency", false, 2, false, false, false));
+        rules.add(new NormalizationRule("\\d+", "*", false, 3, false, true, true));
+        rules.add(new NormalizationRule("^/dependency", null, true, 4, false, false, false));
+        rules.add(new NormalizationRule("^/static/", "/assets/", false, 5, true, false, false));
+        rules.add(new NormalizationRule("^/assets/", "/never/", false, 6, false, false, false));
+        rules.add(new NormalizationRule("^/api/(v1|v2)/", "/api/*/", false, 7, false, false, true));
+        rules.add(new NormalizationRule(".*\\.(css|js)$", "/resource", false, 8, false, false, false));
+        NormalizerImpl normalizer = new NormalizerImpl(APP_NAME, rules);
+
+        String[] segments = { "artifact", "dep", "static", "assets", "api", "v1", "V2", "123", "abc", "x.css", "dependency" };
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder name = new StringBuilder();
+            int count = 1 + random.nextInt(4);
+            for (int j = 0; j < count; j++) {
+                name.append('/').append(segments[random.nextInt(segments.length)]);
+            }
+            String url = name.toString();
+            Assert.assertEquals(url, applyEveryRule(rules, url), normalizer.normalize(url));
+            // the second lookup is answered from the cache
+            Assert.assertEquals(url, applyEveryRule(rules, url), normalizer.normalize(url));
+        }
+    }
+
+    @Test
+    public void cachedUnchangedNameIsReturnedAsIs() {
+        NormalizerImpl normalizer = new NormalizerImpl(APP_NAME, Arrays.asList(rule("^/foo", false)));
+        String name = new String("/bar");
+        String sameName = new String("/bar");
+
+        Assert.assertSame(name, normalizer.normalize(name));
+        Assert.assertSame(sameName, normalizer.normalize(sameName));
+        Assert.assertEquals("/replaced/x", normalizer.normalize("/foo/x"));
+        Assert.assertEquals("/replaced/x", normalizer.normalize("/foo/x"));
+    }
+
+    /**
+     * The rule chain without the index or the cache.
+     */
+    private static String applyEveryRule(List<NormalizationRule> rules, String name) {
+        String normalizedName = name;
+        for (NormalizationRule rule : rules) {
+            RuleResult result = rule.normalize(normalizedName);
+            if (!result.isMatch()) {
+                continue;
+            }
+            if (rule.isIgnore()) {
+                return null;
+            }
+            if (result.getReplacement() != null) {
+                normalizedName = result.getReplacement();
+            }
+            if (rule.isTerminateChain()) {
+                break;
+            }
+        }
+        return normalizedName;
+    }
+
+    private static NormalizationRule rule(String matchExpression, boolean eachSegment) {
+        return new NormalizationRule(matchExpression, "/replaced", false, 0, false, eachSegment, false);
+    }
+
+}
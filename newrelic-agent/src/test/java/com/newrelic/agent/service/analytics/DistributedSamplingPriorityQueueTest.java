@@ -104,6 +104,58 @@ public class DistributedSamplingPriorityQueueTest {
         return retryTarget;
     }
 
+    @Test
+    public void addAllCountsTriesAndDeciders() {
+        DistributedSamplingPriorityQueue<SimplePriorityAware> queue = new DistributedSamplingPriorityQueue<>(3);
+        queue.addAll(Arrays.asList(
+                new SimplePriorityAware(true, 1.5f),
+                new SimplePriorityAware(true, 0.5f),
+                new SimplePriorityAware(false, 1.2f),
+                new SimplePriorityAware(false, 0.1f)));
+
+        assertEquals(4, queue.getNumberOfTries());
+        assertEquals(3, queue.size());
+        assertEquals(2, queue.getDecided());
+        assertEquals(1, queue.getSampled());
+        assertEquals(1.5f, queue.peek().getPriority(), 0.0f);
+    }
+
+    @Test
+    public void decidedCountsOnlyRetainedDeciders() {
+        DistributedSamplingPriorityQueue<SimplePriorityAware> queue = new DistributedSamplingPriorityQueue<>(5);
+        for (int i = 0; i < 100; i++) {
+            queue.add(new SimplePriorityAware(true, 1.0f + i / 100.0f));
+        }
+        for (int i = 0; i < 100; i++) {
+            // all of these rank after the elements already kept
+            queue.add(new SimplePriorityAware(true, 1.0f));
+        }
+        queue.addAll(Collections.nCopies(50, new SimplePriorityAware(true, 0.5f)));
+
+        assertEquals(5, queue.size());
+        assertEquals(250, queue.getNumberOfTries());
+        // the deciders turned away once the reservoir was full are not counted
+        assertEquals(100, queue.getDecided());
+        assertEquals(100, queue.getSampled());
+    }
+
+    @Test
+    public void rejectsPrioritiesThatCannotBeSampled() {
+        DistributedSamplingPriorityQueue<SimplePriorityAware> queue = new DistributedSamplingPriorityQueue<>(2);
+        assertFalse(queue.rejects(0.1f));
+
+        queue.add(new SimplePriorityAware(false, 0.5f));
+        queue.add(new SimplePriorityAware(false, 0.7f));
+        assertTrue(queue.rejects(0.1f));
+        assertFalse(queue.rejects(0.6f));
+
+        DistributedSamplingPriorityQueue<SimplePriorityAware> customOrder = new DistributedSamplingPriorityQueue<>(2, 0, 0,
+                SimplePriorityAware.COMPARATOR);
+        customOrder.add(new SimplePriorityAware(false, 0.5f));
+        customOrder.add(new SimplePriorityAware(false, 0.7f));
+        assertFalse(customOrder.rejects(0.1f));
+    }
+
     @Test
     public void testDefaultSort() {
         DistributedSamplingPriorityQueue<SpanEvent> eventPool = new DistributedSamplingPriorityQueue<>(10);
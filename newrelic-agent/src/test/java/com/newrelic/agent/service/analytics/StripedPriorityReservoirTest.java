@@ -0,0 +1,250 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.service.analytics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StripedPriorityReservoirTest {
+
+    // highest first, like DistributedSamplingPriorityQueue's default comparator
+    private static final Comparator<Integer> DESCENDING = Collections.reverseOrder();
+
+    @Test
+    public void keepsTopElementsAcrossTrims() {
+        StripedPriorityReservoir<Integer> reservoir = new StripedPriorityReservoir<>(10, DESCENDING, 4);
+        List<Integer> values = shuffledRange(1000, 1);
+        for (int i = 0; i < values.size(); i++) {
+            reservoir.offer(values.get(i), i);
+        }
+
+        assertEquals(10, reservoir.size());
+        assertEquals(expectedTop(values, 10), reservoir.asList());
+        assertEquals(999, (int) reservoir.peek());
+    }
+
+    @Test
+    public void singleStripeBehavesLikeBoundedQueue() {
+        StripedPriorityReservoir<Integer> reservoir = new StripedPriorityReservoir<>(2, DESCENDING, 1);
+        assertTrue(reservoir.offer(100));
+        assertTrue(reservoir.offer(101));
+        assertTrue(reservoir.offer(102));
+        // evicted straight away
+        assertFalse(reservoir.offer(1));
+        assertEquals(2, reservoir.size());
+        assertEquals(expectedTop(shuffledRange(103, 0), 2), reservoir.asList());
+    }
+
+    @Test
+    public void rejectsElementsRankedAfterFloor() {
+        StripedPriorityReservoir<Integer> reservoir = new StripedPriorityReservoir<>(2, DESCENDING, 4);
+        reservoir.offer(100, 0);
+        reservoir.offer(101, 1);
+        reservoir.offer(102, 2);
+        reservoir.offer(103, 3);
+        // this went over twice the maximum size, so a trim published 103 as the floor
+        reservoir.offer(104, 0);
+        assertEquals(2, reservoir.size());
+        assertEquals(expectedTop(shuffledRange(105, 0), 2), reservoir.asList());
+
+        assertFalse(reservoir.offer(50, 1));
+        assertTrue(reservoir.offer(103, 1));
+    }
+
+    @Test
+    public void pollReturnsElementsInComparatorOrder() {
+        StripedPriorityReservoir<Integer> reservoir = new StripedPriorityReservoir<>(5, DESCENDING, 4);
+        List<Integer> values = shuffledRange(5, 2);
+        for (int i = 0; i < values.size(); i++) {
+            reservoir.offer(values.get(i), i);
+        }
+
+        List<Integer> polled = new ArrayList<>();
+        Integer value;
+        while ((value = reservoir.poll()) != null) {
+            polled.add(value);
+        }
+        assertEquals(expectedTop(values, 5), polled);
+        assertEquals(0, reservoir.size());
+        assertNull(reservoir.peek());
+    }
+
+    @Test
+    public void clear() {
+        StripedPriorityReservoir<Integer> reservoir = new StripedPriorityReservoir<>(3, DESCENDING, 2);
+        for (int i = 0; i < 20; i++) {
+            reservoir.offer(i, i);
+        }
+        reservoir.clear();
+        assertEquals(0, reservoir.size());
+        assertNull(reservoir.peek());
+        assertTrue(reservoir.asList().isEmpty());
+
+        // the floor is reset, so low values are accepted again
+        assertTrue(reservoir.offer(0));
+        assertEquals(1, reservoir.size());
+    }
+
+    @Test
+    public void zeroSizeRetainsNothing() {
+        StripedPriorityReservoir<Integer> reservoir = new StripedPriorityReservoir<>(0, DESCENDING);
+        assertFalse(reservoir.offer(1));
+        assertEquals(0, reservoir.size());
+        assertNull(reservoir.poll());
+    }
+
+    @Test
+    public void stripeCountIsPowerOfTwo() {
+        assertEquals(1, new StripedPriorityReservoir<>(10, DESCENDING, 1).getStripeCount());
+        assertEquals(8, new StripedPriorityReservoir<>(10, DESCENDING, 5).getStripeCount());
+        assertEquals(64, new StripedPriorityReservoir<>(10, DESCENDING, 1000).getStripeCount());
+    }
+
+    @Test(timeout = 30000)
+    public void concurrentOffersKeepExactTopElements() throws Exception {
+        final int threads = 16;
+        final int perThread = 20000;
+        final StripedPriorityReservoir<Integer> reservoir = new StripedPriorityReservoir<>(100, DESCENDING, 8);
+        final List<Integer> values = shuffledRange(threads * perThread, 3);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final List<Integer> slice = values.subList(t * perThread, (t + 1) * perThread);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (Integer value : slice) {
+                        reservoir.offer(value);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(100, reservoir.size());
+        assertEquals(expectedTop(values, 100), reservoir.asList());
+    }
+
+    @Test
+    public void offerAllKeepsTopElements() {
+        StripedPriorityReservoir<Integer> reservoir = new StripedPriorityReservoir<>(10, DESCENDING, 4);
+        List<Integer> values = shuffledRange(100, 3);
+        List<Integer> added = new ArrayList<>();
+        reservoir.offerAll(values, added::add);
+
+        assertEquals(10, reservoir.size());
+        assertEquals(expectedTop(values, 10), reservoir.asList());
+        assertTrue(added.containsAll(reservoir.asList()));
+    }
+
+    @Test
+    public void pollReturnsNoMoreThanSize() {
+        StripedPriorityReservoir<Integer> reservoir = new StripedPriorityReservoir<>(5, DESCENDING, 4);
+        // three full stripes hold more than the maximum size, but not enough to trim
+        for (int i = 0; i < 9; i++) {
+            reservoir.offer(i, i % 3);
+        }
+        assertEquals(5, reservoir.size());
+
+        int polled = 0;
+        while (reservoir.poll() != null) {
+            polled++;
+        }
+        assertEquals(5, polled);
+        assertEquals(0, reservoir.size());
+    }
+
+    @Test
+    public void trimKeepsOnlyTheElementsTyingTheFloorThatFit() {
+        StripedPriorityReservoir<Integer> reservoir = new StripedPriorityReservoir<>(5, DESCENDING, 4);
+        reservoir.offer(200, 0);
+        for (int i = 0; i < 10; i++) {
+            reservoir.offer(100, i);
+        }
+
+        // the trim brought the reservoir down to its size, even though the floor is tied many times over
+        assertEquals(5, reservoir.asList().size());
+        assertEquals(200, (int) reservoir.peek());
+        for (int i = 0; i < 100; i++) {
+            reservoir.offer(100, i);
+        }
+        // never more than the trim threshold is held
+        int held = 0;
+        assertEquals(200, (int) reservoir.poll());
+        while (reservoir.poll() != null) {
+            held++;
+        }
+        assertTrue(held < 10);
+    }
+
+    @Test
+    public void admissionBoundIsLastElementOfFullStripe() {
+        StripedPriorityReservoir<Integer> reservoir = new StripedPriorityReservoir<>(3, DESCENDING, 1);
+        reservoir.offer(10);
+        reservoir.offer(20);
+        assertNull(reservoir.getAdmissionBound());
+
+        reservoir.offer(30);
+        assertEquals(10, (int) reservoir.getAdmissionBound());
+        reservoir.offer(40);
+        assertEquals(20, (int) reservoir.getAdmissionBound());
+
+        reservoir.poll();
+        assertNull(reservoir.getAdmissionBound());
+    }
+
+    @Test
+    public void admissionBoundIsNoLowerThanFloor() {
+        StripedPriorityReservoir<Integer> reservoir = new StripedPriorityReservoir<>(2, DESCENDING, 4);
+        for (int i = 0; i < 5; i++) {
+            reservoir.offer(100 + i, i);
+        }
+        // the trim published 103 as the floor
+        assertTrue(reservoir.getAdmissionBound() >= 103);
+    }
+
+    private static List<Integer> shuffledRange(int size, long seed) {
+        List<Integer> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(i);
+        }
+        Collections.shuffle(values, new Random(seed));
+        return values;
+    }
+
+    private static List<Integer> expectedTop(List<Integer> values, int count) {
+        List<Integer> sorted = new ArrayList<>(values);
+        sorted.sort(DESCENDING);
+        return sorted.subList(0, count);
+    }
+
+}
@@ -31,7 +31,10 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class TransactionEventTest {
 
@@ -435,6 +438,29 @@ public class TransactionEventTest {
         assertEquals("val1", jsonObject.get("nr.syntheticsKey1"));
     }
 
+    @Test
+    public void testSerializedEventWritesSameJSON() throws Exception {
+        TransactionEvent event = baseBuilder(0.001931f)
+                .setDistributedTraceIntrinsics(Collections.<String, Object>singletonMap("dt-intrinsic", "yup"))
+                .putAllUserAttributes(ImmutableMap.<String, Object>of("key1", "value1", "key2", "value2"))
+                .build();
+        event.agentAttributes = new HashMap<>();
+        event.agentAttributes.put("request.uri", "/test");
+
+        TransactionEvent serialized = event.serialize();
+        assertFalse(event.isSerialized());
+        assertTrue(serialized.isSerialized());
+        assertSame(serialized, serialized.serialize());
+        assertEquals(AgentHelper.serializeJSON(event), AgentHelper.serializeJSON(serialized));
+
+        assertEquals(event.getTimestamp(), serialized.getTimestamp());
+        assertEquals(event.getPriority(), serialized.getPriority(), 0.0f);
+        assertEquals(event.getName(), serialized.getName());
+        assertTrue(serialized.getUserAttributesCopy().isEmpty());
+        assertNull(serialized.getDistributedTraceIntrinsics());
+        assertNull(serialized.agentAttributes);
+    }
+
     private TransactionEventBuilder baseBuilder(float duration) {
         return new TransactionEventBuilder().setAppName(APP_NAME)
                 .setTimestamp(startTime)
@@ -0,0 +1,101 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.service.module;
+
+import com.google.common.collect.ImmutableMap;
+import com.newrelic.api.agent.Logger;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.mockito.Mockito.mock;
+
+public class JarFingerprintCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSaveAndLoad() throws IOException, URISyntaxException {
+        URL jar = copyJar("test.jar");
+        URL embeddedJar = new URL(jar.toExternalForm() + "!/lib/inner.jar");
+        JarInfo jarInfo = new JarInfo("1.2.3", ImmutableMap.of(JarCollectorServiceProcessor.SHA1_CHECKSUM_KEY, "abc", "groupId", "com.example"));
+        JarInfo embeddedJarInfo = new JarInfo("4.5.6", ImmutableMap.<String, String>of());
+
+        String cacheFile = new File(folder.getRoot(), "cache/jars.bin").getAbsolutePath();
+        JarFingerprintCache cache = JarFingerprintCache.create(cacheFile, mock(Logger.class));
+        Assert.assertNull(cache.get(jar));
+        cache.put(jar, jarInfo);
+        cache.put(embeddedJar, embeddedJarInfo);
+        cache.save();
+
+        JarFingerprintCache loaded = JarFingerprintCache.create(cacheFile, mock(Logger.class));
+        Assert.assertEquals(2, loaded.size());
+        Assert.assertEquals(jarInfo, loaded.get(jar));
+        Assert.assertEquals(embeddedJarInfo, loaded.get(embeddedJar));
+    }
+
+    @Test
+    public void testChangedJarIsNotUsed() throws IOException, URISyntaxException {
+        URL jar = copyJar("changed.jar");
+        URL embeddedJar = new URL(jar.toExternalForm() + "!/lib/inner.jar");
+        JarFingerprintCache cache = new JarFingerprintCache(new File(folder.getRoot(), "jars.bin"), mock(Logger.class));
+        cache.put(jar, JarInfo.MISSING);
+        cache.put(embeddedJar, JarInfo.MISSING);
+        Assert.assertEquals(JarInfo.MISSING, cache.get(jar));
+
+        Files.write(new File(jar.getFile()).toPath(), "more bytes".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        Assert.assertNull(cache.get(jar));
+        // the outer jar changed, so the jar within it may have changed too
+        Assert.assertNull(cache.get(embeddedJar));
+    }
+
+    @Test
+    public void testDeletedJarIsDroppedOnSave() throws IOException, URISyntaxException {
+        URL jar = copyJar("deleted.jar");
+        File cacheFile = new File(folder.getRoot(), "jars.bin");
+        JarFingerprintCache cache = new JarFingerprintCache(cacheFile, mock(Logger.class));
+        cache.put(jar, JarInfo.MISSING);
+        Assert.assertTrue(new File(jar.getFile()).delete());
+        cache.save();
+
+        Assert.assertEquals(0, JarFingerprintCache.create(cacheFile.getAbsolutePath(), mock(Logger.class)).size());
+    }
+
+    @Test
+    public void testNonFileUrlIsNotCached() throws IOException {
+        JarFingerprintCache cache = new JarFingerprintCache(new File(folder.getRoot(), "jars.bin"), mock(Logger.class));
+        URL url = new URL("http://example.com/remote.jar");
+        cache.put(url, JarInfo.MISSING);
+        Assert.assertEquals(0, cache.size());
+        Assert.assertNull(cache.get(url));
+    }
+
+    @Test
+    public void testCorruptCacheIsIgnored() throws IOException {
+        File cacheFile = folder.newFile("corrupt.bin");
+        Files.write(cacheFile.toPath(), new byte[] { 1, 2, 3 });
+        Assert.assertEquals(0, JarFingerprintCache.create(cacheFile.getAbsolutePath(), mock(Logger.class)).size());
+    }
+
+    private URL copyJar(String name) throws IOException, URISyntaxException {
+        File file = new File(folder.getRoot(), name);
+        Files.copy(new File(JarCollectorServiceProcessorTest.getURL(JarCollectorServiceProcessorTest.JAR_PATH).toURI()).toPath(), file.toPath());
+        return file.toURI().toURL();
+    }
+}
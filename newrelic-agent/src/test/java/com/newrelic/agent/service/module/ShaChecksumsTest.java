@@ -7,9 +7,15 @@
 
 package com.newrelic.agent.service.module;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -26,4 +32,45 @@ public class ShaChecksumsTest {
     public void testJarWithinJar() throws NoSuchAlgorithmException, IOException {
         Assert.assertEquals("436bdbac7290779a1a89909827d8f24f632e3852", ShaChecksums.computeSha(JarCollectorServiceProcessorTest.getEmbeddedJarURL()));
     }
+
+    @Test
+    public void testFile() throws NoSuchAlgorithmException, IOException, URISyntaxException {
+        File file = new File(JarCollectorServiceProcessorTest.getURL(JarCollectorServiceProcessorTest.JAR_PATH).toURI());
+        Assert.assertEquals("b82b735bc9ddee35c7fe6780d68f4a0256c4bd7a", ShaChecksums.computeSha(file));
+    }
+
+    @Test
+    public void testComputeShasInOnePass() throws NoSuchAlgorithmException, IOException {
+        URL url = JarCollectorServiceProcessorTest.getURL(JarCollectorServiceProcessorTest.JAR_PATH);
+        List<String> checksums = ShaChecksums.computeShas(url, ShaChecksums.SHA1, ShaChecksums.SHA512);
+        Assert.assertEquals(2, checksums.size());
+        Assert.assertEquals("b82b735bc9ddee35c7fe6780d68f4a0256c4bd7a", checksums.get(0));
+        Assert.assertEquals(128, checksums.get(1).length());
+        Assert.assertEquals(ShaChecksums.computeSha512(url), checksums.get(1));
+
+        URL embeddedUrl = JarCollectorServiceProcessorTest.getEmbeddedJarURL();
+        List<String> embeddedChecksums = ShaChecksums.computeShas(embeddedUrl, ShaChecksums.SHA1, ShaChecksums.SHA512);
+        Assert.assertEquals("436bdbac7290779a1a89909827d8f24f632e3852", embeddedChecksums.get(0));
+    }
+
+    @Test
+    public void testFileLargerThanReadBuffer() throws NoSuchAlgorithmException, IOException {
+        File file = File.createTempFile("large", ".jar");
+        file.deleteOnExit();
+        byte[] data = new byte[ShaChecksums.READ_BUFFER_SIZE * 2 + 17];
+        new Random(42).nextBytes(data);
+        Files.write(file.toPath(), data);
+
+        List<String> checksums = ShaChecksums.computeShas(file, ShaChecksums.SHA1, ShaChecksums.SHA512);
+        Assert.assertEquals(ShaChecksums.computeSha(new ByteArrayInputStream(data)), checksums.get(0));
+        Assert.assertEquals(128, checksums.get(1).length());
+    }
+
+    @Test
+    public void testEmptyFile() throws NoSuchAlgorithmException, IOException {
+        File file = File.createTempFile("empty", ".jar");
+        file.deleteOnExit();
+        // sha1 of no bytes
+        Assert.assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709", ShaChecksums.computeSha(file));
+    }
 }
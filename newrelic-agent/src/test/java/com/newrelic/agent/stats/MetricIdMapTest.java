@@ -0,0 +1,120 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class MetricIdMapTest {
+
+    @Test
+    public void putAndGet() {
+        MetricIdMap<String> map = new MetricIdMap<>(4);
+        Assert.assertNull(map.put(1, "one"));
+        Assert.assertNull(map.put(2, "two"));
+        Assert.assertEquals("one", map.put(1, "uno"));
+        Assert.assertEquals("uno", map.get(1));
+        Assert.assertEquals("two", map.get(2));
+        Assert.assertNull(map.get(3));
+        Assert.assertEquals(2, map.size());
+    }
+
+    @Test
+    public void resize() {
+        MetricIdMap<Integer> map = new MetricIdMap<>(1);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i);
+        }
+        Assert.assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(Integer.valueOf(i), map.get(i));
+        }
+    }
+
+    @Test
+    public void iterateBySlot() {
+        MetricIdMap<Integer> map = new MetricIdMap<>(8);
+        for (int i = 0; i < 20; i++) {
+            map.put(i * 7, i);
+        }
+        int count = 0;
+        for (int i = 0; i < map.capacity(); i++) {
+            if (map.isOccupied(i)) {
+                Assert.assertEquals(map.keyAt(i), map.valueAt(i) * 7);
+                count++;
+            }
+        }
+        Assert.assertEquals(20, count);
+    }
+
+    @Test
+    public void clear() {
+        MetricIdMap<String> map = new MetricIdMap<>(4);
+        map.put(1, "one");
+        map.clear();
+        Assert.assertEquals(0, map.size());
+        Assert.assertNull(map.get(1));
+    }
+
+    @Test
+    public void removeMatchesHashMap() {
+        // random puts and removes must leave every probe sequence intact
+        Random random = new Random(42);
+        MetricIdMap<Integer> map = new MetricIdMap<>(16);
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 50000; i++) {
+            int key = random.nextInt(500);
+            if (random.nextBoolean()) {
+                Assert.assertEquals(expected.put(key, i), map.put(key, i));
+            } else {
+                Assert.assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+        Assert.assertEquals(expected.size(), map.size());
+        for (int key = 0; key < 500; key++) {
+            Assert.assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+    @Test
+    public void concurrentReadsNeverSeeAnotherKeysValue() throws Exception {
+        MetricIdMap<Integer> map = new MetricIdMap<>(1);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            Random random = new Random(7);
+            while (!done.get()) {
+                int key = random.nextInt(500);
+                Integer value = map.get(key);
+                if (value != null && value != key) {
+                    failure.set("read " + value + " for " + key);
+                }
+            }
+        });
+        reader.start();
+        Random random = new Random(42);
+        for (int i = 0; i < 50000; i++) {
+            int key = random.nextInt(500);
+            if (random.nextBoolean()) {
+                map.put(key, key);
+            } else {
+                map.remove(key);
+            }
+        }
+        done.set(true);
+        reader.join();
+        Assert.assertNull(failure.get());
+    }
+
+}
@@ -1,9 +1,12 @@
 package com.newrelic.agent.stats;
 
+import com.newrelic.agent.metric.MetricNameTable;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class SimpleStatsEngineTest {
@@ -76,6 +79,77 @@ public class SimpleStatsEngineTest {
 
     }
 
+    @Test
+    public void mergeStats(){
+        eng.getOrCreateResponseTimeStats("Datastore/statement/MySQL/users/select").recordResponseTimeInNanos(100);
+        SimpleStatsEngine other = new SimpleStatsEngine();
+        other.getOrCreateResponseTimeStats("Datastore/statement/MySQL/users/select").recordResponseTimeInNanos(200);
+        other.getStats("Custom/other").recordDataPoint(5f);
+        eng.mergeStats(other);
+
+        assertEquals(2, eng.getSize());
+        ResponseTimeStats merged = eng.getOrCreateResponseTimeStats("Datastore/statement/MySQL/users/select");
+        assertEquals(2, merged.getCallCount());
+        assertEquals(300f / 1000000000f, merged.getTotal(), 0.0000001f);
+        assertEquals(5f, eng.getStats("Custom/other").getTotal(), 0);
+    }
+
+    @Test
+    public void getStatsMapView(){
+        eng.getStats("Custom/one").recordDataPoint(1f);
+        assertTrue(eng.getStatsMap().containsKey("Custom/one"));
+        assertEquals(1, eng.getStatsMap().size());
 
+        eng.getStatsMap().put("Custom/two", new StatsImpl());
+        assertEquals(2, eng.getSize());
+        assertTrue(eng.getStatsMap().keySet().contains("Custom/two"));
+
+        eng.getStatsMap().remove("Custom/one");
+        assertEquals(1, eng.getSize());
+    }
+
+    @Test
+    public void getStatsMapViewLookupsDoNotAssignIds(){
+        assertNull(eng.getStatsMap().get("Custom/SimpleStatsEngineTest/missing"));
+        assertFalse(eng.getStatsMap().containsKey("Custom/SimpleStatsEngineTest/missing"));
+        assertNull(eng.getStatsMap().remove("Custom/SimpleStatsEngineTest/missing"));
+        assertEquals(MetricNameTable.NO_ID, MetricNameTable.current().findId("Custom/SimpleStatsEngineTest/missing"));
+    }
+
+    @Test
+    public void keyedStatsAreSharedWithNamedStats(){
+        MetricNameTable.Key key = MetricNameTable.key("Custom/SimpleStatsEngineTest/keyed");
+        eng.getOrCreateResponseTimeStatsByKey(key).recordResponseTimeInNanos(100);
+        eng.getOrCreateResponseTimeStats("Custom/SimpleStatsEngineTest/keyed").recordResponseTimeInNanos(100);
+        assertEquals(1, eng.getSize());
+        assertEquals(2, eng.getOrCreateResponseTimeStatsByKey(key).getCallCount());
+    }
+
+    @Test
+    public void mergeStatsFromRetiredTable(){
+        SimpleStatsEngine old = new SimpleStatsEngine();
+        old.getOrCreateResponseTimeStats("Custom/SimpleStatsEngineTest/merge").recordResponseTimeInNanos(100);
+
+        MetricNameTable full = MetricNameTable.current();
+        for (int i = 0; !full.isFull(); i++) {
+            full.getId("Custom/SimpleStatsEngineTest/full/" + i);
+        }
+        // names the full table refuses are kept by name
+        old.getOrCreateResponseTimeStats("Custom/SimpleStatsEngineTest/unindexed").recordResponseTimeInNanos(100);
+        assertTrue(MetricNameTable.retireIfFull());
+
+        SimpleStatsEngine current = new SimpleStatsEngine();
+        current.getOrCreateResponseTimeStats("Custom/SimpleStatsEngineTest/merge").recordResponseTimeInNanos(100);
+        current.mergeStats(old);
+
+        assertEquals(2, current.getSize());
+        assertEquals(2, current.getOrCreateResponseTimeStats("Custom/SimpleStatsEngineTest/merge").getCallCount());
+        assertEquals(1, current.getOrCreateResponseTimeStats("Custom/SimpleStatsEngineTest/unindexed").getCallCount());
+
+        // and the other way round
+        old.mergeStats(current);
+        assertEquals(2, old.getSize());
+        assertEquals(3, old.getOrCreateResponseTimeStats("Custom/SimpleStatsEngineTest/merge").getCallCount());
+    }
 
-}
\ No newline at end of file
+}
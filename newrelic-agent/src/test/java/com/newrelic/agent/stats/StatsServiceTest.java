@@ -21,6 +21,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
@@ -215,6 +216,35 @@ public class StatsServiceTest {
         Assert.assertEquals(300f, harvestStatsEngine.getStats("Test1").getTotal(), 0);
     }
 
+    @Test
+    public void doStatsWorkStriped() throws Exception {
+        serviceManager.stop();
+        Map<String, Object> configMap = createStagingMap();
+        configMap.put("stats_service", Collections.singletonMap("striped_aggregation", Collections.singletonMap("enabled", true)));
+        serviceManager = createServiceManager(configMap);
+
+        String appName = serviceManager.getConfigService().getDefaultAgentConfig().getApplicationName();
+        StatsService statsService = serviceManager.getStatsService();
+        statsService.doStatsWork(new RecordMetric("Test1", 100f), "statsWorkTest");
+        StatsEngineImpl statsEngine = new StatsEngineImpl();
+        statsEngine.getStats("Test1").recordDataPoint(200f);
+        statsService.doStatsWork(new MergeStatsWork(appName, statsEngine), "statsWorkTest");
+        statsService.doStatsWork(new MergeStatsWork(appName + "2", statsEngine), "statsWorkTest");
+
+        StatsEngine harvestStatsEngine = statsService.getStatsEngineForHarvest(appName);
+        Assert.assertEquals(1, harvestStatsEngine.getSize());
+        Assert.assertEquals(2, harvestStatsEngine.getStats("Test1").getCallCount());
+        Assert.assertEquals(300f, harvestStatsEngine.getStats("Test1").getTotal(), 0);
+
+        harvestStatsEngine = statsService.getStatsEngineForHarvest(appName + "2");
+        Assert.assertEquals(200f, harvestStatsEngine.getStats("Test1").getTotal(), 0);
+
+        // the replacement queue accepts work for the next harvest cycle
+        statsService.doStatsWork(new RecordMetric("Test1", 50f), "statsWorkTest");
+        harvestStatsEngine = statsService.getStatsEngineForHarvest(appName);
+        Assert.assertEquals(50f, harvestStatsEngine.getStats("Test1").getTotal(), 0);
+    }
+
     private static class MergeStatsWork implements StatsWork {
 
         private final String appName;
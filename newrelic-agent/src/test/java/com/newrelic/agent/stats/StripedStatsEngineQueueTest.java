@@ -0,0 +1,150 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class StripedStatsEngineQueueTest {
+
+    @Test
+    public void stripeCountIsPowerOfTwo() {
+        Assert.assertEquals(1, new StripedStatsEngineQueue(1).getStripeCount());
+        Assert.assertEquals(8, new StripedStatsEngineQueue(5).getStripeCount());
+        Assert.assertEquals(256, new StripedStatsEngineQueue(10000).getStripeCount());
+    }
+
+    @Test
+    public void doStatsWork() {
+        StripedStatsEngineQueue queue = new StripedStatsEngineQueue(4);
+        Assert.assertTrue(queue.doStatsWork(new RecordMetric("Test1", 100f)));
+        Assert.assertTrue(queue.doStatsWork(new RecordMetric("Test1", 200f)));
+        Assert.assertTrue(queue.doStatsWork(new RecordMetric("Test2", 5f)));
+
+        StatsEngine harvestStatsEngine = queue.getStatsEngineForHarvest();
+        Assert.assertEquals(2, harvestStatsEngine.getSize());
+        Assert.assertEquals(2, harvestStatsEngine.getStats("Test1").getCallCount());
+        Assert.assertEquals(300f, harvestStatsEngine.getStats("Test1").getTotal(), 0);
+        Assert.assertEquals(5f, harvestStatsEngine.getStats("Test2").getTotal(), 0);
+    }
+
+    @Test
+    public void doStatsWorkAfterHarvestIsRejected() {
+        StripedStatsEngineQueue queue = new StripedStatsEngineQueue(4);
+        Assert.assertTrue(queue.doStatsWork(new RecordMetric("Test1", 100f)));
+        queue.getStatsEngineForHarvest();
+        Assert.assertFalse(queue.doStatsWork(new RecordMetric("Test1", 100f)));
+    }
+
+    @Test
+    public void nestedWorkUsesAnotherStripe() {
+        final StripedStatsEngineQueue queue = new StripedStatsEngineQueue(1);
+        Assert.assertTrue(queue.doStatsWork(new StatsWork() {
+            @Override
+            public void doWork(StatsEngine statsEngine) {
+                statsEngine.getStats("Outer").recordDataPoint(1f);
+                // the only stripe is claimed by this thread, so a second engine must be created
+                Assert.assertTrue(queue.doStatsWork(new RecordMetric("Inner", 2f)));
+            }
+
+            @Override
+            public String getAppName() {
+                return null;
+            }
+        }));
+
+        StatsEngine harvestStatsEngine = queue.getStatsEngineForHarvest();
+        Assert.assertEquals(1f, harvestStatsEngine.getStats("Outer").getTotal(), 0);
+        Assert.assertEquals(2f, harvestStatsEngine.getStats("Inner").getTotal(), 0);
+    }
+
+    @Test
+    public void harvestWaitsForInFlightWork() throws Exception {
+        final StripedStatsEngineQueue queue = new StripedStatsEngineQueue(4);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                queue.doStatsWork(new StatsWork() {
+                    @Override
+                    public void doWork(StatsEngine statsEngine) {
+                        started.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                        }
+                        statsEngine.getStats("Slow").recordDataPoint(10f);
+                    }
+
+                    @Override
+                    public String getAppName() {
+                        return null;
+                    }
+                });
+            }
+        });
+        worker.setDaemon(true);
+        worker.start();
+        started.await();
+
+        final StatsEngine[] harvested = new StatsEngine[1];
+        Thread harvester = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                harvested[0] = queue.getStatsEngineForHarvest();
+            }
+        });
+        harvester.setDaemon(true);
+        harvester.start();
+
+        release.countDown();
+        harvester.join(10000);
+        worker.join(10000);
+        Assert.assertNotNull(harvested[0]);
+        Assert.assertEquals(10f, harvested[0].getStats("Slow").getTotal(), 0);
+    }
+
+    @Test
+    public void doStatsWorkMultiThreads() throws Exception {
+        final StripedStatsEngineQueue queue = new StripedStatsEngineQueue(8);
+        final int threadCount = 16;
+        final int iterations = 1000;
+        final CountDownLatch go = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                    }
+                    for (int j = 0; j < iterations; j++) {
+                        queue.doStatsWork(new IncrementCounter("Counter", 1));
+                    }
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join(30000);
+        }
+
+        StatsEngine harvestStatsEngine = queue.getStatsEngineForHarvest();
+        Assert.assertEquals(threadCount * iterations, harvestStatsEngine.getStats("Counter").getCallCount());
+    }
+
+}
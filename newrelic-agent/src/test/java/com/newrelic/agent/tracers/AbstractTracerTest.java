@@ -154,6 +154,35 @@ public class AbstractTracerTest {
         assertSame(childTracer, result);
     }
 
+    @Test
+    public void testFirstExceptionWins() {
+        AbstractTracer tracer = createTxnAndTracer();
+        assertNull(tracer.getException());
+        assertFalse(tracer.wasExceptionSetByAPI());
+
+        Throwable noticed = new RuntimeException("noticed");
+        tracer.setNoticedError(noticed);
+        tracer.setThrownException(new IllegalStateException("thrown"));
+
+        assertSame(noticed, tracer.getException());
+        assertTrue(tracer.wasExceptionSetByAPI());
+        tracer.finish(Opcodes.RETURN, null);
+    }
+
+    @Test
+    public void testMarkFinishTime() throws Exception {
+        DefaultTracer tracer = (DefaultTracer) createTxnAndTracer();
+        assertEquals(AbstractTracer.FINISH_TIME_NOT_MARKED, tracer.finishTime);
+        tracer.markFinishTime();
+        long markedFinishTime = tracer.finishTime;
+        tracer.markFinishTime();
+        assertEquals(markedFinishTime, tracer.finishTime);
+
+        Thread.sleep(5);
+        tracer.finish(Opcodes.RETURN, null);
+        assertEquals(markedFinishTime - tracer.getStartTime(), tracer.getDuration());
+    }
+
     @Test
     public void testAddCustomAttributeNoCheckLimit() {
         // setup
@@ -79,6 +79,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import static com.newrelic.agent.AgentHelper.getFullPath;
 import static com.newrelic.agent.attributes.AttributeNames.CLM_FUNCTION;
 import static com.newrelic.agent.attributes.AttributeNames.CLM_NAMESPACE;
+import static com.newrelic.agent.attributes.AttributeNames.THREAD_ID;
 import static com.newrelic.agent.attributes.AttributeNames.TRANSACTION_TRACE_ID_PARAMETER_NAME;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -129,6 +130,30 @@ public class DefaultTracerClmTest {
         assertClm(parentTracer, method);
     }
 
+    @Test
+    public void testFinishAttributesAreAddedWhenRead() {
+        Transaction tx = Transaction.getTransaction();
+        ClassMethodSignature sig = new ClassMethodSignature(getClass().getName(), "dude", "()V");
+        DefaultTracer parentTracer = new OtherRootTracer(tx, sig, this, new SimpleMetricNameFormat("test"));
+        tx.getTransactionActivity().tracerStarted(parentTracer);
+
+        String method = "lilDude";
+        DefaultTracer kid = new DefaultTracer(tx, new ClassMethodSignature(getClass().getName(), method, "()V"), this);
+        tx.getTransactionActivity().tracerStarted(kid);
+        kid.finish(Opcodes.RETURN, null);
+
+        // nothing has read the agent attributes yet, so the map was not allocated
+        assertNull(kid.agentAttributes);
+        assertEquals(tx.getTransactionActivity().getThreadId(), kid.getAgentAttribute(THREAD_ID));
+        assertClm(kid, method);
+
+        // attributes set after the tracer finished still replace the ones it set at finish
+        kid.setAgentAttribute(CLM_FUNCTION, "otherMethod");
+        assertClm(kid, "otherMethod");
+
+        parentTracer.finish(Opcodes.RETURN, null);
+    }
+
     @Test
     public void exclusiveTime() throws Exception {
         Transaction tx = Transaction.getTransaction();
@@ -0,0 +1,183 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.tracers;
+
+import com.newrelic.agent.MockCoreService;
+import com.newrelic.agent.Transaction;
+import com.newrelic.agent.TransactionActivity;
+import com.newrelic.agent.bridge.TracedMethod;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.service.ServiceManager;
+import com.newrelic.agent.stats.ResponseTimeStats;
+import com.newrelic.agent.tracers.metricname.SimpleMetricNameFormat;
+import com.newrelic.test.marker.RequiresFork;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.objectweb.asm.Opcodes;
+
+import static com.newrelic.agent.AgentHelper.getFullPath;
+
+@Category(RequiresFork.class)
+public class PooledTracerTest {
+
+    private static final ClassMethodSignature SIGNATURE = new ClassMethodSignature("com.example.Repository", "find",
+            "()V");
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        System.setProperty("newrelic.config.file", getFullPath("/com/newrelic/agent/config/span_events.yml"));
+        System.setProperty("newrelic.config.span_events.enabled", "false");
+        System.setProperty("newrelic.config.transaction_tracer.enabled", "false");
+        System.setProperty("newrelic.config.pooled_tracers", "true");
+
+        MockCoreService.getMockAgentAndBootstrapTheServiceManager();
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        ServiceManager serviceManager = ServiceFactory.getServiceManager();
+        if (serviceManager != null) {
+            serviceManager.stop();
+        }
+        System.clearProperty("newrelic.config.span_events.enabled");
+        System.clearProperty("newrelic.config.transaction_tracer.enabled");
+        System.clearProperty("newrelic.config.pooled_tracers");
+    }
+
+    @Before
+    public void before() {
+        Transaction.clearTransaction();
+    }
+
+    @Test
+    public void testTracersAreReused() {
+        TransactionActivity txa = startTransaction();
+        Tracer root = txa.getRootTracer();
+
+        Tracer first = startTracer(txa, "Custom/first");
+        Assert.assertTrue(first instanceof PooledTracer);
+        first.finish(Opcodes.RETURN, null);
+
+        Tracer second = startTracer(txa, "Custom/second");
+        Assert.assertSame(first, second);
+        second.finish(Opcodes.RETURN, null);
+
+        Assert.assertSame(root, txa.getLastTracer());
+        Assert.assertTrue(txa.getTracers().isEmpty());
+        Assert.assertEquals(1, getStats(txa, "Custom/first").getCallCount());
+        Assert.assertEquals(1, getStats(txa, "Custom/second").getCallCount());
+    }
+
+    @Test
+    public void testChildTimeIsNotExclusive() throws Exception {
+        TransactionActivity txa = startTransaction();
+
+        Tracer parent = startTracer(txa, "Custom/parent");
+        Tracer child = startTracer(txa, "Custom/child");
+        Assert.assertNotSame(parent, child);
+        Thread.sleep(5);
+        child.finish(Opcodes.RETURN, null);
+        parent.finish(Opcodes.RETURN, null);
+
+        ResponseTimeStats parentStats = getStats(txa, "Custom/parent");
+        ResponseTimeStats childStats = getStats(txa, "Custom/child");
+        Assert.assertEquals(1, parentStats.getCallCount());
+        Assert.assertEquals(1, childStats.getCallCount());
+        Assert.assertTrue(parentStats.getTotal() >= childStats.getTotal());
+        Assert.assertTrue(parentStats.getTotalExclusiveTime() < childStats.getTotal());
+    }
+
+    @Test
+    public void testLastTracerIsMaterialized() {
+        TransactionActivity txa = startTransaction();
+        Tracer root = txa.getRootTracer();
+
+        PooledTracer parent = (PooledTracer) startTracer(txa, "Custom/parent");
+        PooledTracer child = (PooledTracer) startTracer(txa, "Custom/child");
+
+        Tracer lastTracer = txa.getLastTracer();
+        Assert.assertTrue(lastTracer instanceof DefaultTracer);
+        Assert.assertTrue(child.isMaterialized());
+        Assert.assertTrue(parent.isMaterialized());
+        Assert.assertSame(parent.materialize(), lastTracer.getParentTracer());
+        Assert.assertSame(root, lastTracer.getParentTracer().getParentTracer());
+        Assert.assertFalse(lastTracer.isTransactionSegment());
+
+        child.finish(Opcodes.RETURN, null);
+        Assert.assertSame(parent.materialize(), txa.getLastTracer());
+        parent.finish(Opcodes.RETURN, null);
+        Assert.assertSame(root, txa.getLastTracer());
+
+        Assert.assertEquals(1, getStats(txa, "Custom/parent").getCallCount());
+        Assert.assertEquals(1, getStats(txa, "Custom/child").getCallCount());
+
+        // the pooled tracer is reused without the tracer it materialized into
+        PooledTracer next = (PooledTracer) startTracer(txa, "Custom/next");
+        Assert.assertSame(parent, next);
+        Assert.assertFalse(next.isMaterialized());
+        next.finish(Opcodes.RETURN, null);
+    }
+
+    @Test
+    public void testTracedMethodIsMaterialized() {
+        TransactionActivity txa = startTransaction();
+
+        PooledTracer tracer = (PooledTracer) startTracer(txa, "Custom/method");
+        TracedMethod tracedMethod = tracer.getTracedMethod();
+        Assert.assertTrue(tracedMethod instanceof DefaultTracer);
+        tracedMethod.setMetricName("Custom", "renamed");
+        tracer.finish(Opcodes.RETURN, null);
+
+        Assert.assertEquals(1, getStats(txa, "Custom/renamed").getCallCount());
+        Assert.assertEquals(0, getStats(txa, "Custom/method").getCallCount());
+    }
+
+    @Test
+    public void testRootTracersAreNotPooled() {
+        TransactionActivity txa = startTransaction();
+
+        Assert.assertTrue(txa.canPoolTracer(DefaultTracer.DEFAULT_TRACER_FLAGS));
+        Assert.assertFalse(txa.canPoolTracer(TracerFlags.getDispatcherFlags(true)));
+        Assert.assertFalse(txa.canPoolTracer(DefaultTracer.DEFAULT_TRACER_FLAGS | TracerFlags.ASYNC));
+    }
+
+    private static TransactionActivity startTransaction() {
+        Transaction tx = Transaction.getTransaction();
+        Assert.assertTrue(tx.isTracerPoolingEnabled());
+        TransactionActivity txa = tx.getTransactionActivity();
+        Tracer root = new OtherRootTracer(txa, new ClassMethodSignature("com.example.Job", "run", "()V"), null,
+                new SimpleMetricNameFormat("OtherTransaction/Custom/com.example.Job/run"));
+        txa.tracerStarted(root);
+        return txa;
+    }
+
+    /**
+     * The same steps as InstrumentationImpl.createTracer().
+     */
+    private static Tracer startTracer(TransactionActivity txa, String metricName) {
+        Assert.assertTrue(txa.checkTracerStart());
+        Tracer tracer;
+        try {
+            tracer = txa.createPooledTracer(SIGNATURE, null, new SimpleMetricNameFormat(metricName),
+                    DefaultTracer.DEFAULT_TRACER_FLAGS);
+        } finally {
+            txa.unlockTracerStart();
+        }
+        txa.tracerStarted(tracer);
+        return tracer;
+    }
+
+    private static ResponseTimeStats getStats(TransactionActivity txa, String metricName) {
+        return txa.getTransactionStats().getScopedStats().getOrCreateResponseTimeStats(metricName);
+    }
+
+}
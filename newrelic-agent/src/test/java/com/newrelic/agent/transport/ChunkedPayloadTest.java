@@ -0,0 +1,92 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.transport;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ChunkedPayloadTest {
+
+    @Test
+    public void writeAcrossChunks() throws Exception {
+        byte[] data = new byte[ChunkedPayload.CHUNK_SIZE * 2 + 123];
+        new Random(42).nextBytes(data);
+
+        ChunkedPayload payload = new ChunkedPayload(0);
+        payload.write(data[0]);
+        payload.write(data, 1, 1000);
+        payload.write(data, 1001, data.length - 1001);
+
+        assertEquals(data.length, payload.size());
+        assertArrayEquals(data, payload.toByteArray());
+        assertArrayEquals(data, ByteStreams.toByteArray(payload.getInputStream()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        payload.writeTo(out);
+        assertArrayEquals(data, out.toByteArray());
+
+        payload.release();
+    }
+
+    @Test
+    public void emptyPayload() throws Exception {
+        ChunkedPayload payload = new ChunkedPayload(0);
+        assertEquals(0, payload.size());
+        assertEquals(0, payload.toByteArray().length);
+        assertEquals(-1, payload.getInputStream().read());
+        payload.release();
+    }
+
+    @Test
+    public void sizeLimitIsEnforcedWhileWriting() throws Exception {
+        ChunkedPayload payload = new ChunkedPayload(100);
+        payload.write(new byte[100]);
+        try {
+            payload.write(0);
+            fail("Expected the payload size limit to be enforced");
+        } catch (ChunkedPayload.PayloadSizeExceededException expected) {
+        }
+        assertEquals(100, payload.size());
+        payload.release();
+    }
+
+    @Test
+    public void releasedPayloadCannotBeWritten() throws Exception {
+        ChunkedPayload payload = new ChunkedPayload(0);
+        payload.write(1);
+        payload.release();
+        payload.release();
+        try {
+            payload.write(2);
+            fail("Expected a released payload to reject writes");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void releasedChunksAreReused() throws Exception {
+        ChunkedPayload first = new ChunkedPayload(0);
+        first.write(new byte[] { 1, 2, 3 });
+        first.release();
+
+        ChunkedPayload second = new ChunkedPayload(0);
+        second.write(new byte[] { 4 });
+        // a reused chunk still holds stale bytes past the written size, which must not leak into the payload
+        assertArrayEquals(new byte[] { 4 }, second.toByteArray());
+        assertArrayEquals(new byte[] { 4 }, ByteStreams.toByteArray(second.getInputStream()));
+        second.release();
+    }
+
+}
@@ -31,6 +31,7 @@ import com.newrelic.agent.stats.IncrementCounter;
 import com.newrelic.agent.stats.RecordDataUsageMetric;
 import com.newrelic.agent.stats.StatsImpl;
 import com.newrelic.agent.stats.StatsService;
+import com.google.common.io.ByteStreams;
 import org.hamcrest.CoreMatchers;
 import org.junit.After;
 import org.junit.Assert;
@@ -38,6 +39,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.MockingDetails;
@@ -47,8 +49,12 @@ import org.mockito.internal.stubbing.answers.ReturnsArgumentAt;
 import org.mockito.invocation.Invocation;
 
 import javax.net.ssl.SSLHandshakeException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.net.SocketException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
@@ -56,6 +62,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import static com.newrelic.agent.MetricNames.SUPPORTABILITY_AGENT_ENDPOINT_HTTP_ERROR;
 import static org.junit.Assert.assertEquals;
@@ -76,6 +85,9 @@ public class DataSenderImplTest {
     @Rule
     public ExpectedException exceptionRule = ExpectedException.none();
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Mock
     public StatsService mockStatsService;
 
@@ -544,6 +556,188 @@ public class DataSenderImplTest {
         assertMetricWasRecorded(SUPPORTABILITY_METRIC_SPAN_DATA);
     }
 
+    @Test
+    public void testMaxPayloadSizeStreaming() {
+        Map<String, Object> configMap = configMap();
+        configMap.put(AgentConfigImpl.STREAMING_PAYLOADS_PROPERTY, true);
+        AgentConfig config = AgentConfigImpl.createAgentConfig(configMap);
+        DataSenderImpl dataSender = new DataSenderImpl(config, getHttpClientWrapper(), null, logger, ServiceFactory.getConfigService());
+
+        dataSender.setAgentRunId("AgentRunId");
+        dataSender.setMaxPayloadSizeInBytes(200);
+
+        sendAnalyticEventsPayloadTooBig(dataSender);
+        sendMetricDataPayloadTooBig(dataSender);
+        sendSpanEventsPayloadTooBig(dataSender);
+        sendLogEventsPayloadTooBig(dataSender);
+
+        sendMetricDataSmallPayload(dataSender);
+
+        assertMetricWasRecorded(SUPPORTABILITY_METRIC_METRIC_DATA);
+        assertMetricWasRecorded(SUPPORTABILITY_METRIC_ANALYTIC_DATA);
+        assertMetricWasRecorded(SUPPORTABILITY_METRIC_SPAN_DATA);
+    }
+
+    @Test
+    public void testStreamingPayloadMatchesBufferedPayload() throws Exception {
+        List<MetricData> metricData = createMetricData(50);
+        for (String encoding : new String[] { DataSenderImpl.DEFLATE_ENCODING, DataSenderImpl.GZIP_ENCODING }) {
+            String buffered = sendMetricDataAndCapturePayload(false, encoding, metricData);
+            String streamed = sendMetricDataAndCapturePayload(true, encoding, metricData);
+            assertEquals(buffered, streamed);
+        }
+    }
+
+    private String sendMetricDataAndCapturePayload(boolean streaming, String encoding, List<MetricData> metricData) throws Exception {
+        Map<String, Object> configMap = configMap();
+        configMap.put(AgentConfigImpl.STREAMING_PAYLOADS_PROPERTY, streaming);
+        configMap.put(AgentConfigImpl.COMPRESSED_CONTENT_ENCODING_PROPERTY, encoding);
+        AgentConfig config = AgentConfigImpl.createAgentConfig(configMap);
+
+        final AtomicReference<byte[]> sentBody = new AtomicReference<>();
+        final AtomicReference<String> sentEncoding = new AtomicReference<>();
+        HttpClientWrapper wrapper = new HttpClientWrapper() {
+            @Override
+            public ReadResult execute(Request request, ExecuteEventHandler eventHandler) throws Exception {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                try (InputStream in = request.getPayload() == null
+                        ? new ByteArrayInputStream(request.getData()) : request.getPayload().getInputStream()) {
+                    ByteStreams.copy(in, body);
+                }
+                assertEquals(request.getDataLength(), body.size());
+                sentBody.set(body.toByteArray());
+                sentEncoding.set(request.getEncoding());
+                return ReadResult.create(HttpResponseCode.ACCEPTED, "", null);
+            }
+
+            @Override
+            public void captureSupportabilityMetrics(StatsService statsService, String requestHost) {
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        };
+
+        DataSenderImpl dataSender = new DataSenderImpl(config, wrapper, null, logger, ServiceFactory.getConfigService());
+        dataSender.setAgentRunId("AgentRunId");
+        dataSender.sendMetricData(1000, 2000, metricData);
+
+        assertEquals(encoding, sentEncoding.get());
+        InputStream in = new ByteArrayInputStream(sentBody.get());
+        in = DataSenderImpl.GZIP_ENCODING.equals(encoding) ? new GZIPInputStream(in) : new InflaterInputStream(in);
+        return new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testSpilledPayloadsAreSentAfterOutage() throws Exception {
+        StandInCollector collector = new StandInCollector();
+        DataSenderImpl dataSender = new DataSenderImpl(spillConfig(2), collector, null, logger, ServiceFactory.getConfigService());
+        dataSender.setAgentRunId("AgentRunId");
+
+        collector.statusCode = HttpResponseCode.SERVICE_UNAVAILABLE;
+        for (int i = 0; i < 3; i++) {
+            // the payloads are spilled instead of failing the harvest
+            dataSender.sendAnalyticsEvents(10, 10, createTransactionEvents(i + 1));
+        }
+        List<String> failedPayloads = new ArrayList<>(collector.payloads);
+        assertEquals(3, failedPayloads.size());
+
+        collector.statusCode = HttpResponseCode.ACCEPTED;
+        collector.payloads.clear();
+        dataSender.setAgentRunId("NewAgentRunId");
+        dataSender.sendAnalyticsEvents(10, 10, createTransactionEvents(1));
+        assertEquals(3, collector.payloads.size());
+        assertEquals(failedPayloads.get(0).replace("AgentRunId", "NewAgentRunId"), collector.payloads.get(1));
+        assertEquals(failedPayloads.get(1).replace("AgentRunId", "NewAgentRunId"), collector.payloads.get(2));
+
+        collector.payloads.clear();
+        dataSender.sendAnalyticsEvents(10, 10, createTransactionEvents(1));
+        assertEquals(2, collector.payloads.size());
+        assertEquals(failedPayloads.get(2).replace("AgentRunId", "NewAgentRunId"), collector.payloads.get(1));
+
+        collector.payloads.clear();
+        dataSender.sendAnalyticsEvents(10, 10, createTransactionEvents(1));
+        assertEquals(1, collector.payloads.size());
+    }
+
+    @Test
+    public void testSpilledPayloadsAreSentByNextAgentRun() throws Exception {
+        StandInCollector collector = new StandInCollector();
+        DataSenderImpl dataSender = new DataSenderImpl(spillConfig(5), collector, null, logger, ServiceFactory.getConfigService());
+        dataSender.setAgentRunId("AgentRunId");
+
+        collector.failure = new SocketException("Connection refused");
+        dataSender.sendLogEvents(createLogEvents(2));
+        collector.failure = null;
+        dataSender.shutdown(System.currentTimeMillis());
+        String failedPayload = collector.payloads.get(0);
+
+        collector.payloads.clear();
+        dataSender = new DataSenderImpl(spillConfig(5), collector, null, logger, ServiceFactory.getConfigService());
+        dataSender.setAgentRunId("NewAgentRunId");
+        dataSender.sendLogEvents(createLogEvents(1));
+        assertEquals(2, collector.payloads.size());
+        assertEquals(failedPayload, collector.payloads.get(1));
+    }
+
+    @Test
+    public void testDiscardedPayloadsAreNotSpilled() throws Exception {
+        StandInCollector collector = new StandInCollector();
+        DataSenderImpl dataSender = new DataSenderImpl(spillConfig(5), collector, null, logger, ServiceFactory.getConfigService());
+        dataSender.setAgentRunId("AgentRunId");
+
+        collector.statusCode = HttpResponseCode.BAD_REQUEST;
+        try {
+            dataSender.sendAnalyticsEvents(10, 10, createTransactionEvents(1));
+            fail("Expected an HttpError");
+        } catch (HttpError expected) {
+        }
+
+        collector.statusCode = HttpResponseCode.ACCEPTED;
+        collector.payloads.clear();
+        dataSender.sendAnalyticsEvents(10, 10, createTransactionEvents(1));
+        assertEquals(1, collector.payloads.size());
+    }
+
+    private AgentConfig spillConfig(int drainLimit) {
+        Map<String, Object> configMap = configMap();
+        configMap.put(AgentConfigImpl.APP_NAME, "Spill Test");
+        configMap.put(AgentConfigImpl.SPILL_DIRECTORY, folder.getRoot().getAbsolutePath());
+        configMap.put(AgentConfigImpl.SPILL_DRAIN_LIMIT, drainLimit);
+        return AgentConfigImpl.createAgentConfig(configMap);
+    }
+
+    /**
+     * Stands in for the collector: records the JSON of every payload it is sent and answers with the given status code,
+     * or fails like an unreachable collector.
+     */
+    private static class StandInCollector implements HttpClientWrapper {
+
+        final List<String> payloads = new ArrayList<>();
+        volatile int statusCode = HttpResponseCode.ACCEPTED;
+        volatile Exception failure;
+
+        @Override
+        public ReadResult execute(Request request, ExecuteEventHandler eventHandler) throws Exception {
+            InputStream in = request.getPayload() == null ? new ByteArrayInputStream(request.getData()) : request.getPayload().getInputStream();
+            in = DataSenderImpl.GZIP_ENCODING.equals(request.getEncoding()) ? new GZIPInputStream(in) : new InflaterInputStream(in);
+            payloads.add(new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8));
+            if (failure != null) {
+                throw failure;
+            }
+            return ReadResult.create(statusCode, "", null);
+        }
+
+        @Override
+        public void captureSupportabilityMetrics(StatsService statsService, String requestHost) {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+
     private HttpClientWrapper getProxyAuthenticateFailingWrapper(String proxyAuthenticateHeader) {
         return getHttpClientWrapper(ReadResult.create(
                 HttpResponseCode.PROXY_AUTHENTICATION_REQUIRED,
@@ -0,0 +1,83 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.transport;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class PooledDeflaterOutputStreamTest {
+
+    private static final byte[] DATA = createData();
+
+    private static byte[] createData() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append("[{\"name\":\"Custom/metric/").append(i).append("\"},[1,").append(i * 7).append(",0,0,0,0]],");
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void deflateRoundTrip() throws Exception {
+        // run more times than the pool holds so reused deflaters are exercised
+        for (int i = 0; i < 10; i++) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (OutputStream out = PooledDeflaterOutputStream.deflate(compressed, Deflater.DEFAULT_COMPRESSION)) {
+                write(out);
+            }
+            byte[] inflated = ByteStreams.toByteArray(new InflaterInputStream(new ByteArrayInputStream(compressed.toByteArray())));
+            assertArrayEquals(DATA, inflated);
+        }
+    }
+
+    @Test
+    public void gzipRoundTrip() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (OutputStream out = PooledDeflaterOutputStream.gzip(compressed, Deflater.DEFAULT_COMPRESSION)) {
+                write(out);
+            }
+            // GZIPInputStream verifies the CRC and size in the trailer
+            byte[] inflated = ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())));
+            assertArrayEquals(DATA, inflated);
+        }
+    }
+
+    @Test
+    public void closeIsIdempotent() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        OutputStream out = PooledDeflaterOutputStream.gzip(compressed, Deflater.BEST_SPEED);
+        write(out);
+        out.close();
+        out.close();
+        byte[] inflated = ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())));
+        assertArrayEquals(DATA, inflated);
+    }
+
+    private static void write(OutputStream out) throws Exception {
+        // mix single byte and bulk writes
+        out.write(DATA[0]);
+        int offset = 1;
+        while (offset < DATA.length) {
+            int length = Math.min(997, DATA.length - offset);
+            out.write(DATA, offset, length);
+            offset += length;
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.transport;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class SpillQueueTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordsAreReadInOrder() throws Exception {
+        SpillQueue queue = new SpillQueue(folder.getRoot(), 16 * SEGMENT_SIZE, SEGMENT_SIZE);
+        Assert.assertNull(queue.peek());
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(queue.append(record(i)));
+        }
+        Assert.assertEquals(100, queue.size());
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("record " + i, new String(queue.peek(), StandardCharsets.UTF_8));
+            queue.remove();
+        }
+        Assert.assertNull(queue.peek());
+        Assert.assertEquals(0, queue.size());
+        Assert.assertEquals(0, queue.getAndResetDropped());
+        Assert.assertEquals(1, segmentCount());
+    }
+
+    @Test
+    public void oldestRecordsAreDroppedWhenFull() throws Exception {
+        SpillQueue queue = new SpillQueue(folder.getRoot(), 2 * SEGMENT_SIZE, SEGMENT_SIZE);
+        byte[] data = new byte[500];
+        for (int i = 0; i < 6; i++) {
+            Assert.assertTrue(queue.append(data));
+        }
+
+        // two records fit in a segment, so the first segment was dropped for the third
+        Assert.assertEquals(4, queue.size());
+        Assert.assertEquals(2, queue.getAndResetDropped());
+        Assert.assertEquals(0, queue.getAndResetDropped());
+        Assert.assertEquals(2, segmentCount());
+    }
+
+    @Test
+    public void recordLargerThanQueueIsNotAppended() throws Exception {
+        SpillQueue queue = new SpillQueue(folder.getRoot(), 2 * SEGMENT_SIZE, SEGMENT_SIZE);
+        Assert.assertTrue(queue.append(new byte[SEGMENT_SIZE + 1]));
+        Assert.assertFalse(queue.append(new byte[2 * SEGMENT_SIZE]));
+        Assert.assertEquals(1, queue.size());
+        Assert.assertEquals(1, queue.getAndResetDropped());
+    }
+
+    @Test
+    public void pendingRecordsAreRecoveredWhenReopened() throws Exception {
+        SpillQueue queue = new SpillQueue(folder.getRoot(), 16 * SEGMENT_SIZE, SEGMENT_SIZE);
+        for (int i = 0; i < 50; i++) {
+            queue.append(record(i));
+        }
+        for (int i = 0; i < 20; i++) {
+            queue.remove();
+        }
+
+        SpillQueue reopened = new SpillQueue(folder.getRoot(), 16 * SEGMENT_SIZE, SEGMENT_SIZE);
+        Assert.assertEquals(30, reopened.size());
+        Assert.assertEquals("record 20", new String(reopened.peek(), StandardCharsets.UTF_8));
+
+        // new records go after the recovered ones
+        reopened.append(record(50));
+        for (int i = 20; i <= 50; i++) {
+            Assert.assertEquals("record " + i, new String(reopened.peek(), StandardCharsets.UTF_8));
+            reopened.remove();
+        }
+        Assert.assertNull(reopened.peek());
+    }
+
+    @Test
+    public void tornRecordIsNotRecovered() throws Exception {
+        SpillQueue queue = new SpillQueue(folder.getRoot(), 16 * SEGMENT_SIZE, SEGMENT_SIZE);
+        queue.append(record(0));
+        queue.append(record(1));
+
+        // corrupt the data of the second record
+        File segment = folder.getRoot().listFiles()[0];
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.seek(8 + record(0).length + 8);
+            raf.write('X');
+        }
+
+        SpillQueue reopened = new SpillQueue(folder.getRoot(), 16 * SEGMENT_SIZE, SEGMENT_SIZE);
+        Assert.assertEquals(1, reopened.size());
+        Assert.assertEquals("record 0", new String(reopened.peek(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void removingARecordDroppedWhileSendingLeavesTheOthers() throws Exception {
+        SpillQueue queue = new SpillQueue(folder.getRoot(), 2 * SEGMENT_SIZE, SEGMENT_SIZE);
+        byte[] data = new byte[500];
+        queue.append(data);
+        queue.append(data);
+        SpillQueue.Record sending = queue.peekRecord();
+
+        // the segment of the record being sent is dropped to make room
+        for (int i = 0; i < 3; i++) {
+            queue.append(Arrays.copyOf(record(i), data.length));
+        }
+        Assert.assertEquals(2, queue.getAndResetDropped());
+
+        queue.remove(sending);
+        Assert.assertEquals(3, queue.size());
+        Assert.assertArrayEquals(Arrays.copyOf(record(0), data.length), queue.peek());
+    }
+
+    @Test
+    public void removingARecordTwiceMarksOnlyOneAsSent() throws Exception {
+        SpillQueue queue = new SpillQueue(folder.getRoot(), 16 * SEGMENT_SIZE, SEGMENT_SIZE);
+        queue.append(record(0));
+        queue.append(record(1));
+
+        SpillQueue.Record first = queue.peekRecord();
+        queue.remove(first);
+        queue.remove(first);
+        Assert.assertEquals(1, queue.size());
+        Assert.assertEquals("record 1", new String(queue.peek(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void closedQueueIsRecovered() throws Exception {
+        SpillQueue queue = new SpillQueue(folder.getRoot(), 16 * SEGMENT_SIZE, SEGMENT_SIZE);
+        queue.append(record(0));
+        queue.close();
+
+        SpillQueue reopened = new SpillQueue(folder.getRoot(), 16 * SEGMENT_SIZE, SEGMENT_SIZE);
+        Assert.assertEquals(1, reopened.size());
+        Assert.assertEquals("record 0", new String(reopened.peek(), StandardCharsets.UTF_8));
+    }
+
+    private int segmentCount() {
+        return folder.getRoot().listFiles((dir, name) -> name.endsWith(".spill")).length;
+    }
+
+    private static byte[] record(int i) {
+        return ("record " + i).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.util;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class BacktraceTest {
+
+    @Test
+    public void captureWithoutStackWalker() {
+        List<StackTraceElement> backtrace = Backtrace.capture(false, 30);
+        Assert.assertFalse(backtrace instanceof Backtrace);
+        Assert.assertEquals(Thread.class.getName(), backtrace.get(0).getClassName());
+    }
+
+    @Test
+    public void captureMatchesScrubbedStackTrace() {
+        Assume.assumeTrue(Backtrace.isStackWalkerSupported());
+
+        List<StackTraceElement> backtrace = Backtrace.capture(true, 0);
+        List<StackTraceElement> expected = StackTraces.scrubAndTruncate(Arrays.asList(Thread.currentThread().getStackTrace()), 0);
+
+        Assert.assertTrue(backtrace instanceof Backtrace);
+        assertSameFrames(expected, backtrace);
+        Assert.assertSame(backtrace, StackTraces.scrubAndTruncate(backtrace, 0));
+    }
+
+    @Test
+    public void captureMatchesTruncatedStackTrace() {
+        Assume.assumeTrue(Backtrace.isStackWalkerSupported());
+
+        List<StackTraceElement> backtrace = Backtrace.capture(true, 6);
+        List<StackTraceElement> expected = StackTraces.scrubAndTruncate(Arrays.asList(Thread.currentThread().getStackTrace()), 6);
+
+        assertSameFrames(expected, backtrace);
+        Assert.assertSame(backtrace, StackTraces.scrubAndTruncate(backtrace, 6));
+        Assert.assertNotSame(backtrace, StackTraces.scrubAndTruncate(backtrace, 3));
+        Assert.assertEquals(4, StackTraces.scrubAndTruncate(backtrace, 3).size());
+    }
+
+    @Test
+    public void captureSkipsAgentFrames() {
+        Assume.assumeTrue(Backtrace.isStackWalkerSupported());
+
+        for (StackTraceElement element : Backtrace.capture(true, 0)) {
+            Assert.assertFalse(element.getClassName(), element.getClassName().startsWith("com.newrelic.agent."));
+        }
+    }
+
+    private static void assertSameFrames(List<StackTraceElement> expected, List<StackTraceElement> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).getClassName(), actual.get(i).getClassName());
+            Assert.assertEquals(expected.get(i).getMethodName(), actual.get(i).getMethodName());
+            Assert.assertEquals(expected.get(i).getLineNumber(), actual.get(i).getLineNumber());
+        }
+    }
+}
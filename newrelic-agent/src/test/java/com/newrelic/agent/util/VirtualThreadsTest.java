@@ -0,0 +1,38 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.util;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void testPlatformThread() {
+        Assert.assertFalse(VirtualThreads.isCurrentThreadVirtual());
+        Assert.assertFalse(VirtualThreads.isVirtual(new Thread()));
+        Assert.assertFalse(VirtualThreads.isVirtual(null));
+    }
+
+    @Test
+    public void testVirtualThread() throws Exception {
+        Assume.assumeTrue(VirtualThreads.isSupported());
+        ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        try {
+            Future<Boolean> isVirtual = executor.submit(VirtualThreads::isCurrentThreadVirtual);
+            Assert.assertTrue(isVirtual.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
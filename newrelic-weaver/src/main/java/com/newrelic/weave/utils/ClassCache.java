@@ -13,21 +13,39 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 /**
- * Finds and caches class information using a {@link ClassFinder}, to be used during a transformation. This class is
- * threadsafe.
+ * Finds and caches class information using a {@link ClassFinder}, to be used during a transformation. When a
+ * {@link ClassInformationStore} is provided, parsed class information is shared with every other cache using the same
+ * store. This class is threadsafe.
  */
 public class ClassCache implements ClassInformationFinder {
 
     private static final byte[] NO_CLASS_BYTES = new byte[] {};
     private static final ClassInformation NO_CLASS_INFORMATION = new ClassInformation();
 
+    /**
+     * Class bytes are only needed until a class is parsed and can be large, so a single cache holds on to a limited
+     * number of them.
+     */
+    static final int MAX_CACHED_CLASS_BYTES = 1024;
+
     private final ClassFinder classFinder;
+    private final ClassInformationStore classInformationStore;
     private final ConcurrentMap<String, Boolean> classExistsCache = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, byte[]> classBytesCache = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, ClassInformation> classInformationCache = new ConcurrentHashMap<>();
 
     public ClassCache(ClassFinder classFinder) {
+        this(classFinder, null);
+    }
+
+    /**
+     * @param classFinder finder used to resolve classes
+     * @param classInformationStore store shared with other caches, or <code>null</code> to keep all class information
+     * in this cache
+     */
+    public ClassCache(ClassFinder classFinder, ClassInformationStore classInformationStore) {
         this.classFinder = classFinder;
+        this.classInformationStore = classInformationStore;
     }
 
     /**
@@ -70,7 +88,9 @@ public class ClassCache implements ClassInformationFinder {
         }
 
         result = Streams.read(resource.openStream(), true);
-        classBytesCache.putIfAbsent(internalName, result);
+        if (classBytesCache.size() < MAX_CACHED_CLASS_BYTES) {
+            classBytesCache.putIfAbsent(internalName, result);
+        }
         return result;
     }
 
@@ -93,7 +113,8 @@ public class ClassCache implements ClassInformationFinder {
             return null;
         }
 
-        result = ClassInformation.fromClassBytes(classBytes);
+        result = classInformationStore == null ? ClassInformation.fromClassBytes(classBytes)
+                : classInformationStore.getClassInformation(classBytes);
         classInformationCache.putIfAbsent(internalName, result);
         return result;
     }
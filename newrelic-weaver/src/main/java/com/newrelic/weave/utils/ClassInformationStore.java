@@ -0,0 +1,65 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.weave.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Stores {@link ClassInformation} by the hash of the class bytes it was read from, so that a class loaded from the
+ * same bytes by many classloaders is only parsed and held once. {@link ClassCache}s share a store and keep their own
+ * name lookups on top of it. This class is threadsafe.
+ */
+public class ClassInformationStore {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 4096;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    /**
+     * hash of class bytes -> class information. Bounded by size; once full, Caffeine evicts the entries it estimates are
+     * used least often (W-TinyLFU), which is not the same as least recently used.
+     */
+    private final Cache<HashCode, ClassInformation> classInformation;
+
+    public ClassInformationStore() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * @param maximumSize maximum number of classes to hold
+     */
+    public ClassInformationStore(long maximumSize) {
+        this.classInformation = Caffeine.newBuilder().maximumSize(maximumSize).executor(Runnable::run).build();
+    }
+
+    /**
+     * Find the {@link ClassInformation} for the specified class bytes, parsing them if no class with the same bytes is
+     * stored.
+     *
+     * @param classBytes binary class representation
+     * @return {@link ClassInformation} for the specified class bytes
+     */
+    public ClassInformation getClassInformation(byte[] classBytes) {
+        if (classBytes == null) {
+            return null;
+        }
+        return classInformation.get(HASH_FUNCTION.hashBytes(classBytes), key -> ClassInformation.fromClassBytes(classBytes));
+    }
+
+    /**
+     * The approximate number of classes currently stored.
+     */
+    public long size() {
+        classInformation.cleanUp();
+        return classInformation.estimatedSize();
+    }
+}
@@ -12,9 +12,15 @@ import com.google.common.collect.Sets;
 import com.newrelic.weave.utils.ClassCache;
 import com.newrelic.weave.utils.Streams;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -22,6 +28,8 @@ import java.util.Set;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Rather than process the entire weave jar, this weave package stores a list of reference and illegal class names. When
@@ -40,6 +48,16 @@ public class CachedWeavePackage extends WeavePackage {
     public static final String WEAVE_METHODS_MANIFEST_ATTRIBUTE_NAME = "Weave-Methods";
     public static final String CLASS_REQUIRED_ANNOTATIONS_MANIFEST_ATTRIBUTE_NAME = "Class-Required-Annotations";
     public static final String METHOD_REQUIRED_ANNOTATIONS_MANIFEST_ATTRIBUTE_NAME = "Method-Required-Annotations";
+    /**
+     * The package's references to original classes, including the fields and methods it uses, serialized by
+     * {@link #encodeReferences(Collection)}.
+     */
+    public static final String WEAVE_REFERENCES_MANIFEST_ATTRIBUTE_NAME = "Weave-References";
+    /**
+     * Name of the index written next to the instrumentation jars at build time. It is a manifest with one section per
+     * jar, named after the jar, holding that jar's main manifest attributes.
+     */
+    public static final String WEAVE_PACKAGE_INDEX_NAME = "weave-package-index.mf";
 
     private final Set<String> referenceClasses;
     private final Set<String> weaveClasses;
@@ -48,19 +66,37 @@ public class CachedWeavePackage extends WeavePackage {
     private final Set<String> classRequiredAnnotations;
     private final Set<String> methodRequiredAnnotations;
     private final URL jarLocation;
+    private final String encodedReferences;
+    private volatile List<Reference> references;
     private volatile boolean loaded = false;
 
+    private static final int REFERENCES_FORMAT_VERSION = 1;
+
     private static final Splitter splitter = Splitter.on(',').omitEmptyStrings().trimResults();
 
     public static WeavePackage createWeavePackage(URL jarLocation, JarInputStream jarStream, WeavePackageConfig config)
             throws Exception {
-        Attributes attributes = jarStream.getManifest().getMainAttributes();
+        WeavePackage weavePackage = createWeavePackage(jarLocation, jarStream.getManifest().getMainAttributes(), config);
+        return weavePackage == null ? WeavePackage.createWeavePackage(jarStream, config) : weavePackage;
+    }
+
+    /**
+     * Create a weave package from the cached weave attributes of a jar's manifest. The jar itself is not read until a
+     * class matches the package or the package passes the fast validation.
+     *
+     * @param jarLocation location of the weave package jar
+     * @param attributes main attributes of the jar's manifest
+     * @param config weave package config
+     * @return the weave package, or null if the attributes don't contain the cached weave attributes
+     */
+    public static CachedWeavePackage createWeavePackage(URL jarLocation, Attributes attributes,
+            WeavePackageConfig config) {
         String weaveMethods = attributes.getValue(WEAVE_METHODS_MANIFEST_ATTRIBUTE_NAME);
         String weaveClasses = attributes.getValue(WEAVE_CLASSES_MANIFEST_ATTRIBUTE_NAME);
         String classRequiredAnnotations = attributes.getValue(CLASS_REQUIRED_ANNOTATIONS_MANIFEST_ATTRIBUTE_NAME);
         String methodRequiredAnnotations = attributes.getValue(METHOD_REQUIRED_ANNOTATIONS_MANIFEST_ATTRIBUTE_NAME);
         if (weaveMethods == null || weaveClasses == null || classRequiredAnnotations == null || methodRequiredAnnotations == null) {
-            return WeavePackage.createWeavePackage(jarStream, config);
+            return null;
         } else {
             String referenceClasses = attributes.getValue(REFERENCE_CLASSES_MANIFEST_ATTRIBUTE_NAME);
             String illegalClasses = attributes.getValue(ILLEGAL_CLASSES_MANIFEST_ATTRIBUTE_NAME);
@@ -77,14 +113,23 @@ public class CachedWeavePackage extends WeavePackage {
             Set<String> illegalList = illegalClasses == null ? null : Sets.newHashSet(splitter.split(illegalClasses));
 
             return new CachedWeavePackage(jarLocation, config, weaveMethodsList, weaveClassesList, referenceList,
-                    illegalList, classAnnotationsList, methodAnnotationsList);
+                    illegalList, classAnnotationsList, methodAnnotationsList,
+                    attributes.getValue(WEAVE_REFERENCES_MANIFEST_ATTRIBUTE_NAME));
         }
     }
 
     CachedWeavePackage(URL jarLocation, WeavePackageConfig config, Set<String> weaveMethods, Set<String> weaveClasses,
             Set<String> referenceClasses, Set<String> illegalClasses, Set<String> classRequiredAnnotations,
             Set<String> methodRequiredAnnotations) {
+        this(jarLocation, config, weaveMethods, weaveClasses, referenceClasses, illegalClasses, classRequiredAnnotations,
+                methodRequiredAnnotations, null);
+    }
+
+    CachedWeavePackage(URL jarLocation, WeavePackageConfig config, Set<String> weaveMethods, Set<String> weaveClasses,
+            Set<String> referenceClasses, Set<String> illegalClasses, Set<String> classRequiredAnnotations,
+            Set<String> methodRequiredAnnotations, String encodedReferences) {
         super(config, new ArrayList<byte[]>());
+        this.encodedReferences = encodedReferences;
         this.weaveMethods = weaveMethods;
         this.weaveClasses = weaveClasses;
         this.referenceClasses = referenceClasses;
@@ -127,6 +172,13 @@ public class CachedWeavePackage extends WeavePackage {
             PackageValidationResult fastResult = new PackageValidationResult(this, cache, referenceClasses,
                     illegalClasses);
             if (fastResult.succeeded()) {
+                List<Reference> references = getPrecompiledReferences();
+                if (references != null) {
+                    PackageValidationResult referencesResult = new PackageValidationResult(this, cache, references);
+                    if (!referencesResult.succeeded()) {
+                        return referencesResult;
+                    }
+                }
                 load();
                 return super.validate(cache);
             } else {
@@ -159,6 +211,56 @@ public class CachedWeavePackage extends WeavePackage {
         return new HashSet<>(methodRequiredAnnotations);
     }
 
+    /**
+     * The precompiled references of this package, or null if the package has none or they can't be read. In that case
+     * the references are only checked once the package is fully loaded.
+     */
+    private List<Reference> getPrecompiledReferences() {
+        if (references == null && encodedReferences != null) {
+            try {
+                references = decodeReferences(encodedReferences);
+            } catch (IOException | IllegalArgumentException e) {
+                // Fall back to validating the fully loaded package
+                return null;
+            }
+        }
+        return references;
+    }
+
+    /**
+     * Serialize the references of a weave package into the compact, manifest safe form that is read back by a cached
+     * weave package.
+     *
+     * @param references references of a fully loaded weave package
+     * @return the encoded references
+     */
+    public static String encodeReferences(Collection<Reference> references) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeInt(REFERENCES_FORMAT_VERSION);
+            out.writeInt(references.size());
+            for (Reference reference : references) {
+                reference.write(out);
+            }
+        }
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    static List<Reference> decodeReferences(String encodedReferences) throws IOException {
+        byte[] bytes = Base64.getDecoder().decode(encodedReferences.trim());
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes)))) {
+            if (in.readInt() != REFERENCES_FORMAT_VERSION) {
+                throw new IOException("Unsupported weave references format");
+            }
+            int count = in.readInt();
+            List<Reference> references = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                references.add(Reference.read(in));
+            }
+            return references;
+        }
+    }
+
     /**
      * Fully load the WeavePackage from the JAR file.
      */
@@ -0,0 +1,446 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.weave.weavepackage;
+
+import com.newrelic.weave.utils.ClassCache;
+import com.newrelic.weave.utils.ClassInformation;
+import com.newrelic.weave.utils.WeaveUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A snapshot of the class names, annotations and method signatures of all registered weave packages, used to reject
+ * classes that can never be weaved without visiting them with ASM.
+ *
+ * {@link #isPossibleMatch} reads the constant pool, the class header and the name and descriptor of each field and
+ * method. Method bodies and attributes are skipped. Constant pool strings are looked up in an open addressing table
+ * keyed by a hash of their raw modified UTF-8 bytes, so a class that doesn't match allocates nothing but two index
+ * arrays. A <code>true</code> result only means the class needs the full check in
+ * {@link WeavePackageManager#weave}; a <code>false</code> result is definite.
+ *
+ * An index is never changed once it has been built, so it is thread safe. {@link #withRequiredClass} returns a copy.
+ */
+final class ClassMatchIndex {
+
+    private static final int CLASS = 1;
+    private static final int ANNOTATION = 2;
+    private static final int METHOD_NAME = 4;
+    private static final int METHOD_DESC = 8;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private static final int ACC_INTERFACE = 0x0200;
+
+    /**
+     * Open addressing table of every indexed string. A slot is empty when its key is null. Entry ids are slot + 1 so
+     * that 0 can mean "not indexed".
+     */
+    private final int mask;
+    private final int[] hashes;
+    private final byte[][] keys;
+    private final int[] kinds;
+    // number of occupied slots, only changed while the index is being built
+    private int size;
+
+    /**
+     * Sorted (name entry id, descriptor entry id) pairs of every weave method signature.
+     */
+    private final long[] methodSignatures;
+
+    /**
+     * Binary names of required class annotations, for the interface annotation check.
+     */
+    private final Set<String> requiredAnnotationClasses;
+
+    private ClassMatchIndex(int capacity, Set<String> requiredAnnotationClasses) {
+        this.mask = capacity - 1;
+        this.hashes = new int[capacity];
+        this.keys = new byte[capacity][];
+        this.kinds = new int[capacity];
+        this.methodSignatures = null;
+        this.requiredAnnotationClasses = requiredAnnotationClasses;
+    }
+
+    private ClassMatchIndex(ClassMatchIndex table, long[] methodSignatures) {
+        this.mask = table.mask;
+        this.hashes = table.hashes;
+        this.keys = table.keys;
+        this.kinds = table.kinds;
+        this.methodSignatures = methodSignatures;
+        this.requiredAnnotationClasses = table.requiredAnnotationClasses;
+        this.size = table.size;
+    }
+
+    private ClassMatchIndex(ClassMatchIndex source) {
+        this.mask = source.mask;
+        this.hashes = source.hashes.clone();
+        this.keys = source.keys.clone();
+        this.kinds = source.kinds.clone();
+        this.methodSignatures = source.methodSignatures;
+        this.requiredAnnotationClasses = source.requiredAnnotationClasses;
+        this.size = source.size;
+    }
+
+    /**
+     * Build an index over the registered weave packages.
+     *
+     * @param requiredClasses internal names of @Weave and reference classes
+     * @param requiredAnnotationClasses binary names of the annotations required on classes
+     * @param requiredMethodAnnotationClasses binary names of the annotations required on methods
+     * @param methodSignatures method name + descriptor of every method in a @Weave class
+     */
+    static ClassMatchIndex create(Collection<String> requiredClasses, Collection<String> requiredAnnotationClasses,
+            Collection<String> requiredMethodAnnotationClasses, Collection<String> methodSignatures) {
+        int size = requiredClasses.size() + requiredAnnotationClasses.size() + requiredMethodAnnotationClasses.size()
+                + methodSignatures.size() * 2;
+        int capacity = Integer.highestOneBit(Math.max(16, size * 2) - 1) << 1;
+        ClassMatchIndex table = new ClassMatchIndex(capacity, new HashSet<>(requiredAnnotationClasses));
+
+        for (String requiredClass : requiredClasses) {
+            table.add(requiredClass, CLASS);
+        }
+        for (String annotationClass : requiredAnnotationClasses) {
+            table.add(getDescriptor(annotationClass), ANNOTATION);
+        }
+        for (String annotationClass : requiredMethodAnnotationClasses) {
+            table.add(getDescriptor(annotationClass), ANNOTATION);
+        }
+
+        List<Long> signatures = new ArrayList<>(methodSignatures.size());
+        for (String methodSignature : methodSignatures) {
+            int descStart = methodSignature.indexOf('(');
+            if (descStart <= 0) {
+                continue;
+            }
+            String name = methodSignature.substring(0, descStart);
+            String desc = methodSignature.substring(descStart);
+            // the default constructor and static initializer are matched by class name, never by signature
+            if ((WeaveUtils.INIT_NAME.equals(name) || WeaveUtils.CLASS_INIT_NAME.equals(name))
+                    && WeaveUtils.INIT_DESC.equals(desc)) {
+                continue;
+            }
+            int nameId = table.add(name, METHOD_NAME);
+            int descId = table.add(desc, METHOD_DESC);
+            signatures.add(((long) nameId << 32) | descId);
+        }
+
+        long[] sortedSignatures = new long[signatures.size()];
+        for (int i = 0; i < sortedSignatures.length; i++) {
+            sortedSignatures[i] = signatures.get(i);
+        }
+        Arrays.sort(sortedSignatures);
+        return new ClassMatchIndex(table, sortedSignatures);
+    }
+
+    /**
+     * Copy this index with one more required class. Entries keep their slots in the copy, so the method signatures are
+     * shared rather than rebuilt.
+     *
+     * @param requiredClass internal name of the class
+     * @return the copy, this index if the class is already required, or <code>null</code> if the index is too full to
+     * take another entry and has to be created again
+     */
+    ClassMatchIndex withRequiredClass(String requiredClass) {
+        byte[] key = encode(requiredClass);
+        int id = find(key, 0, key.length);
+        if (id != 0 && (kinds[id - 1] & CLASS) != 0) {
+            return this;
+        }
+        if (id == 0 && (size + 1) * 2 > mask + 1) {
+            return null;
+        }
+        ClassMatchIndex copy = new ClassMatchIndex(this);
+        copy.add(requiredClass, CLASS);
+        return copy;
+    }
+
+    private static String getDescriptor(String binaryName) {
+        return 'L' + binaryName.replace('.', '/') + ';';
+    }
+
+    private int add(String value, int kind) {
+        byte[] key = encode(value);
+        int hash = hash(key, 0, key.length);
+        int slot = hash & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && Arrays.equals(keys[slot], key)) {
+                kinds[slot] |= kind;
+                return slot + 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        keys[slot] = key;
+        kinds[slot] = kind;
+        size++;
+        return slot + 1;
+    }
+
+    /**
+     * @return the id of the entry for the CONSTANT_Utf8 whose bytes start at <code>offset</code>, or 0
+     */
+    private int find(byte[] bytes, int offset, int length) {
+        int hash = hash(bytes, offset, length);
+        int slot = hash & mask;
+        byte[] key;
+        while ((key = keys[slot]) != null) {
+            if (hashes[slot] == hash && key.length == length && regionEquals(key, bytes, offset)) {
+                return slot + 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    private static boolean regionEquals(byte[] key, byte[] bytes, int offset) {
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != bytes[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        // FNV-1a, then spread the high bits into the low bits used for the slot
+        int hash = 0x811c9dc5;
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= bytes[i] & 0xff;
+            hash *= 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Check whether a class could match any registered weave package.
+     *
+     * @param classBytes the class file
+     * @param cache class cache to lookup interface annotations
+     * @return <code>false</code> if the class can't match, <code>true</code> if it needs the full check
+     */
+    boolean isPossibleMatch(byte[] classBytes, ClassCache cache) {
+        try {
+            return scan(classBytes, cache);
+        } catch (RuntimeException e) {
+            // a class file this parser doesn't understand goes through the full check
+            return true;
+        }
+    }
+
+    private boolean scan(byte[] b, ClassCache cache) {
+        int constantPoolCount = readUnsignedShort(b, 8);
+        // constant pool index -> offset of the constant's tag
+        int[] offsets = new int[constantPoolCount];
+        // constant pool index -> index entry id of CONSTANT_Utf8 values
+        int[] ids = new int[constantPoolCount];
+        int offset = 10;
+        for (int i = 1; i < constantPoolCount; i++) {
+            int tag = b[offset];
+            offsets[i] = offset;
+            switch (tag) {
+                case CONSTANT_UTF8:
+                    int length = readUnsignedShort(b, offset + 1);
+                    int id = find(b, offset + 3, length);
+                    if (id != 0 && (kinds[id - 1] & ANNOTATION) != 0) {
+                        // annotations are rare, the full check decides whether this is a class or method annotation
+                        return true;
+                    }
+                    ids[i] = id;
+                    offset += 3 + length;
+                    break;
+                case CONSTANT_CLASS:
+                case CONSTANT_STRING:
+                case CONSTANT_METHOD_TYPE:
+                case CONSTANT_MODULE:
+                case CONSTANT_PACKAGE:
+                    offset += 3;
+                    break;
+                case CONSTANT_METHOD_HANDLE:
+                    offset += 4;
+                    break;
+                case CONSTANT_INTEGER:
+                case CONSTANT_FLOAT:
+                case CONSTANT_FIELDREF:
+                case CONSTANT_METHODREF:
+                case CONSTANT_INTERFACE_METHODREF:
+                case CONSTANT_NAME_AND_TYPE:
+                case CONSTANT_DYNAMIC:
+                case CONSTANT_INVOKE_DYNAMIC:
+                    offset += 5;
+                    break;
+                case CONSTANT_LONG:
+                case CONSTANT_DOUBLE:
+                    offset += 9;
+                    i++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        int access = readUnsignedShort(b, offset);
+        if (isRequiredClass(b, offsets, ids, readUnsignedShort(b, offset + 2))
+                || isRequiredClass(b, offsets, ids, readUnsignedShort(b, offset + 4))) {
+            return true;
+        }
+        int interfacesOffset = offset + 6;
+        int interfaceCount = readUnsignedShort(b, interfacesOffset);
+        offset = interfacesOffset + 2 + interfaceCount * 2;
+
+        // fields
+        offset = skipMembers(b, offset);
+
+        // methods
+        int methodCount = readUnsignedShort(b, offset);
+        offset += 2;
+        for (int i = 0; i < methodCount; i++) {
+            int nameId = ids[readUnsignedShort(b, offset + 2)];
+            int descId = ids[readUnsignedShort(b, offset + 4)];
+            if (nameId != 0 && descId != 0
+                    && Arrays.binarySearch(methodSignatures, ((long) nameId << 32) | descId) >= 0) {
+                return true;
+            }
+            offset = skipAttributes(b, offset + 6);
+        }
+
+        // the only check that needs more than this class file: annotations on the interfaces it implements
+        if ((access & ACC_INTERFACE) == 0 && !requiredAnnotationClasses.isEmpty()) {
+            for (int i = 0; i < interfaceCount; i++) {
+                int classOffset = offsets[readUnsignedShort(b, interfacesOffset + 2 + i * 2)];
+                String interfaceName = readUtf8(b, offsets[readUnsignedShort(b, classOffset + 1)]);
+                if (hasRequiredAnnotation(cache, interfaceName)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isRequiredClass(byte[] b, int[] offsets, int[] ids, int classIndex) {
+        if (classIndex == 0) {
+            // java/lang/Object has no super class
+            return false;
+        }
+        int nameId = ids[readUnsignedShort(b, offsets[classIndex] + 1)];
+        return nameId != 0 && (kinds[nameId - 1] & CLASS) != 0;
+    }
+
+    private boolean hasRequiredAnnotation(ClassCache cache, String interfaceName) {
+        try {
+            ClassInformation interfaceInfo = cache.getClassInformation(interfaceName);
+            if (interfaceInfo == null) {
+                return false;
+            }
+            for (String interfaceAnnotationName : interfaceInfo.classAnnotationNames) {
+                if (requiredAnnotationClasses.contains(WeaveUtils.getClassBinaryName(interfaceAnnotationName))) {
+                    return true;
+                }
+            }
+        } catch (IOException ignored) {
+        }
+        return false;
+    }
+
+    private static int skipMembers(byte[] b, int offset) {
+        int count = readUnsignedShort(b, offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            offset = skipAttributes(b, offset + 6);
+        }
+        return offset;
+    }
+
+    private static int skipAttributes(byte[] b, int offset) {
+        int count = readUnsignedShort(b, offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            offset += 6 + readInt(b, offset + 2);
+        }
+        return offset;
+    }
+
+    private static int readUnsignedShort(byte[] b, int offset) {
+        return ((b[offset] & 0xff) << 8) | (b[offset + 1] & 0xff);
+    }
+
+    private static int readInt(byte[] b, int offset) {
+        return ((b[offset] & 0xff) << 24) | ((b[offset + 1] & 0xff) << 16) | ((b[offset + 2] & 0xff) << 8)
+                | (b[offset + 3] & 0xff);
+    }
+
+    /**
+     * Decode the CONSTANT_Utf8 whose tag is at <code>offset</code>.
+     */
+    private static String readUtf8(byte[] b, int offset) {
+        int length = readUnsignedShort(b, offset + 1);
+        char[] chars = new char[length];
+        int count = 0;
+        int current = offset + 3;
+        int end = current + length;
+        while (current < end) {
+            int c = b[current++];
+            if ((c & 0x80) == 0) {
+                chars[count++] = (char) (c & 0x7f);
+            } else if ((c & 0xe0) == 0xc0) {
+                chars[count++] = (char) (((c & 0x1f) << 6) + (b[current++] & 0x3f));
+            } else {
+                chars[count++] = (char) (((c & 0x0f) << 12) + ((b[current++] & 0x3f) << 6) + (b[current++] & 0x3f));
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    /**
+     * Encode a string the way the class file format stores it (modified UTF-8).
+     */
+    private static byte[] encode(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            length += c >= 0x0001 && c <= 0x007f ? 1 : c <= 0x07ff ? 2 : 3;
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x0001 && c <= 0x007f) {
+                bytes[offset++] = (byte) c;
+            } else if (c <= 0x07ff) {
+                bytes[offset++] = (byte) (0xc0 | ((c >> 6) & 0x1f));
+                bytes[offset++] = (byte) (0x80 | (c & 0x3f));
+            } else {
+                bytes[offset++] = (byte) (0xe0 | ((c >> 12) & 0x0f));
+                bytes[offset++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                bytes[offset++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return bytes;
+    }
+}
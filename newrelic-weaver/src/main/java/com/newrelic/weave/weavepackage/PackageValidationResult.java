@@ -21,6 +21,7 @@ import com.newrelic.weave.utils.WeaveUtils;
 import com.newrelic.weave.violation.ReferenceViolation;
 import com.newrelic.weave.violation.WeaveViolation;
 import com.newrelic.weave.violation.WeaveViolationType;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.Method;
@@ -131,6 +132,17 @@ public class PackageValidationResult {
         }
     }
 
+    /**
+     * Construct a fail-fast ValidationResult that also checks references read from a precompiled weave package, so
+     * that a package that can't be weaved against this classloader fails without its weave classes being read.
+     */
+    PackageValidationResult(WeavePackage weavePackage, ClassCache cache, Collection<Reference> references)
+            throws IOException {
+        this.weavePackage = weavePackage;
+        this.weaveViolationFilter = this.weavePackage.getConfig().getWeaveViolationFilter();
+        this.validateReferences(cache, references);
+    }
+
     /**
      * Construct a failed PackageValidationResult.
      *
@@ -161,7 +173,11 @@ public class PackageValidationResult {
                 violations.add(new ReferenceViolation(WeaveViolationType.MISSING_ORIGINAL_BYTECODE,
                         reference.referenceOrigin, reference.className, "Could not find resource"));
             } else {
-                ClassNode classNode = WeaveUtils.convertToClassNode(bytes);
+                // Only the class name and access are read from the node, members come from the class cache
+                ClassReader reader = new ClassReader(bytes);
+                ClassNode classNode = new SynchronizedClassNode(WeaveUtils.ASM_API_LEVEL);
+                classNode.name = reader.getClassName();
+                classNode.access = reader.getAccess();
                 violations.addAll(reference.validateClassNode(classCache, classNode));
             }
         }
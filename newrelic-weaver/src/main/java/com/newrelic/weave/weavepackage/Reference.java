@@ -29,6 +29,8 @@ import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.tree.MultiANewArrayInsnNode;
 import org.objectweb.asm.tree.TypeInsnNode;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -447,6 +449,13 @@ public class Reference {
             return merged;
         }
 
+        void write(DataOutput out) throws IOException {
+            out.writeUTF(name);
+            out.writeUTF(desc);
+            writeFlags(out, requiredAccess);
+            writeFlags(out, illegalAccess);
+        }
+
         public boolean matches(String name, String desc, int access) {
             boolean match = this.name.equals(name) && this.desc.equals(desc);
             if (this.requiredAccess.length > 0) {
@@ -463,6 +472,61 @@ public class Reference {
         }
     }
 
+    /**
+     * Write this reference so that it can be validated without the weave classes that created it.
+     *
+     * @param out output to write to
+     * @see #read(DataInput)
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeUTF(referenceOrigin);
+        out.writeUTF(className);
+        writeFlags(out, requiredAccess);
+        writeFlags(out, illegalAccess);
+        out.writeInt(methods.size());
+        for (MemberReference method : methods.values()) {
+            method.write(out);
+        }
+        out.writeInt(fields.size());
+        for (MemberReference field : fields.values()) {
+            field.write(out);
+        }
+    }
+
+    /**
+     * Read a reference written by {@link #write(DataOutput)}.
+     *
+     * @param in input to read from
+     * @return the reference
+     */
+    static Reference read(DataInput in) throws IOException {
+        Reference reference = new Reference(in.readUTF(), in.readUTF(), readFlags(in), readFlags(in));
+        int methodCount = in.readInt();
+        for (int i = 0; i < methodCount; i++) {
+            reference.addOrMergeMethodReference(in.readUTF(), in.readUTF(), readFlags(in), readFlags(in));
+        }
+        int fieldCount = in.readInt();
+        for (int i = 0; i < fieldCount; i++) {
+            reference.addOrMergeFieldReference(in.readUTF(), in.readUTF(), readFlags(in), readFlags(in));
+        }
+        return reference;
+    }
+
+    private static void writeFlags(DataOutput out, int[] flags) throws IOException {
+        out.writeByte(flags.length);
+        for (int flag : flags) {
+            out.writeInt(flag);
+        }
+    }
+
+    private static int[] readFlags(DataInput in) throws IOException {
+        int[] flags = new int[in.readUnsignedByte()];
+        for (int i = 0; i < flags.length; i++) {
+            flags[i] = in.readInt();
+        }
+        return flags;
+    }
+
     /**
      * Merge two sets of access flags, ignoring duplicates.
      */
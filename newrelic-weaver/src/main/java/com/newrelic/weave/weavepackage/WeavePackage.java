@@ -444,6 +444,13 @@ public class WeavePackage {
         return references.keySet();
     }
 
+    /**
+     * References to classes outside of this package, including the fields and methods that are used.
+     */
+    public Collection<Reference> getReferencedClasses() {
+        return references.values();
+    }
+
     public Map<String, String> getRenames() {
         return renames;
     }
@@ -281,7 +281,18 @@ public class WeavePackageConfig implements Comparable<WeavePackageConfig>{
             if (jarStream.getManifest() == null) {
                 throw new IOException("The instrumentation jar did not contain a manifest");
             }
-            Attributes mainAttributes = jarStream.getManifest().getMainAttributes();
+            return this.manifest(jarStream.getManifest().getMainAttributes());
+        }
+
+        /**
+         * Use the main attributes of an instrumentation jar's manifest to set builder parameters. This allows a
+         * config to be built from manifest attributes that were collected at build time, without opening the jar.
+         *
+         * @param mainAttributes main attributes of the jar's manifest
+         * @return Builder with updated state.
+         * @throws Exception If the attributes don't name the instrumentation package.
+         */
+        public Builder manifest(Attributes mainAttributes) throws Exception {
             String name = mainAttributes.getValue("Implementation-Title");
             if (name == null) {
                 throw new Exception("The Implementation-Title of an instrumentation package is undefined");
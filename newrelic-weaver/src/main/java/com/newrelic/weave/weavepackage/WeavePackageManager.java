@@ -34,6 +34,10 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -62,11 +66,28 @@ public class WeavePackageManager {
 
     private final Set<String> requiredMethodAnnotationClasses = Sets.newConcurrentHashSet();
 
+    /**
+     * Index over the sets above that rejects most classes before they are visited. Rebuilt lazily after it has been
+     * invalidated by a change to the sets, except that newly discovered annotated classes are added to a copy of it.
+     */
+    private volatile ClassMatchIndex classMatchIndex;
+    private final Object classMatchIndexLock = new Object();
+
     /**
      * ClassLoader -> (WeavePackageName -> WeavePackage)
      */
     private final Cache<ClassLoader, ConcurrentMap<String, WeavePackage>> optimizedWeavePackages = Caffeine.newBuilder().weakKeys().executor(Runnable::run).build();
 
+    /**
+     * ClassLoader -> (WeavePackage -> validation started on the precompute executor). An entry is removed once the
+     * result has been used or discarded.
+     */
+    private final Cache<ClassLoader, ConcurrentMap<WeavePackage, FutureTask<PackageValidationResult>>> precomputedValidations = Caffeine.newBuilder().weakKeys().executor(
+            Runnable::run).build();
+
+    private volatile Executor precomputeExecutor;
+    private volatile WeaveStageListener stageListener;
+
     private final WeavePackageLifetimeListener packageListener;
     private final Instrumentation instrumentation;
     private final int maxPreValidatedClassLoaders;
@@ -125,6 +146,25 @@ public class WeavePackageManager {
         this.preMatchWeaveMethods = preMatchWeaveMethods;
     }
 
+    /**
+     * Validate packages in the background as soon as a new classloader is seen, rather than on the thread that loads
+     * the first matching class. Only takes effect while weave packages are prevalidated per classloader.
+     *
+     * @param executor executor that runs package validations, or <code>null</code> to validate on the calling thread
+     */
+    public void setPrecomputeExecutor(Executor executor) {
+        this.precomputeExecutor = executor;
+    }
+
+    /**
+     * Set the listener that is told how long each stage of {@link #weave} took.
+     *
+     * @param listener stage listener, or <code>null</code> to stop timing stages
+     */
+    public void setStageListener(WeaveStageListener listener) {
+        this.stageListener = listener;
+    }
+
     /**
      * Indicates whether this manager can weave classes loaded by the bootstrap class loader.
      *
@@ -156,6 +196,7 @@ public class WeavePackageManager {
             requiredClasses.addAll(weavePackage.getRequiredClasses());
             requiredAnnotationClasses.addAll(weavePackage.getAllRequiredAnnotationClasses());
             requiredMethodAnnotationClasses.addAll(weavePackage.getAllRequiredMethodAnnotationClasses());
+            invalidateClassMatchIndex();
 
             if (null != packageListener) {
                 packageListener.registered(weavePackage);
@@ -163,6 +204,7 @@ public class WeavePackageManager {
             // Just in case we've already built up the cache before an extension was registered we
             // need to clear the cache to rebuild with the new extension jar on the next call to match()
             optimizedWeavePackages.invalidateAll();
+            precomputedValidations.invalidateAll();
         }
     }
 
@@ -179,9 +221,11 @@ public class WeavePackageManager {
         WeavePackage remove = weavePackages.remove(weavePackage.getName());
         if (null != remove) {
             optimizedWeavePackages.invalidateAll();
+            precomputedValidations.invalidateAll();
             requiredClasses.removeAll(remove.getRequiredClasses());
             // Rebuild method signatures from weavePackages map
             rebuildWeavePackages();
+            invalidateClassMatchIndex();
         }
         if (null != remove && null != packageListener) {
             packageListener.deregistered(remove);
@@ -316,10 +360,16 @@ public class WeavePackageManager {
                         byte[] targetBytes, Map<Method, Collection<String>> skipMethods,
             ClassWeavedListener weaveListener) throws IOException {
         classloader = classLoaderSub(classloader);
-
-        if (preMatchWeaveMethods && !containsPossibleClassOrMethodMatch(className, targetBytes, requiredClasses, methodSignatures, cache)) {
-            // No potential method match was found, we are definitely not weaving this class so we should exit now
-            return null;
+        WeaveStageListener stageListener = this.stageListener;
+        long stageStart = System.nanoTime();
+
+        if (preMatchWeaveMethods) {
+            boolean possibleMatch = containsPossibleClassOrMethodMatch(className, targetBytes, requiredClasses, methodSignatures, cache);
+            stageStart = stageCompleted(stageListener, WeaveStageListener.Stage.PREFILTER, stageStart);
+            if (!possibleMatch) {
+                // No potential method match was found, we are definitely not weaving this class so we should exit now
+                return null;
+            }
         }
 
         ClassInformation classInformation = cache.getClassInformation(className);
@@ -334,6 +384,7 @@ public class WeavePackageManager {
 
         Set<PackageValidationResult> matchedPackageResults = this.match(classloader, cache, className, classAnnotations,
                 methodAnnotations, superNames, interfaceNames);
+        stageStart = stageCompleted(stageListener, WeaveStageListener.Stage.MATCH, stageStart);
         if (matchedPackageResults.isEmpty()) {
             return null;
         }
@@ -344,8 +395,12 @@ public class WeavePackageManager {
         List<PackageValidationResult> sortedMatchedPackages = new ArrayList<>(matchedPackageResults);
         sortedMatchedPackages.sort(PackageValidationResult.CONFIG_COMPARATOR);
         for (PackageValidationResult weavePackageResult : sortedMatchedPackages) {
+            long packageStart = System.nanoTime();
             PackageWeaveResult result = weavePackageResult.weave(className, superNames, interfaceNames, composite,
                                                                  cache, skipMethods);
+            if (null != stageListener) {
+                stageListener.packageWeaved(result, System.nanoTime() - packageStart);
+            }
             if (null != weaveListener) {
                 weaveListener.classWeaved(result, classloader, cache);
             }
@@ -354,7 +409,72 @@ public class WeavePackageManager {
                 finalResult = result;
             }
         }
-        return null == finalResult ? null : finalResult.getCompositeBytes(cache);
+        stageStart = stageCompleted(stageListener, WeaveStageListener.Stage.WEAVE, stageStart);
+        if (null == finalResult) {
+            return null;
+        }
+
+        byte[] compositeBytes = finalResult.getCompositeBytes(cache);
+        stageCompleted(stageListener, WeaveStageListener.Stage.ASSEMBLE, stageStart);
+        return compositeBytes;
+    }
+
+    /**
+     * Report a completed stage to the listener, if there is one.
+     *
+     * @return the time the stage completed, which is the start of the next stage
+     */
+    private static long stageCompleted(WeaveStageListener stageListener, WeaveStageListener.Stage stage, long stageStart) {
+        long now = System.nanoTime();
+        if (null != stageListener) {
+            stageListener.stageCompleted(stage, now - stageStart);
+        }
+        return now;
+    }
+
+    private ClassMatchIndex getClassMatchIndex() {
+        ClassMatchIndex index = classMatchIndex;
+        if (index == null) {
+            synchronized (classMatchIndexLock) {
+                index = classMatchIndex;
+                if (index == null) {
+                    index = ClassMatchIndex.create(requiredClasses, requiredAnnotationClasses,
+                            requiredMethodAnnotationClasses, methodSignatures);
+                    classMatchIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private void invalidateClassMatchIndex() {
+        // Taking the lock makes sure an index that is being built from the old sets can't be published afterwards
+        synchronized (classMatchIndexLock) {
+            classMatchIndex = null;
+        }
+    }
+
+    private void addRequiredClassToClassMatchIndex(String className) {
+        // The class is already in requiredClasses, so an index built after this lock is released will contain it
+        synchronized (classMatchIndexLock) {
+            ClassMatchIndex index = classMatchIndex;
+            if (index != null) {
+                classMatchIndex = index.withRequiredClass(className);
+            }
+        }
+    }
+
+    /**
+     * Run the same quick pre-match check that {@link #weave} uses to rule out classes that can never be weaved.
+     *
+     * @param className target class name
+     * @param targetBytes target class bytes
+     * @param cache {@link ClassCache} to find class metadata
+     * @return <code>false</code> if the class is certain not to be weaved, <code>true</code> otherwise
+     */
+    public boolean isPossibleMatch(String className, byte[] targetBytes, ClassCache cache) {
+        return !preMatchWeaveMethods || containsPossibleClassOrMethodMatch(className, targetBytes, requiredClasses,
+                methodSignatures, cache);
     }
 
     /**
@@ -372,6 +492,11 @@ public class WeavePackageManager {
      */
     private boolean containsPossibleClassOrMethodMatch(final String className, final byte[] classBytes, final Set<String> requiredClasses,
                                                        final Set<String> methodSignatures, final ClassCache cache) {
+        if (!getClassMatchIndex().isPossibleMatch(classBytes, cache)) {
+            // Most classes are rejected here by reading the constant pool and member headers only
+            return false;
+        }
+
         final AtomicBoolean containsPossibleMatch = new AtomicBoolean(false);
         ClassReader originalBytesReader = new ClassReader(classBytes);
         originalBytesReader.accept(new ClassVisitor(WeaveUtils.ASM_API_LEVEL) {
@@ -401,7 +526,9 @@ public class WeavePackageManager {
                 if (!isInterface && requiredAnnotationClasses.contains(annotationClass)) {
                     // Adding class name here allows us to catch interfaces
                     containsPossibleMatch.set(true);
-                    requiredClasses.add(className);
+                    if (requiredClasses.add(className)) {
+                        addRequiredClassToClassMatchIndex(className);
+                    }
 
                     // Found a potential match. Exit early.
                     return null;
@@ -508,7 +635,7 @@ public class WeavePackageManager {
         try {
             // this is the first time we've validated this package against this classloader.
             if (!hasValidated(classloader, weavePackage)) {
-                PackageValidationResult verificationResult = weavePackage.validate(cache);
+                PackageValidationResult verificationResult = validate(classloader, cache, weavePackage);
                 currentValidationResult.set(verificationResult);
 
                 if (null != packageListener) {
@@ -555,6 +682,73 @@ public class WeavePackageManager {
         }
     }
 
+    /**
+     * Validate the package against the classloader, using the result that was precomputed in the background if it is
+     * ready. A validation that is still queued or running is not waited for, since it may need a lock that the calling
+     * thread holds while loading a class.
+     */
+    private PackageValidationResult validate(ClassLoader classloader, ClassCache cache, WeavePackage weavePackage)
+            throws IOException {
+        ConcurrentMap<WeavePackage, FutureTask<PackageValidationResult>> precomputed = precomputedValidations.getIfPresent(classloader);
+        FutureTask<PackageValidationResult> task = precomputed == null ? null : precomputed.remove(weavePackage);
+        if (task != null) {
+            if (task.isDone()) {
+                try {
+                    return task.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    // Fall through and validate on this thread
+                }
+            } else {
+                task.cancel(false);
+            }
+        }
+        return validateAndReport(weavePackage, cache);
+    }
+
+    /**
+     * Validate the package against the cache, reporting the time it took to the stage listener if there is one.
+     */
+    private PackageValidationResult validateAndReport(WeavePackage weavePackage, ClassCache cache) throws IOException {
+        WeaveStageListener stageListener = this.stageListener;
+        if (null == stageListener) {
+            return weavePackage.validate(cache);
+        }
+        long start = System.nanoTime();
+        PackageValidationResult result = weavePackage.validate(cache);
+        stageListener.packageValidated(result, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Start validating the candidate packages for a newly seen classloader on the precompute executor. Bootstrap
+     * packages are validated against a different cache and are always left to the calling thread.
+     */
+    private void precomputeValidations(ClassLoader classloader, final ClassCache cache, Collection<WeavePackage> candidates) {
+        Executor executor = precomputeExecutor;
+        if (null == executor || BootstrapLoader.PLACEHOLDER == classloader) {
+            return;
+        }
+
+        ConcurrentMap<WeavePackage, FutureTask<PackageValidationResult>> tasks = new ConcurrentHashMap<>();
+        for (final WeavePackage weavePackage : candidates) {
+            if (!weavePackage.weavesBootstrap()) {
+                tasks.put(weavePackage, new FutureTask<>(() -> validateAndReport(weavePackage, cache)));
+            }
+        }
+        if (tasks.isEmpty() || precomputedValidations.asMap().putIfAbsent(classloader, tasks) != null) {
+            return;
+        }
+
+        for (FutureTask<PackageValidationResult> task : tasks.values()) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // The executor is full, the package will be validated when a class first matches it
+                task.cancel(false);
+            }
+        }
+    }
+
     /**
      * Determine whether the specified package has been validated by the specified class loader.
      */
@@ -615,17 +809,32 @@ public class WeavePackageManager {
             ConcurrentMap<String, WeavePackage> optimizedMap = optimizedWeavePackages.asMap().putIfAbsent(classloader,
                     classloaderWeavePackages);
             if (optimizedMap == null) {
+                precomputeValidations(classloader, cache, classloaderWeavePackages.values());
+
                 // Run verifications against unmatched packages since this is
                 // the thread that added the packages to the optimized map
-                for (WeavePackage unmatchedWeavePackage : unmatchedWeavePackages) {
-                    try {
-                        PackageValidationResult verificationResult = unmatchedWeavePackage.validate(cache);
-                        if (null != packageListener) {
-                            packageListener.validated(verificationResult, classloader);
+                Runnable validateUnmatched = () -> {
+                    for (WeavePackage unmatchedWeavePackage : unmatchedWeavePackages) {
+                        try {
+                            PackageValidationResult verificationResult = validateAndReport(unmatchedWeavePackage, cache);
+                            if (null != packageListener) {
+                                packageListener.validated(verificationResult, classloader);
+                            }
+                        } catch (Exception e) {
+                            // Ignore
                         }
-                    } catch (Exception e) {
-                        // Ignore
                     }
+                };
+                // These results are only logged, so they never need to hold up the calling thread
+                Executor executor = precomputeExecutor;
+                try {
+                    if (null == executor || unmatchedWeavePackages.isEmpty()) {
+                        validateUnmatched.run();
+                    } else {
+                        executor.execute(validateUnmatched);
+                    }
+                } catch (RejectedExecutionException e) {
+                    validateUnmatched.run();
                 }
             }
         }
@@ -0,0 +1,61 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.weave.weavepackage;
+
+/**
+ * Callback interface for timing the stages that {@link WeavePackageManager} runs for each target class.
+ */
+public interface WeaveStageListener {
+
+    enum Stage {
+        /**
+         * Quick check of the class bytes against the classes and methods of all registered packages.
+         */
+        PREFILTER,
+        /**
+         * Matching the class against packages and validating the matched packages against the classloader.
+         */
+        MATCH,
+        /**
+         * Weaving each matched package into the target class.
+         */
+        WEAVE,
+        /**
+         * Writing the composite class bytes.
+         */
+        ASSEMBLE
+    }
+
+    /**
+     * Called after a stage has completed for a target class.
+     *
+     * @param stage the completed stage
+     * @param durationNanos time spent in the stage, in nanoseconds
+     */
+    void stageCompleted(Stage stage, long durationNanos);
+
+    /**
+     * Called after a single weave package has been weaved into a target class during the {@link Stage#WEAVE} stage,
+     * whether or not the package changed the class.
+     *
+     * @param result the result of weaving the package
+     * @param durationNanos time spent weaving the package, in nanoseconds
+     */
+    default void packageWeaved(PackageWeaveResult result, long durationNanos) {
+    }
+
+    /**
+     * Called after a weave package has been validated against a classloader, on whichever thread ran the validation.
+     * Validations precomputed in the background are reported as well, whether or not their result is used.
+     *
+     * @param result the result of validating the package
+     * @param durationNanos time spent validating the package, in nanoseconds
+     */
+    default void packageValidated(PackageValidationResult result, long durationNanos) {
+    }
+}
@@ -11,6 +11,7 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -108,6 +109,35 @@ public class ClassCacheTest {
         assertEquals(1, finder.getCount(CLASS_NAME_DOES_NOT_EXIST));
     }
 
+    @Test
+    public void testSharedClassInformationStore() throws IOException {
+        ClassInformationStore store = new ClassInformationStore();
+        ClassLoader otherLoader = new ClassLoader(Thread.currentThread().getContextClassLoader()) {
+        };
+        CountingClassFinder otherFinder = new CountingClassFinder(new ClassLoaderFinder(otherLoader));
+        ClassCache first = new ClassCache(finder, store);
+        ClassCache second = new ClassCache(otherFinder, store);
+
+        ClassInformation firstInformation = first.getClassInformation(CLASS_NAME_EXISTS);
+        ClassInformation secondInformation = second.getClassInformation(CLASS_NAME_EXISTS);
+        assertSame(firstInformation, secondInformation);
+        assertEquals(1, store.size());
+        // each classloader is still asked for its own bytes
+        assertEquals(1, finder.getCount(CLASS_NAME_EXISTS));
+        assertEquals(1, otherFinder.getCount(CLASS_NAME_EXISTS));
+
+        assertNull(second.getClassInformation(CLASS_NAME_DOES_NOT_EXIST));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void testClassInformationStoreIsBounded() throws IOException {
+        ClassInformationStore store = new ClassInformationStore(1);
+        store.getClassInformation(WeaveTestUtils.getClassBytes(CLASS_NAME_EXISTS));
+        store.getClassInformation(WeaveTestUtils.getClassBytes(ClassInformation.class.getName()));
+        assertEquals(1, store.size());
+    }
+
     private static class CountingClassFinder implements ClassFinder {
         private final Multiset<String> counts = HashMultiset.create();
         private final ClassFinder delegate;
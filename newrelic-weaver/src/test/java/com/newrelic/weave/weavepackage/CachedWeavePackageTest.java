@@ -7,19 +7,29 @@
 
 package com.newrelic.weave.weavepackage;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.jar.Attributes;
 
 import com.newrelic.weave.utils.ClassCache;
 import com.newrelic.weave.utils.ClassLoaderFinder;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
 
 import com.google.common.collect.ImmutableSet;
 
@@ -138,4 +148,102 @@ public class CachedWeavePackageTest {
         PackageValidationResult result = weavePackage.validate(cache);
         assertTrue(!result.succeeded());
     }
+
+    @Test
+    public void testCreateFromManifestAttributes() throws Exception {
+        Attributes attributes = new Attributes();
+        attributes.putValue("Implementation-Title", "com.newrelic.instrumentation.test");
+        attributes.putValue("Implementation-Version", "2.0");
+        attributes.putValue(CachedWeavePackage.WEAVE_METHODS_MANIFEST_ATTRIBUTE_NAME, "\"execute()V\"");
+        attributes.putValue(CachedWeavePackage.WEAVE_CLASSES_MANIFEST_ATTRIBUTE_NAME, "com/example/Target");
+        attributes.putValue(CachedWeavePackage.REFERENCE_CLASSES_MANIFEST_ATTRIBUTE_NAME, "com/example/Reference");
+        attributes.putValue(CachedWeavePackage.CLASS_REQUIRED_ANNOTATIONS_MANIFEST_ATTRIBUTE_NAME, "");
+        attributes.putValue(CachedWeavePackage.METHOD_REQUIRED_ANNOTATIONS_MANIFEST_ATTRIBUTE_NAME, "");
+        WeavePackageConfig config = WeavePackageConfig.builder().manifest(attributes).build();
+        assertEquals("com.newrelic.instrumentation.test", config.getName());
+        assertEquals(2.0f, config.getVersion(), 0.0f);
+
+        // the jar doesn't exist, which is fine because nothing reads it until a class matches
+        CachedWeavePackage weavePackage = CachedWeavePackage.createWeavePackage(new URL("http://does.not.exist"),
+                attributes, config);
+        assertNotNull(weavePackage);
+        assertEquals(ImmutableSet.of("execute()V"), weavePackage.getMethodSignatures());
+        assertEquals(ImmutableSet.of("com/example/Target", "com/example/Reference"), weavePackage.getRequiredClasses());
+        assertFalse(weavePackage.hasMatcher("one", new String[] { "two" }, new String[0],
+                Collections.<String>emptySet(), Collections.<String>emptySet(), null));
+
+        attributes.remove(new Attributes.Name(CachedWeavePackage.WEAVE_METHODS_MANIFEST_ATTRIBUTE_NAME));
+        assertNull(CachedWeavePackage.createWeavePackage(new URL("http://does.not.exist"), attributes, config));
+    }
+
+    @Test
+    public void testValidateFailPrecompiledReferences() throws IOException {
+        // the jar doesn't exist, so the package fails on its references or throws when it is loaded
+        String references = CachedWeavePackage.encodeReferences(referencesTo(ORIGINAL_BASE, "doesNotExist"));
+        CachedWeavePackage weavePackage = new CachedWeavePackage(new URL("http://does.not.exist"),
+                WeavePackageConfig.builder().name("name").source("source").build(),
+                ImmutableSet.of("somemethod"),
+                ImmutableSet.of("java.lang.String"),
+                ImmutableSet.of(ORIGINAL_BASE),
+                Collections.<String> emptySet(),
+                Collections.<String> emptySet(),
+                Collections.<String> emptySet(),
+                references);
+        ClassCache cache = new ClassCache(new ClassLoaderFinder(classloader));
+        PackageValidationResult result = weavePackage.validate(cache);
+        assertFalse(result.succeeded());
+        assertEquals(1, result.getViolations().size());
+    }
+
+    @Test
+    public void testValidatePrecompiledReferencesThenLoad() throws IOException {
+        String references = CachedWeavePackage.encodeReferences(referencesTo(ORIGINAL_BASE, "unweaved"));
+        CachedWeavePackage weavePackage = new CachedWeavePackage(new URL("http://does.not.exist"),
+                WeavePackageConfig.builder().name("name").source("source").build(),
+                ImmutableSet.of("somemethod"),
+                ImmutableSet.of("java.lang.String"),
+                ImmutableSet.of(ORIGINAL_BASE),
+                Collections.<String> emptySet(),
+                Collections.<String> emptySet(),
+                Collections.<String> emptySet(),
+                references);
+        ClassCache cache = new ClassCache(new ClassLoaderFinder(classloader));
+        try {
+            weavePackage.validate(cache);
+            fail();
+        } catch (IOException ioe) {
+            // the references are valid so the package had to be loaded
+        }
+    }
+
+    @Test
+    public void testEncodeReferences() throws IOException {
+        List<Reference> references = referencesTo(ORIGINAL_BASE, "unweaved");
+        List<Reference> decoded = CachedWeavePackage.decodeReferences(CachedWeavePackage.encodeReferences(references));
+        assertEquals(1, decoded.size());
+        assertEquals(ORIGINAL_BASE, decoded.get(0).className);
+        assertEquals("com/example/Origin", decoded.get(0).referenceOrigin);
+        assertEquals(references.get(0).getMethods().keySet(), decoded.get(0).getMethods().keySet());
+    }
+
+    private static final String ORIGINAL_BASE = "com/newrelic/weave/weavepackage/testclasses/MyOriginalBase";
+
+    /**
+     * References from a class with a single method that calls the named no argument method on the owner.
+     */
+    private static List<Reference> referencesTo(String owner, String methodName) {
+        ClassNode origin = new ClassNode();
+        origin.name = "com/example/Origin";
+        MethodNode method = new MethodNode(Opcodes.ACC_PUBLIC, "run", "()V", null, null);
+        method.instructions.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, owner, methodName, "()Z", false));
+        origin.methods.add(method);
+
+        List<Reference> references = new ArrayList<>();
+        for (Reference reference : Reference.create(origin)) {
+            if (reference.className.equals(owner)) {
+                references.add(reference);
+            }
+        }
+        return references;
+    }
 }
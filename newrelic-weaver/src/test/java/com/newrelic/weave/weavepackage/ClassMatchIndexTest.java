@@ -0,0 +1,161 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.weave.weavepackage;
+
+import com.newrelic.weave.WeaveTestUtils;
+import com.newrelic.weave.utils.ClassCache;
+import com.newrelic.weave.utils.ClassLoaderFinder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Collections;
+import java.util.Set;
+
+public class ClassMatchIndexTest {
+
+    private static final String PREFIX = "com/newrelic/weave/weavepackage/ClassMatchIndexTest$";
+    private static final Set<String> NONE = Collections.emptySet();
+
+    private final ClassCache cache = new ClassCache(new ClassLoaderFinder(ClassMatchIndexTest.class.getClassLoader()));
+
+    @Test
+    public void testExactClassMatch() throws IOException {
+        ClassMatchIndex index = ClassMatchIndex.create(Collections.singleton(PREFIX + "Base"), NONE, NONE, NONE);
+        Assert.assertTrue(index.isPossibleMatch(bytes("Base"), cache));
+        Assert.assertFalse(index.isPossibleMatch(bytes("Unrelated"), cache));
+    }
+
+    @Test
+    public void testSuperClassMatch() throws IOException {
+        ClassMatchIndex index = ClassMatchIndex.create(Collections.singleton(PREFIX + "Base"), NONE, NONE, NONE);
+        Assert.assertTrue(index.isPossibleMatch(bytes("Sub"), cache));
+    }
+
+    @Test
+    public void testReferencedClassIsNotAMatch() throws IOException {
+        // Unrelated uses Base in a method body, which puts Base in its constant pool
+        ClassMatchIndex index = ClassMatchIndex.create(Collections.singleton(PREFIX + "Base"), NONE, NONE, NONE);
+        Assert.assertFalse(index.isPossibleMatch(bytes("Unrelated"), cache));
+    }
+
+    @Test
+    public void testMethodSignatureMatch() throws IOException {
+        ClassMatchIndex index = ClassMatchIndex.create(NONE, NONE, NONE, Collections.singleton("execute(I)V"));
+        Assert.assertTrue(index.isPossibleMatch(bytes("Base"), cache));
+        Assert.assertFalse(index.isPossibleMatch(bytes("Unrelated"), cache));
+    }
+
+    @Test
+    public void testMethodNameAndDescriptorMustBePaired() throws IOException {
+        // Unrelated has both "execute" and "(I)V" in its constant pool but not as one method
+        ClassMatchIndex index = ClassMatchIndex.create(NONE, NONE, NONE, Collections.singleton("execute(I)V"));
+        Assert.assertFalse(index.isPossibleMatch(bytes("Unrelated"), cache));
+
+        index = ClassMatchIndex.create(NONE, NONE, NONE, Collections.singleton("execute()V"));
+        Assert.assertTrue(index.isPossibleMatch(bytes("Unrelated"), cache));
+
+        index = ClassMatchIndex.create(NONE, NONE, NONE, Collections.singleton("close(I)V"));
+        Assert.assertFalse(index.isPossibleMatch(bytes("Unrelated"), cache));
+    }
+
+    @Test
+    public void testDefaultConstructorIsIgnored() throws IOException {
+        ClassMatchIndex index = ClassMatchIndex.create(NONE, NONE, NONE, Collections.singleton("<init>()V"));
+        Assert.assertFalse(index.isPossibleMatch(bytes("Unrelated"), cache));
+    }
+
+    @Test
+    public void testAnnotationMatch() throws IOException {
+        Set<String> annotation = Collections.singleton(ClassMatchIndexTest.class.getName() + "$Marker");
+        ClassMatchIndex index = ClassMatchIndex.create(NONE, annotation, NONE, NONE);
+        Assert.assertTrue(index.isPossibleMatch(bytes("Annotated"), cache));
+        Assert.assertFalse(index.isPossibleMatch(bytes("Unrelated"), cache));
+
+        index = ClassMatchIndex.create(NONE, NONE, annotation, NONE);
+        Assert.assertTrue(index.isPossibleMatch(bytes("AnnotatedMethod"), cache));
+    }
+
+    @Test
+    public void testInterfaceAnnotationMatch() throws IOException {
+        Set<String> annotation = Collections.singleton(ClassMatchIndexTest.class.getName() + "$Marker");
+        ClassMatchIndex index = ClassMatchIndex.create(NONE, annotation, NONE, NONE);
+        Assert.assertTrue(index.isPossibleMatch(bytes("ImplementsAnnotated"), cache));
+    }
+
+    @Test
+    public void testUnparseableClassNeedsFullCheck() {
+        ClassMatchIndex index = ClassMatchIndex.create(NONE, NONE, NONE, NONE);
+        Assert.assertTrue(index.isPossibleMatch(new byte[] { (byte) 0xca, (byte) 0xfe }, cache));
+    }
+
+    @Test
+    public void testWithRequiredClass() throws IOException {
+        ClassMatchIndex index = ClassMatchIndex.create(NONE, NONE, NONE, Collections.singleton("execute(I)V"));
+        ClassMatchIndex added = index.withRequiredClass(PREFIX + "Unrelated");
+        Assert.assertTrue(added.isPossibleMatch(bytes("Unrelated"), cache));
+        Assert.assertTrue(added.isPossibleMatch(bytes("Base"), cache));
+        // the original index is left as it was
+        Assert.assertFalse(index.isPossibleMatch(bytes("Unrelated"), cache));
+        Assert.assertSame(added, added.withRequiredClass(PREFIX + "Unrelated"));
+    }
+
+    @Test
+    public void testWithRequiredClassWhenFull() {
+        ClassMatchIndex index = ClassMatchIndex.create(NONE, NONE, NONE, NONE);
+        for (int i = 0; i < 8; i++) {
+            index = index.withRequiredClass(PREFIX + "Class" + i);
+            Assert.assertNotNull(index);
+        }
+        Assert.assertNull(index.withRequiredClass(PREFIX + "Class8"));
+    }
+
+    private static byte[] bytes(String simpleName) throws IOException {
+        return WeaveTestUtils.getClassBytes(ClassMatchIndexTest.class.getName() + "$" + simpleName);
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Marker {
+    }
+
+    public static class Base {
+        public void execute(int value) {
+        }
+    }
+
+    public static class Sub extends Base {
+    }
+
+    public static class Unrelated {
+        public void execute() {
+            new Base().execute(1);
+        }
+
+        public void close(long value) {
+        }
+    }
+
+    @Marker
+    public static class Annotated {
+    }
+
+    public static class AnnotatedMethod {
+        @Marker
+        public void run() {
+        }
+    }
+
+    @Marker
+    public interface AnnotatedInterface {
+    }
+
+    public static class ImplementsAnnotated implements AnnotatedInterface {
+    }
+}
@@ -24,6 +24,7 @@ import org.mockito.Mockito;
 import java.io.IOException;
 import java.lang.instrument.Instrumentation;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -31,6 +32,8 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class WeavePackageManagerTest {
     private static final String UTIL_CLASS_NAME = "com.newrelic.weave.weavepackage.testclasses.WeaveUtilityClass2";
@@ -452,6 +455,84 @@ public class WeavePackageManagerTest {
         Assert.assertTrue(expectedInvokeCount == listener.invokeCount);
     }
 
+    @Test
+    public void testStageListener() throws IOException {
+        final List<WeaveStageListener.Stage> stages = new ArrayList<>();
+        WeavePackageManager wpm = new WeavePackageManager();
+        wpm.setStageListener((stage, durationNanos) -> {
+            Assert.assertTrue(durationNanos >= 0);
+            stages.add(stage);
+        });
+        wpm.register(testPackage1);
+
+        ClassLoader cl = new ClassLoader(Thread.currentThread().getContextClassLoader()) {
+        };
+        byte[] result = wpm.weave(cl, new ClassCache(new ClassLoaderFinder(cl)),
+                "com/newrelic/weave/weavepackage/testclasses/MyOriginalBase",
+                WeaveTestUtils.getClassBytes("com.newrelic.weave.weavepackage.testclasses.MyOriginalBase"),
+                Collections.emptyMap(), null);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(Arrays.asList(WeaveStageListener.Stage.PREFILTER, WeaveStageListener.Stage.MATCH,
+                WeaveStageListener.Stage.WEAVE, WeaveStageListener.Stage.ASSEMBLE), stages);
+
+        stages.clear();
+        result = wpm.weave(cl, new ClassCache(new ClassLoaderFinder(cl)),
+                "com/newrelic/weave/weavepackage/WeavePackageManagerTest$TestListener",
+                WeaveTestUtils.getClassBytes("com.newrelic.weave.weavepackage.WeavePackageManagerTest$TestListener"),
+                Collections.emptyMap(), null);
+        Assert.assertNull(result);
+        Assert.assertEquals(WeaveStageListener.Stage.PREFILTER, stages.get(0));
+        Assert.assertFalse(stages.contains(WeaveStageListener.Stage.ASSEMBLE));
+    }
+
+    /**
+     * Packages validated on the precompute executor are used instead of validating again, and are still reported to
+     * the listener only once.
+     */
+    @Test
+    public void testPrecomputedValidation() throws IOException {
+        TestListener listener = new TestListener();
+        final AtomicInteger executed = new AtomicInteger();
+        WeavePackageManager wpm = new WeavePackageManager(listener);
+        wpm.setPrecomputeExecutor(command -> {
+            executed.incrementAndGet();
+            command.run();
+        });
+        wpm.register(testPackage1);
+        wpm.register(testPackage2);
+        int expectedInvokeCount = 2;
+
+        ClassLoader cl = new ClassLoader(Thread.currentThread().getContextClassLoader()) {
+        };
+        byte[] result = wpm.weave(cl, new ClassCache(new ClassLoaderFinder(cl)),
+                "com/newrelic/weave/weavepackage/testclasses/MyOriginalBase",
+                WeaveTestUtils.getClassBytes("com.newrelic.weave.weavepackage.testclasses.MyOriginalBase"),
+                Collections.emptyMap(), listener);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(2, executed.get());
+        expectedInvokeCount += 4; // two packages, each with a match and weave
+        Assert.assertEquals(expectedInvokeCount, listener.invokeCount);
+        Assert.assertEquals(2, wpm.validPackages.getIfPresent(cl).size());
+    }
+
+    @Test
+    public void testPrecomputeExecutorRejection() throws IOException {
+        WeavePackageManager wpm = new WeavePackageManager();
+        wpm.setPrecomputeExecutor(command -> {
+            throw new RejectedExecutionException();
+        });
+        wpm.register(testPackage1);
+
+        ClassLoader cl = new ClassLoader(Thread.currentThread().getContextClassLoader()) {
+        };
+        byte[] result = wpm.weave(cl, new ClassCache(new ClassLoaderFinder(cl)),
+                "com/newrelic/weave/weavepackage/testclasses/MyOriginalBase",
+                WeaveTestUtils.getClassBytes("com.newrelic.weave.weavepackage.testclasses.MyOriginalBase"),
+                Collections.emptyMap(), null);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(1, wpm.validPackages.getIfPresent(cl).size());
+    }
+
     private static int getCacheSize(Cache<?, ?> cache) {
         // Trigger cache cleanup to evict expired entries.
         cache.cleanUp();